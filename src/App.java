@@ -22,7 +22,6 @@
 import java.io.IOException;
 import java.io.File;
 import java.util.Scanner;
-import java.nio.file.Files;
 import java.sql.SQLException;
 
 //built with 'javac -d ../build *.java' within the src directory
@@ -45,20 +44,34 @@ public class App {
     // the entry point of the program
     // creates the database if it doesnt exist
     // and processes a input file for creating customers, vehicles, and appointments
+    // when arguments are provided the import runs without prompts, see BatchImport
+    // or with --serve the scheduler is served over HTTP, see BookingServer
+    // or with --shops several shops are searched at once, see ShardManager
+    // or with --simulate staffing and catalog changes are tried in memory, see WhatIfSimulator
+    // or with --optimize the book is compacted offline, see ScheduleOptimizer
     public static void main(String[] args) {
+        // serve the scheduler over HTTP
+        if (args.length > 0 && args[0].equals("--serve"))
+            System.exit(BookingServer.run(args));
+        // search every shop in a directory
+        if (args.length > 0 && args[0].equals("--shops"))
+            System.exit(ShardManager.run(args));
+        // simulate other configurations without changing the database
+        if (args.length > 0 && args[0].equals("--simulate"))
+            System.exit(WhatIfSimulator.run(args));
+        // compact the next weeks of the book
+        if (args.length > 0 && args[0].equals("--optimize"))
+            System.exit(ScheduleOptimizer.run(args));
+        // run headless if any command line arguments are provided
+        if (args.length > 0)
+            System.exit(BatchImport.run(args));
+
         // Scanner for taking console input
         Scanner input = new java.util.Scanner(System.in);
 
         try {
             // populate the arrays using the database
-            arrMechanics = Mechanic.getMechanics();
-            arrCustomers = Customer.getCustomers();
-            arrVehicles = Vehicle.getVehicles();
-            arrServices = Service.getServices();
-            arrBays = Bay.getBays();
-
-            // on start up populate the allMechanicSchedule with the existing schedule
-            arrSchedules = Schedule.prepopulateSchedules(arrCustomers, arrVehicles, arrServices, arrBays, arrMechanics);
+            loadEntities();
 
             // if debug output print the database arrays
             if (DEBUG_OUTPUT)
@@ -85,10 +98,10 @@ public class App {
                         // if not show a error
                         System.out.println("That file does not exist!");
                 }
-                // store the lines of the file in a array
-                String[] arrFileLines = readFile(inputFile);
+                // read the file and find where a previous import of it stopped
+                ImportCheckpoint checkpoint = ImportCheckpoint.open(inputFile);
                 // process the lines of the file
-                processFileLines(arrFileLines, input);
+                processFileLines(checkpoint, input, new File(inputFile.getPath() + ".rejects"));
             }
             // display the ouput schedules
             if (arrSchedules.length > 0)
@@ -121,58 +134,92 @@ public class App {
     }
 
     /**
-     * Reads all lines of the provided file
+     * Populates the entity arrays from the database and prepopulates the schedule
+     * data structure with the existing schedule
+     * 
+     * @throws SQLException throws a SQL exception if there is an error with a
+     *                      database query
+     * @throws IOException  throws if the redo file of a earlier run cannot be
+     *                      read
+     */
+    public static void loadEntities() throws SQLException, IOException {
+        // save bookings confirmed by a earlier run that stopped before saving them
+        Entity.initializeDatabase();
+        int intReplayed = WriteBehindLog.recover(Entity.Database);
+        if (intReplayed > 0)
+            System.out.println("Replayed " + intReplayed + " bookings from " + WriteBehindLog.getRedoFileName(Entity.Database));
+
+        // populate the arrays using the database
+        arrMechanics = Mechanic.getMechanics();
+        arrCustomers = Customer.getCustomers();
+        arrVehicles = Vehicle.getVehicles();
+        arrServices = Service.getServices();
+        arrBays = Bay.getBays();
+
+        // on start up populate the allMechanicSchedule with the existing schedule
+        arrSchedules = Schedule.prepopulateSchedules(arrCustomers, arrVehicles, arrServices, arrBays, arrMechanics);
+    }
+
+    /**
+     * Reads the customers, vehicles, and appointments again after an import batch
+     * was rolled back, so the arrays and the schedule data structure do not keep
+     * the entities the batch created. Nothing is read if the arrays were never
+     * loaded, such as for a bulk load
      * 
-     * @param inputFile the file path to read
-     * @return the lines of the file in a string array
-     * @throws IOException file not found exception
+     * @throws SQLException throws a SQL exception if there is an error with a
+     *                      database query
      */
-    public static String[] readFile(File inputFile) throws IOException {
-        // return the lines of the input file in a string array
-        return Files.readAllLines(inputFile.toPath()).toArray(new String[0]);
+    public static void reloadAfterRollback() throws SQLException {
+        if (arrMechanics == null)
+            return;
+        arrCustomers = Customer.getCustomers();
+        arrVehicles = Vehicle.getVehicles();
+        arrSchedules = Schedule.resyncAfterRollback();
     }
 
     /**
      * Processes each line of the file Running one of three functions for each line
      * depending on the function character of the line Can add a new customers,
-     * vehicles, and/or appointments from the string array
+     * vehicles, and/or appointments from the string array. The lines are parsed
+     * and validated in parallel and committed in file order, rejected lines are
+     * written to the reject file with the reason. Lines committed by a previous
+     * import of the same file are skipped
      * 
-     * @param arrFileLines a string array of input lines representing a new
-     *                     customer, vehicle or appointment
-     * @param input        the scanner for accepting command line input
+     * @param checkpoint the lines of the input file and how far a previous import
+     *                   of it got
+     * @param input      the scanner for accepting command line input
+     * @param rejectFile the file to write rejected lines to
      * @throws SQLException throws a SQL exception if there is a error with a
      *                      database query and the user does not want to continue
+     * @throws IOException  throws if the reject file cannot be written
      */
-    public static void processFileLines(String[] arrFileLines, Scanner input) throws SQLException {
-        // foreach line of the file
-        for (String strLine : arrFileLines) {
-            // split the line by the delimiter
-            String[] arrSplit = strLine.split(FILE_DELIMITER);
-            // get the action from the line
-            final String ACTION = arrSplit[0];
-            try {
-                // if C action
-                if (ACTION.equals("C"))
-                    // create a new customer with the line
-                    arrCustomers = Customer.createCustomer(arrSplit[1], arrCustomers);
-                else if (ACTION.equals("V"))
-                    // create a new vehicle with the line
-                    arrVehicles = Vehicle.createVehicle(arrSplit[1], arrSplit[2], arrCustomers, arrVehicles);
-                else if (ACTION.equals("S"))
-                    // create a new appointment with the line
-                    arrSchedules = Schedule.createAppointment(-1, arrSplit[1], arrSplit[2], arrSplit[3], arrCustomers,
-                            arrVehicles, arrServices, arrBays, arrMechanics);
-                else
-                    // action not recognized
-                    System.out.println("Error parsing line: " + strLine);
-            } catch (SQLException ex) {
-                System.out.println(ex.getMessage());
+    public static void processFileLines(ImportCheckpoint checkpoint, Scanner input, File rejectFile)
+            throws SQLException, IOException {
+        // the lines of the file representing new customers, vehicles or appointments
+        String[] arrFileLines = checkpoint.getLines();
+        // tell the user if a previous import of the file is being resumed
+        if (checkpoint.getResumeIndex() == arrFileLines.length && arrFileLines.length > 0) {
+            System.out.println("This file has already been imported");
+            return;
+        } else if (checkpoint.getResumeIndex() > 0) {
+            System.out.println("Resuming the import at line " + (checkpoint.getResumeIndex() + 1));
+        }
+        // the pipeline validating the lines against the entities currently in the
+        // database
+        ImportPipeline pipeline = new ImportPipeline(arrCustomers, arrVehicles, arrServices);
+        try {
+            pipeline.run(arrFileLines, checkpoint.getResumeIndex(), checkpoint, (failedLine) -> {
+                System.out.println(failedLine.strRejectReason);
                 // If error ask the user if they would like to ignore it
                 System.out.println("Would you like to continue? (Yes/No)");
-                // if no rethrow the error so the program can exit
-                if (input.nextLine().toLowerCase().equals("no")) {
-                    throw ex;
-                }
+                // if no stop the import so the program can exit
+                return !input.nextLine().toLowerCase().equals("no");
+            });
+        } finally {
+            // divert the rejected lines to the reject file
+            if (!pipeline.getRejected().isEmpty()) {
+                pipeline.writeRejects(rejectFile);
+                System.out.println(pipeline.getRejected().size() + " line(s) rejected, see " + rejectFile.getPath());
             }
         }
     }
@@ -186,18 +233,22 @@ public class App {
     public static void displaySchedule() throws SQLException {
         // print the schedule
         System.out.println("Appointment Schedule");
-        // the mechanics paycheck were the indexes are mechanic tuid - 1 and week number
-        // starting at 0
-        double[][] paychecks = Schedule.getPaychecks(arrMechanics, arrServices);
+        // one point in time view of the schedule so the appointments and paychecks
+        // agree while bookings continue
+        ScheduleSnapshot snapshot = Schedule.getEngine(arrServices, arrBays, arrMechanics).getSnapshot();
+        // the mechanics paycheck were the indexes are the mechanic's place in
+        // arrMechanics, not its id, and week number starting at 0
+        double[][] paychecks = snapshot.getPaychecks(arrMechanics);
         // foreach mechanic
-        for (Mechanic currMechanic : arrMechanics) {
+        for (int m = 0; m < arrMechanics.length; m++) {
+            Mechanic currMechanic = arrMechanics[m];
             // print schedule header
             System.out.println(currMechanic.strName + "'s Schedule");
             System.out.println(String.format(OUTPUT_FORMAT, HEADERS));
             // get the mechanic's bay id
             final int BAY_TUID = Bay.getMechanicsBay(currMechanic).getTUID();
             // foreach schedule
-            for (Schedule currSchedule : arrSchedules) {
+            for (Schedule currSchedule : snapshot.getAppointments()) {
                 // if the schedule belong to the bay/mechanic
                 if (currSchedule.Bays_TUID == BAY_TUID) {
                     // get the appointment vehicle
@@ -215,9 +266,9 @@ public class App {
             // display paychecks for the weeks in the system
             System.out.println("Paychecks: ");
             // foreach paycheck belonging to the current mechanic
-            for (int i = 0; i < paychecks[currMechanic.getTUID() - 1].length; i++) {
+            for (int i = 0; i < paychecks[m].length; i++) {
                 // get the current paycheck
-                double currPaycheck = paychecks[currMechanic.getTUID() - 1][i];
+                double currPaycheck = paychecks[m][i];
                 // if nonzero print the paycheck amount
                 if (currPaycheck != 0)
                     System.out.println(String.format("Week %d: $%,.2f", i + 1, currPaycheck));
@@ -227,7 +278,7 @@ public class App {
 
             // if debug out print the mechanic schedules data structure
             if (DEBUG_OUTPUT) {
-                Schedule.printScheduleDataStructure();
+                snapshot.printScheduleDataStructure();
             }
         }
     }
@@ -0,0 +1,132 @@
+
+/**
+ * Filename: AvailabilityCache.java
+ *
+ * Project: Homework3
+ *
+ * Author: Kevin Gyorick
+ *
+ * Date: 10/19/2026
+ *
+ * File Purpose:    This file caches the earliest open starts of each mechanic for each length of
+ *                  service, so availability queries between bookings do not search the schedules again.
+ *                  An entry is kept with the version of the mechanic's schedule it was read from and is
+ *                  only read again once that mechanic's schedule has changed, so a booking only costs
+ *                  the next query the search of the one mechanic it was booked with.
+ *
+ * Program Purpose: The program schedules appointments for a mechanic shop.
+ *                  Appointments are scheduled first come, first served as
+ *                  long as the job can be completed the same day it is started
+ *                  given the current schedule. Mechanics with lower bay numbers
+ *                  assigned have higher priority when multiple mechanics are available
+ */
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+public class AvailabilityCache {
+    static final int CACHED_STARTS = 32; // the number of starts kept per mechanic and length of service
+
+    // the cached starts by mechanic index in the high half and timeslots needed in
+    // the low half
+    private final ConcurrentHashMap<Long, Entry> mapEntries = new ConcurrentHashMap<Long, Entry>();
+    private final LongAdder lngHits = new LongAdder(); // the number of lookups answered from the cache
+    private final LongAdder lngMisses = new LongAdder(); // the number of lookups that searched a schedule
+
+    /**
+     * The earliest starts of one mechanic's schedule as of a version
+     */
+    private static final class Entry {
+        final long lngVersion; // the version of the schedule the starts were read from
+        final int[] arrStarts; // the starts in timeslots from next monday, earliest first
+
+        /**
+         * construct an entry
+         *
+         * @param lngVersion the version of the schedule the starts were read from
+         * @param arrStarts  the starts, earliest first
+         */
+        Entry(long lngVersion, int[] arrStarts) {
+            this.lngVersion = lngVersion;
+            this.arrStarts = arrStarts;
+        }
+    }
+
+    /**
+     * Gets the earliest starts on a mechanic's schedule for a service, from the
+     * cache if the schedule has not changed since they were read. Asking for more
+     * starts than are cached searches the schedule without caching the result
+     *
+     * @param intMechanicNum the index of the mechanic
+     * @param schedule       the mechanic's schedule
+     * @param intSlotsNeeded the number of timeslots the service takes
+     * @param intCount       the number of starts wanted
+     * @return at least the number of starts wanted, in timeslots from next monday
+     *         counting only work days, earliest first
+     */
+    public int[] getStarts(int intMechanicNum, MechanicSchedule schedule, int intSlotsNeeded, int intCount) {
+        if (intCount > CACHED_STARTS) {
+            lngMisses.increment();
+            return findStarts(schedule, intSlotsNeeded, intCount);
+        }
+        final Long KEY = ((long) intMechanicNum << 32) | intSlotsNeeded;
+        // the version is read before the search, so a change during the search leaves
+        // the entry stale instead of wrong
+        final long VERSION = schedule.getVersion();
+        Entry cached = mapEntries.get(KEY);
+        if (cached != null && cached.lngVersion == VERSION) {
+            lngHits.increment();
+            return cached.arrStarts;
+        }
+        lngMisses.increment();
+        int[] arrStarts = findStarts(schedule, intSlotsNeeded, CACHED_STARTS);
+        mapEntries.put(KEY, new Entry(VERSION, arrStarts));
+        return arrStarts;
+    }
+
+    /**
+     * Finds the earliest starts on a schedule where a service fits in one day.
+     * Every timeslot of an opening that leaves room for the service is a start.
+     * Weeks past the end of the schedule are open, so there are always enough
+     *
+     * @param schedule       the mechanic's schedule
+     * @param intSlotsNeeded the number of timeslots the service takes
+     * @param intCount       the number of starts to find
+     * @return the starts in timeslots from next monday counting only work days,
+     *         earliest first
+     */
+    static int[] findStarts(MechanicSchedule schedule, int intSlotsNeeded, int intCount) {
+        final int SLOTS_PER_DAY = schedule.getSlotsPerDay();
+        int[] arrStarts = new int[intCount];
+        int intFound = 0;
+        for (int intDay = 0; intFound < intCount; intDay++) {
+            final int WEEK = intDay / MechanicSchedule.NUM_WORK_DAYS;
+            final int DAY = intDay % MechanicSchedule.NUM_WORK_DAYS;
+            // the length of the open run ending at the current timeslot
+            int intRun = 0;
+            for (int t = 0; t < SLOTS_PER_DAY && intFound < intCount; t++) {
+                intRun = schedule.getSlot(WEEK, DAY, t) ? 0 : intRun + 1;
+                if (intRun >= intSlotsNeeded)
+                    arrStarts[intFound++] = intDay * SLOTS_PER_DAY + t - intSlotsNeeded + 1;
+            }
+        }
+        return arrStarts;
+    }
+
+    /**
+     * Gets the number of lookups answered from the cache
+     *
+     * @return the number of cache hits
+     */
+    public long getHits() {
+        return lngHits.sum();
+    }
+
+    /**
+     * Gets the number of lookups that searched a schedule
+     *
+     * @return the number of cache misses
+     */
+    public long getMisses() {
+        return lngMisses.sum();
+    }
+}
@@ -0,0 +1,304 @@
+
+/**
+ * Filename: BatchImport.java
+ *
+ * Project: Homework3
+ *
+ * Author: Kevin Gyorick
+ *
+ * Date: 10/19/2026
+ *
+ * File Purpose:    This file runs an import without prompting the user so it can be scheduled from cron.
+ *                  The input file, error policy, report file, and database removal are all
+ *                  given as command line arguments. Errors are collected while importing and
+ *                  written as a summary once the import is finished.
+ *
+ * Program Purpose: The program schedules appointments for a mechanic shop.
+ *                  Appointments are scheduled first come, first served as
+ *                  long as the job can be completed the same day it is started
+ *                  given the current schedule. Mechanics with lower bay numbers
+ *                  assigned have higher priority when multiple mechanics are available
+ */
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class BatchImport {
+    static final int EXIT_OK = 0; // the import finished, rejected lines may have been skipped
+    static final int EXIT_USAGE = 2; // the command line arguments are invalid
+    static final int EXIT_ABORTED = 3; // the import was stopped by the error policy
+    static final int EXIT_FAILED = 4; // the import could not run
+    static final String USAGE = "Usage: java App --input <file> [--on-error skip|fail-fast|max=<n>] [--report <file>]"
+            + " [--bulk-load] [--print-schedule] [--drop-db]";
+
+    /**
+     * What the import does when a line is rejected
+     */
+    enum ErrorPolicy {
+        SKIP, // log the line and keep going
+        FAIL_FAST, // stop on the first rejected line
+        MAX_ERRORS // keep going until more than the allowed number of lines are rejected
+    }
+
+    File inputFile = null; // the file to import
+    File reportFile = null; // the file to write the summary to, null prints it to the console
+    ErrorPolicy errorPolicy = ErrorPolicy.SKIP; // what to do when a line is rejected
+    int intMaxErrors = 0; // the number of rejected lines allowed by the MAX_ERRORS policy
+    boolean blnBulkLoad = false; // whether or not to load customers and vehicles through the staging tables
+    boolean blnPrintSchedule = false; // whether or not to print the schedule after the import
+    boolean blnDropDatabase = false; // whether or not to drop the database after the import
+
+    /**
+     * Parses the command line arguments
+     *
+     * @param args the command line arguments
+     * @return the parsed options
+     * @throws IllegalArgumentException throws if an argument is unknown or missing
+     *                                  its value
+     */
+    static BatchImport parseArgs(String[] args) throws IllegalArgumentException {
+        BatchImport options = new BatchImport();
+        // foreach argument
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--input":
+                    options.inputFile = new File(argValue(args, ++i));
+                    break;
+                case "--report":
+                    options.reportFile = new File(argValue(args, ++i));
+                    break;
+                case "--on-error":
+                    options.parseErrorPolicy(argValue(args, ++i));
+                    break;
+                case "--bulk-load":
+                    options.blnBulkLoad = true;
+                    break;
+                case "--print-schedule":
+                    options.blnPrintSchedule = true;
+                    break;
+                case "--drop-db":
+                    options.blnDropDatabase = true;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown argument " + args[i]);
+            }
+        }
+        if (options.inputFile == null)
+            throw new IllegalArgumentException("No input file provided");
+        return options;
+    }
+
+    /**
+     * Gets the value following an argument
+     *
+     * @param args the command line arguments
+     * @param i    the index of the value
+     * @return the value of the argument
+     * @throws IllegalArgumentException throws if there is no value
+     */
+    private static String argValue(String[] args, int i) throws IllegalArgumentException {
+        if (i >= args.length)
+            throw new IllegalArgumentException("Missing value for " + args[i - 1]);
+        return args[i];
+    }
+
+    /**
+     * Parses the error policy argument
+     *
+     * @param strPolicy skip, fail-fast, or max=n
+     * @throws IllegalArgumentException throws if the policy is not recognized
+     */
+    private void parseErrorPolicy(String strPolicy) throws IllegalArgumentException {
+        if (strPolicy.equals("skip")) {
+            errorPolicy = ErrorPolicy.SKIP;
+        } else if (strPolicy.equals("fail-fast")) {
+            errorPolicy = ErrorPolicy.FAIL_FAST;
+        } else if (strPolicy.startsWith("max=")) {
+            errorPolicy = ErrorPolicy.MAX_ERRORS;
+            try {
+                intMaxErrors = Integer.parseInt(strPolicy.substring(4));
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("Invalid error threshold " + strPolicy);
+            }
+        } else {
+            throw new IllegalArgumentException("Unknown error policy " + strPolicy);
+        }
+    }
+
+    /**
+     * Runs an import from the command line arguments without any prompts
+     *
+     * @param args the command line arguments
+     * @return the exit code of the import
+     */
+    public static int run(String[] args) {
+        BatchImport options;
+        try {
+            options = parseArgs(args);
+        } catch (IllegalArgumentException ex) {
+            System.err.println(ex.getMessage());
+            System.err.println(USAGE);
+            return EXIT_USAGE;
+        }
+        return options.run();
+    }
+
+    /**
+     * Runs the import with these options
+     *
+     * @return the exit code of the import
+     */
+    int run() {
+        // the exit code of the import
+        int intExitCode = EXIT_OK;
+        // the lines rejected during the import
+        List<ImportPipeline.ImportLine> lstRejected = new ArrayList<ImportPipeline.ImportLine>();
+        // the number of lines committed during the import
+        int intCommitted = 0;
+        // the number of lines in the input file
+        int intLineCount = 0;
+        // the index of the first line not committed by a previous run
+        int intResumeIndex = 0;
+        // why the import stopped early, null if it ran to the end
+        String strAbortReason = null;
+
+        try {
+            // populate the arrays using the database, a bulk load only needs them to print
+            // the schedule
+            if (!blnBulkLoad || blnPrintSchedule)
+                App.loadEntities();
+            // read the file and find where a previous import of it stopped
+            ImportCheckpoint checkpoint = ImportCheckpoint.open(inputFile);
+            String[] arrFileLines = checkpoint.getLines();
+            intLineCount = arrFileLines.length;
+            intResumeIndex = checkpoint.getResumeIndex();
+            if (blnBulkLoad) {
+                // load the customers and vehicles, saving nothing if the error policy is broken
+                BulkLoader loader = new BulkLoader();
+                try {
+                    loader.run(arrFileLines, intResumeIndex, checkpoint, this::withinErrorPolicy);
+                } finally {
+                    lstRejected = loader.getRejected();
+                    intCommitted = loader.getCommittedCount();
+                }
+                if (loader.isStopped()) {
+                    strAbortReason = "Rolled back by the " + errorPolicy + " error policy";
+                    intExitCode = EXIT_ABORTED;
+                }
+            } else {
+                ImportPipeline pipeline = new ImportPipeline(App.arrCustomers, App.arrVehicles, App.arrServices);
+                try {
+                    // process the lines, consulting the error policy on each rejected line
+                    pipeline.run(arrFileLines, intResumeIndex, checkpoint,
+                            (failedLine) -> withinErrorPolicy(pipeline.getRejected().size()));
+                } catch (SQLException ex) {
+                    // anything other than the error policy stopping the import is a failure
+                    if (!pipeline.isStopped())
+                        throw ex;
+                    // the error policy stopped the import
+                    strAbortReason = "Stopped by the " + errorPolicy + " error policy at line "
+                            + pipeline.getRejected().get(pipeline.getRejected().size() - 1).intLineNumber;
+                    intExitCode = EXIT_ABORTED;
+                } finally {
+                    lstRejected = pipeline.getRejected();
+                    intCommitted = pipeline.getCommittedCount();
+                }
+            }
+            // display the ouput schedules
+            if (blnPrintSchedule && App.arrSchedules.length > 0)
+                App.displaySchedule();
+        } catch (Exception ex) {
+            strAbortReason = ex.toString();
+            intExitCode = EXIT_FAILED;
+        }
+
+        try {
+            writeReport(lstRejected, intCommitted, intLineCount, intResumeIndex, strAbortReason);
+        } catch (IOException ex) {
+            System.err.println("Could not write the report: " + ex.getMessage());
+            if (intExitCode == EXIT_OK)
+                intExitCode = EXIT_FAILED;
+        }
+
+        try {
+            // remove the database if requested
+            if (blnDropDatabase) {
+                Entity.dropDatabase();
+                System.out.println("Database dropped");
+            }
+        } catch (Exception ex) {
+            ex.printStackTrace();
+            if (intExitCode == EXIT_OK)
+                intExitCode = EXIT_FAILED;
+        }
+        return intExitCode;
+    }
+
+    /**
+     * Applies the error policy to the number of lines rejected so far
+     *
+     * @param intRejected the number of lines rejected so far
+     * @return true to keep importing
+     */
+    private boolean withinErrorPolicy(int intRejected) {
+        switch (errorPolicy) {
+            case FAIL_FAST:
+                return intRejected == 0;
+            case MAX_ERRORS:
+                return intRejected <= intMaxErrors;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Writes the summary of the import to the report file or the console
+     *
+     * @param lstRejected    the lines rejected during the import
+     * @param intCommitted   the number of lines committed during the import
+     * @param intLineCount   the number of lines in the input file
+     * @param intResumeIndex the index of the first line not committed by a
+     *                       previous run
+     * @param strAbortReason why the import stopped early, null if it finished
+     * @throws IOException throws if the report file cannot be written
+     */
+    private void writeReport(List<ImportPipeline.ImportLine> lstRejected, int intCommitted, int intLineCount,
+            int intResumeIndex, String strAbortReason) throws IOException {
+        PrintStream out = reportFile == null ? System.out : new PrintStream(reportFile);
+        try {
+            out.println("Import Report");
+            out.println("Input file: " + inputFile.getPath());
+            out.println("Lines read: " + intLineCount);
+            out.println("Lines already committed by a previous run: " + intResumeIndex);
+            out.println("Lines committed: " + intCommitted);
+            out.println("Lines rejected: " + lstRejected.size());
+            out.println("Result: " + (strAbortReason == null ? "Completed" : strAbortReason));
+            if (lstRejected.isEmpty())
+                return;
+
+            // count the rejected lines by reason
+            Map<String, Integer> mapReasonCounts = new TreeMap<String, Integer>();
+            for (ImportPipeline.ImportLine currLine : lstRejected)
+                mapReasonCounts.merge(currLine.strRejectReason, 1, Integer::sum);
+            out.println();
+            out.println("Rejected lines by reason:");
+            for (Map.Entry<String, Integer> currReason : mapReasonCounts.entrySet())
+                out.println(String.format("%8d  %s", currReason.getValue(), currReason.getKey()));
+
+            // list each rejected line
+            out.println();
+            out.println("Rejected lines:");
+            for (ImportPipeline.ImportLine currLine : lstRejected)
+                out.println(currLine.intLineNumber + App.FILE_DELIMITER + currLine.strRejectReason
+                        + App.FILE_DELIMITER + currLine.strLine);
+        } finally {
+            if (out != System.out)
+                out.close();
+        }
+    }
+}
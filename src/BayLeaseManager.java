@@ -0,0 +1,321 @@
+
+/**
+ * Filename: BayLeaseManager.java
+ *
+ * Project: Homework3
+ *
+ * Author: Kevin Gyorick
+ *
+ * Date: 10/19/2026
+ *
+ * File Purpose:    This file lets several processes on one host serve the same shop by splitting the
+ *                  bays between them. Each process leases its share of the bays in the shared database
+ *                  and renews the leases while it runs, so the bays of a process that stops are claimed
+ *                  by the others once its leases expire. Its booking engine only places appointments in
+ *                  the leased bays. Each process also publishes the earliest open appointment for each
+ *                  service in its bays, so any process can tell which bay comes first across the shop and
+ *                  send the booking to the process that owns it. The bay versions still guard every
+ *                  insert, so two processes that briefly think they own the same bay cannot double book it.
+ *
+ * Program Purpose: The program schedules appointments for a mechanic shop.
+ *                  Appointments are scheduled first come, first served as
+ *                  long as the job can be completed the same day it is started
+ *                  given the current schedule. Mechanics with lower bay numbers
+ *                  assigned have higher priority when multiple mechanics are available
+ */
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+public class BayLeaseManager implements AutoCloseable {
+    static final long LEASE_MILLIS = 5000; // how long a lease lasts without being renewed
+    static final long RENEW_MILLIS = 1000; // how often the leases are renewed
+    static final long PUBLISH_MILLIS = 20; // how often availability is published and read
+
+    private final DB database; // the database shared by the processes
+    private final BookingEngine engine; // the engine placing appointments in the owned bays
+    private final Service[] arrServices; // the services availability is published for
+    private final String strOwner_ID; // the id of this process in the lease tables
+    private final String strOwner_Address; // the address the other processes send bookings to
+    private final Thread leaseThread; // renews the leases and publishes the availability
+    private volatile Set<Integer> setOwnedBays = Collections.emptySet(); // the bays this process leases
+    // the live leases as of the last pass of the lease thread, read by the routing
+    // without going to the database
+    private volatile List<Lease> lstLeases = Collections.emptyList();
+    private volatile boolean blnRunning = true; // whether or not the leases are being renewed
+    private long lngValidUntil = 0; // when the owned leases expire, only used by the lease thread
+    private long lngPublishedVersion = -1; // the snapshot version last published, only used by the lease thread
+
+    /**
+     * A bay's lease read from the database
+     */
+    static class Lease {
+        final int intBays_TUID; // the leased bay
+        final String strOwner_ID; // the process that owns the bay
+        final String strOwner_Address; // the address of the owner
+        final long lngLease_Expires; // when the lease expires in milliseconds
+        // the earliest open appointment for each service as service id, start, and
+        // end in milliseconds separated by colons, one service per comma. Null if the
+        // owner has not published yet
+        final String strAvailability;
+
+        /**
+         * construct a lease
+         *
+         * @param intBays_TUID     the leased bay
+         * @param strOwner_ID      the process that owns the bay
+         * @param strOwner_Address the address of the owner
+         * @param lngLease_Expires when the lease expires in milliseconds
+         * @param strAvailability  the published availability, may be null
+         */
+        Lease(int intBays_TUID, String strOwner_ID, String strOwner_Address, long lngLease_Expires,
+                String strAvailability) {
+            this.intBays_TUID = intBays_TUID;
+            this.strOwner_ID = strOwner_ID;
+            this.strOwner_Address = strOwner_Address;
+            this.lngLease_Expires = lngLease_Expires;
+            this.strAvailability = strAvailability;
+        }
+
+        /**
+         * Gets the published earliest appointment for a service in the bay
+         *
+         * @param intService_TUID the id of the service
+         * @return the start and end in milliseconds, null if none was published
+         */
+        long[] getAvailability(int intService_TUID) {
+            if (strAvailability == null)
+                return null;
+            for (String strService : strAvailability.split(",")) {
+                String[] arrParts = strService.split(":");
+                if (Integer.parseInt(arrParts[0]) == intService_TUID)
+                    return new long[] { Long.parseLong(arrParts[1]), Long.parseLong(arrParts[2]) };
+            }
+            return null;
+        }
+    }
+
+    /**
+     * The earliest open appointment for a service in one bay and the process that
+     * can book it
+     */
+    static class Offer {
+        final int intBays_TUID; // the bay
+        final String strOwner_ID; // the process that owns the bay
+        final String strOwner_Address; // the address of the owner
+        final Timestamp tsStart; // the start of the appointment
+        final Timestamp tsEnd; // the end of the appointment
+
+        /**
+         * construct an offer
+         *
+         * @param intBays_TUID     the bay
+         * @param strOwner_ID      the process that owns the bay
+         * @param strOwner_Address the address of the owner
+         * @param tsStart          the start of the appointment
+         * @param tsEnd            the end of the appointment
+         */
+        Offer(int intBays_TUID, String strOwner_ID, String strOwner_Address, Timestamp tsStart, Timestamp tsEnd) {
+            this.intBays_TUID = intBays_TUID;
+            this.strOwner_ID = strOwner_ID;
+            this.strOwner_Address = strOwner_Address;
+            this.tsStart = tsStart;
+            this.tsEnd = tsEnd;
+        }
+    }
+
+    /**
+     * construct a manager, claiming this process's share of the bays before
+     * returning and renewing the leases until it is closed
+     *
+     * @param database         the database shared by the processes
+     * @param engine           the engine placing appointments in the owned bays
+     * @param arrServices      the array of services from the database
+     * @param strOwner_Address the address the other processes send bookings for
+     *                         this process's bays to
+     * @throws SQLException throws if the leases cannot be claimed
+     */
+    public BayLeaseManager(DB database, BookingEngine engine, Service[] arrServices, String strOwner_Address)
+            throws SQLException {
+        this.database = database;
+        this.engine = engine;
+        this.arrServices = arrServices;
+        this.strOwner_ID = UUID.randomUUID().toString();
+        this.strOwner_Address = strOwner_Address;
+        // place nothing until the first leases are claimed
+        engine.setOwnedBays(setOwnedBays);
+        renew();
+        publish();
+        lstLeases = database.getBayLeases(System.currentTimeMillis());
+        this.leaseThread = new Thread(this::run, "bay-leases");
+        leaseThread.setDaemon(true);
+        leaseThread.start();
+    }
+
+    /**
+     * Gets the id of this process in the lease tables
+     *
+     * @return the owner id
+     */
+    public String getOwnerID() {
+        return strOwner_ID;
+    }
+
+    /**
+     * Gets the bays this process leases
+     *
+     * @return the ids of the owned bays
+     */
+    public Set<Integer> getOwnedBays() {
+        return setOwnedBays;
+    }
+
+    /**
+     * Gets the earliest open appointment for a service in every leased bay, first
+     * come first, ties going to the lower bay. The owned bays are read from the
+     * live schedule and the others from what their owners last published as of
+     * the lease thread's last pass. That ignores the vehicle's other appointments
+     * and may be a moment old, so a booking sent to an owner is bounded by the
+     * best offer of another process
+     *
+     * @param currentService the service requested
+     * @return the offers sorted by start time then bay
+     * @throws SQLException throws if the database cannot be initialized
+     */
+    public List<Offer> getOffers(Service currentService) throws SQLException {
+        List<Offer> lstOffers = new ArrayList<Offer>();
+        for (Lease currLease : lstLeases) {
+            // the owned bays come from the live schedule
+            if (currLease.strOwner_ID.equals(strOwner_ID))
+                continue;
+            long[] arrAvailability = currLease.getAvailability(currentService.getTUID());
+            if (arrAvailability != null)
+                lstOffers.add(new Offer(currLease.intBays_TUID, currLease.strOwner_ID, currLease.strOwner_Address,
+                        new Timestamp(arrAvailability[0]), new Timestamp(arrAvailability[1])));
+        }
+        for (Schedule currEarliest : engine.findEarliestByBay(currentService))
+            lstOffers.add(new Offer(currEarliest.Bays_TUID, strOwner_ID, strOwner_Address,
+                    currEarliest.Appointment_Start_Time, currEarliest.Appointment_End_Time));
+        lstOffers.sort(Comparator.comparing((Offer o) -> o.tsStart).thenComparingInt(o -> o.intBays_TUID));
+        return lstOffers;
+    }
+
+    /**
+     * Checks if an offer is in a bay owned by this process
+     *
+     * @param currOffer the offer
+     * @return whether or not this process can book the offer itself
+     */
+    public boolean isOwn(Offer currOffer) {
+        return currOffer.strOwner_ID.equals(strOwner_ID);
+    }
+
+    /**
+     * Stops renewing the leases and gives them up so the other processes claim the
+     * bays right away
+     *
+     * @throws SQLException throws if the leases cannot be given up, they expire
+     *                      on their own
+     */
+    @Override
+    public void close() throws SQLException {
+        blnRunning = false;
+        leaseThread.interrupt();
+        try {
+            leaseThread.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        engine.setOwnedBays(Collections.emptySet());
+        database.releaseBayLeases(strOwner_ID);
+    }
+
+    /**
+     * Renews the leases every RENEW_MILLIS, publishes the availability of the
+     * owned bays when it changes, and reads the other processes' leases until the
+     * manager is closed
+     */
+    private void run() {
+        // when the leases are renewed next
+        long lngNextRenewal = System.currentTimeMillis() + RENEW_MILLIS;
+        while (blnRunning) {
+            try {
+                if (System.currentTimeMillis() >= lngNextRenewal) {
+                    lngNextRenewal = System.currentTimeMillis() + RENEW_MILLIS;
+                    renew();
+                }
+                publish();
+                lstLeases = database.getBayLeases(System.currentTimeMillis());
+                Thread.sleep(PUBLISH_MILLIS);
+            } catch (InterruptedException ex) {
+                return;
+            } catch (SQLException ex) {
+                // try again on the next pass, the bays are given up once the leases expire
+                ex.printStackTrace();
+                if (System.currentTimeMillis() >= lngValidUntil && !setOwnedBays.isEmpty()) {
+                    setOwnedBays = Collections.emptySet();
+                    engine.setOwnedBays(setOwnedBays);
+                }
+                try {
+                    Thread.sleep(PUBLISH_MILLIS);
+                } catch (InterruptedException ex2) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Renews the leases, taking or giving up bays to keep an equal share, and
+     * syncs the schedule when bays are gained so the appointments their last
+     * owner booked are on it
+     *
+     * @throws SQLException throws if the leases cannot be renewed
+     */
+    private void renew() throws SQLException {
+        final long NOW = System.currentTimeMillis();
+        Set<Integer> setRenewed = database.renewBayLeases(strOwner_ID, strOwner_Address, NOW, NOW + LEASE_MILLIS);
+        lngValidUntil = NOW + LEASE_MILLIS;
+        if (!setRenewed.equals(setOwnedBays)) {
+            boolean blnGained = !setOwnedBays.containsAll(setRenewed);
+            if (blnGained)
+                engine.resync();
+            setOwnedBays = Collections.unmodifiableSet(setRenewed);
+            engine.setOwnedBays(setOwnedBays);
+            // publish the new bays right away
+            lngPublishedVersion = -1;
+        }
+    }
+
+    /**
+     * Publishes the earliest open appointment for each service in each owned bay
+     * if the schedule changed since the last time
+     *
+     * @throws SQLException throws if the availability cannot be saved
+     */
+    private void publish() throws SQLException {
+        // read the version first so a booking made during the search is published
+        // on the next pass
+        long lngVersion = engine.getSnapshot().getVersion();
+        if (lngVersion == lngPublishedVersion)
+            return;
+        // the availability of each owned bay
+        Map<Integer, String> mapAvailability = new HashMap<Integer, String>();
+        for (Service currService : arrServices) {
+            for (Schedule currEarliest : engine.findEarliestByBay(currService))
+                mapAvailability.merge(currEarliest.Bays_TUID,
+                        currService.getTUID() + ":" + currEarliest.Appointment_Start_Time.getTime() + ":"
+                                + currEarliest.Appointment_End_Time.getTime(),
+                        (strFirst, strNext) -> strFirst + "," + strNext);
+        }
+        database.publishBayAvailability(strOwner_ID, mapAvailability);
+        lngPublishedVersion = lngVersion;
+    }
+}
@@ -0,0 +1,2786 @@
+
+/**
+ * Filename: BookingEngine.java
+ *
+ * Project: Homework3
+ *
+ * Author: Kevin Gyorick
+ *
+ * Date: 10/19/2026
+ *
+ * File Purpose:    This file holds the schedule data structure of every mechanic and books
+ *                  appointments in it so several threads can book at the same time. The search for
+ *                  the earliest appointment runs without locking and is retried if the slots were
+ *                  taken in the meantime. Bookings take a ticket when they are accepted and then
+ *                  reserve and save their slots one at a time in ticket order. Booking is a single
+ *                  writer on purpose rather than locked per mechanic: a booking can land in any
+ *                  mechanic's bay and SQLite allows one writer anyway, and placing bookings in
+ *                  ticket order keeps the schedule the same as booking them first come, first
+ *                  served. Other processes may book against the same database file, so each insert
+ *                  only succeeds if the bay's version has not changed since this engine last synced.
+ *                  Otherwise the engine reads the appointments added since then and retries. With a
+ *                  write-behind log the engine gives out the ids itself and confirms a booking once
+ *                  it is in the log, which saves it to the database later. After each booking
+ *                  finishes its turn the engine publishes an immutable snapshot of the schedule that
+ *                  reports read without locking. When the shop is served by several processes each
+ *                  engine only places appointments in the bays its process leases. A slot can also
+ *                  be held for a few minutes without booking it, the held slots are busy to every
+ *                  search until the hold is confirmed, released, or expires on a timing wheel. A
+ *                  cancelled appointment's slots are freed in place, and the cancellations and moves
+ *                  of other processes are read from the event log after the last one this engine
+ *                  applied. A cancellation can also backfill its slots with a bounded number of
+ *                  later appointments, each moving at most once into a gap left by the cancellation
+ *                  or an earlier move. A visit books several services for one vehicle on the same
+ *                  day in one search, each service starting as soon as the one before it ends. Where
+ *                  a booking goes on its day is chosen by a PlacementStrategy, first fit by default.
+ *
+ * Program Purpose: The program schedules appointments for a mechanic shop.
+ *                  Appointments are scheduled first come, first served as
+ *                  long as the job can be completed the same day it is started
+ *                  given the current schedule. Mechanics with lower bay numbers
+ *                  assigned have higher priority when multiple mechanics are available
+ */
+import java.io.IOException;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Timestamp;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class BookingEngine {
+    static final long HOLD_TICK_MILLIS = 100; // how often expired holds are released
+    static final int MAX_BACKFILL_MOVES = 16; // the most appointments moved after one cancellation
+    static final int MAX_BACKFILL_TRIES = 256; // the most placements tried after one cancellation
+    static final int MAX_AVAILABILITY = 50; // the most open appointments returned by one availability query
+    static final int MAX_WINDOW_WEEKS = 52; // the weeks searched for a booking window without a latest end
+    static final int MAX_PREEMPT_DEPTH = 2; // the longest chain of appointments displacing each other
+    static final int MAX_PREEMPT_MOVES = 8; // the most appointments moved by one priority booking
+
+    private final DB database; // the database new appointments are saved to
+    // the arrays by mechanic index only grow, by the booking whose turn it is.
+    // The schedules are replaced last, so an array read after them is never
+    // shorter
+    private volatile Mechanic[] arrMechanics; // the mechanics sorted by bay number, the search priority
+    private volatile int[] arrBayTUIDs; // the bay of each mechanic
+    private final Service[] arrServices; // the services that can be booked
+    private final int GCFServiceTime; // the GCF between service lengths, the length of a timeslot
+    private volatile MechanicSchedule[] arrMechanicSchedules; // the schedule data structure of each mechanic
+    private final AvailabilityCache availabilityCache = new AvailabilityCache(); // the earliest starts of each mechanic
+    private volatile boolean[] arrRetired; // whether or not each mechanic's bay is retired
+    // the appointments of each vehicle by vehicle id, used to keep a vehicle from
+    // being worked on in two bays at once
+    private final ConcurrentHashMap<Integer, List<Schedule>> mapVehicleAppointments = new ConcurrentHashMap<Integer, List<Schedule>>();
+
+    private final AtomicLong lngNextTicket = new AtomicLong(); // the ticket given to the next booking accepted
+    private final Object objTurnMonitor = new Object(); // notified when a booking finishes its turn
+    private long lngCurrentTurn = 0; // the ticket allowed to reserve slots, guarded by objTurnMonitor
+    private final AtomicLong lngRetries = new AtomicLong(); // the number of searches repeated due to a race
+    private final AtomicLong lngConflicts = new AtomicLong(); // the number of inserts rejected by another process
+    private final AtomicLong lngPreemptions = new AtomicLong(); // the number of bookings that displaced others
+    private final AtomicLong lngPreemptedMoves = new AtomicLong(); // the number of appointments displaced
+    private final AtomicLong lngPreemptedMinutes = new AtomicLong(); // the minutes displaced appointments were pushed back
+    private volatile int intMaxPreemptDepth = 0; // the longest chain of displacements so far
+
+    // the version of each mechanic's bay when this engine last synced with the
+    // database, only read and written by the booking whose turn it is
+    private volatile long[] arrBayVersions;
+    private int intLastSeenTUID = 0; // the largest appointment id read from the database
+    // the id of the last cancellation or move event applied to the schedule, -1
+    // before the first sync
+    private long lngLastChangeEventTUID = -1;
+    // the ids of appointments this engine inserted that have not been read back by
+    // a sync yet. An insert inside an import batch is only saved when the batch
+    // commits, if it is rolled back resyncAfterRollback drops the id and reads the
+    // bay versions again
+    private final Set<Integer> setUnsyncedTUIDs = ConcurrentHashMap.newKeySet();
+    // saves bookings behind the booking path, null to save each booking before it
+    // is confirmed
+    private volatile WriteBehindLog writeBehind = null;
+    private int intLastAssignedTUID = 0; // the largest id given out for the write-behind log
+
+    // the booked appointments, newest first, shared with the snapshots. Only
+    // changed by the booking whose turn it is
+    private ScheduleSnapshot.AppointmentNode appointmentHead = null;
+    // the booked appointments by id, used to find an appointment being cancelled
+    // or moved
+    private final ConcurrentHashMap<Integer, Schedule> mapAppointments = new ConcurrentHashMap<Integer, Schedule>();
+    private int intAppointmentCount = 0; // the number of booked appointments
+    private boolean blnSnapshotStale = false; // whether or not the schedule changed since the last snapshot
+    private long lngSnapshotVersion = 0; // the version of the latest snapshot
+    private volatile ScheduleSnapshot currentSnapshot; // the latest snapshot, read without locking
+    // whether or not each mechanic's bay is owned by this process, null if it owns
+    // every bay
+    private volatile boolean[] arrOwnedMechanics = null;
+    // the skill mask of each mechanic, a bit for each skill in the skill table
+    private volatile long[] arrSkills;
+    // the skill mask each service requires by service id, a service without one
+    // can be done by every mechanic
+    private volatile Map<Integer, Long> mapRequiredSkills;
+
+    // the holds that have not been confirmed, released, or expired by id. Only
+    // changed by the booking whose turn it is
+    private final ConcurrentHashMap<Long, Hold> mapHolds = new ConcurrentHashMap<Long, Hold>();
+    private final AtomicLong lngNextHoldID = new AtomicLong(1); // the id given to the next hold
+    // when each hold expires
+    private final TimingWheel<Hold> holdWheel = new TimingWheel<Hold>(HOLD_TICK_MILLIS, System.currentTimeMillis());
+    private Thread holdTimer = null; // releases the expired holds, started by the first hold
+    // chooses where each booking goes, first fit unless set
+    private volatile PlacementStrategy placementStrategy = new PlacementStrategy.FirstFit();
+    // the priority class of each appointment booked above walk-in by id, an
+    // appointment without one is a walk-in
+    private final ConcurrentHashMap<Integer, Priority> mapPriorities = new ConcurrentHashMap<Integer, Priority>();
+
+    /**
+     * The priority classes of a booking, lowest first. A booking may displace
+     * appointments of a lower class
+     */
+    enum Priority {
+        WALK_IN, // first come, first served, never displaces another appointment
+        FLEET, // a fleet contract, displaces walk-ins
+        EXPRESS; // an express job, displaces fleet jobs and walk-ins
+
+        /**
+         * Gets a priority class by name
+         *
+         * @param strName walk-in, fleet, or express
+         * @return the priority class
+         * @throws IllegalArgumentException throws if there is no class with the name
+         */
+        static Priority forName(String strName) throws IllegalArgumentException {
+            for (Priority currPriority : values()) {
+                if (currPriority.getName().equals(strName))
+                    return currPriority;
+            }
+            throw new IllegalArgumentException("Unknown priority " + strName + ", use walk-in, fleet, or express");
+        }
+
+        /**
+         * Gets the name of the class, the one accepted by forName
+         *
+         * @return the name of the class
+         */
+        String getName() {
+            return name().toLowerCase().replace('_', '-');
+        }
+    }
+
+    /**
+     * A slot held for a vehicle that is not booked yet
+     */
+    static class Hold {
+        final long lngHold_ID; // the id of the hold
+        final Schedule appointment; // the held appointment, without an id
+        final long lngExpires; // when the hold expires in milliseconds
+        private final Vehicle customerVehicle; // the vehicle the slot is held for
+        private final Service currentService; // the service the slot is held for
+        private final int[] arrPlaced; // the mechanic index, week, day, and timeslot held
+        private TimingWheel.Entry<Hold> timer; // the hold's place in the timing wheel
+
+        /**
+         * construct a hold
+         *
+         * @param lngHold_ID      the id of the hold
+         * @param appointment     the held appointment, without an id
+         * @param lngExpires      when the hold expires in milliseconds
+         * @param customerVehicle the vehicle the slot is held for
+         * @param currentService  the service the slot is held for
+         * @param arrPlaced       the mechanic index, week, day, and timeslot held
+         */
+        private Hold(long lngHold_ID, Schedule appointment, long lngExpires, Vehicle customerVehicle,
+                Service currentService, int[] arrPlaced) {
+            this.lngHold_ID = lngHold_ID;
+            this.appointment = appointment;
+            this.lngExpires = lngExpires;
+            this.customerVehicle = customerVehicle;
+            this.currentService = currentService;
+            this.arrPlaced = arrPlaced;
+        }
+    }
+
+    /**
+     * A cancelled appointment and the appointments moved into its slots
+     */
+    static class Cancellation {
+        final Schedule appointment; // the cancelled appointment
+        final Schedule[] arrMoved; // the moved appointments at their new times, in the order moved
+
+        /**
+         * construct a cancellation
+         *
+         * @param appointment the cancelled appointment
+         * @param arrMoved    the moved appointments at their new times
+         */
+        private Cancellation(Schedule appointment, Schedule[] arrMoved) {
+            this.appointment = appointment;
+            this.arrMoved = arrMoved;
+        }
+    }
+
+    /**
+     * A priority booking and the appointments it displaced
+     */
+    static class Preemption {
+        final Schedule appointment; // the booked appointment
+        final Schedule[] arrMoved; // the displaced appointments at their new times, in the order moved
+        final int intDepth; // the longest chain of displacements, 0 if nothing was displaced
+        final long lngDelayMinutes; // the minutes the displaced appointments were pushed back in total
+
+        /**
+         * construct a preemption
+         *
+         * @param appointment     the booked appointment
+         * @param arrMoved        the displaced appointments at their new times
+         * @param intDepth        the longest chain of displacements
+         * @param lngDelayMinutes the minutes the displaced appointments were pushed
+         *                        back in total
+         */
+        private Preemption(Schedule appointment, Schedule[] arrMoved, int intDepth, long lngDelayMinutes) {
+            this.appointment = appointment;
+            this.arrMoved = arrMoved;
+            this.intDepth = intDepth;
+            this.lngDelayMinutes = lngDelayMinutes;
+        }
+    }
+
+    /**
+     * construct an engine for the mechanics of a shop with an empty schedule
+     *
+     * @param database     the database new appointments are saved to
+     * @param arrMechanics the array of mechanics from the database
+     * @param arrBays      the array of bays from the database
+     * @param arrServices  the array of services from the database
+     * @throws SQLException throws if a mechanic does not have a bay
+     */
+    public BookingEngine(DB database, Mechanic[] arrMechanics, Bay[] arrBays, Service[] arrServices)
+            throws SQLException {
+        this.database = database;
+        this.arrServices = arrServices;
+        this.GCFServiceTime = Service.GCF(arrServices);
+        // sort the mechanics by bay so mechanics with lower bay numbers have priority
+        this.arrMechanics = arrMechanics.clone();
+        final int[] BAY_BY_MECHANIC_TUID = new int[maxTUID(arrMechanics) + 1];
+        for (Mechanic currMechanic : arrMechanics)
+            BAY_BY_MECHANIC_TUID[currMechanic.getTUID()] = findBay(currMechanic, arrBays).getTUID();
+        Arrays.sort(this.arrMechanics, Comparator.comparingInt((Mechanic m) -> BAY_BY_MECHANIC_TUID[m.getTUID()]));
+
+        this.arrBayTUIDs = new int[arrMechanics.length];
+        this.arrMechanicSchedules = new MechanicSchedule[arrMechanics.length];
+        this.arrBayVersions = new long[arrMechanics.length];
+        this.arrRetired = new boolean[arrMechanics.length];
+        final Set<Integer> SET_RETIRED = database.getRetiredBays();
+        // foreach mechanic create an empty schedule
+        for (int i = 0; i < this.arrMechanics.length; i++) {
+            arrBayTUIDs[i] = BAY_BY_MECHANIC_TUID[this.arrMechanics[i].getTUID()];
+            arrMechanicSchedules[i] = new MechanicSchedule(GCFServiceTime);
+            arrRetired[i] = SET_RETIRED.contains(arrBayTUIDs[i]);
+        }
+        loadSkills();
+        publishSnapshot();
+    }
+
+    /**
+     * Adds a mechanic in a new bay, saving both to the database, and makes the bay
+     * bookable right away. The mechanic is added after the others, the new bay
+     * having the largest id, so the index of every other mechanic stays the same
+     * and nothing already booked is read again. Takes a ticket like a booking
+     *
+     * @param newMechanic the mechanic to add
+     * @return the new bay, with the id of the new mechanic
+     * @throws SQLException throws if a mechanic already has the name or the
+     *                      mechanic cannot be saved
+     */
+    public Bay addMechanic(Mechanic newMechanic) throws SQLException {
+        // the place of this change in first come, first served order
+        final long TICKET = lngNextTicket.getAndIncrement();
+        try {
+            awaitTurn(TICKET);
+            Bay newBay = database.addMechanicWithBay(newMechanic);
+            final int NUM = arrMechanicSchedules.length;
+            Mechanic[] arrNewMechanics = Arrays.copyOf(arrMechanics, NUM + 1);
+            arrNewMechanics[NUM] = new Mechanic(newBay.Mechanic_TUID, newMechanic.strName,
+                    newMechanic.intHourly_payrate);
+            int[] arrNewBayTUIDs = Arrays.copyOf(arrBayTUIDs, NUM + 1);
+            arrNewBayTUIDs[NUM] = newBay.getTUID();
+            MechanicSchedule[] arrNewSchedules = Arrays.copyOf(arrMechanicSchedules, NUM + 1);
+            arrNewSchedules[NUM] = new MechanicSchedule(GCFServiceTime);
+            // a new bay starts at version 0 like the bays read at startup
+            arrBayVersions = Arrays.copyOf(arrBayVersions, NUM + 1);
+            arrRetired = Arrays.copyOf(arrRetired, NUM + 1);
+            arrSkills = Arrays.copyOf(arrSkills, NUM + 1);
+            boolean[] arrOwned = arrOwnedMechanics;
+            if (arrOwned != null)
+                arrOwnedMechanics = Arrays.copyOf(arrOwned, NUM + 1);
+            arrMechanics = arrNewMechanics;
+            arrBayTUIDs = arrNewBayTUIDs;
+            arrMechanicSchedules = arrNewSchedules;
+            blnSnapshotStale = true;
+            return newBay;
+        } finally {
+            finishTurn(TICKET);
+        }
+    }
+
+    /**
+     * Retires a mechanic's bay so no appointment is booked in it again. The bay
+     * and mechanic stay on the schedule for the appointments already worked
+     * there. Takes a ticket like a booking
+     *
+     * @param intMechanicTUID the id of the mechanic
+     * @return the retired bay
+     * @throws SQLException           throws if the bay still has appointments or
+     *                                holds that are not done, is already retired,
+     *                                or cannot be saved
+     * @throws NoSuchElementException throws if there is no mechanic with the id
+     */
+    public Bay retireMechanic(int intMechanicTUID) throws SQLException, NoSuchElementException {
+        // the place of this change in first come, first served order
+        final long TICKET = lngNextTicket.getAndIncrement();
+        try {
+            awaitTurn(TICKET);
+            int intMechanicNum = -1;
+            for (int i = 0; i < arrMechanics.length; i++) {
+                if (arrMechanics[i].getTUID() == intMechanicTUID)
+                    intMechanicNum = i;
+            }
+            if (intMechanicNum < 0)
+                throw new NoSuchElementException("No mechanic found where TUID=" + intMechanicTUID);
+            final Timestamp NOW = new Timestamp(System.currentTimeMillis());
+            // the bookings only in the write-behind log and the holds are not in the
+            // database yet
+            for (Schedule currAppointment : mapAppointments.values()) {
+                if (currAppointment.Bays_TUID == arrBayTUIDs[intMechanicNum]
+                        && currAppointment.Appointment_End_Time.after(NOW))
+                    throw new SQLIntegrityConstraintViolationException("Bay " + arrBayTUIDs[intMechanicNum]
+                            + " still has appointments booked, cancel them first");
+            }
+            for (Hold currHold : mapHolds.values()) {
+                if (currHold.arrPlaced[0] == intMechanicNum)
+                    throw new SQLIntegrityConstraintViolationException(
+                            "Bay " + arrBayTUIDs[intMechanicNum] + " has appointments on hold");
+            }
+            database.retireBay(arrBayTUIDs[intMechanicNum], NOW);
+            boolean[] arrNewRetired = arrRetired.clone();
+            arrNewRetired[intMechanicNum] = true;
+            arrRetired = arrNewRetired;
+            return new Bay(arrBayTUIDs[intMechanicNum], intMechanicTUID);
+        } finally {
+            finishTurn(TICKET);
+        }
+    }
+
+    /**
+     * Reads the skills of the mechanics and the skills each service requires from
+     * the database again, the searches after it only consider the mechanics
+     * qualified under the new skills. Appointments already booked stay where they
+     * are. Takes a ticket like a booking, so a mechanic is not added meanwhile
+     *
+     * @throws SQLException throws if the skills cannot be read
+     */
+    public void reloadSkills() throws SQLException {
+        // the place of this change in first come, first served order
+        final long TICKET = lngNextTicket.getAndIncrement();
+        try {
+            awaitTurn(TICKET);
+            loadSkills();
+        } finally {
+            finishTurn(TICKET);
+        }
+    }
+
+    /**
+     * Reads the skills of the mechanics and the skills each service requires from
+     * the database, called by the constructor or the booking whose turn it is
+     *
+     * @throws SQLException throws if the skills cannot be read
+     */
+    private void loadSkills() throws SQLException {
+        Map<Integer, Long> mapMechanicSkills = database.getMechanicSkills();
+        long[] arrNewSkills = new long[arrMechanics.length];
+        for (int i = 0; i < arrMechanics.length; i++)
+            arrNewSkills[i] = mapMechanicSkills.getOrDefault(arrMechanics[i].getTUID(), 0L);
+        mapRequiredSkills = database.getServiceRequirements();
+        arrSkills = arrNewSkills;
+    }
+
+    /**
+     * Gets whether or not a mechanic has every skill a service requires
+     *
+     * @param intMechanicNum the index of the mechanic
+     * @param currService    the service
+     * @return true if the mechanic can do the service
+     */
+    private boolean isQualified(int intMechanicNum, Service currService) {
+        final long REQUIRED = mapRequiredSkills.getOrDefault(currService.getTUID(), 0L);
+        return (arrSkills[intMechanicNum] & REQUIRED) == REQUIRED;
+    }
+
+    /**
+     * Gets the mechanics a service may be booked with, the ones in a bay this
+     * process owns with every skill the service requires. The searches skip the
+     * others before looking at their schedules
+     *
+     * @param currService the service
+     * @return whether or not each mechanic may be booked for the service
+     * @throws IllegalStateException  throws if this process does not own a bay
+     * @throws NoSuchElementException throws if no owned mechanic has the skills
+     *                                the service requires
+     */
+    private boolean[] findEligible(Service currService) throws IllegalStateException, NoSuchElementException {
+        boolean[] arrEligible = new boolean[arrMechanicSchedules.length];
+        boolean blnAnyOwned = false;
+        boolean blnAnyEligible = false;
+        for (int i = 0; i < arrEligible.length; i++) {
+            blnAnyOwned |= isOwned(i);
+            arrEligible[i] = isOwned(i) && isQualified(i, currService);
+            blnAnyEligible |= arrEligible[i];
+        }
+        if (!blnAnyOwned)
+            throw new IllegalStateException("This process does not own a bay");
+        if (!blnAnyEligible)
+            throw new NoSuchElementException("No mechanic is qualified for " + currService.strService_Name);
+        return arrEligible;
+    }
+
+    /**
+     * Gets the largest id in an array of entities
+     *
+     * @param arrEntities the entities to check
+     * @return the largest id, 0 if the array is empty
+     */
+    private static int maxTUID(Entity[] arrEntities) {
+        int intMax = 0;
+        for (Entity currEntity : arrEntities)
+            intMax = Math.max(intMax, currEntity.getTUID());
+        return intMax;
+    }
+
+    /**
+     * Finds the bay that is assigned to the provided mechanic
+     *
+     * @param currMechanic the mechanic that is assigned to the bay
+     * @param arrBays      the array of bays from the database
+     * @return the bay assigned to the mechanic
+     * @throws SQLException throws if the mechanic does not have a bay
+     */
+    private static Bay findBay(Mechanic currMechanic, Bay[] arrBays) throws SQLException {
+        // foreach bay
+        for (Bay currBay : arrBays) {
+            // if the bay belongs to the mechanic return the bay
+            if (currBay.Mechanic_TUID == currMechanic.getTUID())
+                return currBay;
+        }
+        // no bay belonging to the mechanic throw error
+        throw new SQLException("Mechanic " + currMechanic.strName + " does not have a bay to work in");
+    }
+
+    /**
+     * Adds an appointment that is already in the database to the schedule data
+     * structure, reserving the slots of its stored start time. Called by the
+     * booking whose turn it is
+     *
+     * @param existingAppointment the appointment from the database
+     * @param currService         the service provided during the appointment
+     */
+    private void restoreAppointment(Schedule existingAppointment, Service currService) {
+        // remember the appointment for the vehicle's overlap checks and the snapshots
+        addVehicleAppointment(existingAppointment);
+        recordAppointment(existingAppointment);
+        // the mechanic working in the appointment's bay
+        int intMechanicNum = getMechanicIndexByBay(existingAppointment.Bays_TUID);
+        if (intMechanicNum < 0)
+            return;
+        // the week, day, and timeslot of the appointment
+        int[] arrSlot = DateUtil.timestampToWeekDayTimeslot(existingAppointment.Appointment_Start_Time,
+                DateUtil.getNextMondaysDate(), GCFServiceTime);
+        // appointments before next monday are not on the schedule
+        if (arrSlot[0] < 0)
+            return;
+        reserveSlots(intMechanicNum, arrSlot[0], arrSlot[1], arrSlot[2],
+                currService.intService_Time / GCFServiceTime);
+    }
+
+    /**
+     * Reads the appointments added to the database since the last sync, by this
+     * process before startup or by other processes since, and adds them to the
+     * schedule data structure. The bay versions are read first so an appointment
+     * added during the sync makes the next insert in its bay fail and sync again.
+     * Waits for the bookings already accepted so none of them are half done
+     *
+     * @throws SQLException           throws if the database cannot be read
+     * @throws NoSuchElementException throws if the service of an appointment is
+     *                                not found
+     */
+    public void resync() throws SQLException, NoSuchElementException {
+        // the place of this sync in first come, first served order
+        final long TICKET = lngNextTicket.getAndIncrement();
+        try {
+            awaitTurn(TICKET);
+            syncFromDatabase();
+        } finally {
+            finishTurn(TICKET);
+        }
+    }
+
+    /**
+     * Drops the appointments that are on the schedule but no longer in the
+     * database, then reads the database like resync. Called after a transaction
+     * this engine booked in was rolled back, such as an import batch, so the
+     * appointments it saved are not left holding their slots. The database
+     * decides which appointments exist, so it is not used with a write-behind log
+     *
+     * @throws SQLException           throws if the database cannot be read
+     * @throws NoSuchElementException throws if the service of an appointment is
+     *                                not found
+     * @throws IllegalStateException  throws if the engine has a write-behind log
+     */
+    public void resyncAfterRollback() throws SQLException, NoSuchElementException, IllegalStateException {
+        // bookings waiting in the log are not in the database yet
+        if (writeBehind != null)
+            throw new IllegalStateException("Cannot resync after a rollback with a write-behind log");
+        // the place of this sync in first come, first served order
+        final long TICKET = lngNextTicket.getAndIncrement();
+        try {
+            awaitTurn(TICKET);
+            // the ids of the appointments that are still in the database
+            Set<Integer> setSavedTUIDs = new HashSet<Integer>();
+            for (Schedule currSaved : database.getSchedulesAfter(0))
+                setSavedTUIDs.add(currSaved.getTUID());
+            // foreach appointment on the schedule that was rolled back
+            for (Schedule currAppointment : new ArrayList<Schedule>(mapAppointments.values())) {
+                if (setSavedTUIDs.contains(currAppointment.getTUID()))
+                    continue;
+                removeAppointment(currAppointment);
+                setUnsyncedTUIDs.remove(currAppointment.getTUID());
+                // the id may be given out again, so it has to be read by the next sync
+                intLastSeenTUID = Math.min(intLastSeenTUID, currAppointment.getTUID() - 1);
+            }
+            // the sync reads the versions the bays went back to
+            syncFromDatabase();
+        } finally {
+            finishTurn(TICKET);
+        }
+    }
+
+    /**
+     * Reads the appointments added to the database since the last sync into the
+     * schedule data structure, called by the booking whose turn it is
+     *
+     * @throws SQLException           throws if the database cannot be read
+     * @throws NoSuchElementException throws if the service of an appointment is
+     *                                not found
+     */
+    private void syncFromDatabase() throws SQLException, NoSuchElementException {
+        // the version of each bay before reading the appointments
+        Map<Integer, Long> mapVersions = database.getBayVersions();
+        // the priorities are read for the appointments read by this sync
+        final int LAST_SEEN_TUID = intLastSeenTUID;
+        // only cancellations and moves logged after the first read of the appointments
+        // apply
+        if (lngLastChangeEventTUID < 0)
+            lngLastChangeEventTUID = database.getLastEventTUID();
+        // set the holds aside so appointments other processes booked take their slots
+        for (Hold currHold : mapHolds.values())
+            releaseSlots(currHold.arrPlaced[0], currHold.arrPlaced[1], currHold.arrPlaced[2],
+                    currHold.arrPlaced[3], currHold.currentService.intService_Time / GCFServiceTime);
+        // foreach appointment added since the last sync
+        for (Schedule currAppointment : database.getSchedulesAfter(intLastSeenTUID)) {
+            // appointments inserted by this engine are already on the schedule
+            if (!setUnsyncedTUIDs.remove(currAppointment.getTUID()))
+                restoreAppointment(currAppointment, Service.getService(currAppointment.Service_TUID, arrServices));
+            intLastSeenTUID = Math.max(intLastSeenTUID, currAppointment.getTUID());
+        }
+        // a priority is saved with its appointment, so it is there for every
+        // appointment read above
+        for (Map.Entry<Integer, Integer> currPriority : database.getSchedulePriorities(LAST_SEEN_TUID).entrySet())
+            mapPriorities.put(currPriority.getKey(), Priority.values()[currPriority.getValue()]);
+        // free the appointments cancelled and move the appointments moved since the
+        // last sync, those cancelled or moved by this engine are already done
+        for (BookingEvent currEvent : database.getEventsAfter(lngLastChangeEventTUID,
+                BookingEvent.Type.APPOINTMENT_CANCELLED, BookingEvent.Type.APPOINTMENT_MOVED)) {
+            Schedule currAppointment = mapAppointments.get(currEvent.intEntity_TUID);
+            if (currAppointment != null && currEvent.type == BookingEvent.Type.APPOINTMENT_CANCELLED) {
+                removeAppointment(currAppointment);
+            } else if (currAppointment != null) {
+                // where the appointment is now, null if it was cancelled since
+                Schedule movedAppointment = database.getScheduleByTUID(currEvent.intEntity_TUID);
+                if (movedAppointment != null && (movedAppointment.Bays_TUID != currAppointment.Bays_TUID
+                        || !movedAppointment.Appointment_Start_Time.equals(currAppointment.Appointment_Start_Time)))
+                    relocateAppointment(currAppointment, movedAppointment);
+            }
+            // ids are never reused, so the next id is after the cancelled one too
+            intLastSeenTUID = Math.max(intLastSeenTUID, currEvent.intEntity_TUID);
+            lngLastChangeEventTUID = currEvent.getTUID();
+        }
+        // remember the version of each bay
+        for (int i = 0; i < arrBayVersions.length; i++)
+            arrBayVersions[i] = mapVersions.getOrDefault(arrBayTUIDs[i], 0L);
+        // a bay another process retired bumped its version, so this sync runs before
+        // this engine books it again
+        final Set<Integer> SET_RETIRED = database.getRetiredBays();
+        boolean[] arrNewRetired = arrRetired.clone();
+        boolean blnRetiredChanged = false;
+        for (int i = 0; i < arrNewRetired.length; i++) {
+            if (!arrNewRetired[i] && SET_RETIRED.contains(arrBayTUIDs[i])) {
+                arrNewRetired[i] = true;
+                blnRetiredChanged = true;
+            }
+        }
+        if (blnRetiredChanged) {
+            arrRetired = arrNewRetired;
+            blnSnapshotStale = true;
+        }
+        // hold the slots again, a hold whose slots or vehicle were booked is dropped
+        for (Hold currHold : mapHolds.values()) {
+            final int SLOTS_NEEDED = currHold.currentService.intService_Time / GCFServiceTime;
+            if (arrMechanicSchedules[currHold.arrPlaced[0]].areSlotsOpen(currHold.arrPlaced[1],
+                    currHold.arrPlaced[2], currHold.arrPlaced[3], SLOTS_NEEDED)
+                    && !hasOverlap(0, currHold.customerVehicle, currHold.appointment.Appointment_Start_Time,
+                            currHold.appointment.Appointment_End_Time)) {
+                reserveSlots(currHold.arrPlaced[0], currHold.arrPlaced[1], currHold.arrPlaced[2],
+                        currHold.arrPlaced[3], SLOTS_NEEDED);
+            } else {
+                mapHolds.remove(currHold.lngHold_ID);
+                holdWheel.cancel(currHold.timer);
+                mapVehicleAppointments.get(currHold.appointment.Vehicles_TUID).remove(currHold.appointment);
+                blnSnapshotStale = true;
+            }
+        }
+    }
+
+    /**
+     * Books the earliest appointment for a service, may be called by several
+     * threads at once. The booking takes a ticket when it is accepted and reserves
+     * its slots in ticket order so the result is first come, first served
+     *
+     * @param appointmentTUID if the appointment already exists in the database
+     *                        provide its id and it will not be saved again,
+     *                        otherwise provide -1
+     * @param customerVehicle the vehicle being worked on
+     * @param currentService  the service requested
+     * @return the booked appointment
+     * @throws SQLException throws if the appointment cannot be saved to the
+     *                      database or the database cannot be synced
+     */
+    public Schedule book(int appointmentTUID, Vehicle customerVehicle, Service currentService) throws SQLException {
+        return book(appointmentTUID, customerVehicle, currentService, null);
+    }
+
+    /**
+     * Books the earliest appointment for a service inside a booking window. Only
+     * the work days the window covers are searched and no weeks are added to the
+     * schedule by the search, so a window with no opening is turned down at once
+     *
+     * @param appointmentTUID if the appointment already exists in the database
+     *                        provide its id and it will not be saved again,
+     *                        otherwise provide -1
+     * @param customerVehicle the vehicle being worked on
+     * @param currentService  the service requested
+     * @param window          the window the appointment has to fit, null to book
+     *                        the earliest appointment
+     * @return the booked appointment
+     * @throws SQLException           throws if the appointment cannot be saved to
+     *                                the database or the database cannot be synced
+     * @throws NoSuchElementException throws if no opening fits the window
+     */
+    public Schedule book(int appointmentTUID, Vehicle customerVehicle, Service currentService, BookingWindow window)
+            throws SQLException, NoSuchElementException {
+        // the place of this booking in first come, first served order
+        final long TICKET = lngNextTicket.getAndIncrement();
+        try {
+            // search without locking, the result may be taken by an earlier booking
+            int[] earliest = findAppointment(appointmentTUID, customerVehicle, currentService, window);
+            // wait for the earlier bookings to reserve their slots
+            awaitTurn(TICKET);
+            // the number of timeslots this service requires
+            final int SLOTS_NEEDED = currentService.intService_Time / GCFServiceTime;
+
+            while (true) {
+                // reserve the slots, searching again if they were taken
+                earliest = reserveEarliest(earliest, appointmentTUID, customerVehicle, currentService, window);
+                Timestamp[] appointmentTime = calcStartEndTimestamps(earliest, currentService);
+                // the booked appointment
+                Schedule newAppointment = new Schedule(customerVehicle.getTUID(), arrBayTUIDs[earliest[0]],
+                        currentService.getTUID(), appointmentTime[0], appointmentTime[1]);
+
+                // save the appointment to the database if the appointment is new, represented
+                // by a invalid id
+                if (appointmentTUID <= 0 && writeBehind != null) {
+                    // confirm the booking once it is in the write-behind log
+                    newAppointment = logBooking(newAppointment);
+                    if (newAppointment == null) {
+                        releaseSlots(earliest[0], earliest[1], earliest[2], earliest[3], SLOTS_NEEDED);
+                        throw new SQLException("The booking could not be written to the write-behind log");
+                    }
+                    appointmentTUID = newAppointment.getTUID();
+                } else if (appointmentTUID <= 0) {
+                    // the id of the saved appointment
+                    int intNewTUID;
+                    try {
+                        intNewTUID = database.addScheduleIfCurrent(newAppointment, arrBayVersions[earliest[0]]);
+                    } catch (SQLException ex) {
+                        // the appointment was not booked so free its slots
+                        releaseSlots(earliest[0], earliest[1], earliest[2], earliest[3], SLOTS_NEEDED);
+                        throw ex;
+                    }
+                    // another process booked the bay or vehicle first, sync and search again
+                    if (intNewTUID <= 0) {
+                        releaseSlots(earliest[0], earliest[1], earliest[2], earliest[3], SLOTS_NEEDED);
+                        lngConflicts.incrementAndGet();
+                        syncFromDatabase();
+                        earliest = findAppointment(appointmentTUID, customerVehicle, currentService, window);
+                        continue;
+                    }
+                    // the insert moved the bay to the next version
+                    arrBayVersions[earliest[0]]++;
+                    setUnsyncedTUIDs.add(intNewTUID);
+                    appointmentTUID = intNewTUID;
+                }
+                newAppointment = new Schedule(appointmentTUID, newAppointment.Vehicles_TUID,
+                        newAppointment.Bays_TUID, newAppointment.Service_TUID, newAppointment.Appointment_Start_Time,
+                        newAppointment.Appointment_End_Time);
+                addVehicleAppointment(newAppointment);
+                recordAppointment(newAppointment);
+                return newAppointment;
+            }
+        } finally {
+            finishTurn(TICKET);
+        }
+    }
+
+    /**
+     * Books a group of appointments in the order provided as if they were booked
+     * one at a time, then saves them to the database in a single transaction. The
+     * group takes one ticket, so it is first come, first served with the other
+     * bookings as a whole
+     *
+     * @param arrGroupVehicles the vehicle of each appointment
+     * @param arrGroupServices the service of each appointment
+     * @return the booked appointments in the same order
+     * @throws SQLException throws if the appointments cannot be saved, in which
+     *                      case none of them are booked
+     */
+    public Schedule[] bookGroup(Vehicle[] arrGroupVehicles, Service[] arrGroupServices) throws SQLException {
+        return bookGroup(arrGroupVehicles, arrGroupServices, null, null);
+    }
+
+    /**
+     * Books a group of appointments like bookGroup, where each appointment may
+     * have to come before an appointment open in another process's bay. An
+     * appointment that does not is left out of the group as if it was never
+     * requested
+     *
+     * @param arrGroupVehicles the vehicle of each appointment
+     * @param arrGroupServices the service of each appointment
+     * @param arrLimitStarts   the start of the appointment each one has to come
+     *                         before, null entries or a null array for no limit
+     * @param arrLimitBays     the bay of the appointment each one has to come
+     *                         before
+     * @return the booked appointments in the same order, null for the ones that
+     *         did not come before their limit
+     * @throws SQLException           throws if the appointments cannot be saved,
+     *                                in which case none of them are booked
+     * @throws NoSuchElementException throws if an appointment cannot be placed,
+     *                                such as when no mechanic is qualified for
+     *                                it, in which case none of them are booked
+     * @throws IllegalStateException  throws if this process does not own a bay
+     */
+    public Schedule[] bookGroup(Vehicle[] arrGroupVehicles, Service[] arrGroupServices, Timestamp[] arrLimitStarts,
+            int[] arrLimitBays) throws SQLException, NoSuchElementException, IllegalStateException {
+        return bookGroup(arrGroupVehicles, arrGroupServices, arrLimitStarts, arrLimitBays, null);
+    }
+
+    /**
+     * Books a group of appointments like bookGroup, where an appointment that
+     * cannot be placed is left out of the group with the reason instead of
+     * failing the others
+     *
+     * @param arrGroupVehicles the vehicle of each appointment
+     * @param arrGroupServices the service of each appointment
+     * @param arrLimitStarts   the start of the appointment each one has to come
+     *                         before, null entries or a null array for no limit
+     * @param arrLimitBays     the bay of the appointment each one has to come
+     *                         before
+     * @param arrFailures      the reason each appointment left out could not be
+     *                         placed or logged is set here, null to fail the
+     *                         whole group instead
+     * @return the booked appointments in the same order, null for the ones that
+     *         did not come before their limit or could not be placed
+     * @throws SQLException           throws if the appointments cannot be saved,
+     *                                in which case none of them are booked
+     * @throws NoSuchElementException throws if an appointment cannot be placed and
+     *                                there is no array for the reasons
+     * @throws IllegalStateException  throws if this process does not own a bay
+     *                                and there is no array for the reasons
+     */
+    public Schedule[] bookGroup(Vehicle[] arrGroupVehicles, Service[] arrGroupServices, Timestamp[] arrLimitStarts,
+            int[] arrLimitBays, Exception[] arrFailures)
+            throws SQLException, NoSuchElementException, IllegalStateException {
+        // the place of this group in first come, first served order
+        final long TICKET = lngNextTicket.getAndIncrement();
+        try {
+            awaitTurn(TICKET);
+            while (true) {
+                // the reserved mechanic, week, day, and timeslot of each appointment
+                int[][] arrPlaced = new int[arrGroupVehicles.length][];
+                // the appointments, not saved yet
+                Schedule[] arrBooked = new Schedule[arrGroupVehicles.length];
+                // the version each appointment's bay is expected to be at when it is saved
+                long[] arrExpectedVersions = new long[arrGroupVehicles.length];
+                long[] arrNextVersions = arrBayVersions.clone();
+
+                // place each appointment in order, the vehicle index holds the placed ones so
+                // a vehicle booked twice in the group is not worked on in two bays at once
+                for (int i = 0; i < arrBooked.length; i++) {
+                    try {
+                        arrPlaced[i] = reserveEarliest(findAppointment(-1, arrGroupVehicles[i], arrGroupServices[i]),
+                                -1, arrGroupVehicles[i], arrGroupServices[i], null);
+                    } catch (NoSuchElementException | IllegalStateException ex) {
+                        if (arrFailures == null) {
+                            // free the appointments already placed
+                            undoGroup(arrPlaced, arrBooked, arrGroupServices);
+                            throw ex;
+                        }
+                        // leave it out, the rest of the group is still booked
+                        arrFailures[i] = ex;
+                        continue;
+                    }
+                    Timestamp[] appointmentTime = calcStartEndTimestamps(arrPlaced[i], arrGroupServices[i]);
+                    // another process's bay has the earlier appointment, leave it out
+                    if (arrLimitStarts != null && arrLimitStarts[i] != null && !comesBefore(appointmentTime[0],
+                            arrBayTUIDs[arrPlaced[i][0]], arrLimitStarts[i], arrLimitBays[i])) {
+                        releaseSlots(arrPlaced[i][0], arrPlaced[i][1], arrPlaced[i][2], arrPlaced[i][3],
+                                arrGroupServices[i].intService_Time / GCFServiceTime);
+                        arrPlaced[i] = null;
+                        continue;
+                    }
+                    arrBooked[i] = new Schedule(arrGroupVehicles[i].getTUID(), arrBayTUIDs[arrPlaced[i][0]],
+                            arrGroupServices[i].getTUID(), appointmentTime[0], appointmentTime[1]);
+                    arrExpectedVersions[i] = arrNextVersions[arrPlaced[i][0]]++;
+                    addVehicleAppointment(arrBooked[i]);
+                }
+
+                // confirm the group once it is in the write-behind log
+                if (writeBehind != null) {
+                    for (int i = 0; i < arrBooked.length; i++) {
+                        if (arrBooked[i] == null)
+                            continue;
+                        Schedule currLogged = logBooking(arrBooked[i]);
+                        if (currLogged == null) {
+                            // the bookings already logged stay booked, free the rest
+                            undoGroup(Arrays.copyOfRange(arrPlaced, i, arrPlaced.length),
+                                    Arrays.copyOfRange(arrBooked, i, arrBooked.length),
+                                    Arrays.copyOfRange(arrGroupServices, i, arrGroupServices.length));
+                            SQLException logFailure = new SQLException(
+                                    "The booking could not be written to the write-behind log");
+                            if (arrFailures == null)
+                                throw logFailure;
+                            // fail only the ones not logged
+                            for (int j = i; j < arrBooked.length; j++) {
+                                if (arrBooked[j] != null)
+                                    arrFailures[j] = logFailure;
+                                arrBooked[j] = null;
+                            }
+                            return arrBooked;
+                        }
+                        mapVehicleAppointments.get(arrBooked[i].Vehicles_TUID).remove(arrBooked[i]);
+                        arrBooked[i] = currLogged;
+                        addVehicleAppointment(currLogged);
+                        recordAppointment(currLogged);
+                    }
+                    return arrBooked;
+                }
+
+                // the placed appointments, the ones left out are not saved
+                int intPlacedCount = 0;
+                for (Schedule currBooked : arrBooked)
+                    intPlacedCount += currBooked == null ? 0 : 1;
+                Schedule[] arrToSave = new Schedule[intPlacedCount];
+                long[] arrToSaveVersions = new long[intPlacedCount];
+                for (int i = 0, j = 0; i < arrBooked.length; i++) {
+                    if (arrBooked[i] != null) {
+                        arrToSave[j] = arrBooked[i];
+                        arrToSaveVersions[j++] = arrExpectedVersions[i];
+                    }
+                }
+
+                // save the group in one transaction
+                int[] arrTUIDs;
+                try {
+                    arrTUIDs = intPlacedCount == 0 ? new int[0]
+                            : database.addSchedulesIfCurrent(arrToSave, arrToSaveVersions);
+                } catch (SQLException ex) {
+                    undoGroup(arrPlaced, arrBooked, arrGroupServices);
+                    throw ex;
+                }
+                // another process booked one of the bays or vehicles first, sync and place
+                // the group again
+                if (arrTUIDs == null) {
+                    undoGroup(arrPlaced, arrBooked, arrGroupServices);
+                    lngConflicts.incrementAndGet();
+                    syncFromDatabase();
+                    continue;
+                }
+
+                // the inserts moved the bays to their next versions
+                System.arraycopy(arrNextVersions, 0, arrBayVersions, 0, arrBayVersions.length);
+                // replace the placed appointments with the saved ones
+                for (int i = 0, j = 0; i < arrBooked.length; i++) {
+                    if (arrBooked[i] == null)
+                        continue;
+                    // the id of the saved appointment
+                    final int NEW_TUID = arrTUIDs[j++];
+                    mapVehicleAppointments.get(arrBooked[i].Vehicles_TUID).remove(arrBooked[i]);
+                    arrBooked[i] = new Schedule(NEW_TUID, arrBooked[i].Vehicles_TUID, arrBooked[i].Bays_TUID,
+                            arrBooked[i].Service_TUID, arrBooked[i].Appointment_Start_Time,
+                            arrBooked[i].Appointment_End_Time);
+                    setUnsyncedTUIDs.add(NEW_TUID);
+                    addVehicleAppointment(arrBooked[i]);
+                    recordAppointment(arrBooked[i]);
+                }
+                return arrBooked;
+            }
+        } finally {
+            finishTurn(TICKET);
+        }
+    }
+
+    /**
+     * Books a visit, several services for one vehicle on the same day. The
+     * services are placed in the order provided with one search instead of one
+     * search per service, each starting as soon as the one before it ends in any
+     * bay, or later that day if no bay is open then. The visit takes one ticket
+     * and is saved in a single transaction like a group
+     *
+     * @param customerVehicle  the vehicle being worked on
+     * @param arrVisitServices the services requested, in the order they are done
+     * @return the booked appointments in the same order
+     * @throws SQLException             throws if the appointments cannot be saved,
+     *                                  in which case none of them are booked
+     * @throws IllegalArgumentException throws if there are no services or they do
+     *                                  not fit in one day
+     * @throws NoSuchElementException   throws if no mechanic is qualified for one
+     *                                  of the services
+     */
+    public Schedule[] bookVisit(Vehicle customerVehicle, Service[] arrVisitServices)
+            throws SQLException, IllegalArgumentException, NoSuchElementException {
+        // the number of timeslots the visit takes without gaps
+        int intTotalSlots = 0;
+        for (Service currService : arrVisitServices)
+            intTotalSlots += currService.intService_Time / GCFServiceTime;
+        if (arrVisitServices.length == 0 || intTotalSlots > MechanicSchedule.NUM_WORK_MINUTES / GCFServiceTime)
+            throw new IllegalArgumentException("The services of a visit must fit in one work day");
+        // the place of this visit in first come, first served order
+        final long TICKET = lngNextTicket.getAndIncrement();
+        try {
+            awaitTurn(TICKET);
+            while (true) {
+                // the mechanic, week, day, and timeslot of each service, searched while it
+                // is this visit's turn so nothing else is reserved in the meantime
+                int[][] arrPlaced = findVisit(customerVehicle, arrVisitServices, intTotalSlots);
+                // the appointments, not saved yet
+                Schedule[] arrBooked = new Schedule[arrVisitServices.length];
+                // the version each appointment's bay is expected to be at when it is saved
+                long[] arrExpectedVersions = new long[arrVisitServices.length];
+                long[] arrNextVersions = arrBayVersions.clone();
+                for (int i = 0; i < arrBooked.length; i++) {
+                    reserveSlots(arrPlaced[i][0], arrPlaced[i][1], arrPlaced[i][2], arrPlaced[i][3],
+                            arrVisitServices[i].intService_Time / GCFServiceTime);
+                    Timestamp[] appointmentTime = calcStartEndTimestamps(arrPlaced[i], arrVisitServices[i]);
+                    arrBooked[i] = new Schedule(customerVehicle.getTUID(), arrBayTUIDs[arrPlaced[i][0]],
+                            arrVisitServices[i].getTUID(), appointmentTime[0], appointmentTime[1]);
+                    arrExpectedVersions[i] = arrNextVersions[arrPlaced[i][0]]++;
+                    addVehicleAppointment(arrBooked[i]);
+                }
+
+                // confirm the visit once it is in the write-behind log
+                if (writeBehind != null) {
+                    for (int i = 0; i < arrBooked.length; i++) {
+                        Schedule currLogged = logBooking(arrBooked[i]);
+                        if (currLogged == null) {
+                            // the services already logged stay booked, free the rest
+                            undoGroup(Arrays.copyOfRange(arrPlaced, i, arrPlaced.length),
+                                    Arrays.copyOfRange(arrBooked, i, arrBooked.length),
+                                    Arrays.copyOfRange(arrVisitServices, i, arrVisitServices.length));
+                            throw new SQLException("The visit could not be written to the write-behind log");
+                        }
+                        mapVehicleAppointments.get(arrBooked[i].Vehicles_TUID).remove(arrBooked[i]);
+                        arrBooked[i] = currLogged;
+                        addVehicleAppointment(currLogged);
+                        recordAppointment(currLogged);
+                    }
+                    return arrBooked;
+                }
+
+                // save the visit in one transaction
+                int[] arrTUIDs;
+                try {
+                    arrTUIDs = database.addSchedulesIfCurrent(arrBooked, arrExpectedVersions);
+                } catch (SQLException ex) {
+                    undoGroup(arrPlaced, arrBooked, arrVisitServices);
+                    throw ex;
+                }
+                // another process booked one of the bays or the vehicle first, sync and
+                // search again
+                if (arrTUIDs == null) {
+                    undoGroup(arrPlaced, arrBooked, arrVisitServices);
+                    lngConflicts.incrementAndGet();
+                    syncFromDatabase();
+                    continue;
+                }
+
+                // the inserts moved the bays to their next versions
+                System.arraycopy(arrNextVersions, 0, arrBayVersions, 0, arrBayVersions.length);
+                // replace the placed appointments with the saved ones
+                for (int i = 0; i < arrBooked.length; i++) {
+                    mapVehicleAppointments.get(arrBooked[i].Vehicles_TUID).remove(arrBooked[i]);
+                    arrBooked[i] = new Schedule(arrTUIDs[i], arrBooked[i].Vehicles_TUID, arrBooked[i].Bays_TUID,
+                            arrBooked[i].Service_TUID, arrBooked[i].Appointment_Start_Time,
+                            arrBooked[i].Appointment_End_Time);
+                    setUnsyncedTUIDs.add(arrTUIDs[i]);
+                    addVehicleAppointment(arrBooked[i]);
+                    recordAppointment(arrBooked[i]);
+                }
+                return arrBooked;
+            }
+        } finally {
+            finishTurn(TICKET);
+        }
+    }
+
+    /**
+     * Finds the earliest placement of a visit, the one whose first service starts
+     * first, ties going to the lower bay. Does not change the schedule data
+     * structure, called by the visit whose turn it is
+     *
+     * @param customerVehicle  the vehicle being worked on
+     * @param arrVisitServices the services requested, in the order they are done
+     * @param intTotalSlots    the number of timeslots of the services together
+     * @return the mechanic index, week, day, and timeslot of each service
+     * @throws IllegalStateException  throws if this process does not own a bay
+     * @throws NoSuchElementException throws if no mechanic is qualified for one
+     *                                of the services
+     */
+    private int[][] findVisit(Vehicle customerVehicle, Service[] arrVisitServices, int intTotalSlots)
+            throws IllegalStateException, NoSuchElementException {
+        // the mechanics each service may be booked with
+        boolean[][] arrEligible = new boolean[arrVisitServices.length][];
+        for (int k = 0; k < arrVisitServices.length; k++)
+            arrEligible[k] = findEligible(arrVisitServices[k]);
+        // the number of timeslots in a day
+        final int SLOTS_PER_DAY = MechanicSchedule.NUM_WORK_MINUTES / GCFServiceTime;
+        // weeks past the end of the schedule are open, so a visit always fits
+        for (int weekNum = 0;; weekNum++) {
+            for (int i = 0; i < MechanicSchedule.NUM_WORK_DAYS; i++) {
+                // foreach start that leaves the visit enough slots in the day
+                for (int j = 0; j + intTotalSlots <= SLOTS_PER_DAY; j++) {
+                    int[][] arrPlaced = placeVisit(customerVehicle, arrVisitServices, arrEligible, weekNum, i, j);
+                    if (arrPlaced != null)
+                        return arrPlaced;
+                }
+            }
+        }
+    }
+
+    /**
+     * Places a visit whose first service starts at a timeslot. Each service takes
+     * the earliest start in any owned bay at or after the end of the one before
+     * it, ties going to the lower bay
+     *
+     * @param customerVehicle  the vehicle being worked on
+     * @param arrVisitServices the services requested, in the order they are done
+     * @param arrEligible      the mechanics each service may be booked with
+     * @param weekIndex        the week of the visit
+     * @param dayIndex         the day of the visit
+     * @param timeIndex        the timeslot the first service starts at
+     * @return the mechanic index, week, day, and timeslot of each service, null if
+     *         the visit does not fit that day starting then
+     */
+    private int[][] placeVisit(Vehicle customerVehicle, Service[] arrVisitServices, boolean[][] arrEligible,
+            int weekIndex, int dayIndex, int timeIndex) {
+        // the number of timeslots in a day
+        final int SLOTS_PER_DAY = MechanicSchedule.NUM_WORK_MINUTES / GCFServiceTime;
+        int[][] arrPlaced = new int[arrVisitServices.length][];
+        // the first timeslot the next service may start at
+        int intNextTime = timeIndex;
+        for (int k = 0; k < arrVisitServices.length; k++) {
+            final int SLOTS_NEEDED = arrVisitServices[k].intService_Time / GCFServiceTime;
+            // the first service has to start at the timeslot, the others as soon as they can
+            final int LAST_START = k == 0 ? timeIndex : SLOTS_PER_DAY - SLOTS_NEEDED;
+            for (int j = intNextTime; j <= LAST_START && arrPlaced[k] == null; j++) {
+                for (int m = 0; m < arrMechanicSchedules.length && arrPlaced[k] == null; m++) {
+                    if (!arrEligible[k][m]
+                            || !arrMechanicSchedules[m].areSlotsOpen(weekIndex, dayIndex, j, SLOTS_NEEDED))
+                        continue;
+                    int[] arrCandidate = new int[] { m, weekIndex, dayIndex, j };
+                    Timestamp[] appointmentTime = calcStartEndTimestamps(arrCandidate, arrVisitServices[k]);
+                    // the services of the visit follow each other, so only the vehicle's other
+                    // appointments can overlap
+                    if (!hasOverlap(-1, customerVehicle, appointmentTime[0], appointmentTime[1]))
+                        arrPlaced[k] = arrCandidate;
+                }
+            }
+            if (arrPlaced[k] == null)
+                return null;
+            intNextTime = arrPlaced[k][3] + SLOTS_NEEDED;
+        }
+        return arrPlaced;
+    }
+
+    /**
+     * Cancels a booked appointment, deleting it from the database and freeing its
+     * slots on the schedule. The cancellation takes a ticket like a booking, so a
+     * booking accepted after it can take the freed slots. Optionally later
+     * appointments are moved into the freed slots first, see backfill
+     *
+     * @param appointmentTUID the id of the appointment
+     * @param intMaxMoves     the most appointments to move into the freed slots, 0
+     *                        to only free them
+     * @return the cancelled appointment and the appointments moved
+     * @throws SQLException           throws if the appointment cannot be deleted
+     *                                or the database cannot be synced
+     * @throws NoSuchElementException throws if there is no appointment with the id
+     */
+    public Cancellation cancel(int appointmentTUID, int intMaxMoves) throws SQLException, NoSuchElementException {
+        // the place of this cancellation in first come, first served order
+        final long TICKET = lngNextTicket.getAndIncrement();
+        try {
+            awaitTurn(TICKET);
+            // the appointment may only be in the write-behind log, the flush gives up
+            // after a few seconds so the turn is not held while the database is down
+            if (writeBehind != null) {
+                try {
+                    writeBehind.flush();
+                } catch (IOException ex) {
+                    throw new SQLException("The write-behind log could not be saved", ex);
+                }
+            }
+            Schedule oldAppointment = database.deleteSchedule(appointmentTUID);
+            if (oldAppointment == null)
+                throw new NoSuchElementException("No appointment found with the TUID " + appointmentTUID);
+            // the appointment this engine has, another process may have booked it since
+            // the last sync
+            Schedule currAppointment = mapAppointments.get(appointmentTUID);
+            if (currAppointment != null)
+                removeAppointment(currAppointment);
+            // the delete moved the bay to its next version, read it along with any
+            // other process's changes
+            syncFromDatabase();
+            if (intMaxMoves <= 0)
+                return new Cancellation(oldAppointment, new Schedule[0]);
+            return new Cancellation(oldAppointment,
+                    backfill(oldAppointment, Math.min(intMaxMoves, MAX_BACKFILL_MOVES)));
+        } finally {
+            finishTurn(TICKET);
+        }
+    }
+
+    /**
+     * Moves later appointments into the slots freed by a cancellation, called by
+     * the cancellation whose turn it is. The candidates are the owned
+     * appointments that start after the cancelled one and are no longer than it.
+     * Each gap is offered first to the candidates in the same bay, then to the
+     * others, each group first come, first served, and a candidate takes the
+     * earliest start in the gap that is open, earlier than its own start, and
+     * does not overlap its vehicle's other appointments. The slots a moved
+     * appointment leaves are a new gap. The pass stops after intMaxMoves moves or
+     * MAX_BACKFILL_TRIES placements tried, so it never reschedules the whole book.
+     * The moves are saved in one transaction, and if another process changed a
+     * bay involved they are undone and the schedule is synced
+     *
+     * @param cancelledAppointment the cancelled appointment
+     * @param intMaxMoves          the most appointments to move
+     * @return the moved appointments at their new times, in the order moved
+     * @throws SQLException           throws if the database cannot be synced after
+     *                                a conflict
+     * @throws NoSuchElementException throws if the service of an appointment is
+     *                                not found
+     */
+    private Schedule[] backfill(Schedule cancelledAppointment, int intMaxMoves)
+            throws SQLException, NoSuchElementException {
+        // the number of timeslots the cancelled appointment freed
+        final int CANCELLED_SLOTS = getSlotsNeeded(cancelledAppointment);
+        // the appointments that could move, first come, first served
+        List<Schedule> lstCandidates = new ArrayList<Schedule>();
+        for (Schedule currAppointment : mapAppointments.values()) {
+            int[] arrSlot = getSlot(currAppointment);
+            if (arrSlot != null && isOwned(arrSlot[0])
+                    && currAppointment.Appointment_Start_Time.after(cancelledAppointment.Appointment_Start_Time)
+                    && getSlotsNeeded(currAppointment) <= CANCELLED_SLOTS)
+                lstCandidates.add(currAppointment);
+        }
+        lstCandidates.sort(Comparator.comparingInt(Schedule::getTUID));
+
+        // the slots left open, oldest first
+        ArrayDeque<Schedule> queGaps = new ArrayDeque<Schedule>();
+        queGaps.add(cancelledAppointment);
+        // the appointments moved before and after each move
+        List<Schedule> lstOld = new ArrayList<Schedule>();
+        List<Schedule> lstMoved = new ArrayList<Schedule>();
+        int intTries = 0; // the number of placements tried
+        while (!queGaps.isEmpty() && lstMoved.size() < intMaxMoves && intTries < MAX_BACKFILL_TRIES) {
+            Schedule currGap = queGaps.poll();
+            int[] arrGap = getSlot(currGap);
+            if (arrGap == null || !isOwned(arrGap[0]))
+                continue;
+            final int GAP_SLOTS = getSlotsNeeded(currGap);
+            // the candidate moved into the gap, -1 if none fit
+            int intMovedIndex = -1;
+            // the candidates in the gap's bay first, then the others
+            for (int intPass = 0; intPass < 2 && intMovedIndex < 0; intPass++) {
+                for (int i = 0; i < lstCandidates.size() && intMovedIndex < 0
+                        && intTries < MAX_BACKFILL_TRIES; i++) {
+                    Schedule currCandidate = lstCandidates.get(i);
+                    if ((currCandidate.Bays_TUID == currGap.Bays_TUID) != (intPass == 0)
+                            || !currCandidate.Appointment_Start_Time.after(currGap.Appointment_Start_Time)
+                            || getSlotsNeeded(currCandidate) > GAP_SLOTS)
+                        continue;
+                    intTries++;
+                    Schedule movedAppointment = moveIntoGap(currCandidate, arrGap, GAP_SLOTS);
+                    if (movedAppointment != null) {
+                        intMovedIndex = i;
+                        lstOld.add(currCandidate);
+                        lstMoved.add(movedAppointment);
+                    }
+                }
+            }
+            if (intMovedIndex >= 0) {
+                // the rest of the gap may fit another candidate, and the moved
+                // appointment left a gap of its own
+                queGaps.addFirst(currGap);
+                queGaps.add(lstCandidates.remove(intMovedIndex));
+            }
+        }
+        if (lstMoved.isEmpty())
+            return new Schedule[0];
+
+        // the version each bay left or joined is expected to be at
+        Map<Integer, Long> mapVersions = new HashMap<Integer, Long>();
+        for (int i = 0; i < lstMoved.size(); i++) {
+            mapVersions.put(lstOld.get(i).Bays_TUID, arrBayVersions[getMechanicIndexByBay(lstOld.get(i).Bays_TUID)]);
+            mapVersions.put(lstMoved.get(i).Bays_TUID,
+                    arrBayVersions[getMechanicIndexByBay(lstMoved.get(i).Bays_TUID)]);
+        }
+        // whether or not the moves were saved
+        boolean blnSaved;
+        try {
+            blnSaved = database.moveSchedules(lstMoved.toArray(new Schedule[0]), mapVersions);
+        } catch (SQLException ex) {
+            // the cancellation is already saved, so it succeeds without the moves
+            ex.printStackTrace();
+            blnSaved = false;
+        }
+        if (!blnSaved) {
+            // move them back, newest move first so each slot is free again
+            for (int i = lstMoved.size() - 1; i >= 0; i--)
+                relocateAppointment(lstMoved.get(i), lstOld.get(i));
+            lngConflicts.incrementAndGet();
+            syncFromDatabase();
+            return new Schedule[0];
+        }
+        // the moves moved each bay to its next version
+        for (Integer intBayTUID : mapVersions.keySet())
+            arrBayVersions[getMechanicIndexByBay(intBayTUID)]++;
+        return lstMoved.toArray(new Schedule[0]);
+    }
+
+    /**
+     * Moves an appointment to the earliest start in a gap that is open, earlier
+     * than its own start, and does not overlap its vehicle's other appointments
+     *
+     * @param currAppointment the appointment to move
+     * @param arrGap          the mechanic index, week, day, and first timeslot of
+     *                        the gap
+     * @param intGapSlots     the number of timeslots in the gap
+     * @return the appointment at its new time, null if it was not moved
+     * @throws SQLException           throws if the database cannot be initialized
+     * @throws NoSuchElementException throws if the service of the appointment is
+     *                                not found
+     */
+    private Schedule moveIntoGap(Schedule currAppointment, int[] arrGap, int intGapSlots)
+            throws SQLException, NoSuchElementException {
+        Service currService = Service.getService(currAppointment.Service_TUID, arrServices);
+        // the gap's mechanic has to be able to do the service
+        if (!isQualified(arrGap[0], currService))
+            return null;
+        final int SLOTS_NEEDED = currService.intService_Time / GCFServiceTime;
+        // free its own slots so a move within the same run is not blocked by itself
+        int[] arrOld = getSlot(currAppointment);
+        releaseSlots(arrOld[0], arrOld[1], arrOld[2], arrOld[3], SLOTS_NEEDED);
+        // the new place of the appointment, null if there is none
+        Schedule movedAppointment = null;
+        for (int intTime = arrGap[3]; intTime + SLOTS_NEEDED <= arrGap[3] + intGapSlots
+                && movedAppointment == null; intTime++) {
+            Timestamp[] appointmentTime = calcStartEndTimestamps(
+                    new int[] { arrGap[0], arrGap[1], arrGap[2], intTime }, currService);
+            // only an earlier start is a move forward
+            if (!appointmentTime[0].before(currAppointment.Appointment_Start_Time))
+                break;
+            if (arrMechanicSchedules[arrGap[0]].areSlotsOpen(arrGap[1], arrGap[2], intTime, SLOTS_NEEDED)
+                    && !hasOverlap(currAppointment.getTUID(), currAppointment.Vehicles_TUID, appointmentTime[0],
+                            appointmentTime[1]))
+                movedAppointment = new Schedule(currAppointment.getTUID(), currAppointment.Vehicles_TUID,
+                        arrBayTUIDs[arrGap[0]], currAppointment.Service_TUID, appointmentTime[0],
+                        appointmentTime[1]);
+        }
+        reserveSlots(arrOld[0], arrOld[1], arrOld[2], arrOld[3], SLOTS_NEEDED);
+        if (movedAppointment != null)
+            relocateAppointment(currAppointment, movedAppointment);
+        return movedAppointment;
+    }
+
+    /**
+     * Books an appointment with a priority class. A booking above walk-in takes
+     * the earliest start where it fits by displacing appointments of lower
+     * classes in one bay, if that is earlier than the first open one, and the
+     * displaced appointments are placed again by the normal search. A displaced
+     * appointment above walk-in may displace lower classes in turn, up to
+     * MAX_PREEMPT_DEPTH appointments deep, and no more than MAX_PREEMPT_MOVES
+     * appointments are displaced in all. The booking and the moves are saved in
+     * one transaction, and if another process changed an appointment involved
+     * they are undone, the schedule is synced, and the booking is planned again.
+     * Held slots are never displaced
+     *
+     * @param customerVehicle the vehicle being worked on
+     * @param currentService  the service requested
+     * @param priority        the priority class of the booking
+     * @return the booked appointment and the appointments it displaced
+     * @throws SQLException          throws if the appointments cannot be saved or
+     *                               the database cannot be synced
+     * @throws IllegalStateException throws if bookings are saved by a
+     *                               write-behind log, which cannot save moves
+     */
+    public Preemption bookWithPriority(Vehicle customerVehicle, Service currentService, Priority priority)
+            throws SQLException, IllegalStateException {
+        if (writeBehind != null)
+            throw new IllegalStateException("Priority bookings cannot be saved by a write-behind log");
+        // the number of timeslots this service requires
+        final int SLOTS_NEEDED = currentService.intService_Time / GCFServiceTime;
+        // the place of this booking in first come, first served order
+        final long TICKET = lngNextTicket.getAndIncrement();
+        try {
+            awaitTurn(TICKET);
+            while (true) {
+                // the appointments placed again, where they were and where they went
+                List<Schedule> lstOld = new ArrayList<Schedule>();
+                List<Schedule> lstMoved = new ArrayList<Schedule>();
+                // the appointments that may not be displaced, those already displaced
+                Set<Integer> setPinned = new HashSet<Integer>();
+                // the displaced appointments waiting to be placed again and how deep each is
+                ArrayDeque<Schedule> queDisplaced = new ArrayDeque<Schedule>();
+                Map<Integer, Integer> mapDepths = new HashMap<Integer, Integer>();
+
+                List<Schedule> lstDisplaced = new ArrayList<Schedule>();
+                int[] arrPlaced = placeDisplacing(-1, customerVehicle.getTUID(), currentService, priority,
+                        MAX_PREEMPT_MOVES, setPinned, lstDisplaced);
+                Timestamp[] appointmentTime = calcStartEndTimestamps(arrPlaced, currentService);
+                Schedule newAppointment = new Schedule(customerVehicle.getTUID(), arrBayTUIDs[arrPlaced[0]],
+                        currentService.getTUID(), appointmentTime[0], appointmentTime[1]);
+                displace(lstDisplaced, 1, setPinned, queDisplaced, mapDepths);
+                reserveSlots(arrPlaced[0], arrPlaced[1], arrPlaced[2], arrPlaced[3], SLOTS_NEEDED);
+                // the displaced appointments see the new one in their vehicle's overlap checks
+                addVehicleAppointment(newAppointment);
+
+                // the longest chain of displacements
+                int intDepth = lstDisplaced.isEmpty() ? 0 : 1;
+                // the displaced appointment being placed again, null between them
+                Schedule currDisplaced = null;
+                try {
+                    while (!queDisplaced.isEmpty()) {
+                        currDisplaced = queDisplaced.poll();
+                        final int DEPTH = mapDepths.get(currDisplaced.getTUID());
+                        Service currService = Service.getService(currDisplaced.Service_TUID, arrServices);
+                        // the deepest appointments are only placed in open slots
+                        Priority currPriority = DEPTH < MAX_PREEMPT_DEPTH
+                                ? mapPriorities.getOrDefault(currDisplaced.getTUID(), Priority.WALK_IN)
+                                : Priority.WALK_IN;
+                        lstDisplaced = new ArrayList<Schedule>();
+                        int[] arrMovedTo = placeDisplacing(currDisplaced.getTUID(), currDisplaced.Vehicles_TUID,
+                                currService, currPriority, MAX_PREEMPT_MOVES - setPinned.size(), setPinned,
+                                lstDisplaced);
+                        displace(lstDisplaced, DEPTH + 1, setPinned, queDisplaced, mapDepths);
+                        if (!lstDisplaced.isEmpty())
+                            intDepth = Math.max(intDepth, DEPTH + 1);
+                        reserveSlots(arrMovedTo[0], arrMovedTo[1], arrMovedTo[2], arrMovedTo[3],
+                                currService.intService_Time / GCFServiceTime);
+                        Timestamp[] movedTime = calcStartEndTimestamps(arrMovedTo, currService);
+                        Schedule movedAppointment = new Schedule(currDisplaced.getTUID(), currDisplaced.Vehicles_TUID,
+                                arrBayTUIDs[arrMovedTo[0]], currDisplaced.Service_TUID, movedTime[0], movedTime[1]);
+                        reindexAppointment(currDisplaced, movedAppointment);
+                        lstOld.add(currDisplaced);
+                        lstMoved.add(movedAppointment);
+                        currDisplaced = null;
+                    }
+                } catch (RuntimeException ex) {
+                    // a displaced appointment could not be placed again, such as when no
+                    // mechanic is qualified for it any more. Put back the ones placed, then
+                    // the ones still waiting where they were
+                    undoDisplacing(arrPlaced, newAppointment, lstOld, lstMoved);
+                    if (currDisplaced != null)
+                        queDisplaced.add(currDisplaced);
+                    for (Schedule currWaiting : queDisplaced) {
+                        int[] arrSlot = getSlot(currWaiting);
+                        reserveSlots(arrSlot[0], arrSlot[1], arrSlot[2], arrSlot[3], getSlotsNeeded(currWaiting));
+                    }
+                    throw ex;
+                }
+
+                // the id of the saved appointment
+                int intNewTUID;
+                try {
+                    intNewTUID = database.addScheduleDisplacing(newAppointment, priority.ordinal(),
+                            lstOld.toArray(new Schedule[0]), lstMoved.toArray(new Schedule[0]));
+                } catch (SQLException ex) {
+                    undoDisplacing(arrPlaced, newAppointment, lstOld, lstMoved);
+                    throw ex;
+                }
+                // another process changed an appointment or slot involved, sync and plan again
+                if (intNewTUID <= 0) {
+                    undoDisplacing(arrPlaced, newAppointment, lstOld, lstMoved);
+                    lngConflicts.incrementAndGet();
+                    syncFromDatabase();
+                    continue;
+                }
+                // the bays the moves left or joined and the new appointment's bay each moved
+                // to their next version
+                Set<Integer> setBays = new TreeSet<Integer>();
+                for (int i = 0; i < lstOld.size(); i++) {
+                    setBays.add(lstOld.get(i).Bays_TUID);
+                    setBays.add(lstMoved.get(i).Bays_TUID);
+                }
+                for (int intBayTUID : setBays)
+                    arrBayVersions[getMechanicIndexByBay(intBayTUID)]++;
+                arrBayVersions[arrPlaced[0]]++;
+                setUnsyncedTUIDs.add(intNewTUID);
+
+                mapVehicleAppointments.get(newAppointment.Vehicles_TUID).remove(newAppointment);
+                newAppointment = new Schedule(intNewTUID, newAppointment.Vehicles_TUID, newAppointment.Bays_TUID,
+                        newAppointment.Service_TUID, newAppointment.Appointment_Start_Time,
+                        newAppointment.Appointment_End_Time);
+                addVehicleAppointment(newAppointment);
+                recordAppointment(newAppointment);
+                if (priority != Priority.WALK_IN)
+                    mapPriorities.put(intNewTUID, priority);
+
+                // the minutes the displaced appointments were pushed back
+                long lngDelayMinutes = 0;
+                for (int i = 0; i < lstOld.size(); i++)
+                    lngDelayMinutes += (lstMoved.get(i).Appointment_Start_Time.getTime()
+                            - lstOld.get(i).Appointment_Start_Time.getTime()) / DateUtil.MILLISECONDS_MINUTE;
+                if (!lstMoved.isEmpty()) {
+                    lngPreemptions.incrementAndGet();
+                    lngPreemptedMoves.addAndGet(lstMoved.size());
+                    lngPreemptedMinutes.addAndGet(lngDelayMinutes);
+                    intMaxPreemptDepth = Math.max(intMaxPreemptDepth, intDepth);
+                }
+                return new Preemption(newAppointment, lstMoved.toArray(new Schedule[0]), intDepth, lngDelayMinutes);
+            }
+        } finally {
+            finishTurn(TICKET);
+        }
+    }
+
+    /**
+     * Finds where an appointment goes, displacing appointments of lower classes
+     * if that starts earlier than the earliest open appointment. Does not change
+     * the schedule data structure
+     *
+     * @param appointmentTUID the id of the appointment if it already exists,
+     *                        otherwise -1
+     * @param intVehicleTUID  the id of the vehicle being worked on
+     * @param currentService  the service requested
+     * @param priority        the priority class of the appointment, walk-in to
+     *                        only take open slots
+     * @param intMaxDisplaced the most appointments it may displace
+     * @param setPinned       the ids of the appointments that may not be
+     *                        displaced
+     * @param lstDisplaced    the appointments it displaces are added to this list
+     * @return the mechanic index, week, day, and timeslot of the appointment
+     */
+    private int[] placeDisplacing(int appointmentTUID, int intVehicleTUID, Service currentService,
+            Priority priority, int intMaxDisplaced, Set<Integer> setPinned, List<Schedule> lstDisplaced) {
+        int[] earliest = findAppointment(appointmentTUID, intVehicleTUID, currentService);
+        if (priority == Priority.WALK_IN || intMaxDisplaced <= 0)
+            return earliest;
+        int[] arrDisplacing = findDisplacing(appointmentTUID, intVehicleTUID, currentService, priority,
+                calcStartEndTimestamps(earliest, currentService)[0], intMaxDisplaced, setPinned, lstDisplaced);
+        return arrDisplacing == null ? earliest : arrDisplacing;
+    }
+
+    /**
+     * Finds the earliest start before a time where an appointment fits in one
+     * owned bay once the appointments of lower classes in its way are displaced,
+     * ties going to the bay with the fewest to displace, then the fewest
+     * timeslots displaced, then the lower bay.
+     * Only the work days up to that time are read. Does not change the schedule
+     * data structure
+     *
+     * @param appointmentTUID the id of the appointment if it already exists,
+     *                        otherwise -1
+     * @param intVehicleTUID  the id of the vehicle being worked on
+     * @param currentService  the service requested
+     * @param priority        the priority class of the appointment
+     * @param tsBefore        the appointment has to start before this time
+     * @param intMaxDisplaced the most appointments it may displace
+     * @param setPinned       the ids of the appointments that may not be
+     *                        displaced
+     * @param lstDisplaced    the appointments it displaces are added to this list
+     * @return the mechanic index, week, day, and timeslot of the appointment, null
+     *         if displacing does not make it earlier
+     */
+    private int[] findDisplacing(int appointmentTUID, int intVehicleTUID, Service currentService,
+            Priority priority, Timestamp tsBefore, int intMaxDisplaced, Set<Integer> setPinned,
+            List<Schedule> lstDisplaced) {
+        final int SLOTS_NEEDED = currentService.intService_Time / GCFServiceTime;
+        final int SLOTS_PER_DAY = MechanicSchedule.NUM_WORK_MINUTES / GCFServiceTime;
+        final Timestamp NEXT_MONDAY = DateUtil.getNextMondaysDate();
+        final int LAST_DAY = DateUtil.workDayIndex(tsBefore, NEXT_MONDAY, false);
+        if (LAST_DAY < 0)
+            return null;
+        // the appointment in each timeslot of each owned bay up to the last day, a
+        // reserved timeslot without one is held or pinned and cannot be displaced
+        Schedule[][] arrOccupants = new Schedule[arrMechanicSchedules.length][(LAST_DAY + 1) * SLOTS_PER_DAY];
+        for (Schedule currAppointment : mapAppointments.values()) {
+            int[] arrSlot = getSlot(currAppointment);
+            if (arrSlot == null || !isOwned(arrSlot[0]) || setPinned.contains(currAppointment.getTUID()))
+                continue;
+            final int DAY = arrSlot[1] * MechanicSchedule.NUM_WORK_DAYS + arrSlot[2];
+            if (DAY > LAST_DAY)
+                continue;
+            for (int k = 0; k < getSlotsNeeded(currAppointment); k++)
+                arrOccupants[arrSlot[0]][DAY * SLOTS_PER_DAY + arrSlot[3] + k] = currAppointment;
+        }
+
+        for (int intDay = 0; intDay <= LAST_DAY; intDay++) {
+            final int WEEK = intDay / MechanicSchedule.NUM_WORK_DAYS;
+            final int DAY = intDay % MechanicSchedule.NUM_WORK_DAYS;
+            for (int t = 0; t + SLOTS_NEEDED <= SLOTS_PER_DAY; t++) {
+                Timestamp[] appointmentTime = DateUtil.appointmentTimes(NEXT_MONDAY, WEEK, DAY, t,
+                        currentService.intService_Time, GCFServiceTime);
+                // every later start is later too
+                if (!appointmentTime[0].before(tsBefore))
+                    return null;
+                if (hasOverlap(appointmentTUID, intVehicleTUID, appointmentTime[0], appointmentTime[1]))
+                    continue;
+                // the bay with the fewest appointments and timeslots in the way
+                int intBest = -1;
+                int intBestSlots = 0;
+                List<Schedule> lstBest = null;
+                for (int i = 0; i < arrMechanicSchedules.length; i++) {
+                    if (!isOwned(i) || !isQualified(i, currentService))
+                        continue;
+                    List<Schedule> lstInWay = new ArrayList<Schedule>();
+                    int intSlotsInWay = 0;
+                    boolean blnDisplaceable = true;
+                    for (int k = t; k < t + SLOTS_NEEDED && blnDisplaceable; k++) {
+                        if (!arrMechanicSchedules[i].getSlot(WEEK, DAY, k))
+                            continue;
+                        Schedule currOccupant = arrOccupants[i][intDay * SLOTS_PER_DAY + k];
+                        blnDisplaceable = currOccupant != null && mapPriorities
+                                .getOrDefault(currOccupant.getTUID(), Priority.WALK_IN).compareTo(priority) < 0;
+                        if (blnDisplaceable && !lstInWay.contains(currOccupant)) {
+                            lstInWay.add(currOccupant);
+                            intSlotsInWay += getSlotsNeeded(currOccupant);
+                        }
+                    }
+                    if (blnDisplaceable && lstInWay.size() <= intMaxDisplaced && (lstBest == null
+                            || lstInWay.size() < lstBest.size()
+                            || (lstInWay.size() == lstBest.size() && intSlotsInWay < intBestSlots))) {
+                        intBest = i;
+                        intBestSlots = intSlotsInWay;
+                        lstBest = lstInWay;
+                    }
+                }
+                if (intBest >= 0) {
+                    lstDisplaced.addAll(lstBest);
+                    return new int[] { intBest, WEEK, DAY, t };
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Frees the slots of displaced appointments and queues them to be placed
+     * again. They keep their place in the index by id until they are placed
+     *
+     * @param lstDisplaced the displaced appointments
+     * @param intDepth     how deep in the chain of displacements they are
+     * @param setPinned    the ids of the appointments that may not be displaced
+     *                     again
+     * @param queDisplaced the appointments waiting to be placed again
+     * @param mapDepths    how deep each waiting appointment is by id
+     */
+    private void displace(List<Schedule> lstDisplaced, int intDepth, Set<Integer> setPinned,
+            ArrayDeque<Schedule> queDisplaced, Map<Integer, Integer> mapDepths) {
+        for (Schedule currDisplaced : lstDisplaced) {
+            int[] arrSlot = getSlot(currDisplaced);
+            releaseSlots(arrSlot[0], arrSlot[1], arrSlot[2], arrSlot[3], getSlotsNeeded(currDisplaced));
+            setPinned.add(currDisplaced.getTUID());
+            mapDepths.put(currDisplaced.getTUID(), intDepth);
+            queDisplaced.add(currDisplaced);
+        }
+    }
+
+    /**
+     * Undoes a priority booking that could not be saved, freeing its slots and
+     * putting the displaced appointments back where they were
+     *
+     * @param arrPlaced      the mechanic index, week, day, and timeslot of the
+     *                       new appointment
+     * @param newAppointment the new appointment, without an id
+     * @param lstOld         the displaced appointments where they were
+     * @param lstMoved       the same appointments where they were placed again
+     */
+    private void undoDisplacing(int[] arrPlaced, Schedule newAppointment, List<Schedule> lstOld,
+            List<Schedule> lstMoved) {
+        mapVehicleAppointments.get(newAppointment.Vehicles_TUID).remove(newAppointment);
+        releaseSlots(arrPlaced[0], arrPlaced[1], arrPlaced[2], arrPlaced[3], getSlotsNeeded(newAppointment));
+        // every new place is freed before any old one is taken again, the old places
+        // may overlap the new ones
+        for (Schedule currMoved : lstMoved) {
+            int[] arrSlot = getSlot(currMoved);
+            releaseSlots(arrSlot[0], arrSlot[1], arrSlot[2], arrSlot[3], getSlotsNeeded(currMoved));
+        }
+        for (int i = 0; i < lstOld.size(); i++) {
+            int[] arrSlot = getSlot(lstOld.get(i));
+            reserveSlots(arrSlot[0], arrSlot[1], arrSlot[2], arrSlot[3], getSlotsNeeded(lstOld.get(i)));
+            reindexAppointment(lstMoved.get(i), lstOld.get(i));
+        }
+    }
+
+    /**
+     * Holds the earliest appointment for a service without booking it. The held
+     * slots are busy to every search until the hold is confirmed, released, or
+     * expires. The hold takes a ticket like a booking, so it is first come, first
+     * served with them
+     *
+     * @param customerVehicle the vehicle being worked on
+     * @param currentService  the service requested
+     * @param lngHoldMillis   how long the slot is held in milliseconds
+     * @return the hold
+     * @throws SQLException             throws if the database cannot be
+     *                                  initialized
+     * @throws IllegalArgumentException throws if the time held is not positive
+     */
+    public Hold hold(Vehicle customerVehicle, Service currentService, long lngHoldMillis)
+            throws SQLException, IllegalArgumentException {
+        if (lngHoldMillis <= 0)
+            throw new IllegalArgumentException("A slot must be held for more than 0 milliseconds");
+        startHoldTimer();
+        // the place of this hold in first come, first served order
+        final long TICKET = lngNextTicket.getAndIncrement();
+        try {
+            // search without locking, the result may be taken by an earlier booking
+            int[] earliest = findAppointment(-1, customerVehicle, currentService);
+            awaitTurn(TICKET);
+            earliest = reserveEarliest(earliest, -1, customerVehicle, currentService, null);
+            Timestamp[] appointmentTime = calcStartEndTimestamps(earliest, currentService);
+            Hold newHold = new Hold(lngNextHoldID.getAndIncrement(),
+                    new Schedule(customerVehicle.getTUID(), arrBayTUIDs[earliest[0]], currentService.getTUID(),
+                            appointmentTime[0], appointmentTime[1]),
+                    System.currentTimeMillis() + lngHoldMillis, customerVehicle, currentService, earliest);
+            // the vehicle cannot be booked elsewhere during the held slot either
+            addVehicleAppointment(newHold.appointment);
+            mapHolds.put(newHold.lngHold_ID, newHold);
+            newHold.timer = holdWheel.schedule(newHold, newHold.lngExpires);
+            blnSnapshotStale = true;
+            return newHold;
+        } finally {
+            finishTurn(TICKET);
+        }
+    }
+
+    /**
+     * Books a held appointment, saving it to the database like a booking
+     *
+     * @param lngHold_ID the id of the hold
+     * @return the booked appointment
+     * @throws SQLException           throws if the appointment cannot be saved or
+     *                                another process booked the held slot, in
+     *                                which case the hold is dropped
+     * @throws NoSuchElementException throws if the hold is not found or expired
+     */
+    public Schedule confirmHold(long lngHold_ID) throws SQLException, NoSuchElementException {
+        // the place of this booking in first come, first served order
+        final long TICKET = lngNextTicket.getAndIncrement();
+        try {
+            awaitTurn(TICKET);
+            Hold currHold = takeHold(lngHold_ID);
+            // the timer may not have released it yet
+            if (System.currentTimeMillis() >= currHold.lngExpires) {
+                discardHold(currHold);
+                throw new NoSuchElementException("The hold " + lngHold_ID + " expired");
+            }
+            // the booked appointment
+            Schedule newAppointment;
+            while (true) {
+                // confirm the booking once it is in the write-behind log
+                if (writeBehind != null) {
+                    newAppointment = logBooking(currHold.appointment);
+                    if (newAppointment == null) {
+                        discardHold(currHold);
+                        throw new SQLException("The booking could not be written to the write-behind log");
+                    }
+                    break;
+                }
+                // the id of the saved appointment
+                int intNewTUID;
+                try {
+                    intNewTUID = database.addScheduleIfCurrent(currHold.appointment,
+                            arrBayVersions[currHold.arrPlaced[0]]);
+                } catch (SQLException ex) {
+                    discardHold(currHold);
+                    throw ex;
+                }
+                if (intNewTUID > 0) {
+                    // the insert moved the bay to the next version
+                    arrBayVersions[currHold.arrPlaced[0]]++;
+                    setUnsyncedTUIDs.add(intNewTUID);
+                    newAppointment = new Schedule(intNewTUID, currHold.appointment.Vehicles_TUID,
+                            currHold.appointment.Bays_TUID, currHold.appointment.Service_TUID,
+                            currHold.appointment.Appointment_Start_Time, currHold.appointment.Appointment_End_Time);
+                    break;
+                }
+                // another process booked the bay or vehicle, the sync keeps the hold if its
+                // slots are still open
+                lngConflicts.incrementAndGet();
+                mapHolds.put(lngHold_ID, currHold);
+                syncFromDatabase();
+                if (mapHolds.remove(lngHold_ID) == null)
+                    throw new SQLIntegrityConstraintViolationException("The held appointment was booked by another process");
+            }
+            // the booking replaces the hold in the vehicle's overlap checks
+            mapVehicleAppointments.get(currHold.appointment.Vehicles_TUID).remove(currHold.appointment);
+            addVehicleAppointment(newAppointment);
+            recordAppointment(newAppointment);
+            return newAppointment;
+        } finally {
+            finishTurn(TICKET);
+        }
+    }
+
+    /**
+     * Releases a hold so its slots can be booked
+     *
+     * @param lngHold_ID the id of the hold
+     * @throws NoSuchElementException throws if the hold is not found or already
+     *                                expired
+     */
+    public void releaseHold(long lngHold_ID) throws NoSuchElementException {
+        // the place of this release in first come, first served order
+        final long TICKET = lngNextTicket.getAndIncrement();
+        try {
+            awaitTurn(TICKET);
+            discardHold(takeHold(lngHold_ID));
+        } finally {
+            finishTurn(TICKET);
+        }
+    }
+
+    /**
+     * Releases the holds that expired by a time, called by the hold timer
+     *
+     * @param lngNowMillis the current time
+     * @return the number of holds released
+     */
+    public int expireHolds(long lngNowMillis) {
+        List<Hold> lstExpired = holdWheel.advance(lngNowMillis);
+        if (lstExpired.isEmpty())
+            return 0;
+        // the number of holds released
+        int intReleased = 0;
+        // the place of the release in first come, first served order
+        final long TICKET = lngNextTicket.getAndIncrement();
+        try {
+            awaitTurn(TICKET);
+            for (Hold currHold : lstExpired) {
+                // a hold confirmed or released while waiting for the turn is already gone
+                if (mapHolds.remove(currHold.lngHold_ID, currHold)) {
+                    discardHold(currHold);
+                    intReleased++;
+                }
+            }
+        } finally {
+            finishTurn(TICKET);
+        }
+        return intReleased;
+    }
+
+    /**
+     * Gets the number of holds that have not been confirmed, released, or expired
+     *
+     * @return the number of holds
+     */
+    public int getHoldCount() {
+        return mapHolds.size();
+    }
+
+    /**
+     * Takes a hold out of the holds and the timing wheel, called by the booking
+     * whose turn it is
+     *
+     * @param lngHold_ID the id of the hold
+     * @return the hold, its slots are still reserved
+     * @throws NoSuchElementException throws if the hold is not found
+     */
+    private Hold takeHold(long lngHold_ID) throws NoSuchElementException {
+        Hold currHold = mapHolds.remove(lngHold_ID);
+        if (currHold == null)
+            throw new NoSuchElementException("No hold found with the id " + lngHold_ID);
+        holdWheel.cancel(currHold.timer);
+        return currHold;
+    }
+
+    /**
+     * Frees the slots of a hold and removes it from its vehicle's overlap checks,
+     * called by the booking whose turn it is
+     *
+     * @param currHold the hold, already taken out of the holds
+     */
+    private void discardHold(Hold currHold) {
+        releaseSlots(currHold.arrPlaced[0], currHold.arrPlaced[1], currHold.arrPlaced[2], currHold.arrPlaced[3],
+                currHold.currentService.intService_Time / GCFServiceTime);
+        mapVehicleAppointments.get(currHold.appointment.Vehicles_TUID).remove(currHold.appointment);
+        blnSnapshotStale = true;
+    }
+
+    /**
+     * Starts the thread that releases the expired holds every tick of the timing
+     * wheel, if it is not started yet
+     */
+    private synchronized void startHoldTimer() {
+        if (holdTimer != null)
+            return;
+        holdTimer = new Thread(() -> {
+            while (true) {
+                try {
+                    Thread.sleep(HOLD_TICK_MILLIS);
+                } catch (InterruptedException ex) {
+                    return;
+                }
+                expireHolds(System.currentTimeMillis());
+            }
+        }, "hold-timer");
+        // the holds only matter while the program runs
+        holdTimer.setDaemon(true);
+        holdTimer.start();
+    }
+
+    /**
+     * Gives a booking the next id and appends it to the write-behind log, called
+     * by the booking whose turn it is
+     *
+     * @param newAppointment the booking without an id
+     * @return the booking with its id, null if it could not be written to the log
+     * @throws SQLException throws if the database cannot be initialized
+     */
+    private Schedule logBooking(Schedule newAppointment) throws SQLException {
+        // ids continue from the largest one in the database or given out
+        int intNewTUID = Math.max(intLastAssignedTUID, intLastSeenTUID) + 1;
+        Schedule loggedAppointment = new Schedule(intNewTUID, newAppointment.Vehicles_TUID, newAppointment.Bays_TUID,
+                newAppointment.Service_TUID, newAppointment.Appointment_Start_Time,
+                newAppointment.Appointment_End_Time);
+        try {
+            writeBehind.append(loggedAppointment);
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            return null;
+        }
+        intLastAssignedTUID = intNewTUID;
+        setUnsyncedTUIDs.add(intNewTUID);
+        return loggedAppointment;
+    }
+
+    /**
+     * Sets how bookings choose their slot. Visits, the per bay availability, and
+     * appointments already booked are not affected
+     *
+     * @param placementStrategy the strategy used by later bookings
+     */
+    public void setPlacementStrategy(PlacementStrategy placementStrategy) {
+        this.placementStrategy = placementStrategy;
+    }
+
+    /**
+     * Confirms bookings once they are in a write-behind log instead of once they
+     * are saved to the database. Ids are given out by this engine, so no other
+     * process may book against the database while the log is set. The ids start
+     * after every appointment in the database and every cancelled one, so an id
+     * is never given out twice, even across restarts
+     *
+     * @param writeBehind the log, null to save each booking before it is confirmed
+     * @throws SQLException throws if the next id cannot be read
+     */
+    public void setWriteBehind(WriteBehindLog writeBehind) throws SQLException {
+        // the place of this change in first come, first served order
+        final long TICKET = lngNextTicket.getAndIncrement();
+        try {
+            awaitTurn(TICKET);
+            if (writeBehind != null)
+                intLastAssignedTUID = Math.max(intLastAssignedTUID, database.getNextScheduleTUID() - 1);
+            this.writeBehind = writeBehind;
+        } finally {
+            finishTurn(TICKET);
+        }
+    }
+
+    /**
+     * Frees the slots of a group of placed appointments and removes them from the
+     * vehicle index
+     *
+     * @param arrPlaced        the mechanic, week, day, and timeslot of each
+     *                         appointment
+     * @param arrBooked        the placed appointments
+     * @param arrGroupServices the service of each appointment
+     */
+    private void undoGroup(int[][] arrPlaced, Schedule[] arrBooked, Service[] arrGroupServices) {
+        for (int i = 0; i < arrPlaced.length; i++) {
+            // left out of the group, already freed
+            if (arrPlaced[i] == null)
+                continue;
+            releaseSlots(arrPlaced[i][0], arrPlaced[i][1], arrPlaced[i][2], arrPlaced[i][3],
+                    arrGroupServices[i].intService_Time / GCFServiceTime);
+            mapVehicleAppointments.get(arrBooked[i].Vehicles_TUID).remove(arrBooked[i]);
+        }
+    }
+
+    /**
+     * Publishes a snapshot if the schedule changed, then lets the next booking
+     * reserve its slots
+     *
+     * @param lngTicket the ticket of the booking finishing its turn
+     */
+    private void finishTurn(long lngTicket) {
+        awaitTurn(lngTicket);
+        // the schedule only has finished bookings at the end of a turn
+        if (blnSnapshotStale)
+            publishSnapshot();
+        synchronized (objTurnMonitor) {
+            lngCurrentTurn = lngTicket + 1;
+            objTurnMonitor.notifyAll();
+        }
+    }
+
+    /**
+     * Adds a booked appointment to the list shared with the snapshots, called by
+     * the booking whose turn it is
+     *
+     * @param currAppointment the booked appointment
+     */
+    private void recordAppointment(Schedule currAppointment) {
+        appointmentHead = new ScheduleSnapshot.AppointmentNode(currAppointment, appointmentHead);
+        intAppointmentCount++;
+        mapAppointments.put(currAppointment.getTUID(), currAppointment);
+        blnSnapshotStale = true;
+    }
+
+    /**
+     * Removes a cancelled appointment from the schedule, freeing its slots and
+     * taking it out of its vehicle's overlap checks and the list shared with the
+     * snapshots. Called by the booking whose turn it is
+     *
+     * @param oldAppointment the appointment on the schedule
+     */
+    private void removeAppointment(Schedule oldAppointment) {
+        mapAppointments.remove(oldAppointment.getTUID());
+        List<Schedule> lstVehicleAppointments = mapVehicleAppointments.get(oldAppointment.Vehicles_TUID);
+        if (lstVehicleAppointments != null)
+            lstVehicleAppointments.remove(oldAppointment);
+        if (replaceInAppointmentList(oldAppointment, null))
+            intAppointmentCount--;
+
+        // free the slots if the appointment is on the schedule
+        int[] arrSlot = getSlot(oldAppointment);
+        if (arrSlot != null)
+            releaseSlots(arrSlot[0], arrSlot[1], arrSlot[2], arrSlot[3], getSlotsNeeded(oldAppointment));
+    }
+
+    /**
+     * Moves an appointment on the schedule to another bay or time, freeing its old
+     * slots and reserving its new ones. Called by the booking whose turn it is
+     *
+     * @param oldAppointment   the appointment on the schedule
+     * @param movedAppointment the same appointment at its new bay and time
+     */
+    private void relocateAppointment(Schedule oldAppointment, Schedule movedAppointment) {
+        final int SLOTS_NEEDED = getSlotsNeeded(oldAppointment);
+        int[] arrSlot = getSlot(oldAppointment);
+        if (arrSlot != null)
+            releaseSlots(arrSlot[0], arrSlot[1], arrSlot[2], arrSlot[3], SLOTS_NEEDED);
+        arrSlot = getSlot(movedAppointment);
+        if (arrSlot != null)
+            reserveSlots(arrSlot[0], arrSlot[1], arrSlot[2], arrSlot[3], SLOTS_NEEDED);
+        reindexAppointment(oldAppointment, movedAppointment);
+    }
+
+    /**
+     * Replaces a moved appointment in the index by id, its vehicle's overlap
+     * checks, and the list shared with the snapshots without changing any slots.
+     * Called by the booking whose turn it is
+     *
+     * @param oldAppointment   the appointment on the schedule
+     * @param movedAppointment the same appointment at its new bay and time
+     */
+    private void reindexAppointment(Schedule oldAppointment, Schedule movedAppointment) {
+        mapAppointments.put(movedAppointment.getTUID(), movedAppointment);
+        List<Schedule> lstVehicleAppointments = mapVehicleAppointments.get(oldAppointment.Vehicles_TUID);
+        if (lstVehicleAppointments != null)
+            lstVehicleAppointments.remove(oldAppointment);
+        addVehicleAppointment(movedAppointment);
+        replaceInAppointmentList(oldAppointment, movedAppointment);
+    }
+
+    /**
+     * Replaces an appointment in the list shared with the snapshots. The
+     * appointments booked after it are copied, the older part of the list is
+     * still shared with the snapshots, so it takes time in the number of
+     * appointments booked after it and replacing an old appointment copies most
+     * of the list
+     *
+     * @param oldAppointment the appointment in the list
+     * @param newAppointment the appointment to put in its place, null to remove it
+     * @return whether or not the appointment was in the list
+     */
+    private boolean replaceInAppointmentList(Schedule oldAppointment, Schedule newAppointment) {
+        List<Schedule> lstNewer = new ArrayList<Schedule>();
+        ScheduleSnapshot.AppointmentNode currNode = appointmentHead;
+        while (currNode != null && currNode.appointment != oldAppointment) {
+            lstNewer.add(currNode.appointment);
+            currNode = currNode.next;
+        }
+        if (currNode == null)
+            return false;
+        ScheduleSnapshot.AppointmentNode newHead = newAppointment == null ? currNode.next
+                : new ScheduleSnapshot.AppointmentNode(newAppointment, currNode.next);
+        for (int i = lstNewer.size() - 1; i >= 0; i--)
+            newHead = new ScheduleSnapshot.AppointmentNode(lstNewer.get(i), newHead);
+        appointmentHead = newHead;
+        blnSnapshotStale = true;
+        return true;
+    }
+
+    /**
+     * Gets where an appointment is on the schedule data structure
+     *
+     * @param currAppointment the appointment
+     * @return the mechanic index, week, day, and timeslot of the appointment, null
+     *         if its bay has no mechanic or it is before next monday
+     */
+    private int[] getSlot(Schedule currAppointment) {
+        int intMechanicNum = getMechanicIndexByBay(currAppointment.Bays_TUID);
+        if (intMechanicNum < 0)
+            return null;
+        int[] arrSlot = DateUtil.timestampToWeekDayTimeslot(currAppointment.Appointment_Start_Time,
+                DateUtil.getNextMondaysDate(), GCFServiceTime);
+        if (arrSlot[0] < 0)
+            return null;
+        return new int[] { intMechanicNum, arrSlot[0], arrSlot[1], arrSlot[2] };
+    }
+
+    /**
+     * Gets the number of timeslots an appointment takes
+     *
+     * @param currAppointment the appointment
+     * @return the number of timeslots of its service
+     * @throws NoSuchElementException throws if the service is not found
+     */
+    private int getSlotsNeeded(Schedule currAppointment) throws NoSuchElementException {
+        return Service.getService(currAppointment.Service_TUID, arrServices).intService_Time / GCFServiceTime;
+    }
+
+    /**
+     * Publishes a snapshot of the schedule, called by the booking whose turn it
+     * is. The mechanic schedules share their week pages with the live ones so
+     * this costs one reference per week
+     */
+    private void publishSnapshot() {
+        MechanicSchedule[] arrSnapshotSchedules = new MechanicSchedule[arrMechanicSchedules.length];
+        for (int i = 0; i < arrSnapshotSchedules.length; i++)
+            arrSnapshotSchedules[i] = arrMechanicSchedules[i].snapshot();
+        currentSnapshot = new ScheduleSnapshot(++lngSnapshotVersion, arrMechanics, GCFServiceTime,
+                arrSnapshotSchedules, appointmentHead, intAppointmentCount);
+        blnSnapshotStale = false;
+    }
+
+    /**
+     * Gets the latest snapshot of the schedule without locking. The snapshot does
+     * not change, so a report reading it sees every booking finished before it
+     * was published and none that finished after
+     *
+     * @return the latest snapshot
+     */
+    public ScheduleSnapshot getSnapshot() {
+        return currentSnapshot;
+    }
+
+    /**
+     * Finds the earliest appointment for a service without booking it
+     *
+     * @param customerVehicle the vehicle that would be worked on, null to ignore
+     *                        the vehicle's other appointments
+     * @param currentService  the service requested
+     * @return the appointment that would be booked right now, without an id
+     * @throws SQLException throws if the database cannot be initialized
+     */
+    public Schedule findEarliest(Vehicle customerVehicle, Service currentService) throws SQLException {
+        return findEarliest(customerVehicle, currentService, null);
+    }
+
+    /**
+     * Finds the earliest appointment for a service inside a booking window
+     * without booking it
+     *
+     * @param customerVehicle the vehicle that would be worked on, null to ignore
+     *                        the vehicle's other appointments
+     * @param currentService  the service requested
+     * @param window          the window the appointment has to fit, null for none
+     * @return the appointment that would be booked right now, without an id
+     * @throws SQLException           throws if the database cannot be initialized
+     * @throws NoSuchElementException throws if no opening fits the window
+     */
+    public Schedule findEarliest(Vehicle customerVehicle, Service currentService, BookingWindow window)
+            throws SQLException, NoSuchElementException {
+        // search without locking or reserving anything
+        int[] earliest = findAppointment(-1, customerVehicle, currentService, window);
+        Timestamp[] appointmentTime = calcStartEndTimestamps(earliest, currentService);
+        return new Schedule(customerVehicle == null ? 0 : customerVehicle.getTUID(), arrBayTUIDs[earliest[0]],
+                currentService.getTUID(), appointmentTime[0], appointmentTime[1]);
+    }
+
+    /**
+     * Finds the earliest open appointments for a service without booking them,
+     * earliest first with ties going to the lower bay. The starts of each
+     * mechanic come from the availability cache, so only the mechanics booked
+     * since the last query are searched again
+     *
+     * @param customerVehicle the vehicle that would be worked on, null to ignore
+     *                        the vehicle's other appointments
+     * @param currentService  the service requested
+     * @param intCount        the number of appointments to find, 1 to
+     *                        MAX_AVAILABILITY
+     * @return the open appointments without ids
+     * @throws SQLException           throws if the database cannot be initialized
+     * @throws IllegalStateException  throws if this process does not own a bay
+     * @throws NoSuchElementException throws if no mechanic is qualified for the
+     *                                service
+     */
+    public Schedule[] findAvailability(Vehicle customerVehicle, Service currentService, int intCount)
+            throws SQLException, IllegalStateException, NoSuchElementException {
+        // the number of timeslots this service requires
+        final int SLOTS_NEEDED = currentService.intService_Time / GCFServiceTime;
+        // the starts of each owned and qualified mechanic and the next one to offer
+        boolean[] arrEligible = findEligible(currentService);
+        int[][] arrStarts = new int[arrEligible.length][];
+        int[] arrNext = new int[arrEligible.length];
+        for (int i = 0; i < arrEligible.length; i++) {
+            if (arrEligible[i])
+                arrStarts[i] = availabilityCache.getStarts(i, arrMechanicSchedules[i], SLOTS_NEEDED, intCount);
+        }
+        final Timestamp NEXT_MONDAY = DateUtil.getNextMondaysDate();
+        List<Schedule> lstOpen = new ArrayList<Schedule>();
+        while (lstOpen.size() < intCount) {
+            // the mechanic with the earliest start not offered yet, lower bays first
+            int intBest = -1;
+            for (int i = 0; i < arrStarts.length; i++) {
+                if (arrStarts[i] == null)
+                    continue;
+                // the vehicle's appointments used up the starts read, read further
+                if (arrNext[i] == arrStarts[i].length)
+                    arrStarts[i] = availabilityCache.getStarts(i, arrMechanicSchedules[i], SLOTS_NEEDED,
+                            arrStarts[i].length * 2);
+                if (intBest < 0 || arrStarts[i][arrNext[i]] < arrStarts[intBest][arrNext[intBest]])
+                    intBest = i;
+            }
+            if (intBest < 0)
+                throw new IllegalStateException("This process does not own a bay");
+            final int START = arrStarts[intBest][arrNext[intBest]++];
+            final int SLOTS_PER_DAY = arrMechanicSchedules[intBest].getSlotsPerDay();
+            final int DAY = START / SLOTS_PER_DAY;
+            Timestamp[] appointmentTime = DateUtil.appointmentTimes(NEXT_MONDAY, DAY / MechanicSchedule.NUM_WORK_DAYS,
+                    DAY % MechanicSchedule.NUM_WORK_DAYS, START % SLOTS_PER_DAY, currentService.intService_Time,
+                    GCFServiceTime);
+            // do not offer a time the vehicle is already booked
+            if (customerVehicle != null && hasOverlap(-1, customerVehicle, appointmentTime[0], appointmentTime[1]))
+                continue;
+            lstOpen.add(new Schedule(customerVehicle == null ? 0 : customerVehicle.getTUID(), arrBayTUIDs[intBest],
+                    currentService.getTUID(), appointmentTime[0], appointmentTime[1]));
+        }
+        return lstOpen.toArray(new Schedule[0]);
+    }
+
+    /**
+     * Gets the cache of each mechanic's earliest starts used by availability
+     * queries
+     *
+     * @return the availability cache
+     */
+    public AvailabilityCache getAvailabilityCache() {
+        return availabilityCache;
+    }
+
+    /**
+     * Checks if an appointment comes before another, starting earlier or at the
+     * same time in a lower bay
+     *
+     * @param tsStart      the start of the appointment
+     * @param intBayTUID   the bay of the appointment
+     * @param tsLimitStart the start of the other appointment
+     * @param intLimitBay  the bay of the other appointment
+     * @return whether or not the appointment comes first
+     */
+    private static boolean comesBefore(Timestamp tsStart, int intBayTUID, Timestamp tsLimitStart, int intLimitBay) {
+        return tsStart.before(tsLimitStart) || (tsStart.equals(tsLimitStart) && intBayTUID < intLimitBay);
+    }
+
+    /**
+     * Finds the earliest open appointment for a service in each owned bay without
+     * booking it, ignoring the vehicles' other appointments
+     *
+     * @param currentService the service requested
+     * @return the earliest appointment in each owned bay, without ids, sorted by
+     *         bay
+     * @throws SQLException throws if the database cannot be initialized
+     */
+    public Schedule[] findEarliestByBay(Service currentService) throws SQLException {
+        // the number of timeslots this service requires
+        final int SLOTS_NEEDED = currentService.intService_Time / GCFServiceTime;
+        final MechanicSchedule[] SCHEDULES = arrMechanicSchedules;
+        List<Schedule> lstEarliest = new ArrayList<Schedule>();
+        // foreach owned mechanic, already sorted by bay
+        for (int i = 0; i < SCHEDULES.length; i++) {
+            if (!isOwned(i) || !isQualified(i, currentService))
+                continue;
+            int[] arrCurrent = earliestAppointment(SCHEDULES[i], SLOTS_NEEDED);
+            Timestamp[] appointmentTime = calcStartEndTimestamps(
+                    new int[] { i, arrCurrent[0], arrCurrent[1], arrCurrent[2] }, currentService);
+            lstEarliest.add(new Schedule(0, arrBayTUIDs[i], currentService.getTUID(), appointmentTime[0],
+                    appointmentTime[1]));
+        }
+        return lstEarliest.toArray(new Schedule[0]);
+    }
+
+    /**
+     * Limits the bays new appointments are placed in to the ones leased by this
+     * process. The appointments already booked in the other bays stay on the
+     * schedule so the vehicles' overlap checks still see them
+     *
+     * @param setBayTUIDs the ids of the owned bays, null to own every bay
+     */
+    public void setOwnedBays(Set<Integer> setBayTUIDs) {
+        if (setBayTUIDs == null) {
+            arrOwnedMechanics = null;
+            return;
+        }
+        boolean[] arrOwned = new boolean[arrBayTUIDs.length];
+        for (int i = 0; i < arrOwned.length; i++)
+            arrOwned[i] = setBayTUIDs.contains(arrBayTUIDs[i]);
+        arrOwnedMechanics = arrOwned;
+    }
+
+    /**
+     * Checks if this process owns a mechanic's bay and the bay is not retired
+     *
+     * @param intMechanicNum the index of the mechanic
+     * @return whether or not new appointments may be placed with the mechanic
+     */
+    private boolean isOwned(int intMechanicNum) {
+        boolean[] arrOwned = arrOwnedMechanics;
+        return !arrRetired[intMechanicNum] && (arrOwned == null || arrOwned[intMechanicNum]);
+    }
+
+    /**
+     * Reserves the slots of a candidate appointment, searching again until a
+     * candidate is still open. Called by the booking whose turn it is
+     *
+     * @param earliest        the candidate found by a search without locking
+     * @param appointmentTUID the id of the appointment if it already exists,
+     *                        otherwise -1
+     * @param customerVehicle the vehicle being worked on
+     * @param currentService  the service requested
+     * @param window          the window the appointment has to fit, null for none
+     * @return the mechanic index, week, day, and timeslot that were reserved
+     * @throws NoSuchElementException throws if no opening is left in the window
+     */
+    private int[] reserveEarliest(int[] earliest, int appointmentTUID, Vehicle customerVehicle,
+            Service currentService, BookingWindow window) throws NoSuchElementException {
+        // the number of timeslots this service requires
+        final int SLOTS_NEEDED = currentService.intService_Time / GCFServiceTime;
+        while (true) {
+            Timestamp[] appointmentTime = calcStartEndTimestamps(earliest, currentService);
+            // the search ran before the turn, the slots or the bay may have been
+            // taken or given up since
+            if (isOwned(earliest[0])
+                    && arrMechanicSchedules[earliest[0]].areSlotsOpen(earliest[1], earliest[2], earliest[3],
+                            SLOTS_NEEDED)
+                    && !hasOverlap(appointmentTUID, customerVehicle, appointmentTime[0], appointmentTime[1])) {
+                reserveSlots(earliest[0], earliest[1], earliest[2], earliest[3], SLOTS_NEEDED);
+                return earliest;
+            }
+            lngRetries.incrementAndGet();
+            earliest = findAppointment(appointmentTUID, customerVehicle, currentService, window);
+        }
+    }
+
+    /**
+     * Waits until the provided ticket is allowed to reserve slots
+     *
+     * @param lngTicket the ticket of the booking
+     */
+    private void awaitTurn(long lngTicket) {
+        // whether or not the thread was interrupted while waiting
+        boolean blnInterrupted = false;
+        synchronized (objTurnMonitor) {
+            while (lngCurrentTurn != lngTicket) {
+                try {
+                    objTurnMonitor.wait();
+                } catch (InterruptedException ex) {
+                    // a booking cannot give up its turn, keep waiting
+                    blnInterrupted = true;
+                }
+            }
+        }
+        // restore the interrupt for the caller
+        if (blnInterrupted)
+            Thread.currentThread().interrupt();
+    }
+
+    /**
+     * Finds the earliest appointment for the service that does not overlap
+     * another appointment for the same vehicle. Does not lock or change the
+     * schedule data structure
+     *
+     * @param appointmentTUID the id of the appointment if it already exists,
+     *                        otherwise -1
+     * @param customerVehicle the vehicle being worked on
+     * @param currentService  the service requested
+     * @return an array with the mechanic index, week, day, and timeslot of the
+     *         appointment
+     */
+    private int[] findAppointment(int appointmentTUID, Vehicle customerVehicle, Service currentService) {
+        return findAppointment(appointmentTUID, customerVehicle == null ? 0 : customerVehicle.getTUID(),
+                currentService);
+    }
+
+    /**
+     * Finds the earliest appointment for the service that does not overlap
+     * another appointment for the same vehicle. Does not lock or change the
+     * schedule data structure
+     *
+     * @param appointmentTUID the id of the appointment if it already exists,
+     *                        otherwise -1
+     * @param intVehicleTUID  the id of the vehicle being worked on, 0 to ignore
+     *                        the vehicle's other appointments
+     * @param currentService  the service requested
+     * @return an array with the mechanic index, week, day, and timeslot of the
+     *         appointment
+     */
+    private int[] findAppointment(int appointmentTUID, int intVehicleTUID, Service currentService) {
+        // get the earliest possible appointment for the service
+        int[] earliest = getEarliestAppointments(arrMechanicSchedules, currentService);
+        // calculate timestamps of appointment start and end
+        Timestamp[] appointmentTime = calcStartEndTimestamps(earliest, currentService);
+
+        // do not schedule the same car to be worked on at the same time with two
+        // mechanics
+        // if so, temporarly reserve the starting GCF timeslot with the currently
+        // selected mechanic and get the soonest appointments again until no conflict
+        if (hasOverlap(appointmentTUID, intVehicleTUID, appointmentTime[0], appointmentTime[1])) {
+            // clone the schedule data structure for temporary appointments
+            MechanicSchedule[] cloneSchedule = cloneScheduleStructure();
+            // while there is still a overlap
+            do {
+                // reserve one GCF slot where the appointment would start if it were a different
+                // vehicle
+                cloneSchedule[earliest[0]].reserveSlot(earliest[1], earliest[2], earliest[3]);
+                // get the new earliest possible appointment for the service
+                earliest = getEarliestAppointments(cloneSchedule, currentService);
+                appointmentTime = calcStartEndTimestamps(earliest, currentService);
+            } while (hasOverlap(appointmentTUID, intVehicleTUID, appointmentTime[0], appointmentTime[1]));
+        }
+        return earliest;
+    }
+
+    /**
+     * Finds the earliest appointment for the service, inside a booking window if
+     * one is given
+     *
+     * @param appointmentTUID the id of the appointment if it already exists,
+     *                        otherwise -1
+     * @param customerVehicle the vehicle being worked on
+     * @param currentService  the service requested
+     * @param window          the window the appointment has to fit, null for none
+     * @return an array with the mechanic index, week, day, and timeslot of the
+     *         appointment
+     * @throws NoSuchElementException throws if no opening fits the window
+     */
+    private int[] findAppointment(int appointmentTUID, Vehicle customerVehicle, Service currentService,
+            BookingWindow window) throws NoSuchElementException {
+        if (window == null)
+            return findAppointment(appointmentTUID, customerVehicle, currentService);
+        int[] earliest = findInWindow(appointmentTUID, customerVehicle, currentService, window);
+        if (earliest == null)
+            throw new NoSuchElementException("No opening for " + currentService.strService_Name + " fits the window");
+        return earliest;
+    }
+
+    /**
+     * Finds the earliest appointment for the service inside a booking window that
+     * does not overlap another appointment for the same vehicle, ties going to the
+     * lower bay. Only the work days from the window's earliest start to its latest
+     * end are read, at most MAX_WINDOW_WEEKS weeks of them, and the timeslots a
+     * drop off is not allowed at are skipped on every day. Does not lock or
+     * change the schedule data structure, weeks past its end are read as open
+     * without being added
+     *
+     * @param appointmentTUID the id of the appointment if it already exists,
+     *                        otherwise -1
+     * @param customerVehicle the vehicle being worked on, null to ignore the
+     *                        vehicle's other appointments
+     * @param currentService  the service requested
+     * @param window          the window the appointment has to fit
+     * @return an array with the mechanic index, week, day, and timeslot of the
+     *         appointment, null if nothing fits the window
+     * @throws IllegalStateException  throws if this process does not own a bay
+     * @throws NoSuchElementException throws if no mechanic is qualified for the
+     *                                service
+     */
+    private int[] findInWindow(int appointmentTUID, Vehicle customerVehicle, Service currentService, BookingWindow window)
+            throws IllegalStateException, NoSuchElementException {
+        // the number of timeslots this service requires
+        final int SLOTS_NEEDED = currentService.intService_Time / GCFServiceTime;
+        final int SLOTS_PER_DAY = MechanicSchedule.NUM_WORK_MINUTES / GCFServiceTime;
+        final Timestamp NEXT_MONDAY = DateUtil.getNextMondaysDate();
+        // the timeslots of a day the appointment may start at, the same every day
+        List<Integer> lstAllowed = new ArrayList<Integer>();
+        for (int t = 0; t + SLOTS_NEEDED <= SLOTS_PER_DAY; t++) {
+            Timestamp[] appointmentTime = DateUtil.appointmentTimes(NEXT_MONDAY, 0, 0, t,
+                    currentService.intService_Time, GCFServiceTime);
+            if (window.allowsDropOff(appointmentTime[0].toLocalDateTime().toLocalTime()))
+                lstAllowed.add(t);
+        }
+        // the work days the window covers
+        final int FIRST_DAY = window.tsEarliestStart == null ? 0
+                : Math.max(0, DateUtil.workDayIndex(window.tsEarliestStart, NEXT_MONDAY, true));
+        int intLastDay = FIRST_DAY + MAX_WINDOW_WEEKS * MechanicSchedule.NUM_WORK_DAYS - 1;
+        if (window.tsLatestEnd != null)
+            intLastDay = Math.min(intLastDay, DateUtil.workDayIndex(window.tsLatestEnd, NEXT_MONDAY, false));
+        // no drop off time or no work day fits, turn it down without searching
+        if (lstAllowed.isEmpty() || intLastDay < FIRST_DAY)
+            return null;
+
+        // the owned mechanics qualified for the service
+        boolean[] arrEligible = findEligible(currentService);
+        for (int intDay = FIRST_DAY; intDay <= intLastDay; intDay++) {
+            final int WEEK = intDay / MechanicSchedule.NUM_WORK_DAYS;
+            final int DAY = intDay % MechanicSchedule.NUM_WORK_DAYS;
+            // only the first and last day can have starts outside the window
+            final boolean BOUNDARY_DAY = intDay == FIRST_DAY || intDay == intLastDay;
+            for (int t : lstAllowed) {
+                Timestamp[] appointmentTime = null;
+                if (BOUNDARY_DAY) {
+                    appointmentTime = DateUtil.appointmentTimes(NEXT_MONDAY, WEEK, DAY, t,
+                            currentService.intService_Time, GCFServiceTime);
+                    if (!window.contains(appointmentTime[0], appointmentTime[1]))
+                        continue;
+                }
+                // foreach mechanic in bay order
+                for (int i = 0; i < arrMechanicSchedules.length; i++) {
+                    if (!arrEligible[i] || !arrMechanicSchedules[i].areSlotsOpen(WEEK, DAY, t, SLOTS_NEEDED))
+                        continue;
+                    if (appointmentTime == null)
+                        appointmentTime = DateUtil.appointmentTimes(NEXT_MONDAY, WEEK, DAY, t,
+                                currentService.intService_Time, GCFServiceTime);
+                    // the vehicle is busy at this time with every mechanic
+                    if (customerVehicle != null
+                            && hasOverlap(appointmentTUID, customerVehicle, appointmentTime[0], appointmentTime[1]))
+                        break;
+                    return new int[] { i, WEEK, DAY, t };
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Calculates the start and end timestamps of a timeslot in the schedule data
+     * structure. Appointments are scheduled starting next Monday, if a timestamp
+     * occurs during or after lunch the lunch offset is applied
+     *
+     * @param earliest       an array containing the mechanic index, week, day, and
+     *                       timeslot
+     * @param currentService the requested service for this appointment
+     * @return an array with the start and end time for the appointment
+     */
+    Timestamp[] calcStartEndTimestamps(int[] earliest, Service currentService) {
+        return DateUtil.appointmentTimes(DateUtil.getNextMondaysDate(), earliest[1], earliest[2], earliest[3],
+                currentService.intService_Time, GCFServiceTime);
+    }
+
+    /**
+     * Gets the appointment for the requested service chosen by the placement
+     * strategy among the qualified mechanics in owned bays, by default the
+     * earliest one with ties going to the mechanic with the lower bay
+     *
+     * @param scheduleStructure a data structure to schedule appointments in empty
+     *                          timeslots
+     * @param currentService    the service requested
+     * @return an array with the mechanic index, week, day, and timeslot of the
+     *         appointment
+     * @throws IllegalStateException  throws if this process does not own a bay
+     * @throws NoSuchElementException throws if no mechanic is qualified for the
+     *                                service
+     */
+    private int[] getEarliestAppointments(MechanicSchedule[] scheduleStructure, Service currentService)
+            throws IllegalStateException, NoSuchElementException {
+        // the qualified mechanics in owned bays
+        boolean[] arrEligible = findEligible(currentService);
+        int[] arrChosen = placementStrategy.place(scheduleStructure, arrEligible,
+                currentService.intService_Time / GCFServiceTime);
+        if (arrChosen == null)
+            throw new IllegalStateException("This process does not own a bay");
+
+        return arrChosen;
+    }
+
+    /**
+     * Get the earliest appointment for a service with the provided mechanic
+     *
+     * @param mechanicSchedule the schedule of the mechanic the may take on the
+     *                         appointment
+     * @param intSlotsNeeded   the number of appointment slots needed to finish the
+     *                         service
+     * @return an array with the earliest week, day, and timeslot in the mechanic's
+     *         schedule
+     */
+    private int[] earliestAppointment(MechanicSchedule mechanicSchedule, int intSlotsNeeded) {
+        // the number of timeslots in a day
+        final int SLOTS_PER_DAY = MechanicSchedule.NUM_WORK_MINUTES / GCFServiceTime;
+        // the current week index, weeks past the end of the schedule are open
+        int weekNum = 0;
+        while (true) {
+            // foreach work day
+            for (int i = 0; i < MechanicSchedule.NUM_WORK_DAYS; i++) {
+                // foreach appointment slot that leaves enough slots in the day
+                for (int j = 0; j + intSlotsNeeded <= SLOTS_PER_DAY; j++) {
+                    // if there is enough GCF slots in a row for the current service return it
+                    if (mechanicSchedule.areSlotsOpen(weekNum, i, j, intSlotsNeeded))
+                        return new int[] { weekNum, i, j };
+                }
+            }
+            // increment weekNum
+            weekNum += 1;
+        }
+    }
+
+    /**
+     * Clones the schedule data structure in order to schedule temporary
+     * appointments to avoid the same car being schedule for two appointments at the
+     * same time if two services are requested.
+     *
+     * @return a deep clone of all the mechanic schedules
+     */
+    private MechanicSchedule[] cloneScheduleStructure() {
+        // new schedule that will be a copy of all the mechanic schedules
+        MechanicSchedule[] cloneSchedule = new MechanicSchedule[arrMechanicSchedules.length];
+        // foreach mechanic
+        for (int i = 0; i < cloneSchedule.length; i++) {
+            try {
+                // clone the mechanic's schedule into the clone schedule
+                cloneSchedule[i] = (MechanicSchedule) arrMechanicSchedules[i].clone();
+            } catch (CloneNotSupportedException ex) {
+                ex.printStackTrace();
+            }
+        }
+
+        // return the deep clone
+        return cloneSchedule;
+    }
+
+    /**
+     * Checks if a vehicle has another appointment at this time
+     *
+     * @param appointmentTUID if the appointment already exist the id is provided to
+     *                        prevent overlap protection from going off on the same
+     *                        exact appointment. Otherwise provide -1.
+     * @param currVehicle     the vehicle to check for current appointments
+     * @param tsStartDate     the start timestamp of the new appointment
+     * @param tsEndDate       the end timestamp of the new appointment
+     * @return whether or not this appointment overlaps an existing appointment with
+     *         the vehicle
+     */
+    private boolean hasOverlap(int appointmentTUID, Vehicle currVehicle, Timestamp tsStartDate,
+            Timestamp tsEndDate) {
+        // a search without a vehicle has nothing to overlap
+        if (currVehicle == null)
+            return false;
+        return hasOverlap(appointmentTUID, currVehicle.getTUID(), tsStartDate, tsEndDate);
+    }
+
+    /**
+     * Checks if a vehicle has another appointment at this time
+     *
+     * @param appointmentTUID the id of the appointment if it already exists,
+     *                        otherwise -1
+     * @param intVehicleTUID  the id of the vehicle
+     * @param tsStartDate     the start timestamp of the appointment
+     * @param tsEndDate       the end timestamp of the appointment
+     * @return whether or not this appointment overlaps an existing appointment with
+     *         the vehicle
+     */
+    private boolean hasOverlap(int appointmentTUID, int intVehicleTUID, Timestamp tsStartDate,
+            Timestamp tsEndDate) {
+        // get other appointments for this vehicle
+        List<Schedule> lstOtherAppointments = mapVehicleAppointments.get(intVehicleTUID);
+        if (lstOtherAppointments == null)
+            return false;
+        // check if any other appointment overlaps this new one
+        for (Schedule currOtherAppointment : lstOtherAppointments) {
+            if (currOtherAppointment.Appointment_Start_Time.getTime() < tsEndDate.getTime()
+                    && currOtherAppointment.Appointment_End_Time.getTime() > tsStartDate.getTime()
+                    && currOtherAppointment.getTUID() != appointmentTUID) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Remembers an appointment for the overlap checks of its vehicle
+     *
+     * @param currAppointment the appointment to remember
+     */
+    private void addVehicleAppointment(Schedule currAppointment) {
+        mapVehicleAppointments
+                .computeIfAbsent(currAppointment.Vehicles_TUID, (k) -> new CopyOnWriteArrayList<Schedule>())
+                .add(currAppointment);
+    }
+
+    /**
+     * Reserves a run of slots in a mechanic's schedule, called by the booking whose
+     * turn it is
+     *
+     * @param intMechanicNum the index of the mechanic
+     * @param weekIndex      the week of the run
+     * @param dayIndex       the day of the run
+     * @param timeIndex      the first timeslot of the run
+     * @param slotsCount     the number of slots in the run
+     */
+    private void reserveSlots(int intMechanicNum, int weekIndex, int dayIndex, int timeIndex, int slotsCount) {
+        arrMechanicSchedules[intMechanicNum].reserveSlots(weekIndex, dayIndex, timeIndex, slotsCount);
+    }
+
+    /**
+     * Frees a run of slots in a mechanic's schedule, called by the booking whose
+     * turn it is
+     *
+     * @param intMechanicNum the index of the mechanic
+     * @param weekIndex      the week of the run
+     * @param dayIndex       the day of the run
+     * @param timeIndex      the first timeslot of the run
+     * @param slotsCount     the number of slots in the run
+     */
+    private void releaseSlots(int intMechanicNum, int weekIndex, int dayIndex, int timeIndex, int slotsCount) {
+        arrMechanicSchedules[intMechanicNum].releaseSlots(weekIndex, dayIndex, timeIndex, slotsCount);
+    }
+
+    /**
+     * Gets the index of the mechanic working in a bay
+     *
+     * @param intBayTUID the id of the bay
+     * @return the index of the mechanic, -1 if no mechanic works in the bay
+     */
+    int getMechanicIndexByBay(int intBayTUID) {
+        for (int i = 0; i < arrBayTUIDs.length; i++) {
+            if (arrBayTUIDs[i] == intBayTUID)
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the number of searches that were repeated because another booking took
+     * the slots first
+     *
+     * @return the number of repeated searches
+     */
+    public long getRetryCount() {
+        return lngRetries.get();
+    }
+
+    /**
+     * Gets the number of inserts that failed because another process booked the
+     * bay or vehicle first
+     *
+     * @return the number of conflicting inserts
+     */
+    public long getConflictCount() {
+        return lngConflicts.get();
+    }
+
+    /**
+     * Gets the number of priority bookings that displaced other appointments
+     *
+     * @return the number of preemptions
+     */
+    public long getPreemptionCount() {
+        return lngPreemptions.get();
+    }
+
+    /**
+     * Gets the number of appointments displaced by priority bookings
+     *
+     * @return the number of displaced appointments
+     */
+    public long getPreemptedMoveCount() {
+        return lngPreemptedMoves.get();
+    }
+
+    /**
+     * Gets the minutes displaced appointments were pushed back in total, the cost
+     * of the preemptions to the customers displaced
+     *
+     * @return the minutes of delay
+     */
+    public long getPreemptedMinutes() {
+        return lngPreemptedMinutes.get();
+    }
+
+    /**
+     * Gets the longest chain of displacements a priority booking has caused
+     *
+     * @return the deepest preemption, 0 if there were none
+     */
+    public int getMaxPreemptionDepth() {
+        return intMaxPreemptDepth;
+    }
+
+    /**
+     * Gets the paychecks of each mechanic for each week on the latest snapshot
+     *
+     * @param arrMechanics the mechanics to get the paychecks of
+     * @return a 2D array of paycheck amounts where the index is (the mechanic's
+     *         index in the provided array, week number: where 0 is next week)
+     */
+    public double[][] getPaychecks(Mechanic[] arrMechanics) {
+        return getSnapshot().getPaychecks(arrMechanics);
+    }
+
+    /**
+     * Prints the schedule data structure of each mechanic, useful for debugging
+     */
+    public void printScheduleDataStructure() {
+        getSnapshot().printScheduleDataStructure();
+    }
+}
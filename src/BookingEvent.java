@@ -0,0 +1,88 @@
+
+/**
+ * Filename: BookingEvent.java
+ *
+ * Project: Homework3
+ *
+ * Author: Kevin Gyorick
+ *
+ * Date: 10/19/2026
+ *
+ * File Purpose:    This file is a change to the shop read from the event log, an appointment that was
+ *                  booked or cancelled or a customer or vehicle that was created. Events are numbered
+ *                  in the order they were committed, so a subscriber can remember the last one it
+ *                  handled and read the ones after it when it restarts.
+ *
+ * Program Purpose: The program schedules appointments for a mechanic shop.
+ *                  Appointments are scheduled first come, first served as
+ *                  long as the job can be completed the same day it is started
+ *                  given the current schedule. Mechanics with lower bay numbers
+ *                  assigned have higher priority when multiple mechanics are available
+ */
+import java.sql.Timestamp;
+
+public class BookingEvent {
+    /**
+     * The kind of change an event records
+     */
+    enum Type {
+        APPOINTMENT_BOOKED, // an appointment was added to the schedule
+        APPOINTMENT_CANCELLED, // an appointment was removed from the schedule
+        APPOINTMENT_MOVED, // an appointment was moved to another bay or time
+        CUSTOMER_CREATED, // a customer was added
+        VEHICLE_CREATED // a vehicle was added
+    }
+
+    private final long lngTUID; // the position of the event in the log
+    final Type type; // the kind of change
+    final int intEntity_TUID; // the id of the appointment, customer, or vehicle that changed
+    final String strEvent_Data; // the fields of the entity as a JSON object
+    final Timestamp tsEvent_Time; // when the change was logged
+
+    /**
+     * construct an event read from the log
+     *
+     * @param lngTUID        the position of the event in the log
+     * @param type           the kind of change
+     * @param intEntity_TUID the id of the entity that changed
+     * @param strEvent_Data  the fields of the entity as a JSON object
+     * @param tsEvent_Time   when the change was logged
+     */
+    public BookingEvent(long lngTUID, Type type, int intEntity_TUID, String strEvent_Data, Timestamp tsEvent_Time) {
+        this.lngTUID = lngTUID;
+        this.type = type;
+        this.intEntity_TUID = intEntity_TUID;
+        this.strEvent_Data = strEvent_Data;
+        this.tsEvent_Time = tsEvent_Time;
+    }
+
+    /**
+     * Gets the event's id, its position in the log
+     *
+     * @return the id of the event
+     */
+    public long getTUID() {
+        return lngTUID;
+    }
+
+    /**
+     * Gets the JSON representation of the event
+     *
+     * @return the event as a JSON object
+     */
+    public String toJson() {
+        return "{\"id\":" + lngTUID + ",\"type\":\"" + type + "\",\"entity\":" + intEntity_TUID + ",\"data\":"
+                + (strEvent_Data == null ? "null" : strEvent_Data) + ",\"time\":" + tsEvent_Time.getTime() + "}";
+    }
+
+    /**
+     * Gets the string representation of the event
+     *
+     * @return a string representation of the event
+     */
+    @Override
+    public String toString() {
+        return "BookingEvent [TUID=" + lngTUID + ", Type=" + type + ", Entity_TUID=" + intEntity_TUID
+                + ", Event_Data=" + strEvent_Data + ", Event_Time=" + tsEvent_Time + "]";
+    }
+}
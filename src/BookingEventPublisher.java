@@ -0,0 +1,310 @@
+
+/**
+ * Filename: BookingEventPublisher.java
+ *
+ * Project: Homework3
+ *
+ * Author: Kevin Gyorick
+ *
+ * Date: 10/19/2026
+ *
+ * File Purpose:    This file publishes the event log to subscribers such as parts ordering, customer
+ *                  texts, and dashboards. Each subscription keeps its own position in the log and only
+ *                  reads the next events from the database when its subscriber has asked for more, at
+ *                  most a buffer's worth at a time. A slow subscriber falls behind in the log instead of
+ *                  holding events in memory, and bookings never wait on a subscriber since they only
+ *                  add rows to the log. A subscriber that restarts subscribes after the last event it
+ *                  handled and reads the ones it missed the same way.
+ *
+ * Program Purpose: The program schedules appointments for a mechanic shop.
+ *                  Appointments are scheduled first come, first served as
+ *                  long as the job can be completed the same day it is started
+ *                  given the current schedule. Mechanics with lower bay numbers
+ *                  assigned have higher priority when multiple mechanics are available
+ */
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class BookingEventPublisher implements Flow.Publisher<BookingEvent>, AutoCloseable {
+    static final int DEFAULT_BUFFER_SIZE = 256; // the most events read ahead for one subscriber
+    static final long DEFAULT_POLL_MILLIS = 20; // how often the log is checked for new events
+
+    private final DB database; // the database holding the event log
+    private final int intBufferSize; // the most events read ahead for one subscriber
+    private final long lngPollMillis; // how often the log is checked for new events
+    private final ExecutorService executor; // delivers the events of each subscription
+    private final Set<LogSubscription> setSubscriptions = ConcurrentHashMap.newKeySet(); // open subscriptions
+    private final Thread pollThread; // wakes the subscriptions when events are added
+    private volatile boolean blnRunning = true; // whether or not the publisher accepts subscribers
+
+    /**
+     * construct a publisher with the default buffer size and poll interval
+     *
+     * @param database the database holding the event log
+     */
+    public BookingEventPublisher(DB database) {
+        this(database, DEFAULT_BUFFER_SIZE, DEFAULT_POLL_MILLIS);
+    }
+
+    /**
+     * construct a publisher
+     *
+     * @param database      the database holding the event log
+     * @param intBufferSize the most events read ahead for one subscriber
+     * @param lngPollMillis how often the log is checked for new events
+     */
+    public BookingEventPublisher(DB database, int intBufferSize, long lngPollMillis) {
+        this.database = database;
+        this.intBufferSize = intBufferSize;
+        this.lngPollMillis = lngPollMillis;
+        this.executor = BookingServer.newRequestExecutor();
+        this.pollThread = new Thread(this::poll, "event-publisher");
+        pollThread.setDaemon(true);
+        pollThread.start();
+    }
+
+    /**
+     * Subscribes to the events logged from now on
+     *
+     * @param subscriber the subscriber
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super BookingEvent> subscriber) {
+        long lngLastTUID;
+        try {
+            lngLastTUID = database.getLastEventTUID();
+        } catch (SQLException ex) {
+            subscriber.onSubscribe(new LogSubscription(subscriber, 0));
+            subscriber.onError(ex);
+            return;
+        }
+        subscribe(subscriber, lngLastTUID);
+    }
+
+    /**
+     * Subscribes to the events logged after the provided id, used to catch up
+     * after a restart
+     *
+     * @param subscriber  the subscriber
+     * @param lngLastTUID the id of the last event the subscriber handled, 0 to
+     *                    read the log from the start
+     */
+    public void subscribe(Flow.Subscriber<? super BookingEvent> subscriber, long lngLastTUID) {
+        LogSubscription subscription = new LogSubscription(subscriber, lngLastTUID);
+        if (!blnRunning) {
+            subscriber.onSubscribe(subscription);
+            subscriber.onError(new IllegalStateException("The event publisher is closed"));
+            return;
+        }
+        setSubscriptions.add(subscription);
+        subscriber.onSubscribe(subscription);
+    }
+
+    /**
+     * Gets the number of open subscriptions
+     *
+     * @return the number of subscriptions
+     */
+    public int getSubscriberCount() {
+        return setSubscriptions.size();
+    }
+
+    /**
+     * Stops checking the log and completes every subscription
+     */
+    @Override
+    public void close() {
+        blnRunning = false;
+        pollThread.interrupt();
+        for (LogSubscription currSubscription : setSubscriptions)
+            currSubscription.complete();
+        executor.shutdown();
+    }
+
+    /**
+     * Checks the log for new events and wakes the subscriptions that are waiting
+     * for them until the publisher is closed
+     */
+    private void poll() {
+        // the largest event id seen so far
+        long lngLastSeenTUID = -1;
+        while (blnRunning) {
+            try {
+                long lngLastTUID = database.getLastEventTUID();
+                if (lngLastTUID != lngLastSeenTUID) {
+                    lngLastSeenTUID = lngLastTUID;
+                    for (LogSubscription currSubscription : setSubscriptions)
+                        currSubscription.signal();
+                }
+                Thread.sleep(lngPollMillis);
+            } catch (InterruptedException ex) {
+                return;
+            } catch (SQLException ex) {
+                // the log could not be read, try again on the next poll
+                ex.printStackTrace();
+                try {
+                    Thread.sleep(lngPollMillis);
+                } catch (InterruptedException ex2) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * A subscriber's position in the log and the events read ahead for it
+     */
+    private class LogSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super BookingEvent> subscriber; // receives the events
+        private final AtomicLong lngDemand = new AtomicLong(); // the events requested and not delivered
+        private final AtomicInteger intPending = new AtomicInteger(); // signals not handled by the delivery loop
+        // the events read ahead, only used by the delivery loop
+        private final ArrayDeque<BookingEvent> queBuffer = new ArrayDeque<BookingEvent>();
+        private long lngCursor; // the id of the last event read from the log, only used by the delivery loop
+        private volatile boolean blnDone = false; // whether or not the subscription was cancelled or finished
+        private volatile boolean blnCompleting = false; // whether or not the publisher is closing
+        // why the subscription failed outside the delivery loop, such as a bad
+        // request, null if it did not
+        private volatile Throwable requestError = null;
+
+        /**
+         * construct a subscription
+         *
+         * @param subscriber  the subscriber
+         * @param lngLastTUID the id of the event before the first one to deliver
+         */
+        LogSubscription(Flow.Subscriber<? super BookingEvent> subscriber, long lngLastTUID) {
+            this.subscriber = subscriber;
+            this.lngCursor = lngLastTUID;
+        }
+
+        /**
+         * Asks for more events
+         *
+         * @param n the number of events, must be positive
+         */
+        @Override
+        public void request(long n) {
+            if (blnDone)
+                return;
+            if (n <= 0) {
+                // the delivery loop tells the subscriber, so onError is not called while
+                // it is in onNext
+                requestError = new IllegalArgumentException("The number of events requested must be positive");
+                schedule();
+                return;
+            }
+            // add to the demand without overflowing
+            lngDemand.getAndUpdate((lngCurrent) -> Long.MAX_VALUE - lngCurrent < n ? Long.MAX_VALUE : lngCurrent + n);
+            signal();
+        }
+
+        /**
+         * Stops the events, the subscriber is not told
+         */
+        @Override
+        public void cancel() {
+            blnDone = true;
+            setSubscriptions.remove(this);
+        }
+
+        /**
+         * Starts the delivery loop if it is not running, or tells the running loop to
+         * check again
+         */
+        void signal() {
+            if (lngDemand.get() > 0)
+                schedule();
+        }
+
+        /**
+         * Starts the delivery loop if it is not running, or tells the running loop to
+         * check again, whatever the demand
+         */
+        private void schedule() {
+            if (!blnDone && intPending.getAndIncrement() == 0) {
+                try {
+                    executor.execute(this::deliver);
+                } catch (RuntimeException ex) {
+                    // the publisher closed while signaling
+                    intPending.set(0);
+                }
+            }
+        }
+
+        /**
+         * Delivers events while the subscriber has demand and the log has events, only
+         * one thread runs the loop at a time
+         */
+        private void deliver() {
+            int intMissed = 1;
+            while (true) {
+                // the publisher is closing, finish from this loop so the subscriber's
+                // calls are not concurrent
+                if (blnCompleting && !blnDone) {
+                    cancel();
+                    subscriber.onComplete();
+                    return;
+                }
+                // a bad request fails the subscription from this loop for the same reason
+                if (requestError != null) {
+                    fail(requestError);
+                    return;
+                }
+                while (!blnDone && !blnCompleting && requestError == null && lngDemand.get() > 0) {
+                    // read the next events once the ones read ahead are delivered
+                    if (queBuffer.isEmpty()) {
+                        try {
+                            queBuffer.addAll(database.getEventsAfter(lngCursor, intBufferSize));
+                        } catch (SQLException ex) {
+                            fail(ex);
+                            return;
+                        }
+                        if (queBuffer.isEmpty())
+                            break;
+                        lngCursor = queBuffer.peekLast().getTUID();
+                    }
+                    lngDemand.decrementAndGet();
+                    try {
+                        subscriber.onNext(queBuffer.poll());
+                    } catch (RuntimeException ex) {
+                        // a subscriber that throws is cancelled
+                        cancel();
+                        return;
+                    }
+                }
+                intMissed = intPending.addAndGet(-intMissed);
+                if (intMissed == 0)
+                    return;
+            }
+        }
+
+        /**
+         * Cancels the subscription and tells the subscriber it failed, only called by
+         * the delivery loop
+         *
+         * @param ex the reason
+         */
+        private void fail(Throwable ex) {
+            if (blnDone)
+                return;
+            cancel();
+            subscriber.onError(ex);
+        }
+
+        /**
+         * Tells the subscriber there are no more events once the event it is
+         * handling is delivered
+         */
+        void complete() {
+            blnCompleting = true;
+            schedule();
+        }
+    }
+}
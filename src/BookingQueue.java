@@ -0,0 +1,240 @@
+
+/**
+ * Filename: BookingQueue.java
+ *
+ * Project: Homework3
+ *
+ * Author: Kevin Gyorick
+ *
+ * Date: 10/19/2026
+ *
+ * File Purpose:    This file coalesces booking requests that arrive at the same time. Requests wait
+ *                  in a queue that is drained in arrival order every few milliseconds, or as soon as
+ *                  enough requests are waiting. Each drained group is placed in one pass over the
+ *                  schedule data structure and saved in a single transaction, so a burst of bookings
+ *                  pays for one commit instead of one commit each.
+ *
+ * Program Purpose: The program schedules appointments for a mechanic shop.
+ *                  Appointments are scheduled first come, first served as
+ *                  long as the job can be completed the same day it is started
+ *                  given the current schedule. Mechanics with lower bay numbers
+ *                  assigned have higher priority when multiple mechanics are available
+ */
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class BookingQueue {
+    static final int DEFAULT_MAX_GROUP = 256; // the most requests saved in one transaction
+    static final long DEFAULT_MAX_DELAY_MILLIS = 2; // the longest the first request of a group waits for more
+
+    private final BookingEngine engine; // books the groups
+    private final int intMaxGroup; // the most requests saved in one transaction
+    private final long lngMaxDelayNanos; // the longest the first request of a group waits for more
+    private final BlockingQueue<Request> queRequests = new LinkedBlockingQueue<Request>(); // waiting requests
+    private final Thread drainThread; // places and saves the groups
+    private volatile boolean blnRunning = true; // whether or not the queue accepts requests
+
+    private final AtomicLong lngGroups = new AtomicLong(); // the number of groups committed
+    private final AtomicLong lngBooked = new AtomicLong(); // the number of requests booked
+
+    /**
+     * A request waiting to be booked
+     */
+    private static class Request {
+        final Vehicle customerVehicle; // the vehicle being worked on
+        final Service currentService; // the service requested
+        final Timestamp tsLimitStart; // the start of the appointment it has to come before, null if none
+        final int intLimitBay; // the bay of the appointment it has to come before
+        final CompletableFuture<Schedule> future = new CompletableFuture<Schedule>(); // completed once saved
+
+        /**
+         * construct a request
+         *
+         * @param customerVehicle the vehicle being worked on
+         * @param currentService  the service requested
+         * @param tsLimitStart    the start of the appointment it has to come
+         *                        before, null if there is no limit
+         * @param intLimitBay     the bay of the appointment it has to come before
+         */
+        Request(Vehicle customerVehicle, Service currentService, Timestamp tsLimitStart, int intLimitBay) {
+            this.customerVehicle = customerVehicle;
+            this.currentService = currentService;
+            this.tsLimitStart = tsLimitStart;
+            this.intLimitBay = intLimitBay;
+        }
+    }
+
+    /**
+     * construct a queue with the default group size and delay
+     *
+     * @param engine the engine that books the groups
+     */
+    public BookingQueue(BookingEngine engine) {
+        this(engine, DEFAULT_MAX_GROUP, DEFAULT_MAX_DELAY_MILLIS);
+    }
+
+    /**
+     * construct a queue
+     *
+     * @param engine            the engine that books the groups
+     * @param intMaxGroup       the most requests saved in one transaction
+     * @param lngMaxDelayMillis the longest the first request of a group waits for
+     *                          more requests
+     */
+    public BookingQueue(BookingEngine engine, int intMaxGroup, long lngMaxDelayMillis) {
+        this.engine = engine;
+        this.intMaxGroup = intMaxGroup;
+        this.lngMaxDelayNanos = TimeUnit.MILLISECONDS.toNanos(lngMaxDelayMillis);
+        this.drainThread = new Thread(this::drain, "booking-queue");
+        drainThread.setDaemon(true);
+        drainThread.start();
+    }
+
+    /**
+     * Queues a booking
+     *
+     * @param customerVehicle the vehicle being worked on
+     * @param currentService  the service requested
+     * @return a future completed with the appointment once it is saved, or
+     *         exceptionally if the group it was saved with failed
+     * @throws IllegalStateException throws if the queue was closed
+     */
+    public CompletableFuture<Schedule> submit(Vehicle customerVehicle, Service currentService)
+            throws IllegalStateException {
+        return submit(customerVehicle, currentService, null, 0);
+    }
+
+    /**
+     * Queues a booking that has to come before an appointment open in another
+     * process's bay, see BookingEngine.bookGroup
+     *
+     * @param customerVehicle the vehicle being worked on
+     * @param currentService  the service requested
+     * @param tsLimitStart    the start of the other appointment, null if there is
+     *                        no limit
+     * @param intLimitBay     the bay of the other appointment
+     * @return a future completed with the appointment once it is saved, with null
+     *         if it did not come first, or exceptionally if the group it was saved
+     *         with failed
+     * @throws IllegalStateException throws if the queue was closed
+     */
+    public CompletableFuture<Schedule> submit(Vehicle customerVehicle, Service currentService, Timestamp tsLimitStart,
+            int intLimitBay) throws IllegalStateException {
+        if (!blnRunning)
+            throw new IllegalStateException("The booking queue is closed");
+        Request request = new Request(customerVehicle, currentService, tsLimitStart, intLimitBay);
+        queRequests.add(request);
+        return request.future;
+    }
+
+    /**
+     * Stops accepting requests, books the ones already queued, and waits for the
+     * drain thread to finish
+     *
+     * @throws InterruptedException throws if interrupted while waiting
+     */
+    public void close() throws InterruptedException {
+        blnRunning = false;
+        drainThread.interrupt();
+        drainThread.join();
+        // fail requests that were queued as the drain thread finished
+        Request leftover;
+        while ((leftover = queRequests.poll()) != null)
+            leftover.future.completeExceptionally(new IllegalStateException("The booking queue is closed"));
+    }
+
+    /**
+     * Takes groups of requests off the queue in arrival order and books them
+     * until the queue is closed and empty
+     */
+    private void drain() {
+        List<Request> lstGroup = new ArrayList<Request>(intMaxGroup);
+        while (blnRunning || !queRequests.isEmpty()) {
+            try {
+                // wait for the first request of the group
+                Request first = blnRunning ? queRequests.take() : queRequests.poll();
+                if (first == null)
+                    break;
+                lstGroup.add(first);
+                // collect more requests until the group is full or the first has waited long
+                // enough
+                final long DEADLINE = System.nanoTime() + lngMaxDelayNanos;
+                while (lstGroup.size() < intMaxGroup) {
+                    queRequests.drainTo(lstGroup, intMaxGroup - lstGroup.size());
+                    long lngRemaining = DEADLINE - System.nanoTime();
+                    if (lstGroup.size() >= intMaxGroup || lngRemaining <= 0 || !blnRunning)
+                        break;
+                    Request next = queRequests.poll(lngRemaining, TimeUnit.NANOSECONDS);
+                    if (next == null)
+                        break;
+                    lstGroup.add(next);
+                }
+            } catch (InterruptedException ex) {
+                // closed while waiting, book what was collected and finish the queue
+            }
+            if (!lstGroup.isEmpty())
+                bookGroup(lstGroup);
+            lstGroup.clear();
+        }
+    }
+
+    /**
+     * Books a group and completes the futures of its requests
+     *
+     * @param lstGroup the requests in arrival order
+     */
+    private void bookGroup(List<Request> lstGroup) {
+        Vehicle[] arrGroupVehicles = new Vehicle[lstGroup.size()];
+        Service[] arrGroupServices = new Service[lstGroup.size()];
+        Timestamp[] arrLimitStarts = new Timestamp[lstGroup.size()];
+        int[] arrLimitBays = new int[lstGroup.size()];
+        for (int i = 0; i < lstGroup.size(); i++) {
+            arrGroupVehicles[i] = lstGroup.get(i).customerVehicle;
+            arrGroupServices[i] = lstGroup.get(i).currentService;
+            arrLimitStarts[i] = lstGroup.get(i).tsLimitStart;
+            arrLimitBays[i] = lstGroup.get(i).intLimitBay;
+        }
+        // the reason each request that could not be placed was left out
+        Exception[] arrFailures = new Exception[lstGroup.size()];
+        try {
+            Schedule[] arrBooked = engine.bookGroup(arrGroupVehicles, arrGroupServices, arrLimitStarts, arrLimitBays,
+                    arrFailures);
+            lngGroups.incrementAndGet();
+            // the group is committed, complete the callers, with null if left out
+            for (int i = 0; i < arrBooked.length; i++) {
+                if (arrFailures[i] != null) {
+                    lstGroup.get(i).future.completeExceptionally(arrFailures[i]);
+                    continue;
+                }
+                if (arrBooked[i] != null)
+                    lngBooked.incrementAndGet();
+                lstGroup.get(i).future.complete(arrBooked[i]);
+            }
+        } catch (Exception ex) {
+            if (lstGroup.size() == 1) {
+                lstGroup.get(0).future.completeExceptionally(ex);
+                return;
+            }
+            // none of the group was saved, book each request on its own so only the
+            // one that cannot be saved fails
+            for (Request currRequest : lstGroup)
+                bookGroup(List.of(currRequest));
+        }
+    }
+
+    /**
+     * Gets the average number of requests saved per transaction
+     *
+     * @return the average group size, 0 if nothing was booked
+     */
+    public double getAverageGroupSize() {
+        long lngGroupCount = lngGroups.get();
+        return lngGroupCount == 0 ? 0 : (double) lngBooked.get() / lngGroupCount;
+    }
+}
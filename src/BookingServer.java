@@ -0,0 +1,1161 @@
+
+/**
+ * Filename: BookingServer.java
+ *
+ * Project: Homework3
+ *
+ * Author: Kevin Gyorick
+ *
+ * Date: 10/19/2026
+ *
+ * File Purpose:    This file serves the scheduler over HTTP so a web booking front end can create
+ *                  customers and vehicles, book appointments, check availability, read a bay's
+ *                  schedule, hold a slot for a few minutes, book several services as one visit, and
+ *                  follow the event log without starting a new process for each request. Bookings go
+ *                  through a BookingQueue so requests that arrive together are saved together. It
+ *                  uses the JDK's built in HTTP server and handles each request on its own virtual
+ *                  thread when the JVM supports them, otherwise on a cached thread pool. With
+ *                  --partition several servers on one host split the shop's bays, and a booking is
+ *                  sent to the server owning the bay that comes first.
+ *
+ * Program Purpose: The program schedules appointments for a mechanic shop.
+ *                  Appointments are scheduled first come, first served as
+ *                  long as the job can be completed the same day it is started
+ *                  given the current schedule. Mechanics with lower bay numbers
+ *                  assigned have higher priority when multiple mechanics are available
+ */
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+
+public class BookingServer {
+    static final int DEFAULT_PORT = 8080; // the port used when none is provided
+    static final int BACKLOG = 4096; // the number of connections that may wait to be accepted
+    static final String USAGE = "Usage: java App --serve [port] [--write-behind memory|file|fsync | --partition]"
+            + " [--placement first-fit|best-fit|least-loaded]";
+    static final int DEFAULT_EVENT_LIMIT = 100; // the events returned by the change feed when no limit is given
+    static final int MAX_EVENT_LIMIT = 1000; // the most events returned by the change feed at once
+    static final int MAX_ROUTE_ATTEMPTS = 5; // the times a partitioned booking reads the offers before giving up
+    static final Duration FORWARD_TIMEOUT = Duration.ofSeconds(10); // the longest wait for a bay's owner to book
+    static final long DEFAULT_HOLD_MINUTES = 10; // how long a slot is held when no time is given
+    static final long MAX_HOLD_MINUTES = 60; // the longest a slot can be held
+
+    private final HttpServer server; // the http server
+    private final ExecutorService executor; // runs each request on its own thread
+    private final BookingEngine engine; // answers availability queries
+    private final BookingQueue queue; // books the appointments in groups
+    private final WriteBehindLog writeBehind; // saves bookings after they are confirmed, null if not used
+    private final BookingEventPublisher events; // streams the event log to subscribers
+    // splits the bays with the other servers of the shop, null if this server
+    // books in every bay
+    private final BayLeaseManager leases;
+    private final HttpClient client; // sends bookings to the owners of other bays, null if not partitioned
+    private final Object objEntityLock = new Object(); // held while creating a customer or vehicle
+    private volatile Customer[] arrCustomers; // the customers in the database
+    private volatile Vehicle[] arrVehicles; // the vehicles in the database
+
+    /**
+     * construct a server on a port using the entities already loaded into App
+     *
+     * @param intPort    the port to listen on
+     * @param durability how durable a booking is when it is confirmed, null to
+     *                   save each booking before confirming it
+     * @throws IOException  throws if the port cannot be bound or the redo file
+     *                      cannot be opened
+     * @throws SQLException throws if the booking engine cannot be created
+     */
+    public BookingServer(int intPort, WriteBehindLog.Durability durability) throws IOException, SQLException {
+        this(intPort, durability, false);
+    }
+
+    /**
+     * construct a server on a port using the entities already loaded into App
+     *
+     * @param intPort        the port to listen on
+     * @param durability     how durable a booking is when it is confirmed, null to
+     *                       save each booking before confirming it
+     * @param blnPartitioned whether or not to split the bays with the other
+     *                       servers on this host that are partitioned, cannot be
+     *                       used with a write-behind log
+     * @throws IOException  throws if the port cannot be bound or the redo file
+     *                      cannot be opened
+     * @throws SQLException throws if the booking engine cannot be created or the
+     *                      bays cannot be leased
+     */
+    public BookingServer(int intPort, WriteBehindLog.Durability durability, boolean blnPartitioned)
+            throws IOException, SQLException {
+        if (blnPartitioned && durability != null)
+            throw new IllegalArgumentException("--partition cannot be used with --write-behind");
+        this.arrCustomers = App.arrCustomers;
+        this.arrVehicles = App.arrVehicles;
+        this.engine = Schedule.getEngine(App.arrServices, App.arrBays, App.arrMechanics);
+        this.queue = new BookingQueue(engine);
+        this.writeBehind = durability == null ? null : new WriteBehindLog(Entity.Database, durability);
+        engine.setWriteBehind(writeBehind);
+        this.events = new BookingEventPublisher(Entity.Database);
+        this.executor = newRequestExecutor();
+        this.server = HttpServer.create(new InetSocketAddress(intPort), BACKLOG);
+        server.setExecutor(executor);
+        // the routes of the api
+        server.createContext("/customers", route("POST", this::createCustomer));
+        server.createContext("/vehicles", route("POST", this::createVehicle));
+        server.createContext("/appointments", route("POST", this::createAppointment));
+        server.createContext("/availability", route("GET", this::getAvailability));
+        server.createContext("/bays/", route("GET", this::getBaySchedule));
+        server.createContext("/holds", route("POST", this::handleHold));
+        server.createContext("/visits", route("POST", this::createVisit));
+        server.createContext("/events", route("GET", this::getEvents));
+        server.createContext("/preemptions", route("GET", this::getPreemptions));
+        server.createContext("/skills", route("POST", this::addSkill));
+        server.createContext("/mechanics", route("POST", this::handleMechanic));
+        server.createContext("/events/stream", this::streamEvents);
+        // lease this server's share of the bays, bookings for them are sent to its port
+        this.leases = blnPartitioned
+                ? new BayLeaseManager(Entity.Database, engine, App.arrServices, "http://localhost:" + getPort())
+                : null;
+        this.client = blnPartitioned ? HttpClient.newBuilder().executor(executor).build() : null;
+    }
+
+    /**
+     * Gets a executor that starts a virtual thread for each task, falling back to
+     * a cached thread pool on JVMs without virtual threads
+     *
+     * @return the executor for requests
+     */
+    static ExecutorService newRequestExecutor() {
+        try {
+            // looked up by name so the program still builds on older JDKs
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    /**
+     * Starts the server from the command line arguments and blocks until the JVM
+     * is stopped
+     *
+     * @param args the command line arguments, --serve and an optional port
+     * @return the exit code of the server
+     */
+    public static int run(String[] args) {
+        // the port to listen on
+        int intPort = DEFAULT_PORT;
+        // how durable a booking is when confirmed, null to save it before confirming
+        WriteBehindLog.Durability durability = null;
+        // whether or not the bays are split with other servers
+        boolean blnPartitioned = false;
+        // how appointments are placed
+        PlacementStrategy placementStrategy = new PlacementStrategy.FirstFit();
+        try {
+            for (int i = 1; i < args.length; i++) {
+                if (args[i].equals("--write-behind")) {
+                    if (++i >= args.length)
+                        throw new IllegalArgumentException("Missing value for --write-behind");
+                    durability = WriteBehindLog.Durability.valueOf(args[i].toUpperCase());
+                } else if (args[i].equals("--partition")) {
+                    blnPartitioned = true;
+                } else if (args[i].equals("--placement")) {
+                    if (++i >= args.length)
+                        throw new IllegalArgumentException("Missing value for --placement");
+                    placementStrategy = PlacementStrategy.forName(args[i]);
+                } else if (i == 1) {
+                    intPort = Integer.parseInt(args[i]);
+                } else {
+                    throw new IllegalArgumentException("Unknown argument " + args[i]);
+                }
+            }
+            if (blnPartitioned && durability != null)
+                throw new IllegalArgumentException("--partition cannot be used with --write-behind");
+        } catch (IllegalArgumentException ex) {
+            System.err.println(ex.getMessage());
+            System.err.println(USAGE);
+            return BatchImport.EXIT_USAGE;
+        }
+
+        try {
+            // populate the arrays using the database
+            App.loadEntities();
+            BookingServer bookingServer = new BookingServer(intPort, durability, blnPartitioned);
+            bookingServer.engine.setPlacementStrategy(placementStrategy);
+            // stop the server when the JVM is stopped
+            CountDownLatch stopped = new CountDownLatch(1);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                bookingServer.stop(1);
+                stopped.countDown();
+            }));
+            bookingServer.start();
+            System.out.println("Listening on port " + bookingServer.getPort());
+            if (bookingServer.leases != null)
+                System.out.println("Leased bays " + bookingServer.leases.getOwnedBays());
+            stopped.await();
+            return BatchImport.EXIT_OK;
+        } catch (Exception ex) {
+            ex.printStackTrace();
+            return BatchImport.EXIT_FAILED;
+        }
+    }
+
+    /**
+     * Starts accepting requests
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops accepting requests and waits for the open exchanges to finish
+     *
+     * @param intDelaySeconds the most seconds to wait for open exchanges
+     */
+    public void stop(int intDelaySeconds) {
+        // end the event streams so their exchanges are closed
+        events.close();
+        server.stop(intDelaySeconds);
+        executor.shutdown();
+        try {
+            // hand the bays to the other servers right away
+            if (leases != null)
+                leases.close();
+            queue.close();
+            // save the bookings that are only in the write-behind log
+            if (writeBehind != null)
+                writeBehind.close();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | SQLException ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    /**
+     * Gets the port the server is listening on
+     *
+     * @return the port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * A route's response, the status code and JSON body
+     */
+    static class Response {
+        final int intStatus; // the http status code
+        final String strBody; // the JSON body
+
+        /**
+         * construct a response
+         *
+         * @param intStatus the http status code
+         * @param strBody   the JSON body
+         */
+        Response(int intStatus, String strBody) {
+            this.intStatus = intStatus;
+            this.strBody = strBody;
+        }
+    }
+
+    /**
+     * Handles a request that has been routed, given its parameters
+     */
+    interface Route {
+        Response handle(HttpExchange exchange, Map<String, String> mapParams) throws Exception;
+    }
+
+    /**
+     * Wraps a route with the method check, parameter parsing, and the mapping of
+     * errors to status codes
+     *
+     * @param strMethod the http method the route accepts
+     * @param route     the route
+     * @return the handler for the http server
+     */
+    private HttpHandler route(String strMethod, Route route) {
+        return (exchange) -> {
+            Response response;
+            try {
+                if (!exchange.getRequestMethod().equals(strMethod)) {
+                    response = error(405, "Use " + strMethod);
+                } else {
+                    // the query string and form body parameters
+                    Map<String, String> mapParams = parseParams(exchange.getRequestURI().getRawQuery());
+                    if (strMethod.equals("POST"))
+                        mapParams.putAll(parseParams(
+                                new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8)));
+                    response = route.handle(exchange, mapParams);
+                }
+            } catch (IllegalArgumentException ex) {
+                response = error(400, ex.getMessage());
+            } catch (NoSuchElementException ex) {
+                response = error(404, ex.getMessage());
+            } catch (IllegalStateException ex) {
+                // this server cannot take the request right now, such as before it leases a bay
+                response = error(503, ex.getMessage());
+            } catch (SQLException ex) {
+                // the entity already exists or another process changed it first,
+                // anything else is the server's fault
+                response = isConflict(ex) ? error(409, ex.getMessage()) : error(500, ex.toString());
+            } catch (Exception ex) {
+                response = error(500, ex.toString());
+            }
+            send(exchange, response);
+        };
+    }
+
+    /**
+     * Gets whether or not a database error is a conflict with the current state of
+     * the shop, such as a customer that already exists, rather than a failure
+     *
+     * @param ex the database error
+     * @return true if the request conflicts with the database
+     */
+    private static boolean isConflict(SQLException ex) {
+        // a check of the program's own, or a constraint of the database, whose
+        // extended error codes all share the SQLITE_CONSTRAINT low byte
+        return ex instanceof SQLIntegrityConstraintViolationException || (ex.getErrorCode() & 0xFF) == 19;
+    }
+
+    /**
+     * Writes a response to the client
+     *
+     * @param exchange the request and response
+     * @param response the response to write
+     * @throws IOException throws if the client disconnected
+     */
+    private static void send(HttpExchange exchange, Response response) throws IOException {
+        byte[] arrBody = response.strBody.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(response.intStatus, arrBody.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(arrBody);
+        }
+    }
+
+    /**
+     * Parses url encoded parameters
+     *
+     * @param strParams the query string or form body, may be null
+     * @return the parameters by name
+     */
+    static Map<String, String> parseParams(String strParams) {
+        Map<String, String> mapParams = new HashMap<String, String>();
+        if (strParams == null || strParams.isEmpty())
+            return mapParams;
+        for (String strPair : strParams.split("&")) {
+            int intEquals = strPair.indexOf('=');
+            if (intEquals < 0)
+                mapParams.put(URLDecoder.decode(strPair, StandardCharsets.UTF_8), "");
+            else
+                mapParams.put(URLDecoder.decode(strPair.substring(0, intEquals), StandardCharsets.UTF_8),
+                        URLDecoder.decode(strPair.substring(intEquals + 1), StandardCharsets.UTF_8));
+        }
+        return mapParams;
+    }
+
+    /**
+     * Gets a required parameter
+     *
+     * @param mapParams the parameters of the request
+     * @param strName   the name of the parameter
+     * @return the value of the parameter
+     * @throws IllegalArgumentException throws if the parameter is missing
+     */
+    private static String required(Map<String, String> mapParams, String strName) throws IllegalArgumentException {
+        String strValue = mapParams.get(strName);
+        if (strValue == null || strValue.isEmpty())
+            throw new IllegalArgumentException("Missing parameter " + strName);
+        return strValue;
+    }
+
+    /**
+     * POST /customers with name, creates a customer
+     *
+     * @param exchange  the request
+     * @param mapParams the parameters of the request
+     * @return the created customer
+     * @throws SQLException throws if the customer already exists
+     */
+    private Response createCustomer(HttpExchange exchange, Map<String, String> mapParams) throws SQLException {
+        String strName = required(mapParams, "name");
+        synchronized (objEntityLock) {
+            // other servers of the shop may have created customers
+            if (leases != null)
+                reloadEntities();
+            arrCustomers = Customer.createCustomer(strName, arrCustomers);
+        }
+        return new Response(201, "{\"name\":" + quote(strName) + "}");
+    }
+
+    /**
+     * POST /vehicles with name and vehicle, creates a vehicle for a customer
+     *
+     * @param exchange  the request
+     * @param mapParams the parameters of the request
+     * @return the created vehicle
+     * @throws SQLException           throws if the owner already has the vehicle
+     * @throws NoSuchElementException throws if the owner does not exist
+     */
+    private Response createVehicle(HttpExchange exchange, Map<String, String> mapParams)
+            throws SQLException, NoSuchElementException {
+        String strName = required(mapParams, "name");
+        String strVehicle = required(mapParams, "vehicle");
+        synchronized (objEntityLock) {
+            // other servers of the shop may have created the customer or vehicles
+            if (leases != null)
+                reloadEntities();
+            // a missing owner is not found rather than a conflict
+            boolean blnOwnerFound = false;
+            for (Customer currCustomer : arrCustomers)
+                blnOwnerFound |= currCustomer.strName.equals(strName);
+            if (!blnOwnerFound)
+                throw new NoSuchElementException("Customer " + strName + " not in the database");
+            arrVehicles = Vehicle.createVehicle(strName, strVehicle, arrCustomers, arrVehicles);
+        }
+        return new Response(201, "{\"name\":" + quote(strName) + ",\"vehicle\":" + quote(strVehicle) + "}");
+    }
+
+    /**
+     * POST /appointments with name, vehicle, service, and optionally after,
+     * before, and dropoff, books the earliest appointment, or the earliest one
+     * inside the window. With a priority, lower classes may be displaced to book
+     * it earlier. POST /appointments/{id}/cancel with optionally backfill cancels
+     * an appointment
+     *
+     * @param exchange  the request
+     * @param mapParams the parameters of the request
+     * @return the booked appointment, once its group is committed or it is in the
+     *         write-behind log, or the cancelled appointment
+     * @throws Exception throws if the appointment cannot be saved
+     */
+    private Response createAppointment(HttpExchange exchange, Map<String, String> mapParams) throws Exception {
+        // the path split into "", "appointments", and optionally the id and action
+        String[] arrPath = exchange.getRequestURI().getPath().split("/");
+        if (arrPath.length == 4 && arrPath[3].equals("cancel"))
+            return cancelAppointment(arrPath[2], mapParams);
+        if (arrPath.length != 2)
+            throw new NoSuchElementException("No route " + exchange.getRequestURI().getPath());
+        Vehicle customerVehicle = findVehicle(mapParams);
+        Service currentService = Service.getService(required(mapParams, "service"), App.arrServices);
+        BookingWindow window = parseWindow(mapParams);
+        if (mapParams.containsKey("priority")) {
+            BookingEngine.Priority priority = BookingEngine.Priority.forName(mapParams.get("priority"));
+            // a priority booking moves appointments, which the other servers and the
+            // write-behind log do not know how to follow
+            if (leases != null || writeBehind != null)
+                throw new IllegalArgumentException("priority cannot be used with --partition or --write-behind");
+            if (window != null)
+                throw new IllegalArgumentException("priority cannot be used with after, before, or dropoff");
+            return new Response(201, toJson(engine.bookWithPriority(customerVehicle, currentService, priority),
+                    priority));
+        }
+        // a window is searched in this server's bays only, so it could skip an
+        // earlier bay
+        if (window != null && leases != null)
+            throw new IllegalArgumentException("after, before, and dropoff cannot be used with --partition");
+        // a window is searched as soon as it arrives so a booking that does not fit
+        // is turned down without waiting for a group
+        if (window != null)
+            return new Response(201, toJson(engine.book(-1, customerVehicle, currentService, window)));
+        // with several servers the booking goes to the owner of the bay that comes
+        // first
+        if (leases != null)
+            return routeAppointment(mapParams, customerVehicle, currentService);
+        // with a write-behind log the booking is confirmed without waiting for a commit
+        if (writeBehind != null)
+            return new Response(201, toJson(engine.book(-1, customerVehicle, currentService)));
+        return new Response(201, toJson(bookQueued(customerVehicle, currentService, null, 0)));
+    }
+
+    /**
+     * Cancels an appointment, freeing its slots for the next booking or moving up
+     * to backfill later appointments into them
+     *
+     * @param strTUID   the id of the appointment from the path
+     * @param mapParams the parameters of the request
+     * @return the cancelled appointment and the appointments moved
+     * @throws SQLException throws if the appointment cannot be deleted
+     */
+    private Response cancelAppointment(String strTUID, Map<String, String> mapParams) throws SQLException {
+        int intTUID;
+        try {
+            intTUID = Integer.parseInt(strTUID);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Invalid appointment " + strTUID);
+        }
+        long lngBackfill = parseLong(mapParams, "backfill", 0);
+        if (lngBackfill < 0 || lngBackfill > BookingEngine.MAX_BACKFILL_MOVES)
+            throw new IllegalArgumentException("backfill must be from 0 to " + BookingEngine.MAX_BACKFILL_MOVES);
+        return new Response(200, toJson(engine.cancel(intTUID, (int) lngBackfill)));
+    }
+
+    /**
+     * Books an appointment through the booking queue and waits for its group to
+     * be committed
+     *
+     * @param customerVehicle the vehicle being worked on
+     * @param currentService  the service requested
+     * @param tsLimitStart    the start of the appointment in another server's bay
+     *                        it has to come before, null if there is no limit
+     * @param intLimitBay     the bay of the appointment it has to come before
+     * @return the booked appointment, null if it did not come first
+     * @throws Exception throws if the group could not be saved
+     */
+    private Schedule bookQueued(Vehicle customerVehicle, Service currentService, Timestamp tsLimitStart,
+            int intLimitBay) throws Exception {
+        try {
+            return queue.submit(customerVehicle, currentService, tsLimitStart, intLimitBay).get();
+        } catch (ExecutionException ex) {
+            // report why the group failed
+            throw ex.getCause() instanceof Exception ? (Exception) ex.getCause() : ex;
+        }
+    }
+
+    /**
+     * GET /availability with service and optionally name, vehicle, count, after,
+     * before, and dropoff, gets the appointment that would be booked now. With a
+     * count, the earliest open appointments are returned instead, earliest first.
+     * With a window, the appointment that would be booked inside it. When partitioned
+     * the earliest offer of every server is returned, which ignores the vehicle's
+     * other appointments
+     *
+     * @param exchange  the request
+     * @param mapParams the parameters of the request
+     * @return the earliest open appointment, or the earliest ones with a count
+     * @throws SQLException throws if the database cannot be initialized
+     */
+    private Response getAvailability(HttpExchange exchange, Map<String, String> mapParams) throws SQLException {
+        Service currentService = Service.getService(required(mapParams, "service"), App.arrServices);
+        // the vehicle's other appointments are only avoided if the vehicle is given
+        Vehicle customerVehicle = null;
+        if (mapParams.containsKey("name") || mapParams.containsKey("vehicle"))
+            customerVehicle = findVehicle(mapParams);
+        BookingWindow window = parseWindow(mapParams);
+        if (window != null) {
+            if (leases != null)
+                throw new IllegalArgumentException("after, before, and dropoff cannot be used with --partition");
+            if (mapParams.containsKey("count"))
+                throw new IllegalArgumentException("count cannot be used with after, before, or dropoff");
+            return new Response(200, toJson(engine.findEarliest(customerVehicle, currentService, window)));
+        }
+        if (mapParams.containsKey("count")) {
+            // the other servers' bays are only known by their earliest offer
+            if (leases != null)
+                throw new IllegalArgumentException("count cannot be used with --partition");
+            long lngCount = parseLong(mapParams, "count", 1);
+            if (lngCount < 1 || lngCount > BookingEngine.MAX_AVAILABILITY)
+                throw new IllegalArgumentException("count must be from 1 to " + BookingEngine.MAX_AVAILABILITY);
+            StringBuilder builder = new StringBuilder("[");
+            for (Schedule currAppointment : engine.findAvailability(customerVehicle, currentService, (int) lngCount)) {
+                if (builder.length() > 1)
+                    builder.append(',');
+                builder.append(toJson(currAppointment));
+            }
+            return new Response(200, builder.append(']').toString());
+        }
+        if (leases != null) {
+            List<BayLeaseManager.Offer> lstOffers = leases.getOffers(currentService);
+            if (lstOffers.isEmpty())
+                throw new IllegalStateException("No server owns a bay");
+            BayLeaseManager.Offer best = lstOffers.get(0);
+            return new Response(200, toJson(new Schedule(customerVehicle == null ? 0 : customerVehicle.getTUID(),
+                    best.intBays_TUID, currentService.getTUID(), best.tsStart, best.tsEnd)));
+        }
+        return new Response(200, toJson(engine.findEarliest(customerVehicle, currentService)));
+    }
+
+    /**
+     * Gets the booking window of a request's after, before, and dropoff
+     * parameters
+     *
+     * @param mapParams the parameters of the request
+     * @return the booking window, null if none of the parameters are given
+     * @throws IllegalArgumentException throws if the window cannot be read
+     */
+    private static BookingWindow parseWindow(Map<String, String> mapParams) throws IllegalArgumentException {
+        if (!mapParams.containsKey("after") && !mapParams.containsKey("before") && !mapParams.containsKey("dropoff"))
+            return null;
+        return BookingWindow.parse(mapParams.get("after"), mapParams.get("before"), mapParams.get("dropoff"));
+    }
+
+    /**
+     * Gets the vehicle named by a request's name and vehicle parameters. When
+     * partitioned, a vehicle that is not found is looked for again after reading
+     * the customers and vehicles the other servers created
+     *
+     * @param mapParams the parameters of the request
+     * @return the vehicle
+     * @throws SQLException           throws if the customers and vehicles cannot
+     *                                be read
+     * @throws NoSuchElementException throws if the vehicle does not exist
+     */
+    private Vehicle findVehicle(Map<String, String> mapParams) throws SQLException, NoSuchElementException {
+        String strName = required(mapParams, "name");
+        String strVehicle = required(mapParams, "vehicle");
+        try {
+            return Vehicle.getVehicle(strName, strVehicle, arrCustomers, arrVehicles);
+        } catch (NoSuchElementException ex) {
+            if (leases == null)
+                throw ex;
+            reloadEntities();
+            return Vehicle.getVehicle(strName, strVehicle, arrCustomers, arrVehicles);
+        }
+    }
+
+    /**
+     * Reads the customers and vehicles from the database, including the ones the
+     * other servers of the shop created
+     *
+     * @throws SQLException throws if the database cannot be read
+     */
+    private void reloadEntities() throws SQLException {
+        synchronized (objEntityLock) {
+            arrCustomers = Customer.getCustomers();
+            arrVehicles = Vehicle.getVehicles();
+        }
+    }
+
+    /**
+     * Books an appointment in the bay that comes first across the servers of the
+     * shop. If this server owns the bay with the earliest offer it books it, as
+     * long as its appointment still comes before the best offer of any other
+     * server. Otherwise the booking is sent to the bay's owner with that limit. A
+     * booking whose offer went stale reads the offers again, and the last attempt
+     * books without a limit. A booking sent by another server is only booked here
+     *
+     * @param mapParams       the parameters of the request
+     * @param customerVehicle the vehicle being worked on
+     * @param currentService  the service requested
+     * @return the booked appointment, or the owner's response
+     * @throws Exception throws if the appointment cannot be saved or routed
+     */
+    private Response routeAppointment(Map<String, String> mapParams, Vehicle customerVehicle,
+            Service currentService) throws Exception {
+        // sent by another server, book here if the limit allows it
+        if (mapParams.containsKey("forwarded")) {
+            Schedule booked = bookQueued(customerVehicle, currentService,
+                    mapParams.containsKey("limitStart") ? new Timestamp(parseLong(mapParams, "limitStart", 0)) : null,
+                    (int) parseLong(mapParams, "limitBay", 0));
+            if (booked == null)
+                throw new IllegalStateException("This server's bays no longer have the earliest appointment");
+            return new Response(201, toJson(booked));
+        }
+
+        for (int i = 0; i < MAX_ROUTE_ATTEMPTS; i++) {
+            List<BayLeaseManager.Offer> lstOffers = leases.getOffers(currentService);
+            if (lstOffers.isEmpty())
+                throw new IllegalStateException("No server owns a bay");
+            BayLeaseManager.Offer best = lstOffers.get(0);
+            // the best offer of another server, the booking has to come before it
+            BayLeaseManager.Offer limit = null;
+            for (int j = 1; j < lstOffers.size() && limit == null && i < MAX_ROUTE_ATTEMPTS - 1; j++) {
+                if (!lstOffers.get(j).strOwner_ID.equals(best.strOwner_ID))
+                    limit = lstOffers.get(j);
+            }
+
+            if (leases.isOwn(best)) {
+                Schedule booked = limit == null ? bookQueued(customerVehicle, currentService, null, 0)
+                        : bookQueued(customerVehicle, currentService, limit.tsStart, limit.intBays_TUID);
+                if (booked != null)
+                    return new Response(201, toJson(booked));
+            } else {
+                Response forwarded = forward(best.strOwner_Address, mapParams, limit);
+                if (forwarded != null)
+                    return forwarded;
+            }
+        }
+        throw new IllegalStateException("The booking could not be routed to a bay's owner");
+    }
+
+    /**
+     * Sends a booking to the server owning a bay
+     *
+     * @param strAddress the address of the owner
+     * @param mapParams  the parameters of the request
+     * @param limit      the offer the booking has to come before, null if there is
+     *                   no limit
+     * @return the owner's response, null if the owner could not take it and the
+     *         offers should be read again
+     * @throws InterruptedException throws if interrupted while waiting
+     */
+    private Response forward(String strAddress, Map<String, String> mapParams, BayLeaseManager.Offer limit)
+            throws InterruptedException {
+        // the form body of the forwarded booking
+        StringBuilder builder = new StringBuilder("forwarded=1");
+        for (String strName : new String[] { "name", "vehicle", "service" })
+            builder.append('&').append(strName).append('=')
+                    .append(URLEncoder.encode(mapParams.get(strName), StandardCharsets.UTF_8));
+        if (limit != null)
+            builder.append("&limitStart=").append(limit.tsStart.getTime()).append("&limitBay=")
+                    .append(limit.intBays_TUID);
+        HttpRequest request = HttpRequest.newBuilder(URI.create(strAddress + "/appointments"))
+                .timeout(FORWARD_TIMEOUT).header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(builder.toString())).build();
+        try {
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            // the owner's offer went stale, wait for the owners to publish again
+            if (response.statusCode() == 503) {
+                Thread.sleep(BayLeaseManager.PUBLISH_MILLIS);
+                return null;
+            }
+            return new Response(response.statusCode(), response.body());
+        } catch (IOException ex) {
+            // the owner stopped, its bays are claimed once its leases expire
+            Thread.sleep(BayLeaseManager.RENEW_MILLIS);
+            return null;
+        }
+    }
+
+    /**
+     * POST /holds with name, vehicle, service, and optionally minutes, holds the
+     * earliest appointment without booking it. POST /holds/{id}/confirm books the
+     * held appointment and POST /holds/{id}/release gives it up
+     *
+     * @param exchange  the request
+     * @param mapParams the parameters of the request
+     * @return the hold, the booked appointment, or the id of the released hold
+     * @throws SQLException throws if the held appointment cannot be saved
+     */
+    private Response handleHold(HttpExchange exchange, Map<String, String> mapParams) throws SQLException {
+        // a hold only covers this server's bays, so it could skip an earlier bay
+        if (leases != null)
+            throw new IllegalArgumentException("Holds cannot be used with --partition");
+        // the path split into "", "holds", and optionally the id and action
+        String[] arrPath = exchange.getRequestURI().getPath().split("/");
+        if (arrPath.length == 2) {
+            Vehicle customerVehicle = findVehicle(mapParams);
+            Service currentService = Service.getService(required(mapParams, "service"), App.arrServices);
+            long lngMinutes = parseLong(mapParams, "minutes", DEFAULT_HOLD_MINUTES);
+            if (lngMinutes <= 0 || lngMinutes > MAX_HOLD_MINUTES)
+                throw new IllegalArgumentException("minutes must be from 1 to " + MAX_HOLD_MINUTES);
+            return new Response(201, toJson(
+                    engine.hold(customerVehicle, currentService, DateUtil.minutesToMiliseconds(lngMinutes))));
+        }
+        if (arrPath.length != 4)
+            throw new NoSuchElementException("No route " + exchange.getRequestURI().getPath());
+        long lngHold_ID;
+        try {
+            lngHold_ID = Long.parseLong(arrPath[2]);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Invalid hold " + arrPath[2]);
+        }
+        if (arrPath[3].equals("confirm"))
+            return new Response(201, toJson(engine.confirmHold(lngHold_ID)));
+        if (arrPath[3].equals("release")) {
+            engine.releaseHold(lngHold_ID);
+            return new Response(200, "{\"released\":" + lngHold_ID + "}");
+        }
+        throw new NoSuchElementException("No route " + exchange.getRequestURI().getPath());
+    }
+
+    /**
+     * POST /visits with name, vehicle, and services separated by commas, books
+     * the services as one visit on the same day, each starting as soon as the one
+     * before it ends
+     *
+     * @param exchange  the request
+     * @param mapParams the parameters of the request
+     * @return the booked appointments in the order of the services
+     * @throws SQLException throws if the appointments cannot be saved
+     */
+    private Response createVisit(HttpExchange exchange, Map<String, String> mapParams) throws SQLException {
+        // a visit is placed in this server's bays only, so it could skip an earlier bay
+        if (leases != null)
+            throw new IllegalArgumentException("Visits cannot be used with --partition");
+        if (!exchange.getRequestURI().getPath().equals("/visits"))
+            throw new NoSuchElementException("No route " + exchange.getRequestURI().getPath());
+        Vehicle customerVehicle = findVehicle(mapParams);
+        String[] arrService_Names = required(mapParams, "services").split(",");
+        Service[] arrVisitServices = new Service[arrService_Names.length];
+        for (int i = 0; i < arrService_Names.length; i++)
+            arrVisitServices[i] = Service.getService(arrService_Names[i].trim(), App.arrServices);
+
+        StringBuilder builder = new StringBuilder("[");
+        for (Schedule currAppointment : engine.bookVisit(customerVehicle, arrVisitServices)) {
+            if (builder.length() > 1)
+                builder.append(',');
+            builder.append(toJson(currAppointment));
+        }
+        return new Response(201, builder.append(']').toString());
+    }
+
+    /**
+     * GET /bays/{id}/schedule, gets the appointments of a bay sorted by start time
+     *
+     * @param exchange  the request
+     * @param mapParams the parameters of the request
+     * @return the bay's appointments
+     * @throws SQLException throws if the schedule cannot be read
+     */
+    private Response getBaySchedule(HttpExchange exchange, Map<String, String> mapParams) throws SQLException {
+        // the path split into "", "bays", id, "schedule"
+        String[] arrPath = exchange.getRequestURI().getPath().split("/");
+        if (arrPath.length != 4 || !arrPath[3].equals("schedule"))
+            throw new NoSuchElementException("No route " + exchange.getRequestURI().getPath());
+        int intBayTUID;
+        try {
+            intBayTUID = Integer.parseInt(arrPath[2]);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Invalid bay " + arrPath[2]);
+        }
+        // check the bay exists
+        boolean blnBayExists = false;
+        for (Bay currBay : App.arrBays)
+            blnBayExists |= currBay.getTUID() == intBayTUID;
+        if (!blnBayExists)
+            throw new NoSuchElementException("No bay found with the TUID " + intBayTUID);
+
+        // read the latest snapshot so the schedule does not wait for bookings in
+        // progress
+        StringBuilder builder = new StringBuilder("[");
+        for (Schedule currAppointment : engine.getSnapshot().getBayAppointments(intBayTUID)) {
+            if (builder.length() > 1)
+                builder.append(',');
+            builder.append(toJson(currAppointment));
+        }
+        return new Response(200, builder.append(']').toString());
+    }
+
+    /**
+     * GET /preemptions, gets how many priority bookings displaced others, how
+     * many appointments they moved, how far the moves pushed them back, and the
+     * longest chain of displacements, along with the limits on each booking
+     *
+     * @param exchange  the request
+     * @param mapParams the parameters of the request
+     * @return the preemption totals
+     */
+    private Response getPreemptions(HttpExchange exchange, Map<String, String> mapParams) {
+        if (!exchange.getRequestURI().getPath().equals("/preemptions"))
+            throw new NoSuchElementException("No route " + exchange.getRequestURI().getPath());
+        return new Response(200, "{\"preemptions\":" + engine.getPreemptionCount() + ",\"moved\":"
+                + engine.getPreemptedMoveCount() + ",\"delayMinutes\":" + engine.getPreemptedMinutes()
+                + ",\"maxDepth\":" + engine.getMaxPreemptionDepth() + ",\"depthLimit\":"
+                + BookingEngine.MAX_PREEMPT_DEPTH + ",\"movesLimit\":" + BookingEngine.MAX_PREEMPT_MOVES + "}");
+    }
+
+    /**
+     * POST /skills with skill and either mechanic or service, gives a mechanic a
+     * skill or makes a service require one. A skill is added the first time it is
+     * named. Bookings after it are only placed with mechanics that have every
+     * skill their service requires, the other servers of the shop read the skills
+     * when they start
+     *
+     * @param exchange  the request
+     * @param mapParams the parameters of the request
+     * @return the skill mask of the mechanic or service
+     * @throws SQLException throws if the skill cannot be saved
+     */
+    private Response addSkill(HttpExchange exchange, Map<String, String> mapParams) throws SQLException {
+        String strSkill = required(mapParams, "skill");
+        String strMechanic = mapParams.get("mechanic");
+        String strService = mapParams.get("service");
+        if ((strMechanic == null) == (strService == null))
+            throw new IllegalArgumentException("Give either a mechanic or a service");
+        long lngMask;
+        if (strMechanic != null)
+            lngMask = Entity.Database
+                    .addMechanicSkill(Mechanic.getMechanic(strMechanic, App.arrMechanics).getTUID(), strSkill);
+        else
+            lngMask = Entity.Database
+                    .addServiceRequirement(Service.getService(strService, App.arrServices).getTUID(), strSkill);
+        engine.reloadSkills();
+        String strOwner = strMechanic != null ? "\"mechanic\":" + quote(strMechanic)
+                : "\"service\":" + quote(strService);
+        return new Response(201, "{" + strOwner + ",\"skill\":" + quote(strSkill) + ",\"mask\":" + lngMask + "}");
+    }
+
+    /**
+     * POST /mechanics with name, rate, and optionally skills separated by commas,
+     * adds a mechanic in a new bay that is bookable right away. POST
+     * /mechanics/{id}/retire retires the mechanic's bay once it has no
+     * appointments left, so nothing is booked in it again
+     *
+     * @param exchange  the request
+     * @param mapParams the parameters of the request
+     * @return the mechanic and their bay
+     * @throws SQLException throws if the mechanic already exists, still has
+     *                      appointments, or cannot be saved
+     */
+    private Response handleMechanic(HttpExchange exchange, Map<String, String> mapParams) throws SQLException {
+        // the other servers would not know about the bay
+        if (leases != null)
+            throw new IllegalArgumentException("Mechanics cannot be added or retired with --partition");
+        // the path split into "", "mechanics", and optionally the id and action
+        String[] arrPath = exchange.getRequestURI().getPath().split("/");
+        Bay currBay;
+        int intStatus;
+        if (arrPath.length == 2) {
+            String strName = required(mapParams, "name");
+            double dblRate;
+            try {
+                dblRate = Double.parseDouble(required(mapParams, "rate"));
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("Invalid rate " + mapParams.get("rate"));
+            }
+            if (dblRate < 0)
+                throw new IllegalArgumentException("rate cannot be negative");
+            currBay = engine.addMechanic(new Mechanic(strName, dblRate));
+            if (mapParams.containsKey("skills")) {
+                for (String strSkill : mapParams.get("skills").split(","))
+                    if (!strSkill.isBlank())
+                        Entity.Database.addMechanicSkill(currBay.Mechanic_TUID, strSkill.trim());
+                engine.reloadSkills();
+            }
+            intStatus = 201;
+        } else if (arrPath.length == 4 && arrPath[3].equals("retire")) {
+            try {
+                currBay = engine.retireMechanic(Integer.parseInt(arrPath[2]));
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("Invalid mechanic " + arrPath[2]);
+            }
+            intStatus = 200;
+        } else {
+            throw new NoSuchElementException("No route " + exchange.getRequestURI().getPath());
+        }
+        synchronized (objEntityLock) {
+            App.arrMechanics = Mechanic.getMechanics();
+            App.arrBays = Bay.getBays();
+        }
+        return new Response(intStatus, "{\"mechanic\":" + currBay.Mechanic_TUID + ",\"bay\":" + currBay.getTUID()
+                + ",\"retired\":" + (intStatus == 200) + "}");
+    }
+
+    /**
+     * GET /events with optionally after and limit, the change feed. Gets the
+     * events logged after an event id so a subscriber can catch up after a restart
+     *
+     * @param exchange  the request
+     * @param mapParams the parameters of the request
+     * @return the events and the id to read after next
+     * @throws SQLException throws if the event log cannot be read
+     */
+    private Response getEvents(HttpExchange exchange, Map<String, String> mapParams) throws SQLException {
+        if (!exchange.getRequestURI().getPath().equals("/events"))
+            throw new NoSuchElementException("No route " + exchange.getRequestURI().getPath());
+        long lngAfter = parseLong(mapParams, "after", 0);
+        int intLimit = (int) Math.min(parseLong(mapParams, "limit", DEFAULT_EVENT_LIMIT), MAX_EVENT_LIMIT);
+        if (lngAfter < 0 || intLimit <= 0)
+            throw new IllegalArgumentException("after cannot be negative and limit must be positive");
+
+        StringBuilder builder = new StringBuilder("{\"events\":[");
+        // the id to read after next, the same if there are no new events
+        long lngNext = lngAfter;
+        for (BookingEvent currEvent : Entity.Database.getEventsAfter(lngAfter, intLimit)) {
+            if (lngNext != lngAfter)
+                builder.append(',');
+            builder.append(currEvent.toJson());
+            lngNext = currEvent.getTUID();
+        }
+        return new Response(200, builder.append("],\"next\":").append(lngNext).append('}').toString());
+    }
+
+    /**
+     * GET /events/stream with optionally after, streams the events as they are
+     * logged as server-sent events. The next event is only read once the client
+     * has received the last one, so a slow client falls behind in the log without
+     * slowing bookings or other clients
+     *
+     * @param exchange the request, left open until the client disconnects or the
+     *                 server stops
+     * @throws IOException throws if the response cannot be started
+     */
+    private void streamEvents(HttpExchange exchange) throws IOException {
+        // the id of the last event the client handled, the live tail if not given
+        long lngAfter;
+        try {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                send(exchange, error(405, "Use GET"));
+                return;
+            }
+            lngAfter = parseLong(parseParams(exchange.getRequestURI().getRawQuery()), "after", -1);
+        } catch (IllegalArgumentException ex) {
+            send(exchange, error(400, ex.getMessage()));
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream; charset=utf-8");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+
+        Flow.Subscriber<BookingEvent> subscriber = new Flow.Subscriber<BookingEvent>() {
+            private Flow.Subscription subscription; // asked for one event at a time
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(BookingEvent currEvent) {
+                try {
+                    // the id lets a reconnecting client resume after this event
+                    out.write(("id: " + currEvent.getTUID() + "\ndata: " + currEvent.toJson() + "\n\n")
+                            .getBytes(StandardCharsets.UTF_8));
+                    out.flush();
+                } catch (IOException ex) {
+                    // the client disconnected
+                    subscription.cancel();
+                    exchange.close();
+                    return;
+                }
+                subscription.request(1);
+            }
+
+            @Override
+            public void onError(Throwable ex) {
+                exchange.close();
+            }
+
+            @Override
+            public void onComplete() {
+                exchange.close();
+            }
+        };
+        if (lngAfter < 0)
+            events.subscribe(subscriber);
+        else
+            events.subscribe(subscriber, lngAfter);
+    }
+
+    /**
+     * Gets an optional whole number parameter
+     *
+     * @param mapParams  the parameters of the request
+     * @param strName    the name of the parameter
+     * @param lngDefault the value if the parameter is missing
+     * @return the value of the parameter
+     * @throws IllegalArgumentException throws if the parameter is not a number
+     */
+    private static long parseLong(Map<String, String> mapParams, String strName, long lngDefault)
+            throws IllegalArgumentException {
+        String strValue = mapParams.get(strName);
+        if (strValue == null || strValue.isEmpty())
+            return lngDefault;
+        try {
+            return Long.parseLong(strValue);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Invalid " + strName + " " + strValue);
+        }
+    }
+
+    /**
+     * Gets the JSON representation of an appointment
+     *
+     * @param currAppointment the appointment
+     * @return the appointment as JSON
+     */
+    private static String toJson(Schedule currAppointment) {
+        return "{\"id\":" + currAppointment.getTUID() + ",\"bay\":" + currAppointment.Bays_TUID + ",\"vehicle\":"
+                + currAppointment.Vehicles_TUID + ",\"service\":" + currAppointment.Service_TUID + ",\"start\":"
+                + quote(currAppointment.Appointment_Start_Time.toString()) + ",\"end\":"
+                + quote(currAppointment.Appointment_End_Time.toString()) + "}";
+    }
+
+    /**
+     * Gets the JSON representation of a cancellation
+     *
+     * @param currCancellation the cancellation
+     * @return the cancelled appointment, the number of appointments moved, and
+     *         the moved appointments at their new times as JSON
+     */
+    private static String toJson(BookingEngine.Cancellation currCancellation) {
+        StringBuilder builder = new StringBuilder("{\"cancelled\":").append(toJson(currCancellation.appointment))
+                .append(",\"movedCount\":").append(currCancellation.arrMoved.length).append(",\"moved\":[");
+        for (int i = 0; i < currCancellation.arrMoved.length; i++) {
+            if (i > 0)
+                builder.append(',');
+            builder.append(toJson(currCancellation.arrMoved[i]));
+        }
+        return builder.append("]}").toString();
+    }
+
+    /**
+     * Gets the JSON representation of a priority booking
+     *
+     * @param currPreemption the booking and the appointments it displaced
+     * @param priority       the priority class of the booking
+     * @return the booking as JSON
+     */
+    private static String toJson(BookingEngine.Preemption currPreemption, BookingEngine.Priority priority) {
+        StringBuilder builder = new StringBuilder("{\"booked\":").append(toJson(currPreemption.appointment))
+                .append(",\"priority\":\"").append(priority.getName()).append("\",\"depth\":")
+                .append(currPreemption.intDepth).append(",\"delayMinutes\":")
+                .append(currPreemption.lngDelayMinutes).append(",\"movedCount\":")
+                .append(currPreemption.arrMoved.length).append(",\"moved\":[");
+        for (int i = 0; i < currPreemption.arrMoved.length; i++) {
+            if (i > 0)
+                builder.append(',');
+            builder.append(toJson(currPreemption.arrMoved[i]));
+        }
+        return builder.append("]}").toString();
+    }
+
+    /**
+     * Gets the JSON representation of a hold
+     *
+     * @param currHold the hold
+     * @return the hold as JSON
+     */
+    private static String toJson(BookingEngine.Hold currHold) {
+        return "{\"hold\":" + currHold.lngHold_ID + ",\"bay\":" + currHold.appointment.Bays_TUID + ",\"vehicle\":"
+                + currHold.appointment.Vehicles_TUID + ",\"service\":" + currHold.appointment.Service_TUID
+                + ",\"start\":" + quote(currHold.appointment.Appointment_Start_Time.toString()) + ",\"end\":"
+                + quote(currHold.appointment.Appointment_End_Time.toString()) + ",\"expires\":"
+                + quote(new Timestamp(currHold.lngExpires).toString()) + "}";
+    }
+
+    /**
+     * Gets a error response
+     *
+     * @param intStatus  the http status code
+     * @param strMessage the error message
+     * @return the error response
+     */
+    private static Response error(int intStatus, String strMessage) {
+        return new Response(intStatus, "{\"error\":" + quote(strMessage) + "}");
+    }
+
+    /**
+     * Quotes a string for JSON
+     *
+     * @param strValue the string
+     * @return the quoted and escaped string
+     */
+    static String quote(String strValue) {
+        StringBuilder builder = new StringBuilder("\"");
+        for (char currChar : String.valueOf(strValue).toCharArray()) {
+            if (currChar == '"' || currChar == '\\')
+                builder.append('\\').append(currChar);
+            else if (currChar < 0x20)
+                builder.append(String.format("\\u%04x", (int) currChar));
+            else
+                builder.append(currChar);
+        }
+        return builder.append('"').toString();
+    }
+}
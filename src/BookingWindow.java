@@ -0,0 +1,164 @@
+
+/**
+ * Filename: BookingWindow.java
+ *
+ * Project: Homework3
+ *
+ * Author: Kevin Gyorick
+ *
+ * Date: 10/19/2026
+ *
+ * File Purpose:    This file is the window a customer can accept an appointment in, the earliest it
+ *                  may start, the time the car is needed back by, and the times of day the car can be
+ *                  dropped off. A booking with a window takes the earliest opening inside it and is
+ *                  turned down when there is none, instead of being placed later in the schedule.
+ *
+ * Program Purpose: The program schedules appointments for a mechanic shop.
+ *                  Appointments are scheduled first come, first served as
+ *                  long as the job can be completed the same day it is started
+ *                  given the current schedule. Mechanics with lower bay numbers
+ *                  assigned have higher priority when multiple mechanics are available
+ */
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+
+public class BookingWindow {
+    final Timestamp tsEarliestStart; // the appointment starts at or after this time, null for any time
+    final Timestamp tsLatestEnd; // the appointment ends at or before this time, null for any time
+    final LocalTime ltDropOffFrom; // the earliest time of day the appointment may start, null for any time
+    final LocalTime ltDropOffUntil; // the latest time of day the appointment may start, null for any time
+
+    /**
+     * construct a booking window
+     *
+     * @param tsEarliestStart the earliest the appointment may start, null for any
+     *                        time
+     * @param tsLatestEnd     the latest the appointment may end, null for any
+     *                        time
+     * @param ltDropOffFrom   the earliest time of day the appointment may start,
+     *                        null for any time
+     * @param ltDropOffUntil  the latest time of day the appointment may start,
+     *                        null for any time
+     * @throws IllegalArgumentException throws if the window ends before it starts
+     */
+    public BookingWindow(Timestamp tsEarliestStart, Timestamp tsLatestEnd, LocalTime ltDropOffFrom,
+            LocalTime ltDropOffUntil) throws IllegalArgumentException {
+        if (tsEarliestStart != null && tsLatestEnd != null && !tsLatestEnd.after(tsEarliestStart))
+            throw new IllegalArgumentException("The window ends at " + tsLatestEnd + " before it starts");
+        if (ltDropOffFrom != null && ltDropOffUntil != null && ltDropOffUntil.isBefore(ltDropOffFrom))
+            throw new IllegalArgumentException(
+                    "The drop off time " + ltDropOffUntil + " is before " + ltDropOffFrom);
+        this.tsEarliestStart = tsEarliestStart;
+        this.tsLatestEnd = tsLatestEnd;
+        this.ltDropOffFrom = ltDropOffFrom;
+        this.ltDropOffUntil = ltDropOffUntil;
+    }
+
+    /**
+     * Parses a booking window from text, any part may be left out
+     *
+     * @param strAfter   the earliest start as yyyy-mm-dd hh:mm, or a date to
+     *                   start that day, null for any time
+     * @param strBefore  the latest end as yyyy-mm-dd hh:mm, or a date to end by
+     *                   the end of that day, null for any time
+     * @param strDropOff the times of day the appointment may start as hh:mm-hh:mm,
+     *                   null for any time
+     * @return the booking window
+     * @throws IllegalArgumentException throws if a part cannot be read or the
+     *                                  window ends before it starts
+     */
+    public static BookingWindow parse(String strAfter, String strBefore, String strDropOff)
+            throws IllegalArgumentException {
+        LocalTime ltFrom = null;
+        LocalTime ltUntil = null;
+        if (strDropOff != null) {
+            String[] arrTimes = strDropOff.split("-");
+            if (arrTimes.length != 2)
+                throw new IllegalArgumentException("Invalid drop off times " + strDropOff + ", use hh:mm-hh:mm");
+            ltFrom = parseTime(arrTimes[0].trim());
+            ltUntil = parseTime(arrTimes[1].trim());
+        }
+        return new BookingWindow(parseTimestamp(strAfter, false), parseTimestamp(strBefore, true), ltFrom, ltUntil);
+    }
+
+    /**
+     * Parses a time of day
+     *
+     * @param strTime the time as hh:mm
+     * @return the time of day
+     * @throws IllegalArgumentException throws if the time cannot be read
+     */
+    private static LocalTime parseTime(String strTime) throws IllegalArgumentException {
+        try {
+            return LocalTime.parse(strTime);
+        } catch (DateTimeParseException ex) {
+            throw new IllegalArgumentException("Invalid time " + strTime + ", use hh:mm");
+        }
+    }
+
+    /**
+     * Parses a date and time, a date alone meaning the start of that day or the
+     * start of the next day
+     *
+     * @param strTimestamp the date and time as yyyy-mm-dd hh:mm, or a date, null
+     *                     for none
+     * @param blnEndOfDay  whether or not a date alone means the end of the day
+     * @return the timestamp, null if none was given
+     * @throws IllegalArgumentException throws if the timestamp cannot be read
+     */
+    private static Timestamp parseTimestamp(String strTimestamp, boolean blnEndOfDay)
+            throws IllegalArgumentException {
+        if (strTimestamp == null)
+            return null;
+        strTimestamp = strTimestamp.trim().replace('T', ' ');
+        try {
+            // a date alone
+            if (strTimestamp.length() == 10) {
+                LocalDate ld = LocalDate.parse(strTimestamp);
+                return Timestamp.valueOf((blnEndOfDay ? ld.plusDays(1) : ld).atStartOfDay());
+            }
+            // Timestamp.valueOf needs the seconds
+            if (strTimestamp.length() == 16)
+                strTimestamp += ":00";
+            return Timestamp.valueOf(strTimestamp);
+        } catch (DateTimeParseException | IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Invalid time " + strTimestamp + ", use yyyy-mm-dd hh:mm");
+        }
+    }
+
+    /**
+     * Gets whether or not an appointment may start at a time of day
+     *
+     * @param ltStart the time of day the appointment starts
+     * @return true if the time is within the drop off times
+     */
+    public boolean allowsDropOff(LocalTime ltStart) {
+        return (ltDropOffFrom == null || !ltStart.isBefore(ltDropOffFrom))
+                && (ltDropOffUntil == null || !ltStart.isAfter(ltDropOffUntil));
+    }
+
+    /**
+     * Gets whether or not an appointment fits the earliest start and latest end
+     *
+     * @param tsStart the start of the appointment
+     * @param tsEnd   the end of the appointment
+     * @return true if the appointment is within the window
+     */
+    public boolean contains(Timestamp tsStart, Timestamp tsEnd) {
+        return (tsEarliestStart == null || !tsStart.before(tsEarliestStart))
+                && (tsLatestEnd == null || !tsEnd.after(tsLatestEnd));
+    }
+
+    /**
+     * Gets the string representation of the window
+     *
+     * @return a string representation of the window
+     */
+    @Override
+    public String toString() {
+        return "BookingWindow [Earliest_Start=" + tsEarliestStart + ", Latest_End=" + tsLatestEnd
+                + ", Drop_Off_From=" + ltDropOffFrom + ", Drop_Off_Until=" + ltDropOffUntil + "]";
+    }
+}
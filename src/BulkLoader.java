@@ -0,0 +1,183 @@
+
+/**
+ * Filename: BulkLoader.java
+ *
+ * Project: Homework3
+ *
+ * Author: Kevin Gyorick
+ *
+ * Date: 10/19/2026
+ *
+ * File Purpose:    This file bulk loads customer and vehicle lines, such as a dealer group's roster.
+ *                  The lines are streamed into temporary staging tables and merged into the customer
+ *                  and vehicle tables with set based queries, so owners are matched and duplicates are
+ *                  found with indexed joins in SQLite instead of scanning the entity arrays for each line.
+ *                  The whole load is a single transaction.
+ *
+ * Program Purpose: The program schedules appointments for a mechanic shop.
+ *                  Appointments are scheduled first come, first served as
+ *                  long as the job can be completed the same day it is started
+ *                  given the current schedule. Mechanics with lower bay numbers
+ *                  assigned have higher priority when multiple mechanics are available
+ */
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+public class BulkLoader {
+    static final int STAGING_BATCH_SIZE = 1000; // the number of lines inserted into a staging table at once
+
+    private final List<ImportPipeline.ImportLine> lstRejected = new ArrayList<ImportPipeline.ImportLine>(); // rejected lines
+    private int intCommitted = 0; // the number of customers and vehicles inserted
+    private boolean blnStopped = false; // whether or not the load was rolled back for too many rejects
+
+    // buffered customer lines waiting to be staged
+    private final int[] arrCustomerLines = new int[STAGING_BATCH_SIZE];
+    private final String[] arrCustomerNames = new String[STAGING_BATCH_SIZE];
+    private int intCustomerCount = 0;
+    // buffered vehicle lines waiting to be staged
+    private final int[] arrVehicleLines = new int[STAGING_BATCH_SIZE];
+    private final String[] arrVehicleOwners = new String[STAGING_BATCH_SIZE];
+    private final String[] arrVehicleDescriptions = new String[STAGING_BATCH_SIZE];
+    private int intVehicleCount = 0;
+
+    /**
+     * Loads the customer and vehicle lines of a file in one transaction. Since
+     * every customer is merged before any vehicle, a vehicle may come before its
+     * owner in the file. Appointment lines are rejected because they have to be
+     * placed one at a time in file order
+     *
+     * @param arrFileLines the lines of the input file
+     * @param intFirstLine the index of the first line to load, lines before it were
+     *                     committed by a previous run
+     * @param checkpoint   records the file as imported in the same transaction
+     * @param commitPolicy given the number of rejected lines, decides if the load
+     *                     is committed or rolled back
+     * @throws SQLException throws if the load fails, in which case nothing is saved
+     */
+    public void run(String[] arrFileLines, int intFirstLine, ImportCheckpoint checkpoint, IntPredicate commitPolicy)
+            throws SQLException {
+        Entity.initializeDatabase();
+        DB database = Entity.Database;
+        checkpoint.begin();
+        try {
+            database.buildStagingTables();
+            // the lines rejected before they reach the staging tables
+            List<ImportPipeline.ImportLine> lstUnstaged = new ArrayList<ImportPipeline.ImportLine>();
+            // the lines that were staged, indexed by line number - 1
+            ImportPipeline.ImportLine[] arrStaged = new ImportPipeline.ImportLine[arrFileLines.length];
+
+            // stream the lines into the staging tables
+            for (int i = intFirstLine; i < arrFileLines.length; i++) {
+                ImportPipeline.ImportLine currLine = new ImportPipeline.ImportLine(i + 1, arrFileLines[i]);
+                currLine.strRejectReason = ImportPipeline.checkFields(currLine);
+                if (currLine.isValid() && currLine.getAction().equals("S"))
+                    currLine.strRejectReason = "Appointments cannot be bulk loaded, import them without --bulk-load";
+                if (!currLine.isValid()) {
+                    lstUnstaged.add(currLine);
+                    continue;
+                }
+                arrStaged[i] = currLine;
+                if (currLine.getAction().equals("C")) {
+                    arrCustomerLines[intCustomerCount] = currLine.intLineNumber;
+                    arrCustomerNames[intCustomerCount] = currLine.arrFields[1];
+                    if (++intCustomerCount == STAGING_BATCH_SIZE)
+                        flushCustomers(database);
+                } else {
+                    arrVehicleLines[intVehicleCount] = currLine.intLineNumber;
+                    arrVehicleOwners[intVehicleCount] = currLine.arrFields[1];
+                    arrVehicleDescriptions[intVehicleCount] = currLine.arrFields[2];
+                    if (++intVehicleCount == STAGING_BATCH_SIZE)
+                        flushVehicles(database);
+                }
+            }
+            flushCustomers(database);
+            flushVehicles(database);
+
+            // merge the customers first so vehicles can be matched to owners from this load
+            Map<Integer, String> mapRejects = database.getStagedCustomerRejects();
+            intCommitted += database.mergeStagedCustomers();
+            mapRejects.putAll(database.getStagedVehicleRejects());
+            intCommitted += database.mergeStagedVehicles();
+            database.dropStagingTables();
+
+            // collect the rejected lines in file order
+            for (Map.Entry<Integer, String> currReject : mapRejects.entrySet()) {
+                ImportPipeline.ImportLine currLine = arrStaged[currReject.getKey() - 1];
+                currLine.strRejectReason = currReject.getValue();
+            }
+            for (ImportPipeline.ImportLine currLine : lstUnstaged)
+                arrStaged[currLine.intLineNumber - 1] = currLine;
+            for (ImportPipeline.ImportLine currLine : arrStaged) {
+                if (currLine != null && !currLine.isValid())
+                    lstRejected.add(currLine);
+            }
+
+            // roll back the whole load if there are too many rejected lines
+            if (!commitPolicy.test(lstRejected.size())) {
+                blnStopped = true;
+                intCommitted = 0;
+                checkpoint.abandon();
+                return;
+            }
+            // save the file as imported in the same transaction as the rows
+            checkpoint.finish(arrFileLines.length);
+        } catch (SQLException | RuntimeException ex) {
+            checkpoint.abandon();
+            throw ex;
+        }
+    }
+
+    /**
+     * Stages the buffered customer lines
+     *
+     * @param database the database to stage the customers in
+     * @throws SQLException throws if the lines cannot be staged
+     */
+    private void flushCustomers(DB database) throws SQLException {
+        if (intCustomerCount > 0)
+            database.stageCustomers(arrCustomerLines, arrCustomerNames, intCustomerCount);
+        intCustomerCount = 0;
+    }
+
+    /**
+     * Stages the buffered vehicle lines
+     *
+     * @param database the database to stage the vehicles in
+     * @throws SQLException throws if the lines cannot be staged
+     */
+    private void flushVehicles(DB database) throws SQLException {
+        if (intVehicleCount > 0)
+            database.stageVehicles(arrVehicleLines, arrVehicleOwners, arrVehicleDescriptions, intVehicleCount);
+        intVehicleCount = 0;
+    }
+
+    /**
+     * Gets the rejected lines in file order
+     *
+     * @return the rejected lines
+     */
+    public List<ImportPipeline.ImportLine> getRejected() {
+        return lstRejected;
+    }
+
+    /**
+     * Gets whether or not the load was rolled back because of the rejected lines
+     *
+     * @return true if nothing was saved
+     */
+    public boolean isStopped() {
+        return blnStopped;
+    }
+
+    /**
+     * Gets the number of customers and vehicles inserted
+     *
+     * @return the number of inserted rows
+     */
+    public int getCommittedCount() {
+        return intCommitted;
+    }
+}
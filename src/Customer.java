@@ -18,6 +18,7 @@
  *                  assigned have higher priority when multiple mechanics are available
  */
 import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
 import java.util.NoSuchElementException;
 
 public class Customer extends Entity {
@@ -100,7 +101,7 @@ public class Customer extends Entity {
         for (Customer currentCustomer : arrCustomers) {
             // if the name already exists in the databse throw error
             if (currentCustomer.strName.equals(strCustomerName)) {
-                throw new SQLException("Cannot insert customer (" + strCustomerName
+                throw new SQLIntegrityConstraintViolationException("Cannot insert customer (" + strCustomerName
                         + ") with the same name since vehicles are inserted based on customer name");
             }
         }
@@ -21,22 +21,68 @@
 
 import java.io.File;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.TreeMap;
 
 public class DB {
     static final boolean DEBUG_OUTPUT = false; // whether or not to display debug output for the creation of the
                                                // database
-    static final String DATABASE_NAME = "SQLiteTest1.db"; // the name to give the database file
-    static Connection conn = null; // the connection to the database
+    static final String DATABASE_NAME = "SQLiteTest1.db"; // the name of the shop's database file
+    // the JSON data of each event, $ is replaced with the row being logged
+    private static final String APPOINTMENT_JSON = "json_object('vehicle',$.Vehicles_TUID,'bay',$.Bays_TUID,'service',$.Service_TUID,'start',$.Appointment_Start_Time,'end',$.Appointment_End_Time)";
+    private static final String CUSTOMER_JSON = "json_object('name',$.Name)";
+    private static final String VEHICLE_JSON = "json_object('customer',$.Customer_TUID,'vehicle',$.Vehicle_Description)";
+    // the id of a new appointment, after every appointment in the table and
+    // every cancelled one so another process reading the appointments after the
+    // last id it saw does not miss it
+    private static final String NEXT_SCHEDULE_TUID = "MAX(IFNULL((SELECT MAX(TUID) FROM Schedule_Table),0),"
+            + "IFNULL((SELECT MAX(Entity_TUID) FROM Event_Log_Table WHERE Event_Type='APPOINTMENT_CANCELLED'),0)) + 1";
+    // the time an event is logged in milliseconds
+    private static final String EVENT_TIME = "CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER)";
+    private final String strFileName; // the database file
+    private Connection conn = null; // the connection to the database
+    // a second connection used to read the event log, it only sees committed
+    // changes so an event is never read before its transaction commits
+    private Connection readConn = null;
+    private final Object objReadLock = new Object(); // held while opening or using the event log connection
 
     /**
-     * construct a database and get a new connection
+     * construct the shop's database and get a new connection
      * 
      * @throws SQLException throws a SQL exception if the database cannot be
      *                      connected to
      */
     public DB() throws SQLException {
-        if (conn == null)
-            conn = getConnection();
+        this(DATABASE_NAME);
+    }
+
+    /**
+     * construct a database stored in the provided file and get a new connection,
+     * used to keep several shops in one program
+     * 
+     * @param strFileName the path of the database file, created if it does not
+     *                    exist
+     * @throws SQLException throws a SQL exception if the database cannot be
+     *                      connected to
+     */
+    public DB(String strFileName) throws SQLException {
+        this.strFileName = strFileName;
+        conn = getConnection();
+    }
+
+    /**
+     * Gets the path of the database file
+     * 
+     * @return the path of the database file
+     */
+    public String getFileName() {
+        return strFileName;
     }
 
     /**
@@ -48,7 +94,12 @@ public class DB {
      */
     private Connection getConnection() throws SQLException {
         // open a connection to the sqlite database using the jdbc driver
-        conn = DriverManager.getConnection("jdbc:sqlite:" + DATABASE_NAME);
+        // transactions take the write lock when they begin so a transaction that
+        // reads then writes waits for another process's transaction instead of
+        // failing with the database locked
+        Properties properties = new Properties();
+        properties.setProperty("transaction_mode", "IMMEDIATE");
+        conn = DriverManager.getConnection("jdbc:sqlite:" + strFileName, properties);
         // return the connection
         return conn;
     }
@@ -75,8 +126,12 @@ public class DB {
 
         // get the next and only result
         res.next();
-        // return the result as a integer
-        return res.getInt(1);
+        // the result as a integer
+        int count = res.getInt(1);
+        // close the statement so it does not hold the table open
+        state.close();
+        // return the row count
+        return count;
     }
 
     /**
@@ -85,10 +140,29 @@ public class DB {
      * @throws SQLException throws if there is a problem closing the connection
      */
     public void dropDatabase() throws SQLException {
+        // close the database connections
+        close();
+        // delete the db file
+        new File(strFileName).delete();
+        // delete any bookings waiting to be replayed into it
+        new File(WriteBehindLog.getRedoFileName(this)).delete();
+    }
+
+    /**
+     * Closes the database connections, the database cannot be used afterwards
+     * 
+     * @throws SQLException throws if there is a problem closing the connections
+     */
+    public void close() throws SQLException {
         // close the database connection
         conn.close();
-        // delete the db file
-        new File(DATABASE_NAME).delete();
+        // close the event log connection
+        synchronized (objReadLock) {
+            if (readConn != null) {
+                readConn.close();
+                readConn = null;
+            }
+        }
     }
 
     /**
@@ -115,8 +189,12 @@ public class DB {
             // excute a sql query to check the master table for the existence of the
             // customer table
             res = state.executeQuery("SELECT name FROM sqlite_master WHERE type='table' AND name='Customers_Table'");
+            // whether or not the customer table exists
+            boolean blnTablesExist = res.next();
+            // close the statement so it does not hold the schema open
+            state.close();
             // if no result
-            if (!res.next()) {
+            if (!blnTablesExist) {
                 // build the tables
                 buildMechanicsTable();
                 buildCustomerTable();
@@ -143,9 +221,141 @@ public class DB {
                 // tell the user the database was created and prepopulated
                 System.out.println("Database prepopulated");
             }
+
+            // build the tables added after the original schema, these are skipped if they
+            // already exist
+            buildImportProgressTable();
+            buildBayVersionsTable();
+            buildEventLogTable();
+            buildBayLeaseTables();
+            buildPriorityTable();
+            buildSkillTables();
+            buildRetiredBaysTable();
         }
     }
 
+    /**
+     * Starts a transaction, the queries that follow are not saved until the
+     * transaction is committed
+     * 
+     * @throws SQLException throws if there is a problem with the connection
+     */
+    public void beginTransaction() throws SQLException {
+        // stop committing each query on its own
+        conn.setAutoCommit(false);
+    }
+
+    /**
+     * Commits the open transaction
+     * 
+     * @throws SQLException throws if there is a problem with the connection
+     */
+    public void commitTransaction() throws SQLException {
+        // save the queries of the transaction
+        conn.commit();
+        // go back to committing each query on its own
+        conn.setAutoCommit(true);
+    }
+
+    /**
+     * Rolls back the open transaction
+     * 
+     * @throws SQLException throws if there is a problem with the connection
+     */
+    public void rollbackTransaction() throws SQLException {
+        // undo the queries of the transaction
+        conn.rollback();
+        // go back to committing each query on its own
+        conn.setAutoCommit(true);
+    }
+
+    /**
+     * Builds the import progress table if it does not exist
+     * 
+     * @throws SQLException throws if there is a query error or problem with the
+     *                      connection
+     */
+    private void buildImportProgressTable() throws SQLException {
+        // sql statement
+        Statement state;
+
+        if (DEBUG_OUTPUT)
+            System.out.println("Build IMPORT PROGRESS table");
+        // create a new sql statement using the connection
+        state = conn.createStatement();
+        // execute a sql query to create the import progress table
+        state.executeUpdate(
+                "CREATE TABLE IF NOT EXISTS Import_Progress_Table(File_Path VARCHAR(4096),File_Size INTEGER,File_Hash CHAR(64),Committed_Offset INTEGER,Committed_Lines INTEGER,PRIMARY KEY (File_Path,File_Size,File_Hash));");
+    }
+
+    /**
+     * Gets the byte offset committed by previous imports of a file
+     * 
+     * @param strFilePath the canonical path of the file
+     * @param lngFileSize the size of the file in bytes
+     * @param strFileHash the hash of the file's content
+     * @return the byte offset of the first line that was not committed, 0 if the
+     *         file was never imported
+     * @throws SQLException throws if there is a query error or problem with the
+     *                      connection
+     */
+    public long getImportProgress(String strFilePath, long lngFileSize, String strFileHash) throws SQLException {
+        // sql statement
+        PreparedStatement prep;
+        // sql result
+        ResultSet res;
+
+        // create a template for selecting the progress of the file
+        prep = conn.prepareStatement(
+                "SELECT Committed_Offset FROM Import_Progress_Table WHERE File_Path = ? AND File_Size = ? AND File_Hash = ?;");
+        // set the identity of the file in the template
+        prep.setString(1, strFilePath);
+        prep.setLong(2, lngFileSize);
+        prep.setString(3, strFileHash);
+        // execute the query
+        res = prep.executeQuery();
+
+        // the committed offset or the start of the file
+        long lngOffset = res.next() ? res.getLong("Committed_Offset") : 0;
+        // close the statement so it does not hold the table open
+        prep.close();
+        // return the committed offset
+        return lngOffset;
+    }
+
+    /**
+     * Saves the progress of an import, called inside the transaction of the batch
+     * being committed
+     * 
+     * @param strFilePath       the canonical path of the file
+     * @param lngFileSize       the size of the file in bytes
+     * @param strFileHash       the hash of the file's content
+     * @param lngOffset         the byte offset of the first line that was not
+     *                          processed
+     * @param intLinesCommitted the number of lines processed
+     * @throws SQLException throws if there is a query error or problem with the
+     *                      connection
+     */
+    public void saveImportProgress(String strFilePath, long lngFileSize, String strFileHash, long lngOffset,
+            int intLinesCommitted) throws SQLException {
+        // sql statement
+        PreparedStatement prep;
+
+        if (DEBUG_OUTPUT)
+            System.out.println("Save progress of " + strFilePath + " to IMPORT PROGRESS table");
+        // create a template for inserting or replacing the progress of the file
+        prep = conn.prepareStatement(
+                "INSERT OR REPLACE INTO Import_Progress_Table (File_Path,File_Size,File_Hash,Committed_Offset,Committed_Lines) VALUES (?,?,?,?,?);");
+        // set the identity of the file and its progress in the template
+        prep.setString(1, strFilePath);
+        prep.setLong(2, lngFileSize);
+        prep.setString(3, strFileHash);
+        prep.setLong(4, lngOffset);
+        prep.setInt(5, intLinesCommitted);
+        // execute the sql statement
+        prep.execute();
+    }
+
     /**
      * Builds the customer table
      * 
@@ -171,7 +381,7 @@ public class DB {
      * @throws SQLException throws if there is a query error or problem with the
      *                      connection
      */
-    public void addCustomer(Customer newCustomer) throws SQLException {
+    public synchronized void addCustomer(Customer newCustomer) throws SQLException {
         // sql statment
         PreparedStatement prep;
 
@@ -197,29 +407,25 @@ public class DB {
         Statement state;
         // sql query result
         ResultSet res;
-        // get the table row count of the customer table
-        int count = getTableRowCount("Customers_Table");
-        // index starting at zero
-        int i = 0;
-
         // create a new sql statement using the connection
         state = conn.createStatement();
         // execute sql query to select all customers from the database
         res = state.executeQuery("SELECT TUID, Name FROM Customers_Table");
 
-        // create a array to store the customers in
-        Customer[] arrCustomers = new Customer[count];
+        // a list to store the customers in, another process may add customers so the
+        // row count is not known ahead of time
+        List<Customer> lstCustomers = new ArrayList<Customer>();
 
         // while there is another result
         while (res.next()) {
-            // store the current result in the array
-            arrCustomers[i] = new Customer(res.getInt("TUID"), res.getString("Name"));
-            // increment index
-            i++;
+            // store the current result in the list
+            lstCustomers.add(new Customer(res.getInt("TUID"), res.getString("Name")));
         }
+        // close the statement so it does not hold the table open
+        state.close();
 
         // return the array of customers
-        return arrCustomers;
+        return lstCustomers.toArray(new Customer[0]);
     }
 
     /**
@@ -328,7 +534,7 @@ public class DB {
      * @throws SQLException throws if there is a query error or problem with the
      *                      connection
      */
-    public void addVehicle(Vehicle newVehicle) throws SQLException {
+    public synchronized void addVehicle(Vehicle newVehicle) throws SQLException {
         // sql statment
         PreparedStatement prep;
 
@@ -356,30 +562,229 @@ public class DB {
         Statement state;
         // sql query result
         ResultSet res;
-        // get the row count of the vehicle table
-        int count = getTableRowCount("Vehicle_Table");
-        // index
-        int i = 0;
-
         // create a new sql statement using the connection
         state = conn.createStatement();
         // execute sql query to get all vehicles from the database
         res = state.executeQuery("SELECT TUID, Customer_TUID, Vehicle_Description FROM Vehicle_Table");
 
-        // array for storing the vehicles from the database
-        Vehicle[] arrVehicles = new Vehicle[count];
+        // list for storing the vehicles from the database, another process may add
+        // vehicles so the row count is not known ahead of time
+        List<Vehicle> lstVehicles = new ArrayList<Vehicle>();
 
         // while there is another result
         while (res.next()) {
-            // add the current vehicle to the array
-            arrVehicles[i] = new Vehicle(res.getInt("TUID"), res.getInt("Customer_TUID"),
-                    res.getString("Vehicle_Description"));
-            // increment index
-            i++;
+            // add the current vehicle to the list
+            lstVehicles.add(new Vehicle(res.getInt("TUID"), res.getInt("Customer_TUID"),
+                    res.getString("Vehicle_Description")));
         }
+        // close the statement so it does not hold the table open
+        state.close();
 
         // return the array of vehicles
-        return arrVehicles;
+        return lstVehicles.toArray(new Vehicle[0]);
+    }
+
+    /**
+     * Creates empty temporary staging tables for bulk loading customers and
+     * vehicles, along with the indexes used to merge them. Temporary tables only
+     * exist for this connection and are never written to the database file
+     * 
+     * @throws SQLException throws if there is a query error or problem with the
+     *                      connection
+     */
+    public void buildStagingTables() throws SQLException {
+        // sql statement
+        Statement state;
+
+        if (DEBUG_OUTPUT)
+            System.out.println("Build STAGING tables");
+        // create a new sql statement using the connection
+        state = conn.createStatement();
+        // index the name columns the staged rows are matched on
+        state.executeUpdate("CREATE INDEX IF NOT EXISTS Customers_Name_Index ON Customers_Table(Name);");
+        state.executeUpdate(
+                "CREATE INDEX IF NOT EXISTS Vehicle_Owner_Index ON Vehicle_Table(Customer_TUID,Vehicle_Description);");
+        // create the staging tables, removing any left from an earlier load
+        state.executeUpdate("DROP TABLE IF EXISTS temp.Customer_Staging;");
+        state.executeUpdate("DROP TABLE IF EXISTS temp.Vehicle_Staging;");
+        state.executeUpdate("CREATE TEMP TABLE Customer_Staging(Line_Number INTEGER PRIMARY KEY,Name VARCHAR(60));");
+        state.executeUpdate(
+                "CREATE TEMP TABLE Vehicle_Staging(Line_Number INTEGER PRIMARY KEY,Customer_Name VARCHAR(60),Vehicle_Description VARCHAR(60));");
+        state.executeUpdate("CREATE INDEX temp.Customer_Staging_Name_Index ON Customer_Staging(Name);");
+        state.executeUpdate(
+                "CREATE INDEX temp.Vehicle_Staging_Name_Index ON Vehicle_Staging(Customer_Name,Vehicle_Description);");
+    }
+
+    /**
+     * Inserts customer lines into the customer staging table in one batch
+     * 
+     * @param arrLineNumbers the line number of each customer in the input file
+     * @param arrNames       the name of each customer
+     * @param intCount       the number of customers to insert from the arrays
+     * @throws SQLException throws if there is a query error or problem with the
+     *                      connection
+     */
+    public void stageCustomers(int[] arrLineNumbers, String[] arrNames, int intCount) throws SQLException {
+        // sql statement template, closed once the batch runs so the staging table can be
+        // dropped
+        try (PreparedStatement prep = conn
+                .prepareStatement("INSERT INTO Customer_Staging (Line_Number,Name) VALUES (?,?);")) {
+            // add each customer to the batch
+            for (int i = 0; i < intCount; i++) {
+                prep.setInt(1, arrLineNumbers[i]);
+                prep.setString(2, arrNames[i]);
+                prep.addBatch();
+            }
+            // execute the batch
+            prep.executeBatch();
+        }
+    }
+
+    /**
+     * Inserts vehicle lines into the vehicle staging table in one batch
+     * 
+     * @param arrLineNumbers   the line number of each vehicle in the input file
+     * @param arrCustomerNames the name of each vehicle's owner
+     * @param arrDescriptions  the description of each vehicle
+     * @param intCount         the number of vehicles to insert from the arrays
+     * @throws SQLException throws if there is a query error or problem with the
+     *                      connection
+     */
+    public void stageVehicles(int[] arrLineNumbers, String[] arrCustomerNames, String[] arrDescriptions, int intCount)
+            throws SQLException {
+        // sql statement template, closed once the batch runs so the staging table can be
+        // dropped
+        try (PreparedStatement prep = conn.prepareStatement(
+                "INSERT INTO Vehicle_Staging (Line_Number,Customer_Name,Vehicle_Description) VALUES (?,?,?);")) {
+            // add each vehicle to the batch
+            for (int i = 0; i < intCount; i++) {
+                prep.setInt(1, arrLineNumbers[i]);
+                prep.setString(2, arrCustomerNames[i]);
+                prep.setString(3, arrDescriptions[i]);
+                prep.addBatch();
+            }
+            // execute the batch
+            prep.executeBatch();
+        }
+    }
+
+    /**
+     * Finds the staged customers that cannot be inserted because the name is
+     * already in the database or appears on an earlier line
+     * 
+     * @return the line numbers of the rejected customers mapped to the reason
+     * @throws SQLException throws if there is a query error or problem with the
+     *                      connection
+     */
+    public Map<Integer, String> getStagedCustomerRejects() throws SQLException {
+        // the rejected line numbers and reasons
+        Map<Integer, String> mapRejects = new TreeMap<Integer, String>();
+        // create a new sql statement using the connection, closed so the staging table
+        // can be dropped
+        try (Statement state = conn.createStatement()) {
+            // customers that are already in the database or repeated in the file
+            ResultSet res = state.executeQuery("SELECT s.Line_Number, s.Name FROM Customer_Staging s"
+                    + " WHERE EXISTS (SELECT 1 FROM Customers_Table c WHERE c.Name = s.Name)"
+                    + " OR EXISTS (SELECT 1 FROM Customer_Staging f WHERE f.Name = s.Name AND f.Line_Number < s.Line_Number)");
+            while (res.next())
+                mapRejects.put(res.getInt("Line_Number"), "Cannot insert customer (" + res.getString("Name")
+                        + ") with the same name since vehicles are inserted based on customer name");
+        }
+        return mapRejects;
+    }
+
+    /**
+     * Inserts the staged customers that are not already in the database, keeping
+     * the first line of any name that is repeated
+     * 
+     * @return the number of customers inserted
+     * @throws SQLException throws if there is a query error or problem with the
+     *                      connection
+     */
+    public int mergeStagedCustomers() throws SQLException {
+        if (DEBUG_OUTPUT)
+            System.out.println("Merge staged customers into CUSTOMER table");
+        // create a new sql statement using the connection
+        try (Statement state = conn.createStatement()) {
+            // insert the new customers in file order
+            return state.executeUpdate("INSERT INTO Customers_Table (Name) SELECT s.Name FROM Customer_Staging s"
+                    + " WHERE NOT EXISTS (SELECT 1 FROM Customers_Table c WHERE c.Name = s.Name)"
+                    + " AND NOT EXISTS (SELECT 1 FROM Customer_Staging f WHERE f.Name = s.Name AND f.Line_Number < s.Line_Number)"
+                    + " ORDER BY s.Line_Number;");
+        }
+    }
+
+    /**
+     * Finds the staged vehicles that cannot be inserted because the owner does not
+     * exist or the owner already has a vehicle with the same description. Called
+     * after the staged customers are merged so owners from the same load are found
+     * 
+     * @return the line numbers of the rejected vehicles mapped to the reason
+     * @throws SQLException throws if there is a query error or problem with the
+     *                      connection
+     */
+    public Map<Integer, String> getStagedVehicleRejects() throws SQLException {
+        // the rejected line numbers and reasons
+        Map<Integer, String> mapRejects = new TreeMap<Integer, String>();
+        // create a new sql statement using the connection, closed so the staging table
+        // can be dropped
+        try (Statement state = conn.createStatement()) {
+            // vehicles whose owner is not a customer
+            ResultSet res = state.executeQuery("SELECT s.Line_Number, s.Customer_Name FROM Vehicle_Staging s"
+                    + " WHERE NOT EXISTS (SELECT 1 FROM Customers_Table c WHERE c.Name = s.Customer_Name)");
+            while (res.next())
+                mapRejects.put(res.getInt("Line_Number"),
+                        "Customer " + res.getString("Customer_Name") + " not in the database");
+            // vehicles that are already in the database or repeated in the file
+            res = state.executeQuery(
+                    "SELECT s.Line_Number, c.TUID, s.Vehicle_Description FROM Vehicle_Staging s JOIN Customers_Table c ON c.Name = s.Customer_Name"
+                            + " WHERE EXISTS (SELECT 1 FROM Vehicle_Table v WHERE v.Customer_TUID = c.TUID AND v.Vehicle_Description = s.Vehicle_Description)"
+                            + " OR EXISTS (SELECT 1 FROM Vehicle_Staging f WHERE f.Customer_Name = s.Customer_Name"
+                            + " AND f.Vehicle_Description = s.Vehicle_Description AND f.Line_Number < s.Line_Number)");
+            while (res.next())
+                mapRejects.put(res.getInt("Line_Number"),
+                        "Cannot insert new vehicle with the same owner and description, no way to tell them apart Customer_TUID="
+                                + res.getInt("TUID") + ", Vehicle_Description=" + res.getString("Vehicle_Description"));
+        }
+        return mapRejects;
+    }
+
+    /**
+     * Inserts the staged vehicles whose owner exists and that are not already in
+     * the database, keeping the first line of any vehicle that is repeated
+     * 
+     * @return the number of vehicles inserted
+     * @throws SQLException throws if there is a query error or problem with the
+     *                      connection
+     */
+    public int mergeStagedVehicles() throws SQLException {
+        if (DEBUG_OUTPUT)
+            System.out.println("Merge staged vehicles into VEHICLE table");
+        // create a new sql statement using the connection
+        try (Statement state = conn.createStatement()) {
+            // resolve the owners with a join and insert the new vehicles in file order
+            return state.executeUpdate(
+                    "INSERT INTO Vehicle_Table (Customer_TUID,Vehicle_Description) SELECT c.TUID, s.Vehicle_Description"
+                            + " FROM Vehicle_Staging s JOIN Customers_Table c ON c.Name = s.Customer_Name"
+                            + " WHERE NOT EXISTS (SELECT 1 FROM Vehicle_Table v WHERE v.Customer_TUID = c.TUID AND v.Vehicle_Description = s.Vehicle_Description)"
+                            + " AND NOT EXISTS (SELECT 1 FROM Vehicle_Staging f WHERE f.Customer_Name = s.Customer_Name"
+                            + " AND f.Vehicle_Description = s.Vehicle_Description AND f.Line_Number < s.Line_Number)"
+                            + " ORDER BY s.Line_Number;");
+        }
+    }
+
+    /**
+     * Drops the staging tables once a bulk load is finished
+     * 
+     * @throws SQLException throws if there is a query error or problem with the
+     *                      connection
+     */
+    public void dropStagingTables() throws SQLException {
+        // create a new sql statement using the connection
+        Statement state = conn.createStatement();
+        // drop the staging tables
+        state.executeUpdate("DROP TABLE IF EXISTS temp.Customer_Staging;");
+        state.executeUpdate("DROP TABLE IF EXISTS temp.Vehicle_Staging;");
     }
 
     /**
@@ -557,72 +962,1374 @@ public class DB {
     }
 
     /**
-     * Adds a new schedule to the database
+     * Builds the bay versions table if it does not exist. A bay's version goes up
+     * each time an appointment is added to the bay, so a process can tell if
+     * another process booked the bay since it last synced
      * 
-     * @param newSchedule the new schedule to add to the database
      * @throws SQLException throws if there is a query error or problem with the
      *                      connection
      */
-    public void addSchedule(Schedule newSchedule) throws SQLException {
+    private void buildBayVersionsTable() throws SQLException {
         // sql statement
-        PreparedStatement prep;
+        Statement state;
 
         if (DEBUG_OUTPUT)
-            System.out.println("Add a record to SCHEDULE table");
-        // create a new sql template statement using the connection
-        prep = conn.prepareStatement(
-                "INSERT INTO Schedule_Table (Vehicles_TUID,Bays_TUID,Service_TUID,Appointment_Start_Time,Appointment_End_Time) VALUES (?,?,?,?,?);");
-        // insert the vehicle id into the template
-        prep.setInt(1, newSchedule.Vehicles_TUID);
-        // insert the bay id into the template
-        prep.setInt(2, newSchedule.Bays_TUID);
-        // insert the service id into the template
-        prep.setInt(3, newSchedule.Service_TUID);
-        // insert the appointment start time into the template
-        prep.setTimestamp(4, newSchedule.Appointment_Start_Time);
-        // insert the appointment end time into the template
-        prep.setTimestamp(5, newSchedule.Appointment_End_Time);
-        // execute the query
-        prep.execute();
+            System.out.println("Build BAY VERSIONS table");
+        // create a new sql statement using the connection
+        state = conn.createStatement();
+        // execute a sql query to create the bay versions table
+        state.executeUpdate(
+                "CREATE TABLE IF NOT EXISTS Bay_Versions_Table(Bays_TUID INTEGER,Version INTEGER NOT NULL,PRIMARY KEY (Bays_TUID));");
+        // index the vehicle of each appointment for the overlap check of a new
+        // appointment
+        state.executeUpdate("CREATE INDEX IF NOT EXISTS Schedule_Vehicle_Index ON Schedule_Table (Vehicles_TUID);");
+        state.close();
     }
 
     /**
-     * Gets all schedules from the database
+     * Builds the event log table if it does not exist, along with the triggers
+     * that add an event to it each time an appointment is booked or cancelled or a
+     * customer or vehicle is created. The triggers run in the transaction of the
+     * change, so an event is only in the log once the change is committed, and
+     * they fire for every process writing to the database. When the log is added
+     * to an existing database an event is added for each row already there
      * 
-     * @return a array of all schedules in the database
      * @throws SQLException throws if there is a query error or problem with the
      *                      connection
      */
-    public Schedule[] getSchedule() throws SQLException {
-        // sql statement
-        Statement state;
-        // sql result
-        ResultSet res;
-        // get the row count of the schedule table
-        int count = getTableRowCount("Schedule_Table");
-        // index
-        int i = 0;
+    private void buildEventLogTable() throws SQLException {
+        if (DEBUG_OUTPUT)
+            System.out.println("Build EVENT LOG table");
+        // create a new sql statement using the connection
+        try (Statement state = conn.createStatement()) {
+            // whether or not the log is being added
+            boolean blnNewLog;
+            try (ResultSet res = state.executeQuery(
+                    "SELECT name FROM sqlite_master WHERE type='table' AND name='Event_Log_Table'")) {
+                blnNewLog = !res.next();
+            }
+            // execute a sql query to create the event log table
+            state.executeUpdate(
+                    "CREATE TABLE IF NOT EXISTS Event_Log_Table(TUID INTEGER,Event_Type TEXT NOT NULL,Entity_TUID INTEGER NOT NULL,Event_Data TEXT,Event_Time DATETIME NOT NULL,PRIMARY KEY (TUID));");
+            // the triggers adding the events, times are in milliseconds like the
+            // appointment times
+            state.executeUpdate("CREATE TRIGGER IF NOT EXISTS Appointment_Booked_Event AFTER INSERT ON Schedule_Table"
+                    + " BEGIN INSERT INTO Event_Log_Table (Event_Type,Entity_TUID,Event_Data,Event_Time)"
+                    + " VALUES ('APPOINTMENT_BOOKED',NEW.TUID," + APPOINTMENT_JSON.replace("$", "NEW") + ","
+                    + EVENT_TIME + "); END;");
+            state.executeUpdate(
+                    "CREATE TRIGGER IF NOT EXISTS Appointment_Cancelled_Event AFTER DELETE ON Schedule_Table"
+                            + " BEGIN INSERT INTO Event_Log_Table (Event_Type,Entity_TUID,Event_Data,Event_Time)"
+                            + " VALUES ('APPOINTMENT_CANCELLED',OLD.TUID," + APPOINTMENT_JSON.replace("$", "OLD") + ","
+                            + EVENT_TIME + "); END;");
+            state.executeUpdate(
+                    "CREATE TRIGGER IF NOT EXISTS Appointment_Moved_Event AFTER UPDATE OF Bays_TUID,Appointment_Start_Time,Appointment_End_Time ON Schedule_Table"
+                            + " BEGIN INSERT INTO Event_Log_Table (Event_Type,Entity_TUID,Event_Data,Event_Time)"
+                            + " VALUES ('APPOINTMENT_MOVED',NEW.TUID," + APPOINTMENT_JSON.replace("$", "NEW") + ","
+                            + EVENT_TIME + "); END;");
+            state.executeUpdate("CREATE TRIGGER IF NOT EXISTS Customer_Created_Event AFTER INSERT ON Customers_Table"
+                    + " BEGIN INSERT INTO Event_Log_Table (Event_Type,Entity_TUID,Event_Data,Event_Time)"
+                    + " VALUES ('CUSTOMER_CREATED',NEW.TUID," + CUSTOMER_JSON.replace("$", "NEW") + "," + EVENT_TIME
+                    + "); END;");
+            state.executeUpdate("CREATE TRIGGER IF NOT EXISTS Vehicle_Created_Event AFTER INSERT ON Vehicle_Table"
+                    + " BEGIN INSERT INTO Event_Log_Table (Event_Type,Entity_TUID,Event_Data,Event_Time)"
+                    + " VALUES ('VEHICLE_CREATED',NEW.TUID," + VEHICLE_JSON.replace("$", "NEW") + "," + EVENT_TIME
+                    + "); END;");
+            // index the cancelled appointment ids so a new appointment never reuses one
+            state.executeUpdate(
+                    "CREATE INDEX IF NOT EXISTS Event_Type_Index ON Event_Log_Table (Event_Type, Entity_TUID);");
+
+            // add the rows already in the database so a subscriber reading the log from
+            // the start sees them
+            if (blnNewLog) {
+                state.executeUpdate("INSERT INTO Event_Log_Table (Event_Type,Entity_TUID,Event_Data,Event_Time)"
+                        + " SELECT 'CUSTOMER_CREATED',c.TUID," + CUSTOMER_JSON.replace("$", "c") + "," + EVENT_TIME
+                        + " FROM Customers_Table c ORDER BY c.TUID;");
+                state.executeUpdate("INSERT INTO Event_Log_Table (Event_Type,Entity_TUID,Event_Data,Event_Time)"
+                        + " SELECT 'VEHICLE_CREATED',v.TUID," + VEHICLE_JSON.replace("$", "v") + "," + EVENT_TIME
+                        + " FROM Vehicle_Table v ORDER BY v.TUID;");
+                state.executeUpdate("INSERT INTO Event_Log_Table (Event_Type,Entity_TUID,Event_Data,Event_Time)"
+                        + " SELECT 'APPOINTMENT_BOOKED',s.TUID," + APPOINTMENT_JSON.replace("$", "s") + ","
+                        + EVENT_TIME + " FROM Schedule_Table s ORDER BY s.TUID;");
+            }
+        }
+    }
 
-        // create a new sql statement using the database connection
-        state = conn.createStatement();
-        // execute query to get all schedules from the database
-        res = state.executeQuery(
-                "SELECT TUID, Vehicles_TUID, Bays_TUID, Service_TUID, Appointment_Start_Time, Appointment_End_Time FROM Schedule_Table");
+    /**
+     * Gets the events logged after the provided id, oldest first. Reads with a
+     * separate connection so only committed events are returned and the read does
+     * not wait for bookings using the main connection
+     * 
+     * @param lngLastTUID the largest event id already seen, 0 to read from the
+     *                    start of the log
+     * @param intLimit    the most events to return
+     * @return the events after the id
+     * @throws SQLException throws if there is a query error or problem with the
+     *                      connection
+     */
+    public List<BookingEvent> getEventsAfter(long lngLastTUID, int intLimit) throws SQLException {
+        // the newer events
+        List<BookingEvent> lstEvents = new ArrayList<BookingEvent>();
+        synchronized (objReadLock) {
+            try (PreparedStatement prep = getReadConnection().prepareStatement(
+                    "SELECT TUID, Event_Type, Entity_TUID, Event_Data, Event_Time FROM Event_Log_Table WHERE TUID > ? ORDER BY TUID LIMIT ?")) {
+                prep.setLong(1, lngLastTUID);
+                prep.setInt(2, intLimit);
+                try (ResultSet res = prep.executeQuery()) {
+                    while (res.next())
+                        lstEvents.add(new BookingEvent(res.getLong("TUID"),
+                                BookingEvent.Type.valueOf(res.getString("Event_Type")), res.getInt("Entity_TUID"),
+                                res.getString("Event_Data"), new Timestamp(res.getLong("Event_Time"))));
+                }
+            }
+        }
+        return lstEvents;
+    }
 
-        // array for storing the schedules
-        Schedule[] arrSchedule = new Schedule[count];
+    /**
+     * Gets the events of some types logged after the provided id, oldest first,
+     * such as the cancellations and moves a process has not applied to its
+     * schedule yet
+     * 
+     * @param lngLastTUID the largest event id already seen
+     * @param arrTypes    the types of the events
+     * @return the events of the types after the id
+     * @throws SQLException throws if there is a query error or problem with the
+     *                      connection
+     */
+    public List<BookingEvent> getEventsAfter(long lngLastTUID, BookingEvent.Type... arrTypes) throws SQLException {
+        // the newer events
+        List<BookingEvent> lstEvents = new ArrayList<BookingEvent>();
+        // a parameter for each type
+        String strTypes = String.join(",", Collections.nCopies(arrTypes.length, "?"));
+        synchronized (objReadLock) {
+            try (PreparedStatement prep = getReadConnection().prepareStatement(
+                    "SELECT TUID, Event_Type, Entity_TUID, Event_Data, Event_Time FROM Event_Log_Table WHERE TUID > ? AND Event_Type IN ("
+                            + strTypes + ") ORDER BY TUID")) {
+                prep.setLong(1, lngLastTUID);
+                for (int i = 0; i < arrTypes.length; i++)
+                    prep.setString(i + 2, arrTypes[i].name());
+                try (ResultSet res = prep.executeQuery()) {
+                    while (res.next())
+                        lstEvents.add(new BookingEvent(res.getLong("TUID"),
+                                BookingEvent.Type.valueOf(res.getString("Event_Type")), res.getInt("Entity_TUID"),
+                                res.getString("Event_Data"), new Timestamp(res.getLong("Event_Time"))));
+                }
+            }
+        }
+        return lstEvents;
+    }
 
-        // while there is a result left
-        while (res.next()) {
-            // add the current schedule to the array
-            arrSchedule[i] = new Schedule(res.getInt("TUID"), res.getInt("Vehicles_TUID"), res.getInt("Bays_TUID"),
-                    res.getInt("Service_TUID"), res.getTimestamp("Appointment_Start_Time"),
-                    res.getTimestamp("Appointment_End_Time"));
-            // increment the result
-            i++;
+    /**
+     * Gets the id the next new appointment is given, after every appointment in
+     * the table and every cancelled one
+     * 
+     * @return the next appointment id
+     * @throws SQLException throws if there is a query error or problem with the
+     *                      connection
+     */
+    public synchronized int getNextScheduleTUID() throws SQLException {
+        try (Statement state = conn.createStatement();
+                ResultSet res = state.executeQuery("SELECT " + NEXT_SCHEDULE_TUID)) {
+            res.next();
+            return res.getInt(1);
         }
+    }
 
-        // return the array of schedules
-        return arrSchedule;
+    /**
+     * Gets the id of the latest committed event
+     * 
+     * @return the largest event id, 0 if the log is empty
+     * @throws SQLException throws if there is a query error or problem with the
+     *                      connection
+     */
+    public long getLastEventTUID() throws SQLException {
+        synchronized (objReadLock) {
+            try (Statement state = getReadConnection().createStatement();
+                    ResultSet res = state.executeQuery("SELECT IFNULL(MAX(TUID), 0) FROM Event_Log_Table")) {
+                res.next();
+                return res.getLong(1);
+            }
+        }
+    }
+
+    /**
+     * Gets the connection used to read the event log, opening it the first time.
+     * Called while holding the read lock
+     * 
+     * @return the event log connection
+     * @throws SQLException throws if the database cannot be connected to
+     */
+    private Connection getReadConnection() throws SQLException {
+        if (readConn == null)
+            readConn = DriverManager.getConnection("jdbc:sqlite:" + strFileName);
+        return readConn;
+    }
+
+    /**
+     * Gets the version of each bay
+     * 
+     * @return a map of bay id to version, bays without a version are at version 0
+     * @throws SQLException throws if there is a query error or problem with the
+     *                      connection
+     */
+    public Map<Integer, Long> getBayVersions() throws SQLException {
+        // the version of each bay
+        Map<Integer, Long> mapVersions = new TreeMap<Integer, Long>();
+        try (Statement state = conn.createStatement();
+                ResultSet res = state.executeQuery("SELECT Bays_TUID, Version FROM Bay_Versions_Table")) {
+            while (res.next())
+                mapVersions.put(res.getInt("Bays_TUID"), res.getLong("Version"));
+        }
+        return mapVersions;
+    }
+
+    /**
+     * Builds the appointment priority table if it does not exist. Only
+     * appointments booked above the lowest priority class have a row, an
+     * appointment without one is a walk-in
+     * 
+     * @throws SQLException throws if there is a query error or problem with the
+     *                      connection
+     */
+    private void buildPriorityTable() throws SQLException {
+        if (DEBUG_OUTPUT)
+            System.out.println("Build APPOINTMENT PRIORITY table");
+        // create a new sql statement using the connection
+        try (Statement state = conn.createStatement()) {
+            state.executeUpdate(
+                    "CREATE TABLE IF NOT EXISTS Appointment_Priority_Table(Schedule_TUID INTEGER,Priority INTEGER NOT NULL,PRIMARY KEY (Schedule_TUID));");
+        }
+    }
+
+    /**
+     * Gets the priority class of the appointments booked above the lowest one
+     * 
+     * @param intAfterTUID only appointments with a larger id are read
+     * @return the priority class of each appointment by id
+     * @throws SQLException throws if there is a query error or problem with the
+     *                      connection
+     */
+    public Map<Integer, Integer> getSchedulePriorities(int intAfterTUID) throws SQLException {
+        // the priority of each appointment
+        Map<Integer, Integer> mapPriorities = new TreeMap<Integer, Integer>();
+        try (PreparedStatement prep = conn.prepareStatement(
+                "SELECT Schedule_TUID, Priority FROM Appointment_Priority_Table WHERE Schedule_TUID > ?")) {
+            prep.setInt(1, intAfterTUID);
+            try (ResultSet res = prep.executeQuery()) {
+                while (res.next())
+                    mapPriorities.put(res.getInt("Schedule_TUID"), res.getInt("Priority"));
+            }
+        }
+        return mapPriorities;
+    }
+
+    /**
+     * Builds the skill tables if they do not exist. Each skill has a row in the
+     * skill table and its id less one is its bit in a skill mask, so there can be
+     * at most 64 skills. A mechanic has a row for each skill they have and a
+     * service has a row for each skill it requires, a service without any can be
+     * done by every mechanic
+     * 
+     * @throws SQLException throws if there is a query error or problem with the
+     *                      connection
+     */
+    private void buildSkillTables() throws SQLException {
+        if (DEBUG_OUTPUT)
+            System.out.println("Build SKILL tables");
+        // create a new sql statement using the connection
+        try (Statement state = conn.createStatement()) {
+            // execute sql queries to create the skill, mechanic skill, and service skill
+            // tables
+            state.executeUpdate(
+                    "CREATE TABLE IF NOT EXISTS Skills_Table(TUID INTEGER,Skill_Name TEXT NOT NULL UNIQUE,PRIMARY KEY (TUID));");
+            state.executeUpdate(
+                    "CREATE TABLE IF NOT EXISTS Mechanic_Skills_Table(Mechanic_TUID INTEGER NOT NULL,Skills_TUID INTEGER NOT NULL,PRIMARY KEY (Mechanic_TUID,Skills_TUID));");
+            state.executeUpdate(
+                    "CREATE TABLE IF NOT EXISTS Service_Skills_Table(Service_TUID INTEGER NOT NULL,Skills_TUID INTEGER NOT NULL,PRIMARY KEY (Service_TUID,Skills_TUID));");
+        }
+    }
+
+    /**
+     * Gets the skills of each mechanic with at least one
+     * 
+     * @return the skill mask of each mechanic by id
+     * @throws SQLException throws if there is a query error or problem with the
+     *                      connection
+     */
+    public Map<Integer, Long> getMechanicSkills() throws SQLException {
+        return getSkillMasks("SELECT Mechanic_TUID AS TUID, Skills_TUID FROM Mechanic_Skills_Table");
+    }
+
+    /**
+     * Gets the skills required by each service with at least one
+     * 
+     * @return the skill mask of each service by id
+     * @throws SQLException throws if there is a query error or problem with the
+     *                      connection
+     */
+    public Map<Integer, Long> getServiceRequirements() throws SQLException {
+        return getSkillMasks("SELECT Service_TUID AS TUID, Skills_TUID FROM Service_Skills_Table");
+    }
+
+    /**
+     * Reads rows of ids and skill ids into a skill mask for each id
+     * 
+     * @param strQuery the query selecting the ids as TUID and the skill ids
+     * @return the skill mask of each id
+     * @throws SQLException throws if there is a query error or problem with the
+     *                      connection
+     */
+    private Map<Integer, Long> getSkillMasks(String strQuery) throws SQLException {
+        // the skill mask of each id
+        Map<Integer, Long> mapMasks = new TreeMap<Integer, Long>();
+        try (Statement state = conn.createStatement(); ResultSet res = state.executeQuery(strQuery)) {
+            while (res.next())
+                mapMasks.merge(res.getInt("TUID"), 1L << (res.getInt("Skills_TUID") - 1), (a, b) -> a | b);
+        }
+        return mapMasks;
+    }
+
+    /**
+     * Gives a mechanic a skill, adding the skill if it is new
+     * 
+     * @param intMechanicTUID the id of the mechanic
+     * @param strSkill        the name of the skill
+     * @return the mechanic's skill mask after the skill is given
+     * @throws SQLException throws if there is a query error or problem with the
+     *                      connection
+     * @throws IllegalArgumentException throws if the skill is new and the shop
+     *                                  already has the most skills a mask can hold
+     */
+    public synchronized long addMechanicSkill(int intMechanicTUID, String strSkill)
+            throws SQLException, IllegalArgumentException {
+        return addSkillRow("Mechanic_Skills_Table", "Mechanic_TUID", intMechanicTUID, strSkill);
+    }
+
+    /**
+     * Makes a service require a skill, adding the skill if it is new
+     * 
+     * @param intServiceTUID the id of the service
+     * @param strSkill       the name of the skill
+     * @return the service's required skill mask after the skill is added
+     * @throws SQLException throws if there is a query error or problem with the
+     *                      connection
+     * @throws IllegalArgumentException throws if the skill is new and the shop
+     *                                  already has the most skills a mask can hold
+     */
+    public synchronized long addServiceRequirement(int intServiceTUID, String strSkill)
+            throws SQLException, IllegalArgumentException {
+        return addSkillRow("Service_Skills_Table", "Service_TUID", intServiceTUID, strSkill);
+    }
+
+    /**
+     * Adds a skill row for a mechanic or service in one transaction, adding the
+     * skill if it is new
+     * 
+     * @param strTable  the table of the row
+     * @param strColumn the id column of the table
+     * @param intTUID   the id of the mechanic or service
+     * @param strSkill  the name of the skill
+     * @return the skill mask of the mechanic or service after the row is added
+     * @throws SQLException throws if there is a query error or problem with the
+     *                      connection
+     * @throws IllegalArgumentException throws if the skill is new and the shop
+     *                                  already has the most skills a mask can hold
+     */
+    private long addSkillRow(String strTable, String strColumn, int intTUID, String strSkill)
+            throws SQLException, IllegalArgumentException {
+        beginTransaction();
+        try {
+            try (PreparedStatement prep = conn
+                    .prepareStatement("INSERT OR IGNORE INTO Skills_Table (Skill_Name) VALUES (?)")) {
+                prep.setString(1, strSkill);
+                prep.executeUpdate();
+            }
+            // the id of the skill, which must fit in a mask
+            int intSkillTUID;
+            try (PreparedStatement prep = conn.prepareStatement("SELECT TUID FROM Skills_Table WHERE Skill_Name = ?")) {
+                prep.setString(1, strSkill);
+                try (ResultSet res = prep.executeQuery()) {
+                    res.next();
+                    intSkillTUID = res.getInt("TUID");
+                }
+            }
+            if (intSkillTUID > Long.SIZE)
+                throw new IllegalArgumentException("The shop cannot have more than " + Long.SIZE + " skills");
+            try (PreparedStatement prep = conn.prepareStatement(
+                    "INSERT OR IGNORE INTO " + strTable + " (" + strColumn + ",Skills_TUID) VALUES (?,?)")) {
+                prep.setInt(1, intTUID);
+                prep.setInt(2, intSkillTUID);
+                prep.executeUpdate();
+            }
+            // the mask after the row is added
+            long lngMask = 0;
+            try (PreparedStatement prep = conn
+                    .prepareStatement("SELECT Skills_TUID FROM " + strTable + " WHERE " + strColumn + " = ?")) {
+                prep.setInt(1, intTUID);
+                try (ResultSet res = prep.executeQuery()) {
+                    while (res.next())
+                        lngMask |= 1L << (res.getInt("Skills_TUID") - 1);
+                }
+            }
+            commitTransaction();
+            return lngMask;
+        } catch (SQLException | RuntimeException ex) {
+            rollbackTransaction();
+            throw ex;
+        }
+    }
+
+    /**
+     * Builds the retired bays table if it does not exist. A retired bay and its
+     * mechanic stay in their tables so the appointments already worked in the bay
+     * keep their mechanic, but no appointment is booked in the bay again
+     * 
+     * @throws SQLException throws if there is a query error or problem with the
+     *                      connection
+     */
+    private void buildRetiredBaysTable() throws SQLException {
+        if (DEBUG_OUTPUT)
+            System.out.println("Build RETIRED BAYS table");
+        // create a new sql statement using the connection
+        try (Statement state = conn.createStatement()) {
+            state.executeUpdate(
+                    "CREATE TABLE IF NOT EXISTS Retired_Bays_Table(Bays_TUID INTEGER,Retired_Time DATETIME NOT NULL,PRIMARY KEY (Bays_TUID));");
+        }
+    }
+
+    /**
+     * Gets the ids of the retired bays
+     * 
+     * @return the ids of the bays no appointment is booked in
+     * @throws SQLException throws if there is a query error or problem with the
+     *                      connection
+     */
+    public Set<Integer> getRetiredBays() throws SQLException {
+        // the ids of the retired bays
+        Set<Integer> setRetired = new TreeSet<Integer>();
+        try (Statement state = conn.createStatement();
+                ResultSet res = state.executeQuery("SELECT Bays_TUID FROM Retired_Bays_Table")) {
+            while (res.next())
+                setRetired.add(res.getInt("Bays_TUID"));
+        }
+        return setRetired;
+    }
+
+    /**
+     * Adds a mechanic and a new bay for them in one transaction. Bays are never
+     * deleted, so the new bay has a larger id than every other bay
+     * 
+     * @param newMechanic the mechanic to add
+     * @return the new bay, with the id of the new mechanic
+     * @throws SQLException throws if a mechanic already has the name, there is a
+     *                      query error, or a problem with the connection
+     */
+    public synchronized Bay addMechanicWithBay(Mechanic newMechanic) throws SQLException {
+        beginTransaction();
+        try {
+            try (PreparedStatement prep = conn
+                    .prepareStatement("SELECT 1 FROM Mechanics_Table WHERE Mechanic_Name = ?")) {
+                prep.setString(1, newMechanic.strName);
+                try (ResultSet res = prep.executeQuery()) {
+                    if (res.next())
+                        throw new SQLIntegrityConstraintViolationException("Mechanic " + newMechanic.strName + " already exists");
+                }
+            }
+            // the id of the new mechanic
+            int intMechanicTUID;
+            try (PreparedStatement prep = conn.prepareStatement(
+                    "INSERT INTO Mechanics_Table (Mechanic_Name,Hourly_Payrate) VALUES (?,?);",
+                    Statement.RETURN_GENERATED_KEYS)) {
+                prep.setString(1, newMechanic.strName);
+                prep.setDouble(2, newMechanic.intHourly_payrate);
+                prep.execute();
+                try (ResultSet res = prep.getGeneratedKeys()) {
+                    res.next();
+                    intMechanicTUID = res.getInt(1);
+                }
+            }
+            // the id of the new bay
+            int intBayTUID;
+            try (PreparedStatement prep = conn.prepareStatement("INSERT INTO Bays_Table (Mechanic_TUID) VALUES (?);",
+                    Statement.RETURN_GENERATED_KEYS)) {
+                prep.setInt(1, intMechanicTUID);
+                prep.execute();
+                try (ResultSet res = prep.getGeneratedKeys()) {
+                    res.next();
+                    intBayTUID = res.getInt(1);
+                }
+            }
+            commitTransaction();
+            return new Bay(intBayTUID, intMechanicTUID);
+        } catch (SQLException ex) {
+            rollbackTransaction();
+            throw ex;
+        }
+    }
+
+    /**
+     * Retires a bay in one transaction, as long as no appointment in it ends
+     * after a time
+     * 
+     * @param intBayTUID the id of the bay
+     * @param tsNow      the current time, appointments ending by then are done
+     * @throws SQLException throws if the bay still has appointments, is already
+     *                      retired, there is a query error, or a problem with the
+     *                      connection
+     */
+    public synchronized void retireBay(int intBayTUID, Timestamp tsNow) throws SQLException {
+        beginTransaction();
+        try {
+            try (PreparedStatement prep = conn.prepareStatement(
+                    "SELECT COUNT(*) FROM Schedule_Table WHERE Bays_TUID = ? AND Appointment_End_Time > ?")) {
+                prep.setInt(1, intBayTUID);
+                prep.setTimestamp(2, tsNow);
+                try (ResultSet res = prep.executeQuery()) {
+                    res.next();
+                    if (res.getInt(1) > 0)
+                        throw new SQLIntegrityConstraintViolationException("Bay " + intBayTUID + " still has "
+                                + res.getInt(1) + " appointments booked, cancel them first");
+                }
+            }
+            try (PreparedStatement prep = conn
+                    .prepareStatement("INSERT OR IGNORE INTO Retired_Bays_Table (Bays_TUID,Retired_Time) VALUES (?,?)")) {
+                prep.setInt(1, intBayTUID);
+                prep.setTimestamp(2, tsNow);
+                if (prep.executeUpdate() == 0)
+                    throw new SQLIntegrityConstraintViolationException("Bay " + intBayTUID + " is already retired");
+            }
+            // another process booking the bay syncs first and reads the retirement
+            incrementBayVersion(intBayTUID, -1);
+            commitTransaction();
+        } catch (SQLException ex) {
+            rollbackTransaction();
+            throw ex;
+        }
+    }
+
+    /**
+     * Builds the bay lease tables if they do not exist. Each process serving the
+     * shop in partitions has a row in the owner table until its lease expires, and
+     * each bay it owns has a row in the bay lease table with the same expiry and
+     * the earliest open appointment for each service in the bay that the owner last
+     * published. Times are in milliseconds
+     * 
+     * @throws SQLException throws if there is a query error or problem with the
+     *                      connection
+     */
+    private void buildBayLeaseTables() throws SQLException {
+        if (DEBUG_OUTPUT)
+            System.out.println("Build BAY LEASE tables");
+        // create a new sql statement using the connection
+        try (Statement state = conn.createStatement()) {
+            // execute sql queries to create the lease owner and bay lease tables
+            state.executeUpdate(
+                    "CREATE TABLE IF NOT EXISTS Lease_Owner_Table(Owner_ID TEXT,Owner_Address TEXT NOT NULL,Lease_Expires INTEGER NOT NULL,PRIMARY KEY (Owner_ID));");
+            state.executeUpdate(
+                    "CREATE TABLE IF NOT EXISTS Bay_Lease_Table(Bays_TUID INTEGER,Owner_ID TEXT NOT NULL,Lease_Expires INTEGER NOT NULL,Availability TEXT,PRIMARY KEY (Bays_TUID));");
+        }
+    }
+
+    /**
+     * Renews the leases of a process and rebalances the bays between the live
+     * processes in one transaction. Each live process is given an equal share of
+     * the bays rounded up, so a process holding more than its share gives up its
+     * highest bays and a process holding less claims the lowest bays that are free
+     * or whose owner's lease expired
+     * 
+     * @param strOwner_ID      the id of the process
+     * @param strOwner_Address the address requests for the process's bays are
+     *                         sent to
+     * @param lngNow           the current time in milliseconds
+     * @param lngExpires       when the renewed leases expire in milliseconds
+     * @return the ids of the bays the process owns until the leases expire
+     * @throws SQLException throws if there is a query error or problem with the
+     *                      connection
+     */
+    public synchronized Set<Integer> renewBayLeases(String strOwner_ID, String strOwner_Address, long lngNow,
+            long lngExpires) throws SQLException {
+        // the bays owned after the renewal
+        TreeSet<Integer> setOwned = new TreeSet<Integer>();
+        beginTransaction();
+        try {
+            // renew the process's lease and the leases of its bays
+            try (PreparedStatement prep = conn.prepareStatement(
+                    "INSERT OR REPLACE INTO Lease_Owner_Table (Owner_ID,Owner_Address,Lease_Expires) VALUES (?,?,?)")) {
+                prep.setString(1, strOwner_ID);
+                prep.setString(2, strOwner_Address);
+                prep.setLong(3, lngExpires);
+                prep.executeUpdate();
+            }
+            try (PreparedStatement prep = conn
+                    .prepareStatement("UPDATE Bay_Lease_Table SET Lease_Expires=? WHERE Owner_ID=?")) {
+                prep.setLong(1, lngExpires);
+                prep.setString(2, strOwner_ID);
+                prep.executeUpdate();
+            }
+            // forget the processes that stopped renewing
+            try (PreparedStatement prep = conn
+                    .prepareStatement("DELETE FROM Lease_Owner_Table WHERE Lease_Expires <= ?")) {
+                prep.setLong(1, lngNow);
+                prep.executeUpdate();
+            }
+
+            // each live process's share of the bays
+            final int SHARE = (int) Math.ceil(
+                    (double) getTableRowCount("Bays_Table") / getTableRowCount("Lease_Owner_Table"));
+            try (PreparedStatement prep = conn.prepareStatement(
+                    "SELECT Bays_TUID FROM Bay_Lease_Table WHERE Owner_ID=? ORDER BY Bays_TUID")) {
+                prep.setString(1, strOwner_ID);
+                try (ResultSet res = prep.executeQuery()) {
+                    while (res.next())
+                        setOwned.add(res.getInt("Bays_TUID"));
+                }
+            }
+
+            if (setOwned.size() > SHARE) {
+                // give up the highest bays over the share
+                try (PreparedStatement prep = conn
+                        .prepareStatement("DELETE FROM Bay_Lease_Table WHERE Bays_TUID=? AND Owner_ID=?")) {
+                    while (setOwned.size() > SHARE) {
+                        prep.setInt(1, setOwned.pollLast());
+                        prep.setString(2, strOwner_ID);
+                        prep.executeUpdate();
+                    }
+                }
+            } else if (setOwned.size() < SHARE) {
+                // claim the lowest bays without a live owner
+                List<Integer> lstClaimed = new ArrayList<Integer>();
+                try (PreparedStatement prep = conn.prepareStatement(
+                        "SELECT TUID FROM Bays_Table b WHERE NOT EXISTS (SELECT 1 FROM Bay_Lease_Table l WHERE l.Bays_TUID=b.TUID AND l.Lease_Expires > ?) ORDER BY TUID LIMIT ?")) {
+                    prep.setLong(1, lngNow);
+                    prep.setInt(2, SHARE - setOwned.size());
+                    try (ResultSet res = prep.executeQuery()) {
+                        while (res.next())
+                            lstClaimed.add(res.getInt("TUID"));
+                    }
+                }
+                try (PreparedStatement prep = conn.prepareStatement(
+                        "INSERT OR REPLACE INTO Bay_Lease_Table (Bays_TUID,Owner_ID,Lease_Expires,Availability) VALUES (?,?,?,NULL)")) {
+                    for (int intBayTUID : lstClaimed) {
+                        prep.setInt(1, intBayTUID);
+                        prep.setString(2, strOwner_ID);
+                        prep.setLong(3, lngExpires);
+                        prep.addBatch();
+                    }
+                    prep.executeBatch();
+                }
+                setOwned.addAll(lstClaimed);
+            }
+            commitTransaction();
+        } catch (SQLException ex) {
+            rollbackTransaction();
+            throw ex;
+        }
+        return setOwned;
+    }
+
+    /**
+     * Publishes the earliest open appointments in the bays a process owns, bays
+     * the process no longer owns are skipped
+     * 
+     * @param strOwner_ID     the id of the process
+     * @param mapAvailability the availability of each bay by bay id, see
+     *                        BayLeaseManager.Lease
+     * @throws SQLException throws if there is a query error or problem with the
+     *                      connection
+     */
+    public synchronized void publishBayAvailability(String strOwner_ID, Map<Integer, String> mapAvailability)
+            throws SQLException {
+        beginTransaction();
+        try (PreparedStatement prep = conn
+                .prepareStatement("UPDATE Bay_Lease_Table SET Availability=? WHERE Bays_TUID=? AND Owner_ID=?")) {
+            for (Map.Entry<Integer, String> currBay : mapAvailability.entrySet()) {
+                prep.setString(1, currBay.getValue());
+                prep.setInt(2, currBay.getKey());
+                prep.setString(3, strOwner_ID);
+                prep.addBatch();
+            }
+            prep.executeBatch();
+            commitTransaction();
+        } catch (SQLException ex) {
+            rollbackTransaction();
+            throw ex;
+        }
+    }
+
+    /**
+     * Gives up every lease of a process so the other processes can claim its bays
+     * without waiting for the leases to expire
+     * 
+     * @param strOwner_ID the id of the process
+     * @throws SQLException throws if there is a query error or problem with the
+     *                      connection
+     */
+    public synchronized void releaseBayLeases(String strOwner_ID) throws SQLException {
+        beginTransaction();
+        try (PreparedStatement prepBays = conn.prepareStatement("DELETE FROM Bay_Lease_Table WHERE Owner_ID=?");
+                PreparedStatement prepOwner = conn.prepareStatement("DELETE FROM Lease_Owner_Table WHERE Owner_ID=?")) {
+            prepBays.setString(1, strOwner_ID);
+            prepBays.executeUpdate();
+            prepOwner.setString(1, strOwner_ID);
+            prepOwner.executeUpdate();
+            commitTransaction();
+        } catch (SQLException ex) {
+            rollbackTransaction();
+            throw ex;
+        }
+    }
+
+    /**
+     * Gets the bay leases that have not expired along with the address of each
+     * owner. Reads with the separate read connection so routing a request does not
+     * wait for bookings using the main connection
+     * 
+     * @param lngNow the current time in milliseconds
+     * @return the live leases sorted by bay
+     * @throws SQLException throws if there is a query error or problem with the
+     *                      connection
+     */
+    public List<BayLeaseManager.Lease> getBayLeases(long lngNow) throws SQLException {
+        // the live leases
+        List<BayLeaseManager.Lease> lstLeases = new ArrayList<BayLeaseManager.Lease>();
+        synchronized (objReadLock) {
+            try (PreparedStatement prep = getReadConnection().prepareStatement(
+                    "SELECT l.Bays_TUID, l.Owner_ID, o.Owner_Address, l.Lease_Expires, l.Availability FROM Bay_Lease_Table l JOIN Lease_Owner_Table o ON o.Owner_ID = l.Owner_ID WHERE l.Lease_Expires > ? ORDER BY l.Bays_TUID")) {
+                prep.setLong(1, lngNow);
+                try (ResultSet res = prep.executeQuery()) {
+                    while (res.next())
+                        lstLeases.add(new BayLeaseManager.Lease(res.getInt("Bays_TUID"), res.getString("Owner_ID"),
+                                res.getString("Owner_Address"), res.getLong("Lease_Expires"),
+                                res.getString("Availability")));
+                }
+            }
+        }
+        return lstLeases;
+    }
+
+    /**
+     * Adds a new schedule to the database
+     * 
+     * @param newSchedule the new schedule to add to the database
+     * @return the id given to the new schedule
+     * @throws SQLException throws if there is a query error or problem with the
+     *                      connection
+     */
+    public int addSchedule(Schedule newSchedule) throws SQLException {
+        // add the schedule whatever the version of the bay
+        return addScheduleIfCurrent(newSchedule, -1);
+    }
+
+    /**
+     * Adds a new schedule to the database if no other appointment was added to the
+     * bay since the caller read the bay's version, and the vehicle is not booked at
+     * the same time. The bay's version is incremented in the same transaction as
+     * the insert. Synchronized with the other inserts so a customer or vehicle
+     * added by another thread is not caught in this transaction. Inside an open
+     * transaction, such as an import batch, the insert is undone with a savepoint
+     * and is only saved once the outer transaction commits. Whoever rolls the
+     * outer transaction back has the booking engine resync, see
+     * BookingEngine.resyncAfterRollback
+     * 
+     * @param newSchedule   the new schedule to add to the database
+     * @param lngBayVersion the version of the bay the caller last synced, -1 to
+     *                      skip the version check
+     * @return the id given to the new schedule, -1 if the bay's version changed or
+     *         the vehicle is already booked at that time
+     * @throws SQLException throws if there is a query error or problem with the
+     *                      connection
+     */
+    public synchronized int addScheduleIfCurrent(Schedule newSchedule, long lngBayVersion) throws SQLException {
+        // whether or not this call has to start and end its own transaction, if an
+        // import batch already has one open the insert is undone with a savepoint
+        boolean blnOwnTransaction = conn.getAutoCommit();
+        Savepoint savepoint = null;
+        if (blnOwnTransaction)
+            beginTransaction();
+        else
+            savepoint = conn.setSavepoint();
+        try {
+            if (isVehicleBooked(newSchedule) || !incrementBayVersion(newSchedule.Bays_TUID, lngBayVersion)) {
+                undoGroup(blnOwnTransaction, savepoint);
+                return -1;
+            }
+            // add the schedule
+            int TUID = insertSchedule(newSchedule);
+            if (blnOwnTransaction)
+                commitTransaction();
+            else
+                conn.releaseSavepoint(savepoint);
+            return TUID;
+        } catch (SQLException ex) {
+            undoGroup(blnOwnTransaction, savepoint);
+            throw ex;
+        }
+    }
+
+    /**
+     * Adds a group of new schedules to the database in a single transaction, so
+     * the group pays for one commit. Each schedule is only added if its bay is
+     * still at the expected version and its vehicle is not booked at that time,
+     * otherwise none of them are added
+     * 
+     * @param arrNewSchedules the new schedules to add to the database
+     * @param arrBayVersions  the version each schedule's bay is expected to be at
+     *                        when the schedule is added, -1 to skip the check
+     * @return the ids given to the new schedules, null if any of them conflicted
+     * @throws SQLException throws if there is a query error or problem with the
+     *                      connection, in which case none are added
+     */
+    public synchronized int[] addSchedulesIfCurrent(Schedule[] arrNewSchedules, long[] arrBayVersions)
+            throws SQLException {
+        // whether or not this call has to start and end its own transaction, if one is
+        // already open the group is undone with a savepoint
+        boolean blnOwnTransaction = conn.getAutoCommit();
+        Savepoint savepoint = null;
+        if (blnOwnTransaction)
+            beginTransaction();
+        else
+            savepoint = conn.setSavepoint();
+        try {
+            // the ids of the new schedules
+            int[] arrTUIDs = new int[arrNewSchedules.length];
+            for (int i = 0; i < arrNewSchedules.length; i++) {
+                if (isVehicleBooked(arrNewSchedules[i])
+                        || !incrementBayVersion(arrNewSchedules[i].Bays_TUID, arrBayVersions[i])) {
+                    undoGroup(blnOwnTransaction, savepoint);
+                    return null;
+                }
+                arrTUIDs[i] = insertSchedule(arrNewSchedules[i]);
+            }
+            if (blnOwnTransaction)
+                commitTransaction();
+            else
+                conn.releaseSavepoint(savepoint);
+            return arrTUIDs;
+        } catch (SQLException ex) {
+            undoGroup(blnOwnTransaction, savepoint);
+            throw ex;
+        }
+    }
+
+    /**
+     * Adds schedules that were already given ids, such as bookings saved behind
+     * the booking path. Ids already in the database are skipped, so the same
+     * schedules can be added again after a crash. Each added schedule increments
+     * its bay's version so other processes see it
+     * 
+     * @param arrNewSchedules the schedules with their ids
+     * @return the number of schedules added
+     * @throws SQLException throws if there is a query error or problem with the
+     *                      connection, in which case none are added
+     */
+    public synchronized int addSchedulesWithIds(Schedule[] arrNewSchedules) throws SQLException {
+        // whether or not this call has to start and end its own transaction
+        boolean blnOwnTransaction = conn.getAutoCommit();
+        if (blnOwnTransaction)
+            beginTransaction();
+        try {
+            // the number of schedules added
+            int intAdded = 0;
+            try (PreparedStatement prep = conn.prepareStatement(
+                    "INSERT OR IGNORE INTO Schedule_Table (TUID,Vehicles_TUID,Bays_TUID,Service_TUID,Appointment_Start_Time,Appointment_End_Time) VALUES (?,?,?,?,?,?);")) {
+                for (Schedule currSchedule : arrNewSchedules) {
+                    prep.setInt(1, currSchedule.getTUID());
+                    prep.setInt(2, currSchedule.Vehicles_TUID);
+                    prep.setInt(3, currSchedule.Bays_TUID);
+                    prep.setInt(4, currSchedule.Service_TUID);
+                    prep.setTimestamp(5, currSchedule.Appointment_Start_Time);
+                    prep.setTimestamp(6, currSchedule.Appointment_End_Time);
+                    if (prep.executeUpdate() == 1) {
+                        intAdded++;
+                        incrementBayVersion(currSchedule.Bays_TUID, -1);
+                    }
+                }
+            }
+            if (blnOwnTransaction)
+                commitTransaction();
+            return intAdded;
+        } catch (SQLException ex) {
+            if (blnOwnTransaction)
+                rollbackTransaction();
+            throw ex;
+        }
+    }
+
+    /**
+     * Undoes one insert or a group of inserts
+     * 
+     * @param blnOwnTransaction whether or not the inserts have their own
+     *                          transaction
+     * @param savepoint         the savepoint before the inserts if they do not
+     * @throws SQLException throws if there is a problem with the connection
+     */
+    private void undoGroup(boolean blnOwnTransaction, Savepoint savepoint) throws SQLException {
+        if (blnOwnTransaction) {
+            rollbackTransaction();
+        } else {
+            conn.rollback(savepoint);
+            conn.releaseSavepoint(savepoint);
+        }
+    }
+
+    /**
+     * Increments the version of a bay if it still matches the expected version
+     * 
+     * @param intBayTUID         the id of the bay
+     * @param lngExpectedVersion the version the bay is expected to be at, -1 to
+     *                           increment it regardless
+     * @return true if the version was incremented
+     * @throws SQLException throws if there is a query error or problem with the
+     *                      connection
+     */
+    private boolean incrementBayVersion(int intBayTUID, long lngExpectedVersion) throws SQLException {
+        // give the bay a version if it does not have one
+        try (PreparedStatement prep = conn
+                .prepareStatement("INSERT OR IGNORE INTO Bay_Versions_Table (Bays_TUID,Version) VALUES (?,0);")) {
+            prep.setInt(1, intBayTUID);
+            prep.execute();
+        }
+        // increment the version, matching no row if another process changed it
+        try (PreparedStatement prep = conn.prepareStatement(
+                "UPDATE Bay_Versions_Table SET Version = Version + 1 WHERE Bays_TUID = ? AND (? < 0 OR Version = ?);")) {
+            prep.setInt(1, intBayTUID);
+            prep.setLong(2, lngExpectedVersion);
+            prep.setLong(3, lngExpectedVersion);
+            return prep.executeUpdate() == 1;
+        }
+    }
+
+    /**
+     * Checks if the vehicle of a new schedule already has an appointment at the
+     * same time
+     * 
+     * @param newSchedule the new schedule
+     * @return true if the vehicle is already booked at that time
+     * @throws SQLException throws if there is a query error or problem with the
+     *                      connection
+     */
+    private boolean isVehicleBooked(Schedule newSchedule) throws SQLException {
+        try (PreparedStatement prep = conn.prepareStatement(
+                "SELECT 1 FROM Schedule_Table WHERE Vehicles_TUID = ? AND Appointment_Start_Time < ? AND Appointment_End_Time > ? LIMIT 1;")) {
+            prep.setInt(1, newSchedule.Vehicles_TUID);
+            prep.setTimestamp(2, newSchedule.Appointment_End_Time);
+            prep.setTimestamp(3, newSchedule.Appointment_Start_Time);
+            try (ResultSet res = prep.executeQuery()) {
+                return res.next();
+            }
+        }
+    }
+
+    /**
+     * Inserts a schedule into the schedule table
+     * 
+     * @param newSchedule the new schedule to add to the database
+     * @return the id given to the new schedule
+     * @throws SQLException throws if there is a query error or problem with the
+     *                      connection
+     */
+    private int insertSchedule(Schedule newSchedule) throws SQLException {
+        // sql statement
+        PreparedStatement prep;
+        // sql result
+        ResultSet res;
+
+        if (DEBUG_OUTPUT)
+            System.out.println("Add a record to SCHEDULE table");
+        // create a new sql template statement using the connection
+        prep = conn.prepareStatement(
+                "INSERT INTO Schedule_Table (TUID,Vehicles_TUID,Bays_TUID,Service_TUID,Appointment_Start_Time,Appointment_End_Time) VALUES ("
+                        + NEXT_SCHEDULE_TUID + ",?,?,?,?,?);",
+                Statement.RETURN_GENERATED_KEYS);
+        // insert the vehicle id into the template
+        prep.setInt(1, newSchedule.Vehicles_TUID);
+        // insert the bay id into the template
+        prep.setInt(2, newSchedule.Bays_TUID);
+        // insert the service id into the template
+        prep.setInt(3, newSchedule.Service_TUID);
+        // insert the appointment start time into the template
+        prep.setTimestamp(4, newSchedule.Appointment_Start_Time);
+        // insert the appointment end time into the template
+        prep.setTimestamp(5, newSchedule.Appointment_End_Time);
+        // execute the query
+        prep.execute();
+
+        // get the id of the new schedule
+        res = prep.getGeneratedKeys();
+        res.next();
+        int TUID = res.getInt(1);
+        // close the statement so it does not hold the table open
+        prep.close();
+        // return the id of the new schedule
+        return TUID;
+    }
+
+    /**
+     * Deletes a schedule from the database and increments its bay's version in
+     * the same transaction, so other processes sync before booking the bay again.
+     * The event log trigger logs the cancellation
+     * 
+     * @param intTUID the id of the schedule
+     * @return the deleted schedule, null if there is no schedule with the id
+     * @throws SQLException throws if there is a query error or problem with the
+     *                      connection
+     */
+    public synchronized Schedule deleteSchedule(int intTUID) throws SQLException {
+        // whether or not this call has to start and end its own transaction
+        boolean blnOwnTransaction = conn.getAutoCommit();
+        if (blnOwnTransaction)
+            beginTransaction();
+        try {
+            // the schedule being deleted
+            Schedule oldSchedule = null;
+            try (PreparedStatement prep = conn.prepareStatement(
+                    "SELECT TUID, Vehicles_TUID, Bays_TUID, Service_TUID, Appointment_Start_Time, Appointment_End_Time FROM Schedule_Table WHERE TUID = ?")) {
+                prep.setInt(1, intTUID);
+                try (ResultSet res = prep.executeQuery()) {
+                    if (res.next())
+                        oldSchedule = new Schedule(res.getInt("TUID"), res.getInt("Vehicles_TUID"),
+                                res.getInt("Bays_TUID"), res.getInt("Service_TUID"),
+                                res.getTimestamp("Appointment_Start_Time"), res.getTimestamp("Appointment_End_Time"));
+                }
+            }
+            if (oldSchedule != null) {
+                try (PreparedStatement prep = conn.prepareStatement("DELETE FROM Schedule_Table WHERE TUID = ?")) {
+                    prep.setInt(1, intTUID);
+                    prep.executeUpdate();
+                }
+                try (PreparedStatement prep = conn
+                        .prepareStatement("DELETE FROM Appointment_Priority_Table WHERE Schedule_TUID = ?")) {
+                    prep.setInt(1, intTUID);
+                    prep.executeUpdate();
+                }
+                incrementBayVersion(oldSchedule.Bays_TUID, -1);
+            }
+            if (blnOwnTransaction)
+                commitTransaction();
+            return oldSchedule;
+        } catch (SQLException ex) {
+            if (blnOwnTransaction)
+                rollbackTransaction();
+            throw ex;
+        }
+    }
+
+    /**
+     * Moves schedules to new bays and times in a single transaction, such as the
+     * appointments moved into a cancelled appointment's slots. Each bay a
+     * schedule leaves or joins is incremented once, and only if it is still at
+     * the expected version. A schedule is only moved if it still exists and its
+     * vehicle is not booked at the new time, otherwise none of them are moved.
+     * The event log trigger logs each move
+     * 
+     * @param arrMovedSchedules the schedules with their ids and new bays and times
+     * @param mapBayVersions    the version each bay a schedule leaves or joins is
+     *                          expected to be at by bay id
+     * @return true if the schedules were moved, false if a bay's version changed,
+     *         a schedule was deleted, or a vehicle was booked at a new time
+     * @throws SQLException throws if there is a query error or problem with the
+     *                      connection, in which case none are moved
+     */
+    public synchronized boolean moveSchedules(Schedule[] arrMovedSchedules, Map<Integer, Long> mapBayVersions)
+            throws SQLException {
+        // whether or not this call has to start and end its own transaction
+        boolean blnOwnTransaction = conn.getAutoCommit();
+        if (blnOwnTransaction)
+            beginTransaction();
+        try {
+            // the version checks come before any change
+            for (Map.Entry<Integer, Long> currVersion : mapBayVersions.entrySet()) {
+                if (!incrementBayVersion(currVersion.getKey(), currVersion.getValue())) {
+                    if (blnOwnTransaction)
+                        rollbackTransaction();
+                    return false;
+                }
+            }
+            try (PreparedStatement prepBooked = conn.prepareStatement(
+                    "SELECT 1 FROM Schedule_Table WHERE Vehicles_TUID = ? AND Appointment_Start_Time < ? AND Appointment_End_Time > ? AND TUID <> ? LIMIT 1;");
+                    PreparedStatement prepMove = conn.prepareStatement(
+                            "UPDATE Schedule_Table SET Bays_TUID = ?, Appointment_Start_Time = ?, Appointment_End_Time = ? WHERE TUID = ?;")) {
+                for (Schedule currSchedule : arrMovedSchedules) {
+                    // the vehicle's other appointments, moved ones included, may not overlap
+                    prepBooked.setInt(1, currSchedule.Vehicles_TUID);
+                    prepBooked.setTimestamp(2, currSchedule.Appointment_End_Time);
+                    prepBooked.setTimestamp(3, currSchedule.Appointment_Start_Time);
+                    prepBooked.setInt(4, currSchedule.getTUID());
+                    boolean blnBooked;
+                    try (ResultSet res = prepBooked.executeQuery()) {
+                        blnBooked = res.next();
+                    }
+                    prepMove.setInt(1, currSchedule.Bays_TUID);
+                    prepMove.setTimestamp(2, currSchedule.Appointment_Start_Time);
+                    prepMove.setTimestamp(3, currSchedule.Appointment_End_Time);
+                    prepMove.setInt(4, currSchedule.getTUID());
+                    if (blnBooked || prepMove.executeUpdate() != 1) {
+                        if (blnOwnTransaction)
+                            rollbackTransaction();
+                        return false;
+                    }
+                }
+            }
+            if (blnOwnTransaction)
+                commitTransaction();
+            return true;
+        } catch (SQLException ex) {
+            if (blnOwnTransaction)
+                rollbackTransaction();
+            throw ex;
+        }
+    }
+
+    /**
+     * Moves several schedules at once, such as a diff from the offline optimizer.
+     * Every schedule must still be where it was when the diff was made, and once
+     * all of them are moved no bay or vehicle may be booked twice at the same
+     * time, otherwise nothing is moved. The version of every bay involved is
+     * incremented so other processes sync before booking them
+     * 
+     * @param arrBefore the schedules where the diff expects them
+     * @param arrAfter  the same schedules in the same order at their new bays and
+     *                  times
+     * @return true if every schedule was moved, false if any had changed or the
+     *         moves conflict
+     * @throws SQLException throws if there is a query error or problem with the
+     *                      connection
+     */
+    public synchronized boolean applyScheduleDiff(Schedule[] arrBefore, Schedule[] arrAfter) throws SQLException {
+        beginTransaction();
+        try {
+            if (!moveIfUnchanged(arrBefore, arrAfter)) {
+                rollbackTransaction();
+                return false;
+            }
+            commitTransaction();
+            return true;
+        } catch (SQLException ex) {
+            rollbackTransaction();
+            throw ex;
+        }
+    }
+
+    /**
+     * Adds a new schedule with a priority class, moving the schedules it
+     * displaced in the same transaction. The moves are made first, each only if
+     * its schedule is still where the caller last saw it, then neither the moved
+     * schedules nor the new one may share a bay or vehicle with another schedule
+     * at the same time, otherwise nothing is saved. The version of every bay
+     * involved is incremented so other processes sync before booking them
+     * 
+     * @param newSchedule the new schedule to add to the database
+     * @param intPriority the priority class of the new schedule, 0 for the
+     *                    lowest, which is not saved
+     * @param arrBefore   the displaced schedules where the caller last saw them
+     * @param arrAfter    the same schedules in the same order at their new bays
+     *                    and times
+     * @return the id given to the new schedule, -1 if a displaced schedule had
+     *         changed or a bay or vehicle is booked twice
+     * @throws SQLException throws if there is a query error or problem with the
+     *                      connection, in which case nothing is saved
+     */
+    public synchronized int addScheduleDisplacing(Schedule newSchedule, int intPriority, Schedule[] arrBefore,
+            Schedule[] arrAfter) throws SQLException {
+        beginTransaction();
+        try {
+            if (!moveIfUnchanged(arrBefore, arrAfter) || isVehicleBooked(newSchedule)) {
+                rollbackTransaction();
+                return -1;
+            }
+            // the slots of the new schedule are open in its bay
+            try (PreparedStatement prep = conn.prepareStatement(
+                    "SELECT 1 FROM Schedule_Table WHERE Bays_TUID = ? AND Appointment_Start_Time < ? AND Appointment_End_Time > ? LIMIT 1;")) {
+                prep.setInt(1, newSchedule.Bays_TUID);
+                prep.setTimestamp(2, newSchedule.Appointment_End_Time);
+                prep.setTimestamp(3, newSchedule.Appointment_Start_Time);
+                try (ResultSet res = prep.executeQuery()) {
+                    if (res.next()) {
+                        rollbackTransaction();
+                        return -1;
+                    }
+                }
+            }
+            incrementBayVersion(newSchedule.Bays_TUID, -1);
+            int TUID = insertSchedule(newSchedule);
+            if (intPriority > 0) {
+                try (PreparedStatement prep = conn.prepareStatement(
+                        "INSERT INTO Appointment_Priority_Table (Schedule_TUID,Priority) VALUES (?,?);")) {
+                    prep.setInt(1, TUID);
+                    prep.setInt(2, intPriority);
+                    prep.execute();
+                }
+            }
+            commitTransaction();
+            return TUID;
+        } catch (SQLException ex) {
+            rollbackTransaction();
+            throw ex;
+        }
+    }
+
+    /**
+     * Moves schedules that are still where the caller last saw them, then checks
+     * that none of the moved schedules shares a bay or vehicle with another at the
+     * same time. Increments the version of every bay involved. Called inside a
+     * transaction, which the caller rolls back if this fails
+     * 
+     * @param arrBefore the schedules where the caller last saw them
+     * @param arrAfter  the same schedules in the same order at their new bays and
+     *                  times
+     * @return true if every schedule was moved, false if any had changed or the
+     *         moves conflict
+     * @throws SQLException throws if there is a query error or problem with the
+     *                      connection
+     */
+    private boolean moveIfUnchanged(Schedule[] arrBefore, Schedule[] arrAfter) throws SQLException {
+        // the bays the schedules leave or join
+        Set<Integer> setBays = new TreeSet<Integer>();
+        for (int i = 0; i < arrBefore.length; i++) {
+            setBays.add(arrBefore[i].Bays_TUID);
+            setBays.add(arrAfter[i].Bays_TUID);
+        }
+        for (int intBayTUID : setBays)
+            incrementBayVersion(intBayTUID, -1);
+        try (PreparedStatement prepMove = conn.prepareStatement(
+                "UPDATE Schedule_Table SET Bays_TUID = ?, Appointment_Start_Time = ?, Appointment_End_Time = ? WHERE TUID = ? AND Bays_TUID = ? AND Appointment_Start_Time = ? AND Appointment_End_Time = ?;")) {
+            for (int i = 0; i < arrBefore.length; i++) {
+                prepMove.setInt(1, arrAfter[i].Bays_TUID);
+                prepMove.setTimestamp(2, arrAfter[i].Appointment_Start_Time);
+                prepMove.setTimestamp(3, arrAfter[i].Appointment_End_Time);
+                prepMove.setInt(4, arrBefore[i].getTUID());
+                prepMove.setInt(5, arrBefore[i].Bays_TUID);
+                prepMove.setTimestamp(6, arrBefore[i].Appointment_Start_Time);
+                prepMove.setTimestamp(7, arrBefore[i].Appointment_End_Time);
+                // the schedule was cancelled or moved since the caller saw it
+                if (prepMove.executeUpdate() != 1)
+                    return false;
+            }
+        }
+        // the checks run after every move so schedules may trade places
+        try (PreparedStatement prepBooked = conn.prepareStatement(
+                "SELECT 1 FROM Schedule_Table WHERE (Bays_TUID = ? OR Vehicles_TUID = ?) AND Appointment_Start_Time < ? AND Appointment_End_Time > ? AND TUID <> ? LIMIT 1;")) {
+            for (Schedule currSchedule : arrAfter) {
+                prepBooked.setInt(1, currSchedule.Bays_TUID);
+                prepBooked.setInt(2, currSchedule.Vehicles_TUID);
+                prepBooked.setTimestamp(3, currSchedule.Appointment_End_Time);
+                prepBooked.setTimestamp(4, currSchedule.Appointment_Start_Time);
+                prepBooked.setInt(5, currSchedule.getTUID());
+                try (ResultSet res = prepBooked.executeQuery()) {
+                    if (res.next())
+                        return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets a schedule by its id
+     * 
+     * @param intTUID the id of the schedule
+     * @return the schedule, null if there is no schedule with the id
+     * @throws SQLException throws if there is a query error or problem with the
+     *                      connection
+     */
+    public Schedule getScheduleByTUID(int intTUID) throws SQLException {
+        try (PreparedStatement prep = conn.prepareStatement(
+                "SELECT TUID, Vehicles_TUID, Bays_TUID, Service_TUID, Appointment_Start_Time, Appointment_End_Time FROM Schedule_Table WHERE TUID = ?")) {
+            prep.setInt(1, intTUID);
+            try (ResultSet res = prep.executeQuery()) {
+                if (!res.next())
+                    return null;
+                return new Schedule(res.getInt("TUID"), res.getInt("Vehicles_TUID"), res.getInt("Bays_TUID"),
+                        res.getInt("Service_TUID"), res.getTimestamp("Appointment_Start_Time"),
+                        res.getTimestamp("Appointment_End_Time"));
+            }
+        }
+    }
+
+    /**
+     * Gets all schedules from the database
+     * 
+     * @return a array of all schedules in the database
+     * @throws SQLException throws if there is a query error or problem with the
+     *                      connection
+     */
+    public Schedule[] getSchedule() throws SQLException {
+        // sql statement
+        Statement state;
+        // sql result
+        ResultSet res;
+
+        // create a new sql statement using the database connection
+        state = conn.createStatement();
+        // execute query to get all schedules from the database
+        res = state.executeQuery(
+                "SELECT TUID, Vehicles_TUID, Bays_TUID, Service_TUID, Appointment_Start_Time, Appointment_End_Time FROM Schedule_Table");
+
+        // a list to store the schedules in, another process may book or cancel
+        // appointments so the row count is not known ahead of time
+        List<Schedule> lstSchedules = new ArrayList<Schedule>();
+
+        // while there is a result left
+        while (res.next()) {
+            // add the current schedule to the list
+            lstSchedules.add(new Schedule(res.getInt("TUID"), res.getInt("Vehicles_TUID"), res.getInt("Bays_TUID"),
+                    res.getInt("Service_TUID"), res.getTimestamp("Appointment_Start_Time"),
+                    res.getTimestamp("Appointment_End_Time")));
+        }
+        // close the statement so it does not hold the table open
+        state.close();
+
+        // return the array of schedules
+        return lstSchedules.toArray(new Schedule[0]);
+    }
+
+    /**
+     * Gets the schedules added after the provided id, used to sync with
+     * appointments booked by other processes
+     * 
+     * @param intLastTUID the largest schedule id already seen
+     * @return a array of the newer schedules sorted by id
+     * @throws SQLException throws if there is a query error or problem with the
+     *                      connection
+     */
+    public Schedule[] getSchedulesAfter(int intLastTUID) throws SQLException {
+        // the newer schedules
+        List<Schedule> lstSchedules = new ArrayList<Schedule>();
+        try (PreparedStatement prep = conn.prepareStatement(
+                "SELECT TUID, Vehicles_TUID, Bays_TUID, Service_TUID, Appointment_Start_Time, Appointment_End_Time FROM Schedule_Table WHERE TUID > ? ORDER BY TUID")) {
+            prep.setInt(1, intLastTUID);
+            try (ResultSet res = prep.executeQuery()) {
+                while (res.next())
+                    lstSchedules.add(new Schedule(res.getInt("TUID"), res.getInt("Vehicles_TUID"),
+                            res.getInt("Bays_TUID"), res.getInt("Service_TUID"),
+                            res.getTimestamp("Appointment_Start_Time"), res.getTimestamp("Appointment_End_Time")));
+            }
+        }
+        return lstSchedules.toArray(new Schedule[0]);
+    }
+
+    /**
+     * Gets the schedules of a bay sorted by start time
+     * 
+     * @param intBayTUID the id of the bay
+     * @return a array of the bay's schedules
+     * @throws SQLException throws if there is a query error or problem with the
+     *                      connection
+     */
+    public Schedule[] getBaySchedule(int intBayTUID) throws SQLException {
+        // the bay's schedules
+        List<Schedule> lstSchedules = new ArrayList<Schedule>();
+        try (PreparedStatement prep = conn.prepareStatement(
+                "SELECT TUID, Vehicles_TUID, Bays_TUID, Service_TUID, Appointment_Start_Time, Appointment_End_Time FROM Schedule_Table WHERE Bays_TUID = ? ORDER BY Appointment_Start_Time")) {
+            prep.setInt(1, intBayTUID);
+            try (ResultSet res = prep.executeQuery()) {
+                while (res.next())
+                    lstSchedules.add(new Schedule(res.getInt("TUID"), res.getInt("Vehicles_TUID"),
+                            res.getInt("Bays_TUID"), res.getInt("Service_TUID"),
+                            res.getTimestamp("Appointment_Start_Time"), res.getTimestamp("Appointment_End_Time")));
+            }
+        }
+        return lstSchedules.toArray(new Schedule[0]);
     }
 }
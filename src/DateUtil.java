@@ -20,6 +20,7 @@ import java.sql.Timestamp;
 import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
 import java.time.temporal.TemporalAdjusters;
 
 public class DateUtil {
@@ -33,6 +34,7 @@ public class DateUtil {
     private static final int LUNCH_LENGTH = 1; // lunch length in hours
     private static final int OPENING_HOUR = 8; // the hour of the day the business opens
     private static final int OPENING_MINUTE = 0; // the minute on the hour that the business opens
+    private static final LocalTime LUNCH_START = LocalTime.of(LUNCH_HOUR, LUNCH_MINUTE); // the time lunch starts
 
     /**
      * Gets the timestamp of next monday at the opening time of the shop
@@ -86,12 +88,61 @@ public class DateUtil {
     public static long WeekDayTimeslotToMillisecond(int intWeek, int intDay, int intSlot, int intGCF) {
         // milliseconds between next monday and the appointment slot
         long milliseconds = 0;
-        milliseconds += intWeek * MILLISECONDS_WEEK;
-        milliseconds += intDay * MILLISECONDS_DAY;
+        milliseconds += (long) intWeek * MILLISECONDS_WEEK;
+        milliseconds += (long) intDay * MILLISECONDS_DAY;
         milliseconds += intSlot * Service.millisecondsTimeslot(intGCF);
         return milliseconds;
     }
 
+    /**
+     * Gets the appointment timeslot of a start timestamp, the reverse of
+     * WeekDayTimeslotToMillisecond with the lunch offset removed
+     * 
+     * @param tsStart       the start timestamp of an appointment
+     * @param tsNextMonday  the timestamp of next monday at opening time
+     * @param intGCF        the number of minutes a single timeslot represents
+     * @return an array with the week, day, and timeslot index of the appointment,
+     *         the week is negative if the appointment starts before next monday
+     */
+    public static int[] timestampToWeekDayTimeslot(Timestamp tsStart, Timestamp tsNextMonday, int intGCF) {
+        // remove the lunch offset from start times on or after the end of lunch
+        long lgStart = tsStart.getTime();
+        if (isDuringOrAfterLunch(new Timestamp(lgStart - hoursToMiliseconds(LUNCH_LENGTH)), true))
+            lgStart -= hoursToMiliseconds(LUNCH_LENGTH);
+        // milliseconds between next monday and the appointment slot
+        long milliseconds = lgStart - tsNextMonday.getTime();
+        // the week, rounding down for appointments before next monday
+        int intWeek = (int) Math.floorDiv(milliseconds, (long) MILLISECONDS_WEEK);
+        milliseconds -= (long) intWeek * MILLISECONDS_WEEK;
+        // the day of the week and timeslot of the day
+        int intDay = (int) (milliseconds / MILLISECONDS_DAY);
+        int intSlot = (int) (milliseconds % MILLISECONDS_DAY / Service.millisecondsTimeslot(intGCF));
+        return new int[] { intWeek, intDay, intSlot };
+    }
+
+    /**
+     * Gets the number of work days between next monday and the day of a
+     * timestamp, the index of that day in a schedule that counts only work days
+     * 
+     * @param ts           the timestamp to find the day of
+     * @param tsNextMonday the timestamp of next monday at opening time
+     * @param blnRoundUp   whether a weekend goes to the next monday or back to
+     *                     the friday before
+     * @return the work day index, negative if the day is before next monday
+     */
+    public static int workDayIndex(Timestamp ts, Timestamp tsNextMonday, boolean blnRoundUp) {
+        // the calendar days between next monday and the timestamp
+        final long DAYS = ChronoUnit.DAYS.between(tsNextMonday.toLocalDateTime().toLocalDate(),
+                ts.toLocalDateTime().toLocalDate());
+        final int WEEK = (int) Math.floorDiv(DAYS, 7L);
+        final int DAY = (int) Math.floorMod(DAYS, 7L);
+        if (DAY < MechanicSchedule.NUM_WORK_DAYS)
+            return WEEK * MechanicSchedule.NUM_WORK_DAYS + DAY;
+        // a weekend
+        return blnRoundUp ? (WEEK + 1) * MechanicSchedule.NUM_WORK_DAYS
+                : WEEK * MechanicSchedule.NUM_WORK_DAYS + MechanicSchedule.NUM_WORK_DAYS - 1;
+    }
+
     /**
      * Determines if the provided timeslot should be offset by the duration of lunch
      * 
@@ -104,13 +155,9 @@ public class DateUtil {
         // if timestamp is a start time
         // check if the timestamp falls on or after lunch
         if (blnStartTime)
-            return ts.toLocalDateTime().toLocalTime()
-                    .isAfter(LocalTime.parse(
-                            String.format("%02d", LUNCH_HOUR) + ":" + String.format("%02d", LUNCH_MINUTE) + ":00")
-                            .minusSeconds(1));
+            return ts.toLocalDateTime().toLocalTime().isAfter(LUNCH_START.minusSeconds(1));
         // else check if the timestamps falls during or after lunch
-        return ts.toLocalDateTime().toLocalTime().isAfter(
-                LocalTime.parse(String.format("%02d", LUNCH_HOUR) + ":" + String.format("%02d", LUNCH_MINUTE) + ":00"));
+        return ts.toLocalDateTime().toLocalTime().isAfter(LUNCH_START);
     }
 
     /**
@@ -129,4 +176,28 @@ public class DateUtil {
         // else return the timestamp offseted by the duration of lunch
         return new Timestamp(ts.getTime() + hoursToMiliseconds(LUNCH_LENGTH));
     }
+
+    /**
+     * Calculates the start and end timestamps of an appointment at a timeslot.
+     * Appointments are scheduled starting next Monday, if a timestamp occurs
+     * during or after lunch the lunch offset is applied
+     * 
+     * @param tsNextMonday the timestamp of next monday at opening time
+     * @param intWeek      the week number starting at 0
+     * @param intDay       the day of the week starting at 0
+     * @param intSlot      the timeslot number
+     * @param intMinutes   the length of the appointment in minutes
+     * @param intGCF       the number of minutes a single timeslot represents
+     * @return an array with the start and end time of the appointment
+     */
+    public static Timestamp[] appointmentTimes(Timestamp tsNextMonday, int intWeek, int intDay, int intSlot,
+            int intMinutes, int intGCF) {
+        Timestamp tsStartDate = new Timestamp(
+                tsNextMonday.getTime() + WeekDayTimeslotToMillisecond(intWeek, intDay, intSlot, intGCF));
+        Timestamp tsEndDate = tsOffsetLunch(new Timestamp(tsStartDate.getTime() + minutesToMiliseconds(intMinutes)),
+                false);
+        tsStartDate = tsOffsetLunch(tsStartDate, true);
+
+        return new Timestamp[] { tsStartDate, tsEndDate };
+    }
 }
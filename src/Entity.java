@@ -20,7 +20,7 @@
 import java.sql.SQLException;
 
 public abstract class Entity {
-    // instance of the database
+    // instance of the shop's database, other shops in the program have their own
     static DB Database = null;
     // wether or not the database is known to exist
     static boolean DBExists = false;
@@ -28,13 +28,13 @@ public abstract class Entity {
     private int TUID;
 
     /**
-     * construct a new entity and initialize the database
+     * construct a new entity, the database is initialized by the functions that
+     * read or save entities so an entity of another shop does not open this one
      * 
      * @throws SQLException throws a SQL exception if the database cannot be
      *                      initialized
      */
     public Entity() throws SQLException {
-        initializeDatabase();
     }
 
     /**
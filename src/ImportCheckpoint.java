@@ -0,0 +1,235 @@
+
+/**
+ * Filename: ImportCheckpoint.java
+ *
+ * Project: Homework3
+ *
+ * Author: Kevin Gyorick
+ *
+ * Date: 10/19/2026
+ *
+ * File Purpose:    This file records how far an import has gotten so a rerun of the same file
+ *                  resumes where the last run stopped instead of inserting the same customers,
+ *                  vehicles, and appointments again. The file is identified by its path, size, and
+ *                  content hash. Lines are committed in batches, and the byte offset after the last
+ *                  processed line is saved in the same transaction as the batch.
+ *
+ * Program Purpose: The program schedules appointments for a mechanic shop.
+ *                  Appointments are scheduled first come, first served as
+ *                  long as the job can be completed the same day it is started
+ *                  given the current schedule. Mechanics with lower bay numbers
+ *                  assigned have higher priority when multiple mechanics are available
+ */
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ImportCheckpoint {
+    static final int BATCH_SIZE = 500; // the number of lines committed in a single transaction
+
+    private final String strFilePath; // the canonical path of the input file
+    private final long lngFileSize; // the size of the input file in bytes
+    private final String strFileHash; // the SHA-256 hash of the input file's content
+    private final String[] arrLines; // the lines of the input file
+    private final long[] arrLineOffsets; // the byte offset where each line starts, plus the file size
+    private final int intResumeIndex; // the index of the first line that has not been committed
+    private int intPendingLines = 0; // the number of lines processed since the last commit
+    private boolean blnInTransaction = false; // whether or not a batch transaction is open
+
+    /**
+     * construct a checkpoint for an input file
+     *
+     * @param strFilePath    the canonical path of the input file
+     * @param lngFileSize    the size of the input file in bytes
+     * @param strFileHash    the hash of the input file's content
+     * @param arrLines       the lines of the input file
+     * @param arrLineOffsets the byte offset where each line starts, plus the file
+     *                       size
+     * @param intResumeIndex the index of the first line that has not been
+     *                       committed
+     */
+    private ImportCheckpoint(String strFilePath, long lngFileSize, String strFileHash, String[] arrLines,
+            long[] arrLineOffsets, int intResumeIndex) {
+        this.strFilePath = strFilePath;
+        this.lngFileSize = lngFileSize;
+        this.strFileHash = strFileHash;
+        this.arrLines = arrLines;
+        this.arrLineOffsets = arrLineOffsets;
+        this.intResumeIndex = intResumeIndex;
+    }
+
+    /**
+     * Reads an input file and looks up how much of it was committed by a previous
+     * run
+     *
+     * @param inputFile the file to import
+     * @return the checkpoint of the file
+     * @throws IOException  throws if the file cannot be read
+     * @throws SQLException throws if the progress cannot be read from the database
+     */
+    public static ImportCheckpoint open(File inputFile) throws IOException, SQLException {
+        // read the whole file so the hash and line offsets come from the same bytes
+        byte[] arrBytes = Files.readAllBytes(inputFile.toPath());
+
+        // split the file into lines keeping the byte offset where each line starts
+        List<String> lstLines = new ArrayList<String>();
+        List<Long> lstOffsets = new ArrayList<Long>();
+        int intLineStart = 0;
+        for (int i = 0; i <= arrBytes.length; i++) {
+            // a line ends at a new line or the end of the file
+            if (i == arrBytes.length || arrBytes[i] == '\n') {
+                // the end of the file is not a line if the last line ended with a new line
+                if (i == arrBytes.length && intLineStart == arrBytes.length)
+                    break;
+                // drop the carriage return of windows line endings
+                int intLineEnd = i > intLineStart && arrBytes[i - 1] == '\r' ? i - 1 : i;
+                lstLines.add(new String(arrBytes, intLineStart, intLineEnd - intLineStart, StandardCharsets.UTF_8));
+                lstOffsets.add((long) intLineStart);
+                intLineStart = i + 1;
+            }
+        }
+        long[] arrLineOffsets = new long[lstOffsets.size() + 1];
+        for (int i = 0; i < lstOffsets.size(); i++)
+            arrLineOffsets[i] = lstOffsets.get(i);
+        arrLineOffsets[lstOffsets.size()] = arrBytes.length;
+
+        String strFilePath = inputFile.getCanonicalPath();
+        String strFileHash = hash(arrBytes);
+
+        // find the first line at or after the committed offset
+        Entity.initializeDatabase();
+        long lngCommittedOffset = Entity.Database.getImportProgress(strFilePath, arrBytes.length, strFileHash);
+        int intResumeIndex = 0;
+        while (intResumeIndex < lstLines.size() && arrLineOffsets[intResumeIndex] < lngCommittedOffset)
+            intResumeIndex++;
+
+        return new ImportCheckpoint(strFilePath, arrBytes.length, strFileHash, lstLines.toArray(new String[0]),
+                arrLineOffsets, intResumeIndex);
+    }
+
+    /**
+     * Gets the SHA-256 hash of the provided bytes
+     *
+     * @param arrBytes the bytes to hash
+     * @return the hash as a hex string
+     */
+    private static String hash(byte[] arrBytes) {
+        try {
+            StringBuilder builder = new StringBuilder();
+            for (byte currByte : MessageDigest.getInstance("SHA-256").digest(arrBytes))
+                builder.append(String.format("%02x", currByte));
+            return builder.toString();
+        } catch (NoSuchAlgorithmException ex) {
+            // every java platform is required to support SHA-256
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Gets the lines of the input file
+     *
+     * @return the lines of the input file
+     */
+    public String[] getLines() {
+        return arrLines;
+    }
+
+    /**
+     * Gets the index of the first line that was not committed by a previous run
+     *
+     * @return the index of the line to resume from, the line count if the file was
+     *         fully imported
+     */
+    public int getResumeIndex() {
+        return intResumeIndex;
+    }
+
+    /**
+     * Starts the first batch transaction
+     *
+     * @throws SQLException throws if the transaction cannot be started
+     */
+    void begin() throws SQLException {
+        Entity.Database.beginTransaction();
+        blnInTransaction = true;
+    }
+
+    /**
+     * Records that a line was committed or rejected, committing the batch once it
+     * is full
+     *
+     * @param intLineIndex the index of the processed line
+     * @throws SQLException throws if the batch cannot be committed
+     */
+    void lineProcessed(int intLineIndex) throws SQLException {
+        intPendingLines++;
+        if (intPendingLines >= BATCH_SIZE) {
+            // commit the batch with the offset after the line
+            commitBatch(arrLineOffsets[intLineIndex + 1], intLineIndex + 1);
+            begin();
+        }
+    }
+
+    /**
+     * Commits the last batch once the import stops. The offset saved is the start
+     * of the first unprocessed line, so a rerun retries the line that stopped the
+     * import
+     *
+     * @param intNextLineIndex the index of the first line that was not processed
+     * @throws SQLException throws if the batch cannot be committed
+     */
+    void finish(int intNextLineIndex) throws SQLException {
+        if (blnInTransaction)
+            commitBatch(arrLineOffsets[intNextLineIndex], intNextLineIndex);
+    }
+
+    /**
+     * Commits the open batch before waiting on the user, so the database is not
+     * locked while the user decides. The offset saved is the start of the line
+     * being decided on, and begin starts the next batch
+     *
+     * @param intNextLineIndex the index of the first line that was not processed
+     * @throws SQLException throws if the batch cannot be committed
+     */
+    void pause(int intNextLineIndex) throws SQLException {
+        if (blnInTransaction)
+            commitBatch(arrLineOffsets[intNextLineIndex], intNextLineIndex);
+    }
+
+    /**
+     * Rolls back the open batch after an unexpected error, so the next run
+     * resumes from the last committed batch. The customers, vehicles, and
+     * appointments the batch created are read out of memory again too
+     */
+    void abandon() {
+        if (!blnInTransaction)
+            return;
+        blnInTransaction = false;
+        try {
+            Entity.Database.rollbackTransaction();
+            App.reloadAfterRollback();
+        } catch (SQLException | RuntimeException ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    /**
+     * Saves the progress and commits the open transaction
+     *
+     * @param lngOffset    the byte offset of the first unprocessed line
+     * @param intLineCount the number of lines processed
+     * @throws SQLException throws if the transaction cannot be committed
+     */
+    private void commitBatch(long lngOffset, int intLineCount) throws SQLException {
+        Entity.Database.saveImportProgress(strFilePath, lngFileSize, strFileHash, lngOffset, intLineCount);
+        Entity.Database.commitTransaction();
+        blnInTransaction = false;
+        intPendingLines = 0;
+    }
+}
@@ -0,0 +1,400 @@
+
+/**
+ * Filename: ImportPipeline.java
+ *
+ * Project: Homework3
+ *
+ * Author: Kevin Gyorick
+ *
+ * Date: 10/19/2026
+ *
+ * File Purpose:    This file processes the lines of an input file in two stages.
+ *                  The first stage parses and validates chunks of lines in parallel on a fork-join pool
+ *                  against a snapshot of the customers, vehicles, and services in the database.
+ *                  The second stage commits the valid lines one at a time in file order, since
+ *                  appointments are placed first come, first served by line order.
+ *                  Lines that fail either stage are written to a reject file with the reason.
+ *
+ * Program Purpose: The program schedules appointments for a mechanic shop.
+ *                  Appointments are scheduled first come, first served as
+ *                  long as the job can be completed the same day it is started
+ *                  given the current schedule. Mechanics with lower bay numbers
+ *                  assigned have higher priority when multiple mechanics are available
+ */
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+
+public class ImportPipeline {
+    static final int CHUNK_SIZE = 512; // the number of lines parsed and validated by a single task
+
+    /**
+     * Called by the commit stage when a line is rejected by either stage
+     */
+    public interface ErrorHandler {
+        /**
+         * Decides if the import should go on after a line was rejected. A line the
+         * database rejected in the commit stage has its commit error set, the
+         * others were rejected by validation
+         *
+         * @param failedLine the rejected line, its reject reason is set
+         * @return true to keep importing, false to stop the import
+         */
+        boolean shouldContinue(ImportLine failedLine);
+    }
+
+    /**
+     * A single line of the input file after it has been parsed and validated
+     */
+    public static class ImportLine {
+        final int intLineNumber; // the line number in the input file starting at 1
+        final String strLine; // the raw line from the input file
+        final String[] arrFields; // the line split by the file delimiter
+        String strRejectReason = null; // why the line was rejected, null if the line is valid
+        SQLException commitError = null; // the database error that rejected the line, null if none did
+
+        /**
+         * construct an import line with its line number and raw text
+         *
+         * @param intLineNumber the line number in the input file starting at 1
+         * @param strLine       the raw line from the input file
+         */
+        ImportLine(int intLineNumber, String strLine) {
+            this.intLineNumber = intLineNumber;
+            this.strLine = strLine;
+            this.arrFields = strLine.split(App.FILE_DELIMITER);
+        }
+
+        /**
+         * Gets the action character of the line
+         *
+         * @return the action of the line (C, V, or S)
+         */
+        String getAction() {
+            return arrFields[0];
+        }
+
+        /**
+         * Gets whether or not the line passed validation
+         *
+         * @return true if the line has not been rejected
+         */
+        boolean isValid() {
+            return strRejectReason == null;
+        }
+    }
+
+    private final HashSet<String> setCustomerNames; // the names of the customers in the database
+    private final HashMap<String, Integer> mapCustomerTUIDs; // customer name to customer id
+    private final HashSet<String> setVehicleKeys; // owner id and description of each vehicle in the database
+    private final HashSet<String> setServiceNames; // the names of the services offered by the shop
+    private final List<ImportLine> lstRejected = new ArrayList<ImportLine>(); // lines rejected so far
+    private int intCommitted = 0; // the number of lines committed
+    private boolean blnStopped = false; // whether or not the error handler stopped the import
+
+    /**
+     * construct a pipeline using a snapshot of the entities in the database. The
+     * snapshot is only read by the parallel stage, so lines that refer to entities
+     * created earlier in the same file are checked again by the commit stage
+     *
+     * @param arrCustomers the array of customers from the database
+     * @param arrVehicles  the array of vehicles from the database
+     * @param arrServices  the array of services from the database
+     */
+    public ImportPipeline(Customer[] arrCustomers, Vehicle[] arrVehicles, Service[] arrServices) {
+        setCustomerNames = new HashSet<String>();
+        mapCustomerTUIDs = new HashMap<String, Integer>();
+        // index the customers by name
+        for (Customer currCustomer : arrCustomers) {
+            setCustomerNames.add(currCustomer.strName);
+            mapCustomerTUIDs.put(currCustomer.strName, currCustomer.getTUID());
+        }
+        setVehicleKeys = new HashSet<String>();
+        // index the vehicles by owner and description
+        for (Vehicle currVehicle : arrVehicles) {
+            setVehicleKeys.add(vehicleKey(currVehicle.getCustomerTUID(), currVehicle.strVehicle_Description));
+        }
+        setServiceNames = new HashSet<String>();
+        // index the services by name
+        for (Service currService : arrServices) {
+            setServiceNames.add(currService.strService_Name);
+        }
+    }
+
+    /**
+     * Builds the lookup key of a vehicle
+     *
+     * @param intCustomerTUID        the id of the vehicle's owner
+     * @param strVehicle_Description the description of the vehicle
+     * @return a key unique to the owner and description
+     */
+    private static String vehicleKey(int intCustomerTUID, String strVehicle_Description) {
+        return intCustomerTUID + App.FILE_DELIMITER + strVehicle_Description;
+    }
+
+    /**
+     * Parses and validates the lines in parallel and commits the valid ones in file
+     * order. Chunks are committed as soon as they are validated, so the commit
+     * stage runs while later chunks are still being validated
+     *
+     * @param arrFileLines the lines of the input file
+     * @param intFirstLine the index of the first line to process, lines before it
+     *                     were committed by a previous run
+     * @param checkpoint   records the progress of the import in the same
+     *                     transaction as the lines, null to commit each line on
+     *                     its own
+     * @param handler      decides if the import continues after a line is
+     *                     rejected
+     * @throws SQLException throws the reject reason if the handler stops the
+     *                      import or the error if a batch cannot be committed
+     */
+    public void run(String[] arrFileLines, int intFirstLine, ImportCheckpoint checkpoint, ErrorHandler handler)
+            throws SQLException {
+        // the pool the parse and validate stage runs on
+        ForkJoinPool pool = new ForkJoinPool();
+        // the index of the next line to commit
+        int intNextLine = intFirstLine;
+        try {
+            // start a parse and validate task for each chunk of the file
+            List<CompletableFuture<ImportLine[]>> lstChunks = new ArrayList<CompletableFuture<ImportLine[]>>();
+            for (int start = intFirstLine; start < arrFileLines.length; start += CHUNK_SIZE) {
+                final int CHUNK_START = start;
+                final int CHUNK_END = Math.min(start + CHUNK_SIZE, arrFileLines.length);
+                lstChunks.add(CompletableFuture.supplyAsync(() -> validateChunk(arrFileLines, CHUNK_START, CHUNK_END),
+                        pool));
+            }
+
+            if (checkpoint != null)
+                checkpoint.begin();
+            // commit each chunk in file order
+            for (CompletableFuture<ImportLine[]> currChunk : lstChunks) {
+                for (ImportLine currLine : currChunk.join()) {
+                    // lines rejected by the parallel stage are not committed
+                    if (currLine.isValid()) {
+                        try {
+                            commitLine(currLine);
+                            intCommitted++;
+                        } catch (SQLException ex) {
+                            // the line was valid against the snapshot but not the current state
+                            currLine.strRejectReason = ex.getMessage();
+                            currLine.commitError = ex;
+                        } catch (RuntimeException ex) {
+                            // the line cannot be placed, such as a service nobody is qualified for
+                            currLine.strRejectReason = ex.getMessage();
+                        }
+                    }
+                    if (!currLine.isValid()) {
+                        lstRejected.add(currLine);
+                        // commit the lines before the rejected one so the batch is not
+                        // held open while the handler asks the user
+                        if (checkpoint != null)
+                            checkpoint.pause(intNextLine);
+                        // stop the import if the handler says so, leaving the line to be retried
+                        if (!handler.shouldContinue(currLine)) {
+                            blnStopped = true;
+                            throw new SQLException(currLine.strRejectReason, currLine.commitError);
+                        }
+                        if (checkpoint != null)
+                            checkpoint.begin();
+                    }
+                    intNextLine++;
+                    if (checkpoint != null)
+                        checkpoint.lineProcessed(intNextLine - 1);
+                }
+            }
+            if (checkpoint != null)
+                checkpoint.finish(intNextLine);
+        } catch (SQLException | RuntimeException ex) {
+            if (checkpoint != null) {
+                // commit what was processed before the handler stopped the import,
+                // anything else rolls back to the last committed batch
+                if (blnStopped)
+                    checkpoint.finish(intNextLine);
+                else
+                    checkpoint.abandon();
+            }
+            throw ex;
+        } finally {
+            // stop the worker threads
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Parses and validates a range of lines
+     *
+     * @param arrFileLines the lines of the input file
+     * @param intStart     the index of the first line in the chunk
+     * @param intEnd       the index after the last line in the chunk
+     * @return the parsed lines of the chunk in file order
+     */
+    private ImportLine[] validateChunk(String[] arrFileLines, int intStart, int intEnd) {
+        // the parsed lines of the chunk
+        ImportLine[] arrChunk = new ImportLine[intEnd - intStart];
+        // foreach line in the chunk
+        for (int i = intStart; i < intEnd; i++) {
+            ImportLine currLine = new ImportLine(i + 1, arrFileLines[i]);
+            currLine.strRejectReason = validate(currLine);
+            arrChunk[i - intStart] = currLine;
+        }
+        return arrChunk;
+    }
+
+    /**
+     * Checks that a line has a known action and the fields the action needs
+     *
+     * @param currLine the line to check
+     * @return the reason the line cannot be parsed or null if it can
+     */
+    static String checkFields(ImportLine currLine) {
+        final String[] FIELDS = currLine.arrFields;
+        // check the fields depending on the action
+        switch (currLine.getAction()) {
+            case "C":
+                if (FIELDS.length < 2 || FIELDS[1].isEmpty())
+                    return "Customer line is missing the customer name";
+                return null;
+            case "V":
+                if (FIELDS.length < 3 || FIELDS[2].isEmpty())
+                    return "Vehicle line is missing the customer name or vehicle description";
+                return null;
+            case "S":
+                if (FIELDS.length < 4)
+                    return "Service line is missing the customer name, vehicle description, or service type";
+                return null;
+            default:
+                return "Error parsing line, unrecognized action " + currLine.getAction();
+        }
+    }
+
+    /**
+     * Validates a line against the snapshot of the database. References that are
+     * not in the snapshot are left for the commit stage since they may be created
+     * by an earlier line of the file
+     *
+     * @param currLine the line to validate
+     * @return the reason the line is invalid or null if it may be committed
+     */
+    private String validate(ImportLine currLine) {
+        // lines that cannot be parsed are not validated any further
+        String strParseError = checkFields(currLine);
+        if (strParseError != null)
+            return strParseError;
+
+        final String[] FIELDS = currLine.arrFields;
+        // validate the line depending on its action
+        switch (currLine.getAction()) {
+            case "C":
+                if (setCustomerNames.contains(FIELDS[1]))
+                    return "Cannot insert customer (" + FIELDS[1]
+                            + ") with the same name since vehicles are inserted based on customer name";
+                return null;
+            case "V":
+                Integer ownerTUID = mapCustomerTUIDs.get(FIELDS[1]);
+                if (ownerTUID != null && setVehicleKeys.contains(vehicleKey(ownerTUID, FIELDS[2])))
+                    return "Cannot insert new vehicle with the same owner and description, no way to tell them apart Customer_TUID="
+                            + ownerTUID + ", Vehicle_Description=" + FIELDS[2];
+                return null;
+            default:
+                // a line with several services is a visit, each service has to exist
+                for (String strService_Name : getServiceNames(currLine)) {
+                    if (!setServiceNames.contains(strService_Name))
+                        return "No service found where Service_Name=" + strService_Name;
+                }
+                return null;
+        }
+    }
+
+    /**
+     * Commits a valid line, creating the customer, vehicle, or appointment it
+     * describes
+     *
+     * @param currLine the line to commit
+     * @throws SQLException throws if the line conflicts with the current state of
+     *                      the database
+     */
+    private void commitLine(ImportLine currLine) throws SQLException {
+        final String[] FIELDS = currLine.arrFields;
+        // if C action
+        if (currLine.getAction().equals("C"))
+            // create a new customer with the line
+            App.arrCustomers = Customer.createCustomer(FIELDS[1], App.arrCustomers);
+        else if (currLine.getAction().equals("V"))
+            // create a new vehicle with the line
+            App.arrVehicles = Vehicle.createVehicle(FIELDS[1], FIELDS[2], App.arrCustomers, App.arrVehicles);
+        else if (getServiceNames(currLine).length > 1)
+            // book the services of the line as one visit
+            App.arrSchedules = Schedule.createVisit(FIELDS[1], FIELDS[2], getServiceNames(currLine),
+                    App.arrCustomers, App.arrVehicles, App.arrServices, App.arrBays, App.arrMechanics);
+        else
+            // create a new appointment with the line
+            App.arrSchedules = Schedule.createAppointment(-1, FIELDS[1], FIELDS[2], FIELDS[3], App.arrCustomers,
+                    App.arrVehicles, App.arrServices, App.arrBays, App.arrMechanics);
+    }
+
+    /**
+     * Gets the services of a service line, the fourth field and any non empty
+     * fields after it
+     *
+     * @param currLine the service line
+     * @return the service names in the order they are done
+     */
+    static String[] getServiceNames(ImportLine currLine) {
+        List<String> lstNames = new ArrayList<String>();
+        for (int i = 3; i < currLine.arrFields.length; i++) {
+            if (i == 3 || !currLine.arrFields[i].isEmpty())
+                lstNames.add(currLine.arrFields[i]);
+        }
+        return lstNames.toArray(new String[0]);
+    }
+
+    /**
+     * Gets the lines rejected by either stage in file order
+     *
+     * @return the rejected lines
+     */
+    public List<ImportLine> getRejected() {
+        return lstRejected;
+    }
+
+    /**
+     * Gets whether or not the error handler stopped the import
+     *
+     * @return true if the import was stopped on the last rejected line
+     */
+    public boolean isStopped() {
+        return blnStopped;
+    }
+
+    /**
+     * Gets the number of lines that were committed
+     *
+     * @return the number of committed lines
+     */
+    public int getCommittedCount() {
+        return intCommitted;
+    }
+
+    /**
+     * Writes the rejected lines to a tab delimited reject file with the line
+     * number, the reason, and the original line
+     *
+     * @param rejectFile the file to write the rejected lines to
+     * @throws IOException throws if the reject file cannot be written
+     */
+    public void writeRejects(File rejectFile) throws IOException {
+        try (PrintWriter writer = new PrintWriter(rejectFile)) {
+            for (ImportLine currLine : lstRejected) {
+                writer.println(currLine.intLineNumber + App.FILE_DELIMITER + currLine.strRejectReason
+                        + App.FILE_DELIMITER + currLine.strLine);
+            }
+        }
+    }
+}
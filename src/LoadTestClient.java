@@ -0,0 +1,195 @@
+
+/**
+ * Filename: LoadTestClient.java
+ *
+ * Project: Homework3
+ *
+ * Author: Kevin Gyorick
+ *
+ * Date: 10/19/2026
+ *
+ * File Purpose:    This file load tests a running BookingServer. It creates a customer and vehicle for
+ *                  each concurrent client, then sends the requested number of booking or availability
+ *                  requests with that many in flight at once and reports the p50, p99, and p999
+ *                  latency along with the throughput.
+ *
+ * Program Purpose: The program schedules appointments for a mechanic shop.
+ *                  Appointments are scheduled first come, first served as
+ *                  long as the job can be completed the same day it is started
+ *                  given the current schedule. Mechanics with lower bay numbers
+ *                  assigned have higher priority when multiple mechanics are available
+ */
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//run with 'java -classpath ".;sqlite-jdbc-3.36.0.3.jar" LoadTestClient --requests 10000 --concurrency 2000'
+//while 'java -classpath ".;sqlite-jdbc-3.36.0.3.jar" App --serve' is running
+
+public class LoadTestClient {
+    static final String USAGE = "Usage: java LoadTestClient [--url <url>] [--requests <n>] [--concurrency <n>]"
+            + " [--route appointments|availability] [--service <name>]";
+
+    String strBaseUrl = "http://localhost:" + BookingServer.DEFAULT_PORT; // the server to test
+    int intRequests = 10000; // the number of timed requests
+    int intConcurrency = 1000; // the number of requests in flight at once
+    String strRoute = "appointments"; // the route to time
+    String strService = "Oil Change"; // the service to book or check
+
+    // the entry point of the load test client
+    public static void main(String[] args) {
+        LoadTestClient client = new LoadTestClient();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if (i + 1 >= args.length)
+                    throw new IllegalArgumentException("Missing value for " + args[i]);
+                switch (args[i]) {
+                    case "--url":
+                        client.strBaseUrl = args[++i];
+                        break;
+                    case "--requests":
+                        client.intRequests = Integer.parseInt(args[++i]);
+                        break;
+                    case "--concurrency":
+                        client.intConcurrency = Integer.parseInt(args[++i]);
+                        break;
+                    case "--route":
+                        client.strRoute = args[++i];
+                        break;
+                    case "--service":
+                        client.strService = args[++i];
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown argument " + args[i]);
+                }
+            }
+            if (!client.strRoute.equals("appointments") && !client.strRoute.equals("availability"))
+                throw new IllegalArgumentException("Unknown route " + client.strRoute);
+        } catch (IllegalArgumentException ex) {
+            System.err.println(ex.getMessage());
+            System.err.println(USAGE);
+            System.exit(BatchImport.EXIT_USAGE);
+        }
+
+        try {
+            client.run();
+        } catch (Exception ex) {
+            ex.printStackTrace();
+            System.exit(BatchImport.EXIT_FAILED);
+        }
+    }
+
+    /**
+     * Creates the load test customers and vehicles and times the requests
+     *
+     * @throws Exception throws if the server cannot be reached
+     */
+    void run() throws Exception {
+        HttpClient httpClient = HttpClient.newBuilder().executor(BookingServer.newRequestExecutor()).build();
+        // a prefix that keeps the customers of this run apart from earlier runs
+        String strRunId = Long.toString(System.currentTimeMillis(), 36);
+
+        // create a customer and vehicle for each concurrent client
+        System.out.println("Creating " + intConcurrency + " customers and vehicles");
+        for (int i = 0; i < intConcurrency; i++) {
+            String strName = "Load " + strRunId + " " + i;
+            checkCreated(httpClient, "/customers", "name=" + encode(strName));
+            checkCreated(httpClient, "/vehicles", "name=" + encode(strName) + "&vehicle=" + encode("Vehicle " + i));
+        }
+
+        // the latency of each request in nanoseconds
+        long[] arrLatencies = new long[intRequests];
+        // the number of responses that were not successful
+        AtomicInteger intFailures = new AtomicInteger();
+        // limits the requests in flight
+        Semaphore inFlight = new Semaphore(intConcurrency);
+        CompletableFuture<?>[] arrFutures = new CompletableFuture<?>[intRequests];
+
+        System.out.println("Sending " + intRequests + " " + strRoute + " requests, " + intConcurrency + " at a time");
+        long lngStart = System.nanoTime();
+        for (int i = 0; i < intRequests; i++) {
+            final int REQUEST_NUM = i;
+            String strParams = "name=" + encode("Load " + strRunId + " " + (i % intConcurrency)) + "&vehicle="
+                    + encode("Vehicle " + (i % intConcurrency)) + "&service=" + encode(strService);
+            HttpRequest request = strRoute.equals("appointments") ? post("/" + strRoute, strParams)
+                    : HttpRequest.newBuilder(URI.create(strBaseUrl + "/" + strRoute + "?" + strParams)).GET().build();
+
+            inFlight.acquire();
+            final long SENT = System.nanoTime();
+            arrFutures[i] = httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, ex) -> {
+                        arrLatencies[REQUEST_NUM] = System.nanoTime() - SENT;
+                        if (ex != null || response.statusCode() >= 300)
+                            intFailures.incrementAndGet();
+                        inFlight.release();
+                    });
+        }
+        CompletableFuture.allOf(arrFutures).exceptionally((ex) -> null).join();
+        long lngElapsed = System.nanoTime() - lngStart;
+
+        // report the latency percentiles
+        Arrays.sort(arrLatencies);
+        System.out.println("Requests: " + intRequests + ", failures: " + intFailures.get());
+        System.out.println(String.format("Throughput: %.1f requests/s", intRequests / (lngElapsed / 1e9)));
+        System.out.println(String.format("p50: %.2f ms", percentile(arrLatencies, 0.50) / 1e6));
+        System.out.println(String.format("p99: %.2f ms", percentile(arrLatencies, 0.99) / 1e6));
+        System.out.println(String.format("p999: %.2f ms", percentile(arrLatencies, 0.999) / 1e6));
+        System.out.println(String.format("max: %.2f ms", arrLatencies[arrLatencies.length - 1] / 1e6));
+    }
+
+    /**
+     * Sends a form post and checks the entity was created
+     *
+     * @param httpClient the http client
+     * @param strPath    the route
+     * @param strBody    the form body
+     * @throws Exception throws if the request fails
+     */
+    private void checkCreated(HttpClient httpClient, String strPath, String strBody) throws Exception {
+        HttpResponse<String> response = httpClient.send(post(strPath, strBody), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 201)
+            throw new IllegalStateException(strPath + " returned " + response.statusCode() + " " + response.body());
+    }
+
+    /**
+     * Builds a form post
+     *
+     * @param strPath the route
+     * @param strBody the form body
+     * @return the request
+     */
+    private HttpRequest post(String strPath, String strBody) {
+        return HttpRequest.newBuilder(URI.create(strBaseUrl + strPath))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(strBody)).build();
+    }
+
+    /**
+     * Url encodes a parameter
+     *
+     * @param strValue the value to encode
+     * @return the encoded value
+     */
+    private static String encode(String strValue) {
+        return URLEncoder.encode(strValue, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Gets a percentile of sorted latencies using the nearest rank
+     *
+     * @param arrSorted   the sorted latencies
+     * @param dblFraction the percentile as a fraction
+     * @return the latency at the percentile
+     */
+    static long percentile(long[] arrSorted, double dblFraction) {
+        int intRank = (int) Math.ceil(dblFraction * arrSorted.length);
+        return arrSorted[Math.max(0, Math.min(arrSorted.length - 1, intRank - 1))];
+    }
+}
@@ -18,6 +18,7 @@
  *                  assigned have higher priority when multiple mechanics are available
  */
 import java.sql.SQLException;
+import java.util.NoSuchElementException;
 
 public class Mechanic extends Entity {
     String strName; // the mechanic's name
@@ -52,6 +53,25 @@ public class Mechanic extends Entity {
         this.intHourly_payrate = intHourly_payrate;
     }
 
+    /**
+     * Get mechanic by name
+     * 
+     * @param strName      the name of the mechanic
+     * @param arrMechanics the array of mechanics from the database
+     * @return the mechanic with the provided name
+     * @throws NoSuchElementException throws if no mechanic has the provided name
+     */
+    public static Mechanic getMechanic(String strName, Mechanic[] arrMechanics) throws NoSuchElementException {
+        // foreach mechanic
+        for (Mechanic currMechanic : arrMechanics) {
+            // if the mechanic names match return the mechanic
+            if (currMechanic.strName.equals(strName))
+                return currMechanic;
+        }
+        // no mechanic by that name throw a error
+        throw new NoSuchElementException("No mechanic found where Mechanic_Name=" + strName);
+    }
+
     /**
      * Gets all mechanics from the database
      * 
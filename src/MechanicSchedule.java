@@ -19,16 +19,32 @@
  *                  given the current schedule. Mechanics with lower bay numbers 
  *                  assigned have higher priority when multiple mechanics are available
  */
-import java.util.LinkedList;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class MechanicSchedule implements Cloneable {
     public final static int NUM_WORK_DAYS = 5; // the number of work days in the week
     public final static int NUM_WORK_HOURS = 8; // the number of hours worked per day
     public final static int NUM_WORK_MINUTES = NUM_WORK_HOURS * 60; // the number of minutes worked per day
+    private final static AtomicLong NEXT_VERSION = new AtomicLong(); // the versions given out to every schedule
     private int GCFServiceTime;
+    private final int intWorkMinutes; // the number of minutes worked per day on this schedule
 
-    // the mechanic's schedule for each week
-    private LinkedList<boolean[][]> lstWeek;
+    // the mechanic's schedule for each week, weeks are only ever appended so
+    // searches can read the array without locking while a booking adds a week.
+    // A week page is never changed once it is in the array, a reservation copies
+    // the page and replaces it, so snapshots can share the pages they did not
+    // change. The array is shared with the snapshots too, and copied by the first
+    // change after a snapshot, so the engine copies it at most once per turn
+    private volatile boolean[][][] arrWeeks;
+    private volatile int intWeekCount = 0; // the number of weeks, the rest of arrWeeks is room to grow
+    private boolean blnWeeksShared = false; // whether or not a snapshot shares arrWeeks, guarded by this
+    // the number of reserved timeslots in every week, kept as slots are reserved
+    // and freed so it is read without counting
+    private volatile int intReservedSlots = 0;
+    // changes whenever a timeslot does and is never the same for two schedules
+    // with different slots, so a cache of the openings knows when it is stale
+    private volatile long lngVersion = NEXT_VERSION.incrementAndGet();
 
     /**
      * construct a mechanic schedule using the greatest common factor between
@@ -37,21 +53,74 @@ public class MechanicSchedule implements Cloneable {
      * @param GCFServiceTime the number of minutes a single timeslot represents
      */
     public MechanicSchedule(int GCFServiceTime) {
+        this(GCFServiceTime, NUM_WORK_MINUTES);
+    }
+
+    /**
+     * construct a mechanic schedule with a different length of work day, used to
+     * simulate other opening hours
+     * 
+     * @param GCFServiceTime the number of minutes a single timeslot represents
+     * @param intWorkMinutes the number of minutes worked per day, a multiple of
+     *                       the timeslot length
+     */
+    public MechanicSchedule(int GCFServiceTime, int intWorkMinutes) {
         this.GCFServiceTime = GCFServiceTime;
-        // initialize the linked list
-        lstWeek = new LinkedList<boolean[][]>();
+        this.intWorkMinutes = intWorkMinutes;
+        // initialize the array of weeks
+        arrWeeks = new boolean[4][][];
         // add the first week with GCF
         addWeek();
     }
 
+    /**
+     * construct a mechanic schedule that shares the week pages of another
+     * 
+     * @param GCFServiceTime   the number of minutes a single timeslot represents
+     * @param intWorkMinutes   the number of minutes worked per day
+     * @param arrPages         the array of week pages to share, it and the pages
+     *                         are copied before they are changed
+     * @param intWeekCount     the number of weeks in the array
+     * @param intReservedSlots the number of reserved timeslots in the pages
+     * @param lngVersion       the version of the pages
+     */
+    private MechanicSchedule(int GCFServiceTime, int intWorkMinutes, boolean[][][] arrPages, int intWeekCount,
+            int intReservedSlots, long lngVersion) {
+        this.GCFServiceTime = GCFServiceTime;
+        this.intWorkMinutes = intWorkMinutes;
+        this.intReservedSlots = intReservedSlots;
+        this.lngVersion = lngVersion;
+        this.arrWeeks = arrPages;
+        this.intWeekCount = intWeekCount;
+        this.blnWeeksShared = true;
+    }
+
     /**
      * Adds a new week to the mechanic's schedule
      */
-    public void addWeek() {
+    public synchronized void addWeek() {
+        final int COUNT = intWeekCount;
+        // double the room once it is used up
+        unshareWeeks(COUNT < arrWeeks.length ? arrWeeks.length : arrWeeks.length * 2);
         // add a new week to the schedule
-        // a week consist of NUM_WORK_DAYS boolean arrays with NUM_WORK_MINUTES /
+        // a week consist of NUM_WORK_DAYS boolean arrays with intWorkMinutes /
         // GCFServiceTime indices
-        lstWeek.add(new boolean[NUM_WORK_DAYS][NUM_WORK_MINUTES / this.GCFServiceTime]);
+        arrWeeks[COUNT] = new boolean[NUM_WORK_DAYS][intWorkMinutes / this.GCFServiceTime];
+        // the week is in the array before searches can see it
+        intWeekCount = COUNT + 1;
+    }
+
+    /**
+     * Copies the array of week pages if a snapshot shares it or it needs more
+     * room, so the change that follows is not seen by the snapshot
+     * 
+     * @param intCapacity the number of weeks the array needs room for
+     */
+    private void unshareWeeks(int intCapacity) {
+        if (!blnWeeksShared && intCapacity <= arrWeeks.length)
+            return;
+        arrWeeks = Arrays.copyOf(arrWeeks, Math.max(intCapacity, arrWeeks.length));
+        blnWeeksShared = false;
     }
 
     /**
@@ -61,7 +130,7 @@ public class MechanicSchedule implements Cloneable {
      */
     public int weekLength() {
         // return the number of weeks on the schedule
-        return lstWeek.size();
+        return intWeekCount;
     }
 
     /**
@@ -75,9 +144,110 @@ public class MechanicSchedule implements Cloneable {
     public void reserveSlot(int weekIndex, int dayIndex, int timeIndex) {
         // reserve a timeslot on the schedule at the index (weekIndex, dayIndex,
         // timeIndex)
+        setSlots(weekIndex, dayIndex, timeIndex, 1, true);
+    }
+
+    /**
+     * Reserves a run of slots on the mechanic's schedule for an appointment,
+     * copying the week page once
+     * 
+     * @param weekIndex  the week index of the appointment
+     * @param dayIndex   the day index of the appointment
+     * @param timeIndex  the first timeslot index to reserve
+     * @param slotsCount the number of slots in the run
+     */
+    public void reserveSlots(int weekIndex, int dayIndex, int timeIndex, int slotsCount) {
+        setSlots(weekIndex, dayIndex, timeIndex, slotsCount, true);
+    }
+
+    /**
+     * Frees a reserved slot on the mechanic's schedule
+     * 
+     * @param weekIndex the week index of the slot
+     * @param dayIndex  the day index of the slot
+     * @param timeIndex the timeslot index to free
+     */
+    public void releaseSlot(int weekIndex, int dayIndex, int timeIndex) {
+        releaseSlots(weekIndex, dayIndex, timeIndex, 1);
+    }
+
+    /**
+     * Frees a run of reserved slots on the mechanic's schedule, copying the week
+     * page once
+     * 
+     * @param weekIndex  the week index of the run
+     * @param dayIndex   the day index of the run
+     * @param timeIndex  the first timeslot index to free
+     * @param slotsCount the number of slots in the run
+     */
+    public void releaseSlots(int weekIndex, int dayIndex, int timeIndex, int slotsCount) {
+        // a week that was never added has no reserved slots
+        if (weekIndex > weekLength() - 1)
+            return;
+        setSlots(weekIndex, dayIndex, timeIndex, slotsCount, false);
+    }
+
+    /**
+     * Sets a run of slots in a copy of their week page and replaces the page, so
+     * a snapshot holding the old page does not see the change. Callers changing
+     * the schedule take turns in the booking engine, the lock only guards the
+     * sharing with snapshots
+     * 
+     * @param weekIndex   the week index of the run
+     * @param dayIndex    the day index of the run
+     * @param timeIndex   the first timeslot index of the run
+     * @param slotsCount  the number of slots in the run
+     * @param blnReserved whether the slots are reserved or freed
+     */
+    private synchronized void setSlots(int weekIndex, int dayIndex, int timeIndex, int slotsCount,
+            boolean blnReserved) {
+        ensureWeek(weekIndex);
+        // copy the page, only the changed day needs its own array
+        boolean[][] currWeek = arrWeeks[weekIndex].clone();
+        currWeek[dayIndex] = currWeek[dayIndex].clone();
+        // the change in the number of reserved slots
+        int intChanged = 0;
+        for (int i = 0; i < slotsCount; i++) {
+            if (currWeek[dayIndex][timeIndex + i] != blnReserved)
+                intChanged += blnReserved ? 1 : -1;
+            currWeek[dayIndex][timeIndex + i] = blnReserved;
+        }
+        intReservedSlots += intChanged;
+        // publish the new page, in a copy of the array if a snapshot shares it
+        unshareWeeks(arrWeeks.length);
+        arrWeeks[weekIndex] = currWeek;
+        // the version changes after the page so a search that read the new page
+        // under the old version is never taken as current
+        lngVersion = NEXT_VERSION.incrementAndGet();
+    }
+
+    /**
+     * Adds weeks to the schedule until the provided week index exists
+     * 
+     * @param weekIndex the week index that needs to exist
+     */
+    private synchronized void ensureWeek(int weekIndex) {
         while (weekIndex > weekLength() - 1)
             addWeek();
-        lstWeek.get(weekIndex)[dayIndex][timeIndex] = true;
+    }
+
+    /**
+     * Gets whether or not a run of timeslots is open
+     * 
+     * @param weekIndex  the week index of the first slot
+     * @param dayIndex   the day index of the first slot
+     * @param timeIndex  the timeslot index of the first slot
+     * @param slotsCount the number of slots in the run
+     * @return true if none of the slots are reserved
+     */
+    public boolean areSlotsOpen(int weekIndex, int dayIndex, int timeIndex, int slotsCount) {
+        // foreach slot in the run
+        for (int i = 0; i < slotsCount; i++) {
+            // if the slot is reserved the run is not open
+            if (getSlot(weekIndex, dayIndex, timeIndex + i))
+                return false;
+        }
+        return true;
     }
 
     /**
@@ -94,7 +264,37 @@ public class MechanicSchedule implements Cloneable {
         // timeIndex)
         if (weekIndex > weekLength() - 1)
             return false;
-        return lstWeek.get(weekIndex)[dayIndex][timeIndex];
+        // the count is read first, so the array read after it has the week
+        return arrWeeks[weekIndex][dayIndex][timeIndex];
+    }
+
+    /**
+     * Gets the number of timeslots in a work day
+     * 
+     * @return the number of timeslots in a day
+     */
+    public int getSlotsPerDay() {
+        return intWorkMinutes / GCFServiceTime;
+    }
+
+    /**
+     * Gets the version of the schedule, which changes whenever a timeslot is
+     * reserved or freed. A copy has the version of the schedule it was copied
+     * from until one of them changes
+     * 
+     * @return the version of the schedule
+     */
+    public long getVersion() {
+        return lngVersion;
+    }
+
+    /**
+     * Gets the number of reserved timeslots in every week without counting them
+     * 
+     * @return the number of reserved timeslots
+     */
+    public int getReservedSlots() {
+        return intReservedSlots;
     }
 
     /**
@@ -129,7 +329,7 @@ public class MechanicSchedule implements Cloneable {
         // running total
         int total = 0;
         // get the provided week's schedule
-        boolean[][] currWeek = lstWeek.get(weekNum);
+        boolean[][] currWeek = arrWeeks[weekNum];
         // foreach day on the schedule
         for (int i = 0; i < currWeek.length; i++) {
             // foreach GCF timeslot in the day
@@ -146,26 +346,31 @@ public class MechanicSchedule implements Cloneable {
     }
 
     /**
-     * Deep clone of the mechanic's schedule, used for temporary bookings in order
-     * to avoid booking the same car for two appointments that are at the same time
+     * Gets a point in time copy of the mechanic's schedule. The copy shares the
+     * array of week pages, which is copied by whichever schedule changes first,
+     * so taking it costs the same however many weeks there are and later
+     * reservations on either schedule do not affect the other
      * 
-     * @return A deep clone of this mechanic schedule
+     * @return a copy of this mechanic schedule
+     */
+    public synchronized MechanicSchedule snapshot() {
+        blnWeeksShared = true;
+        return new MechanicSchedule(this.GCFServiceTime, this.intWorkMinutes, this.arrWeeks, this.intWeekCount,
+                this.intReservedSlots, this.lngVersion);
+    }
+
+    /**
+     * Clone of the mechanic's schedule, used for temporary bookings in order to
+     * avoid booking the same car for two appointments that are at the same time
+     * 
+     * @return A clone of this mechanic schedule that shares the unchanged week
+     *         pages
      * @throws CloneNotSupportedException throws if the clone function is not
      *                                    implmented
      */
     @Override
     protected Object clone() throws CloneNotSupportedException {
-        MechanicSchedule cloneSchedule = new MechanicSchedule(this.GCFServiceTime);
-        for (int i = 0; i < this.lstWeek.size(); i++) {
-            cloneSchedule.addWeek();
-            for (int j = 0; j < this.lstWeek.get(i).length; j++) {
-                for (int k = 0; k < this.lstWeek.get(i)[j].length; k++) {
-                    if (this.getSlot(i, j, k))
-                        cloneSchedule.reserveSlot(i, j, k);
-                }
-            }
-        }
-        return cloneSchedule;
+        return snapshot();
     }
 
     /**
@@ -176,13 +381,13 @@ public class MechanicSchedule implements Cloneable {
         // create a new string builder
         StringBuilder builder = new StringBuilder();
         // foreach week
-        for (int i = 0; i < lstWeek.size(); i++) {
+        for (int i = 0; i < weekLength(); i++) {
             // foreach day
-            for (int j = 0; j < lstWeek.get(i).length; j++) {
+            for (int j = 0; j < arrWeeks[i].length; j++) {
                 // foreach timeslot
-                for (int k = 0; k < lstWeek.get(i)[j].length; k++) {
+                for (int k = 0; k < arrWeeks[i][j].length; k++) {
                     // if reserved append a 1
-                    if (lstWeek.get(i)[j][k])
+                    if (arrWeeks[i][j][k])
                         builder.append("1 ");
                     // if not append a 0
                     else
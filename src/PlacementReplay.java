@@ -0,0 +1,202 @@
+
+/**
+ * Filename: PlacementReplay.java
+ *
+ * Project: Homework3
+ *
+ * Author: Kevin Gyorick
+ *
+ * Date: 10/19/2026
+ *
+ * File Purpose:    This file replays an input file under each placement strategy and reports how well
+ *                  each one packed the schedule. Every strategy gets its own new shop database, so the
+ *                  runs start the same and do not change the App database. It reports the weeks the
+ *                  schedule spans, the utilization of those weeks, the hours booked in each bay, the
+ *                  openings too short for the longest service, and the time spent choosing a slot.
+ *
+ * Program Purpose: The program schedules appointments for a mechanic shop.
+ *                  Appointments are scheduled first come, first served as
+ *                  long as the job can be completed the same day it is started
+ *                  given the current schedule. Mechanics with lower bay numbers
+ *                  assigned have higher priority when multiple mechanics are available
+ */
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+//run with 'java -classpath ".;sqlite-jdbc-3.36.0.3.jar" PlacementReplay input.txt --strategy all'
+
+public class PlacementReplay {
+    static final String USAGE = "Usage: java PlacementReplay <input file> [--strategy first-fit|best-fit|least-loaded|all]";
+    static final String[] ALL_STRATEGIES = { "first-fit", "best-fit", "least-loaded" }; // the strategies replayed by all
+
+    /**
+     * Times the strategy it wraps, the engine chooses one slot at a time so the
+     * totals are only added to
+     */
+    static final class TimedStrategy implements PlacementStrategy {
+        private final PlacementStrategy strategy; // the strategy being timed
+        private final AtomicLong lngNanos = new AtomicLong(); // the time spent choosing in nanoseconds
+        private final AtomicLong lngCalls = new AtomicLong(); // the number of slots chosen
+
+        /**
+         * construct a timer around a strategy
+         *
+         * @param strategy the strategy to time
+         */
+        TimedStrategy(PlacementStrategy strategy) {
+            this.strategy = strategy;
+        }
+
+        @Override
+        public int[] place(MechanicSchedule[] arrSchedules, boolean[] arrEligible, int intSlotsNeeded) {
+            long lngStart = System.nanoTime();
+            try {
+                return strategy.place(arrSchedules, arrEligible, intSlotsNeeded);
+            } finally {
+                lngNanos.addAndGet(System.nanoTime() - lngStart);
+                lngCalls.incrementAndGet();
+            }
+        }
+
+        @Override
+        public String getName() {
+            return strategy.getName();
+        }
+    }
+
+    // the entry point of the placement replay
+    public static void main(String[] args) {
+        // the input file to replay
+        String strFileName = null;
+        // the strategies to replay it under
+        String[] arrStrategies = ALL_STRATEGIES;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if (args[i].equals("--strategy")) {
+                    if (++i >= args.length)
+                        throw new IllegalArgumentException("Missing value for --strategy");
+                    if (!args[i].equals("all")) {
+                        // check the name before any replay starts
+                        PlacementStrategy.forName(args[i]);
+                        arrStrategies = new String[] { args[i] };
+                    }
+                } else if (strFileName == null) {
+                    strFileName = args[i];
+                } else {
+                    throw new IllegalArgumentException("Unknown argument " + args[i]);
+                }
+            }
+            if (strFileName == null)
+                throw new IllegalArgumentException("Missing input file");
+        } catch (IllegalArgumentException ex) {
+            System.err.println(ex.getMessage());
+            System.err.println(USAGE);
+            System.exit(BatchImport.EXIT_USAGE);
+        }
+
+        try {
+            List<String> lstLines = Files.readAllLines(Path.of(strFileName));
+            for (String strStrategy : arrStrategies)
+                replay(lstLines, PlacementStrategy.forName(strStrategy));
+        } catch (Exception ex) {
+            ex.printStackTrace();
+            System.exit(BatchImport.EXIT_FAILED);
+        }
+    }
+
+    /**
+     * Replays the lines of an input file into a new shop using a strategy and
+     * prints how the schedule was packed
+     *
+     * @param lstLines the lines of the input file
+     * @param strategy the placement strategy to replay under
+     * @throws IOException  throws if the shop's database file cannot be created
+     * @throws SQLException throws if the shop's database cannot be built
+     */
+    static void replay(List<String> lstLines, PlacementStrategy strategy) throws IOException, SQLException {
+        // a new database for the run, the shop builds it since it is empty
+        File dbFile = Files.createTempFile("replay-" + strategy.getName() + "-", ".db").toFile();
+        Shop shop = new Shop("replay-" + strategy.getName(), dbFile.getPath());
+        TimedStrategy timedStrategy = new TimedStrategy(strategy);
+        shop.getEngine().setPlacementStrategy(timedStrategy);
+        // the number of appointments booked
+        int intBooked = 0;
+        // the number of lines that could not be replayed
+        int intRejected = 0;
+        try {
+            for (int i = 0; i < lstLines.size(); i++) {
+                ImportPipeline.ImportLine currLine = new ImportPipeline.ImportLine(i + 1, lstLines.get(i));
+                final String[] FIELDS = currLine.arrFields;
+                try {
+                    if (currLine.getAction().equals("C") && FIELDS.length >= 2) {
+                        shop.createCustomer(FIELDS[1]);
+                    } else if (currLine.getAction().equals("V") && FIELDS.length >= 3) {
+                        shop.createVehicle(FIELDS[1], FIELDS[2]);
+                    } else if (currLine.getAction().equals("S") && FIELDS.length >= 4) {
+                        String[] arrService_Names = ImportPipeline.getServiceNames(currLine);
+                        if (arrService_Names.length > 1)
+                            intBooked += shop.bookVisit(FIELDS[1], FIELDS[2], arrService_Names).join().length;
+                        else {
+                            shop.book(FIELDS[1], FIELDS[2], FIELDS[3]).join();
+                            intBooked++;
+                        }
+                    } else if (!lstLines.get(i).isBlank()) {
+                        intRejected++;
+                    }
+                } catch (SQLException | RuntimeException ex) {
+                    // a line the import would reject is skipped the same way under every strategy
+                    intRejected++;
+                }
+            }
+            report(shop, timedStrategy, intBooked, intRejected);
+        } finally {
+            shop.close();
+            dbFile.delete();
+            new File(dbFile.getPath() + "-wal").delete();
+            new File(dbFile.getPath() + "-shm").delete();
+        }
+    }
+
+    /**
+     * Prints how a strategy packed a shop's schedule
+     *
+     * @param shop          the shop the input file was replayed into
+     * @param timedStrategy the strategy it was replayed under
+     * @param intBooked     the number of appointments booked
+     * @param intRejected   the number of lines that could not be replayed
+     */
+    static void report(Shop shop, TimedStrategy timedStrategy, int intBooked, int intRejected) {
+        ScheduleSnapshot snapshot = shop.getEngine().getSnapshot();
+        int[] arrReserved = snapshot.getReservedSlots();
+        final int WEEKS = snapshot.getWeeksUsed();
+        // the longest service, the gaps it cannot use are counted
+        int intLongest = 0;
+        for (Service currService : shop.getServices())
+            intLongest = Math.max(intLongest, currService.intService_Time);
+        // the timeslots in the weeks the schedule spans
+        long lngSlotsOpen = (long) arrReserved.length * WEEKS * MechanicSchedule.NUM_WORK_DAYS
+                * (MechanicSchedule.NUM_WORK_MINUTES / snapshot.getSlotMinutes());
+        long lngSlotsReserved = 0;
+        for (int intReserved : arrReserved)
+            lngSlotsReserved += intReserved;
+
+        System.out.println("Strategy: " + timedStrategy.getName());
+        System.out.println("  Appointments: " + intBooked + ", rejected lines: " + intRejected);
+        System.out.println("  Weeks: " + WEEKS + String.format(", utilization: %.1f%%",
+                lngSlotsOpen == 0 ? 0.0 : 100.0 * lngSlotsReserved / lngSlotsOpen));
+        StringBuilder sbBays = new StringBuilder("  Hours by bay:");
+        for (int i = 0; i < arrReserved.length; i++)
+            sbBays.append(String.format(" %d=%.1f", i + 1, arrReserved[i] * snapshot.getSlotMinutes() / 60.0));
+        System.out.println(sbBays);
+        System.out.println("  Gaps shorter than " + intLongest + " minutes: " + snapshot.countGaps(intLongest));
+        final long CALLS = timedStrategy.lngCalls.get();
+        System.out.println(String.format("  Search: %d calls, %.2f ms total, %.1f us each", CALLS,
+                timedStrategy.lngNanos.get() / 1e6, CALLS == 0 ? 0.0 : timedStrategy.lngNanos.get() / 1e3 / CALLS));
+    }
+}
@@ -0,0 +1,194 @@
+
+/**
+ * Filename: PlacementStrategy.java
+ *
+ * Project: Homework3
+ *
+ * Author: Kevin Gyorick
+ *
+ * Date: 10/19/2026
+ *
+ * File Purpose:    This file is the interface the booking engine uses to choose where an appointment
+ *                  goes, along with the strategies it can use. Every strategy books on the earliest day
+ *                  any mechanic has room, so no customer waits a day longer than first come, first
+ *                  served allows, and only differs in which opening of that day it takes. First fit
+ *                  takes the earliest start, best fit takes the smallest opening the service fits so
+ *                  long openings are left for long services, and least loaded takes the mechanic with
+ *                  the fewest reserved timeslots so the work is spread across the bays.
+ *
+ * Program Purpose: The program schedules appointments for a mechanic shop.
+ *                  Appointments are scheduled first come, first served as
+ *                  long as the job can be completed the same day it is started
+ *                  given the current schedule. Mechanics with lower bay numbers
+ *                  assigned have higher priority when multiple mechanics are available
+ */
+import java.util.ArrayList;
+import java.util.List;
+
+public interface PlacementStrategy {
+    /**
+     * Chooses where an appointment goes. Does not change the schedules
+     *
+     * @param arrSchedules   the schedule of each mechanic sorted by bay
+     * @param arrEligible    whether or not each mechanic may take the appointment
+     * @param intSlotsNeeded the number of timeslots the appointment takes, no
+     *                       more than a day
+     * @return the mechanic index, week, day, and timeslot of the appointment, null
+     *         if no mechanic is eligible
+     */
+    int[] place(MechanicSchedule[] arrSchedules, boolean[] arrEligible, int intSlotsNeeded);
+
+    /**
+     * Gets the name of the strategy, the one accepted by forName
+     *
+     * @return the name of the strategy
+     */
+    String getName();
+
+    /**
+     * Gets a strategy by name
+     *
+     * @param strName first-fit, best-fit, or least-loaded
+     * @return a new strategy
+     * @throws IllegalArgumentException throws if there is no strategy with the
+     *                                  name
+     */
+    static PlacementStrategy forName(String strName) throws IllegalArgumentException {
+        switch (strName) {
+            case "first-fit":
+                return new FirstFit();
+            case "best-fit":
+                return new BestFit();
+            case "least-loaded":
+                return new LeastLoaded();
+            default:
+                throw new IllegalArgumentException(
+                        "Unknown placement strategy " + strName + ", use first-fit, best-fit, or least-loaded");
+        }
+    }
+
+    /**
+     * Finds the openings of one day that an appointment fits in, on the earliest
+     * day any eligible mechanic has one. Each mechanic's day is read once, a
+     * reserved timeslot ends the current opening
+     *
+     * @param arrSchedules   the schedule of each mechanic sorted by bay
+     * @param arrEligible    whether or not each mechanic may take the appointment
+     * @param intSlotsNeeded the number of timeslots the appointment takes
+     * @return the mechanic index, week, day, first timeslot, and length of each
+     *         opening on that day in order of mechanic then timeslot, null if no
+     *         mechanic is eligible
+     */
+    private static int[][] findOpenings(MechanicSchedule[] arrSchedules, boolean[] arrEligible,
+            int intSlotsNeeded) {
+        boolean blnAnyEligible = false;
+        for (boolean blnEligible : arrEligible)
+            blnAnyEligible |= blnEligible;
+        if (!blnAnyEligible)
+            return null;
+        // weeks past the end of the schedules are open, so an opening is always found
+        for (int weekNum = 0;; weekNum++) {
+            for (int dayNum = 0; dayNum < MechanicSchedule.NUM_WORK_DAYS; dayNum++) {
+                List<int[]> lstOpenings = new ArrayList<int[]>();
+                for (int m = 0; m < arrSchedules.length; m++) {
+                    if (!arrEligible[m])
+                        continue;
+                    final int SLOTS_PER_DAY = arrSchedules[m].getSlotsPerDay();
+                    // the first timeslot of the current opening
+                    int intRunStart = 0;
+                    for (int t = 0; t <= SLOTS_PER_DAY; t++) {
+                        if (t < SLOTS_PER_DAY && !arrSchedules[m].getSlot(weekNum, dayNum, t))
+                            continue;
+                        // the opening ends at a reserved timeslot or the end of the day
+                        if (t - intRunStart >= intSlotsNeeded)
+                            lstOpenings.add(new int[] { m, weekNum, dayNum, intRunStart, t - intRunStart });
+                        intRunStart = t + 1;
+                    }
+                }
+                if (!lstOpenings.isEmpty())
+                    return lstOpenings.toArray(new int[0][]);
+            }
+        }
+    }
+
+    /**
+     * Takes the earliest start, ties going to the lower bay. This is how
+     * appointments were always placed
+     */
+    static final class FirstFit implements PlacementStrategy {
+        @Override
+        public int[] place(MechanicSchedule[] arrSchedules, boolean[] arrEligible, int intSlotsNeeded) {
+            int[][] arrOpenings = findOpenings(arrSchedules, arrEligible, intSlotsNeeded);
+            if (arrOpenings == null)
+                return null;
+            // the opening that starts first, the openings are in mechanic order so the
+            // first one found wins a tie
+            int[] arrBest = arrOpenings[0];
+            for (int[] arrCurrent : arrOpenings) {
+                if (arrCurrent[3] < arrBest[3])
+                    arrBest = arrCurrent;
+            }
+            return new int[] { arrBest[0], arrBest[1], arrBest[2], arrBest[3] };
+        }
+
+        @Override
+        public String getName() {
+            return "first-fit";
+        }
+    }
+
+    /**
+     * Takes the start of the smallest opening the appointment fits in, ties going
+     * to the earlier start then the lower bay
+     */
+    static final class BestFit implements PlacementStrategy {
+        @Override
+        public int[] place(MechanicSchedule[] arrSchedules, boolean[] arrEligible, int intSlotsNeeded) {
+            int[][] arrOpenings = findOpenings(arrSchedules, arrEligible, intSlotsNeeded);
+            if (arrOpenings == null)
+                return null;
+            // the smallest opening
+            int[] arrBest = arrOpenings[0];
+            for (int[] arrCurrent : arrOpenings) {
+                if (arrCurrent[4] < arrBest[4] || (arrCurrent[4] == arrBest[4] && arrCurrent[3] < arrBest[3]))
+                    arrBest = arrCurrent;
+            }
+            return new int[] { arrBest[0], arrBest[1], arrBest[2], arrBest[3] };
+        }
+
+        @Override
+        public String getName() {
+            return "best-fit";
+        }
+    }
+
+    /**
+     * Takes the earliest start with the mechanic that has the fewest reserved
+     * timeslots, ties going to the earlier start then the lower bay. The counts
+     * are kept by each schedule as slots are reserved and freed, so choosing does
+     * not count them
+     */
+    static final class LeastLoaded implements PlacementStrategy {
+        @Override
+        public int[] place(MechanicSchedule[] arrSchedules, boolean[] arrEligible, int intSlotsNeeded) {
+            int[][] arrOpenings = findOpenings(arrSchedules, arrEligible, intSlotsNeeded);
+            if (arrOpenings == null)
+                return null;
+            // the first opening of the least loaded mechanic, openings of a mechanic are
+            // in timeslot order
+            int[] arrBest = arrOpenings[0];
+            for (int[] arrCurrent : arrOpenings) {
+                int intCurrentLoad = arrSchedules[arrCurrent[0]].getReservedSlots();
+                int intBestLoad = arrSchedules[arrBest[0]].getReservedSlots();
+                if (intCurrentLoad < intBestLoad || (intCurrentLoad == intBestLoad && arrCurrent[3] < arrBest[3]))
+                    arrBest = arrCurrent;
+            }
+            return new int[] { arrBest[0], arrBest[1], arrBest[2], arrBest[3] };
+        }
+
+        @Override
+        public String getName() {
+            return "least-loaded";
+        }
+    }
+}
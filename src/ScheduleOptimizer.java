@@ -0,0 +1,625 @@
+
+/**
+ * Filename: ScheduleOptimizer.java
+ *
+ * Project: Homework3
+ *
+ * Author: Kevin Gyorick
+ *
+ * Date: 10/19/2026
+ *
+ * File Purpose:    This file compacts the book offline. It reads the appointments of the next few weeks
+ *                  and searches for a reassignment of their bays and times that ends the book sooner or
+ *                  leaves fewer idle gaps, keeping every appointment within one day, never booking a
+ *                  vehicle twice at once, and never starting an appointment later than it is booked. Each worker of a fork join pool runs its own local search over
+ *                  the order the appointments are placed in until the time budget runs out, and the best
+ *                  schedule found is written as a diff that is later applied to Schedule_Table in one
+ *                  transaction.
+ *
+ * Program Purpose: The program schedules appointments for a mechanic shop.
+ *                  Appointments are scheduled first come, first served as
+ *                  long as the job can be completed the same day it is started
+ *                  given the current schedule. Mechanics with lower bay numbers
+ *                  assigned have higher priority when multiple mechanics are available
+ */
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+
+public class ScheduleOptimizer {
+    static final String USAGE = "Usage: java App --optimize [--budget <seconds>] [--objective horizon|gaps] [--weeks <n>]"
+            + " [--diff <file>] | --optimize --apply <file>";
+    static final String DIFF_HEADER = "TUID\tVehicles_TUID\tService_TUID\tBefore_Bay\tBefore_Start\tBefore_End"
+            + "\tAfter_Bay\tAfter_Start\tAfter_End"; // the first line of a diff file
+    static final String DEFAULT_DIFF = "schedule.diff"; // the diff file when none is given
+    static final int DEFAULT_BUDGET = 60; // the seconds searched when no budget is given
+    static final int DEFAULT_WEEKS = 4; // the weeks of the book that are compacted when none are given
+
+    private final int GCF; // the length of a timeslot in minutes
+    private final int SLOTS_PER_DAY; // the number of timeslots in a work day
+    private final int[] arrBayTUIDs; // the bays sorted by number
+    private final boolean blnGaps; // whether idle gaps come before the horizon in the objective
+    private final Schedule[] arrMovable; // the appointments that may be moved, in the order they were booked
+    private final int[] arrLength; // the number of timeslots each movable appointment takes
+    private final int[] arrVehicle; // the vehicle index of each movable appointment
+    private final int[] arrOriginalBay; // the bay index each movable appointment is booked in
+    private final int[] arrOriginalStart; // the timeslot from next monday each movable appointment starts at
+    private final long[] arrBaySkills; // the skill mask of the mechanic working in each bay
+    private final boolean[] arrBayRetired; // whether or not each bay is retired
+    private final long[] arrRequired; // the skill mask each movable appointment's service requires
+    private final boolean[][] arrFixedGrid; // the timeslots of each bay taken by appointments that stay put
+    private final List<List<int[]>> lstFixedVehicles; // the timeslots each vehicle is taken by appointments that stay put
+
+    /**
+     * A schedule of the movable appointments and how good it is
+     */
+    static final class Placement {
+        final int[] arrOrder; // the order the appointments were placed in
+        final int[] arrBay; // the bay index of each appointment
+        final int[] arrStart; // the timeslot from next monday each appointment starts at
+        final long[] arrCost; // the objective, compared in order, smaller is better
+        long lngIterations = 0; // the number of schedules the search tried
+
+        /**
+         * construct a placement
+         *
+         * @param arrOrder the order the appointments were placed in
+         * @param arrBay   the bay index of each appointment
+         * @param arrStart the first timeslot of each appointment
+         * @param arrCost  the objective of the schedule
+         */
+        Placement(int[] arrOrder, int[] arrBay, int[] arrStart, long[] arrCost) {
+            this.arrOrder = arrOrder;
+            this.arrBay = arrBay;
+            this.arrStart = arrStart;
+            this.arrCost = arrCost;
+        }
+    }
+
+    /**
+     * construct an optimizer for the appointments of the next few weeks
+     *
+     * @param arrServices     the services offered
+     * @param arrBays         the bays of the shop
+     * @param arrAppointments   every appointment in the database
+     * @param mapMechanicSkills the skill mask of each mechanic by id
+     * @param mapRequiredSkills the skill mask each service requires by id
+     * @param setRetiredBays    the ids of the retired bays
+     * @param intWeeks          the number of weeks starting next monday whose
+     *                          appointments may be moved
+     * @param blnGaps           whether to minimize idle gaps before the horizon
+     */
+    ScheduleOptimizer(Service[] arrServices, Bay[] arrBays, Schedule[] arrAppointments,
+            Map<Integer, Long> mapMechanicSkills, Map<Integer, Long> mapRequiredSkills, Set<Integer> setRetiredBays,
+            int intWeeks, boolean blnGaps) {
+        this.GCF = Service.GCF(arrServices);
+        this.SLOTS_PER_DAY = MechanicSchedule.NUM_WORK_MINUTES / GCF;
+        this.blnGaps = blnGaps;
+        this.arrBayTUIDs = new int[arrBays.length];
+        for (int i = 0; i < arrBays.length; i++)
+            arrBayTUIDs[i] = arrBays[i].getTUID();
+        Arrays.sort(arrBayTUIDs);
+        this.arrBaySkills = new long[arrBays.length];
+        this.arrBayRetired = new boolean[arrBays.length];
+        for (Bay currBay : arrBays) {
+            final int BAY = Arrays.binarySearch(arrBayTUIDs, currBay.getTUID());
+            arrBaySkills[BAY] = mapMechanicSkills.getOrDefault(currBay.Mechanic_TUID, 0L);
+            arrBayRetired[BAY] = setRetiredBays.contains(currBay.getTUID());
+        }
+        final int WINDOW_DAYS = intWeeks * MechanicSchedule.NUM_WORK_DAYS;
+        final Timestamp NEXT_MONDAY = DateUtil.getNextMondaysDate();
+
+        // sort the appointments into the ones that move and the ones that stay put
+        List<Schedule> lstMovable = new ArrayList<Schedule>();
+        List<int[]> lstMovableSlots = new ArrayList<int[]>();
+        List<int[]> lstFixedSlots = new ArrayList<int[]>();
+        // the index of each vehicle
+        Map<Integer, Integer> mapVehicles = new HashMap<Integer, Integer>();
+        int intLastFixedDay = 0;
+        Schedule[] arrSorted = arrAppointments.clone();
+        Arrays.sort(arrSorted, Comparator.comparingInt(Schedule::getTUID));
+        for (Schedule currAppointment : arrSorted) {
+            int intBay = Arrays.binarySearch(arrBayTUIDs, currAppointment.Bays_TUID);
+            int intLength;
+            try {
+                intLength = Service.getService(currAppointment.Service_TUID, arrServices).intService_Time / GCF;
+            } catch (NoSuchElementException ex) {
+                continue;
+            }
+            int[] arrSlot = DateUtil.timestampToWeekDayTimeslot(currAppointment.Appointment_Start_Time, NEXT_MONDAY,
+                    GCF);
+            // appointments before next monday are not on the schedule
+            if (intBay < 0 || arrSlot[0] < 0)
+                continue;
+            final int DAY = arrSlot[0] * MechanicSchedule.NUM_WORK_DAYS + arrSlot[1];
+            int intVehicle = mapVehicles.computeIfAbsent(currAppointment.Vehicles_TUID, (key) -> mapVehicles.size());
+            int[] arrSlots = { intBay, DAY * SLOTS_PER_DAY + arrSlot[2], intLength, intVehicle };
+            if (DAY < WINDOW_DAYS) {
+                lstMovable.add(currAppointment);
+                lstMovableSlots.add(arrSlots);
+            } else {
+                lstFixedSlots.add(arrSlots);
+                intLastFixedDay = Math.max(intLastFixedDay, DAY);
+            }
+        }
+
+        this.arrMovable = lstMovable.toArray(new Schedule[0]);
+        this.arrLength = new int[arrMovable.length];
+        this.arrVehicle = new int[arrMovable.length];
+        this.arrOriginalBay = new int[arrMovable.length];
+        this.arrOriginalStart = new int[arrMovable.length];
+        this.arrRequired = new long[arrMovable.length];
+        for (int i = 0; i < arrMovable.length; i++) {
+            arrRequired[i] = mapRequiredSkills.getOrDefault(arrMovable[i].Service_TUID, 0L);
+            arrOriginalBay[i] = lstMovableSlots.get(i)[0];
+            arrOriginalStart[i] = lstMovableSlots.get(i)[1];
+            arrLength[i] = lstMovableSlots.get(i)[2];
+            arrVehicle[i] = lstMovableSlots.get(i)[3];
+        }
+        // every appointment fits in a day of its own after the last one that stays put
+        final int DAYS = Math.max(WINDOW_DAYS, intLastFixedDay + 1) + arrMovable.length + 1;
+        this.arrFixedGrid = new boolean[arrBayTUIDs.length][DAYS * SLOTS_PER_DAY];
+        this.lstFixedVehicles = new ArrayList<List<int[]>>();
+        for (int i = 0; i < mapVehicles.size(); i++)
+            lstFixedVehicles.add(new ArrayList<int[]>());
+        for (int[] arrSlots : lstFixedSlots) {
+            Arrays.fill(arrFixedGrid[arrSlots[0]], arrSlots[1], arrSlots[1] + arrSlots[2], true);
+            lstFixedVehicles.get(arrSlots[3]).add(new int[] { arrSlots[1], arrSlots[1] + arrSlots[2] });
+        }
+    }
+
+    /**
+     * Runs the optimizer from the command line arguments
+     *
+     * @param args the command line arguments, --optimize and its options
+     * @return the exit code of the optimizer
+     */
+    public static int run(String[] args) {
+        // the seconds to search
+        int intBudget = DEFAULT_BUDGET;
+        // whether to minimize idle gaps before the horizon
+        boolean blnGaps = false;
+        // the weeks that are compacted
+        int intWeeks = DEFAULT_WEEKS;
+        // the diff file to write
+        String strDiffFile = DEFAULT_DIFF;
+        // the diff file to apply, null to optimize
+        String strApplyFile = null;
+        try {
+            for (int i = 1; i < args.length; i++) {
+                if (i + 1 >= args.length)
+                    throw new IllegalArgumentException("Missing value for " + args[i]);
+                switch (args[i]) {
+                    case "--budget":
+                        intBudget = Integer.parseInt(args[++i]);
+                        if (intBudget < 1)
+                            throw new IllegalArgumentException("--budget must be at least 1 second");
+                        break;
+                    case "--objective":
+                        if (!args[++i].equals("horizon") && !args[i].equals("gaps"))
+                            throw new IllegalArgumentException("Unknown objective " + args[i]);
+                        blnGaps = args[i].equals("gaps");
+                        break;
+                    case "--weeks":
+                        intWeeks = Integer.parseInt(args[++i]);
+                        if (intWeeks < 1)
+                            throw new IllegalArgumentException("--weeks must be at least 1");
+                        break;
+                    case "--diff":
+                        strDiffFile = args[++i];
+                        break;
+                    case "--apply":
+                        strApplyFile = args[++i];
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown argument " + args[i]);
+                }
+            }
+        } catch (IllegalArgumentException ex) {
+            System.err.println(ex.getMessage());
+            System.err.println(USAGE);
+            return BatchImport.EXIT_USAGE;
+        }
+
+        try {
+            if (strApplyFile != null)
+                return applyDiff(strApplyFile);
+            if (!new File(DB.DATABASE_NAME).exists())
+                throw new SQLException("There is no " + DB.DATABASE_NAME + " to optimize");
+            ScheduleOptimizer optimizer;
+            // the optimizer only reads the database, the diff is applied later
+            DB database = new DB("file:" + DB.DATABASE_NAME + "?mode=ro");
+            try {
+                optimizer = new ScheduleOptimizer(database.getServices(), database.getBays(), database.getSchedule(),
+                        database.getMechanicSkills(), database.getServiceRequirements(), database.getRetiredBays(),
+                        intWeeks, blnGaps);
+            } finally {
+                database.close();
+            }
+            Placement original = optimizer.getOriginal();
+            System.out.println("Optimizing " + optimizer.arrMovable.length + " appointments in the next " + intWeeks
+                    + " weeks for " + intBudget + " seconds");
+            Placement best = optimizer.optimize(intBudget * 1000L, Runtime.getRuntime().availableProcessors());
+            System.out.println("Before: " + optimizer.describe(original));
+            System.out.println("After:  " + optimizer.describe(best) + ", " + best.lngIterations + " schedules tried");
+            Schedule[][] arrDiff = optimizer.getDiff(best);
+            writeDiff(strDiffFile, arrDiff[0], arrDiff[1]);
+            System.out.println("Wrote " + arrDiff[0].length + " moves to " + strDiffFile + ", apply them with --apply "
+                    + strDiffFile);
+            return BatchImport.EXIT_OK;
+        } catch (SQLException | IOException ex) {
+            ex.printStackTrace();
+            return BatchImport.EXIT_FAILED;
+        }
+    }
+
+    /**
+     * Gets the schedule the movable appointments are booked in now
+     *
+     * @return the current placement of the appointments
+     */
+    Placement getOriginal() {
+        return new Placement(null, arrOriginalBay, arrOriginalStart, cost(arrOriginalBay, arrOriginalStart));
+    }
+
+    /**
+     * Searches for a better schedule on a fork join pool until the time budget
+     * runs out. Each worker starts from its own order, the first from the order
+     * the appointments start in, the second from the longest first, and the rest
+     * from a random order, and keeps any change to the order that does not make
+     * its schedule worse
+     *
+     * @param lngBudgetMillis the time to search in milliseconds
+     * @param intWorkers      the number of searches run at once
+     * @return the best schedule found, the current one if none is better
+     */
+    Placement optimize(long lngBudgetMillis, int intWorkers) {
+        final long DEADLINE = System.nanoTime() + lngBudgetMillis * 1_000_000L;
+        ForkJoinPool pool = new ForkJoinPool(intWorkers);
+        try {
+            List<CompletableFuture<Placement>> lstSearches = new ArrayList<CompletableFuture<Placement>>();
+            for (int w = 0; w < intWorkers; w++) {
+                final int WORKER = w;
+                lstSearches.add(CompletableFuture.supplyAsync(() -> search(WORKER, DEADLINE), pool));
+            }
+            Placement best = getOriginal();
+            long lngIterations = 0;
+            for (CompletableFuture<Placement> currSearch : lstSearches) {
+                Placement found = currSearch.join();
+                lngIterations += found.lngIterations;
+                // ties go to the current schedule then the lower worker so nothing moves for no gain
+                if (compare(found.arrCost, best.arrCost) < 0)
+                    best = found;
+            }
+            best.lngIterations = lngIterations;
+            return best;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Runs one local search over the order the appointments are placed in
+     *
+     * @param intWorker the number of the worker, which picks its first order and
+     *                  random seed
+     * @param lngDeadline the nano time to stop at
+     * @return the best schedule the worker found
+     */
+    private Placement search(int intWorker, long lngDeadline) {
+        Random random = new Random(intWorker);
+        Integer[] arrFirst = new Integer[arrMovable.length];
+        for (int i = 0; i < arrFirst.length; i++)
+            arrFirst[i] = i;
+        if (intWorker == 0)
+            Arrays.sort(arrFirst, Comparator.comparingInt((Integer i) -> arrOriginalStart[i]));
+        else if (intWorker == 1)
+            Arrays.sort(arrFirst, Comparator.comparingInt((Integer i) -> -arrLength[i]));
+        else
+            Collections.shuffle(Arrays.asList(arrFirst), random);
+        int[] arrOrder = new int[arrFirst.length];
+        for (int i = 0; i < arrOrder.length; i++)
+            arrOrder[i] = arrFirst[i];
+
+        Placement current = decode(arrOrder);
+        Placement best = current;
+        long lngIterations = 1;
+        while (arrOrder.length > 1 && System.nanoTime() < lngDeadline) {
+            int[] arrNext = current.arrOrder.clone();
+            int intFrom = random.nextInt(arrNext.length);
+            int intTo = random.nextInt(arrNext.length);
+            if (random.nextBoolean()) {
+                // swap two appointments
+                int intTemp = arrNext[intFrom];
+                arrNext[intFrom] = arrNext[intTo];
+                arrNext[intTo] = intTemp;
+            } else {
+                // move one appointment to another place in the order
+                int intMoved = arrNext[intFrom];
+                if (intFrom < intTo)
+                    System.arraycopy(arrNext, intFrom + 1, arrNext, intFrom, intTo - intFrom);
+                else
+                    System.arraycopy(arrNext, intTo, arrNext, intTo + 1, intFrom - intTo);
+                arrNext[intTo] = intMoved;
+            }
+            Placement next = decode(arrNext);
+            lngIterations++;
+            if (compare(next.arrCost, current.arrCost) <= 0) {
+                current = next;
+                if (compare(current.arrCost, best.arrCost) < 0)
+                    best = current;
+            }
+        }
+        best.lngIterations = lngIterations;
+        return best;
+    }
+
+    /**
+     * Places the movable appointments in an order, each at the earliest start in
+     * any bay that fits in one day and does not overlap another appointment of
+     * its vehicle, ties going to the lower bay. Only bays that are not retired
+     * and whose mechanic has the skills the service requires are searched,
+     * besides the bay the appointment is booked in, so an appointment booked
+     * before its service required a skill still has somewhere to go
+     *
+     * @param arrOrder the order to place the appointments in
+     * @return the schedule of the appointments
+     */
+    Placement decode(int[] arrOrder) {
+        boolean[][] arrGrid = copyGrid();
+        List<List<int[]>> lstVehicles = copyVehicles();
+        int[] arrBay = new int[arrMovable.length];
+        int[] arrStart = new int[arrMovable.length];
+        for (int intAppointment : arrOrder) {
+            final int LENGTH = arrLength[intAppointment];
+            List<int[]> lstBooked = lstVehicles.get(arrVehicle[intAppointment]);
+            int intBestBay = -1;
+            int intBestStart = 0;
+            for (int intDay = 0; intBestBay < 0; intDay++) {
+                final int DAY_START = intDay * SLOTS_PER_DAY;
+                for (int b = 0; b < arrGrid.length; b++) {
+                    if (b != arrOriginalBay[intAppointment] && (arrBayRetired[b]
+                            || (arrBaySkills[b] & arrRequired[intAppointment]) != arrRequired[intAppointment]))
+                        continue;
+                    // the length of the open run ending at the current timeslot
+                    int intRun = 0;
+                    for (int t = DAY_START; t < DAY_START + SLOTS_PER_DAY; t++) {
+                        intRun = arrGrid[b][t] ? 0 : intRun + 1;
+                        if (intRun < LENGTH || overlaps(lstBooked, t - LENGTH + 1, t + 1))
+                            continue;
+                        if (intBestBay < 0 || t - LENGTH + 1 < intBestStart) {
+                            intBestBay = b;
+                            intBestStart = t - LENGTH + 1;
+                        }
+                        break;
+                    }
+                }
+            }
+            Arrays.fill(arrGrid[intBestBay], intBestStart, intBestStart + LENGTH, true);
+            lstBooked.add(new int[] { intBestStart, intBestStart + LENGTH });
+            arrBay[intAppointment] = intBestBay;
+            arrStart[intAppointment] = intBestStart;
+        }
+        return new Placement(arrOrder, arrBay, arrStart, cost(arrBay, arrStart));
+    }
+
+    /**
+     * Gets the objective of a schedule. Appointments that start later than they
+     * are booked come first, since customers were told their time and the current
+     * schedule has none. The horizon is the timeslot the last movable appointment
+     * ends at, the idle gaps are the open timeslots between opening and the last
+     * appointment of each bay's day, and the number of moved appointments then
+     * the sum of the starts break ties so nothing is moved for no gain
+     *
+     * @param arrBay   the bay index of each movable appointment
+     * @param arrStart the first timeslot of each movable appointment
+     * @return the late appointments, the horizon and idle gaps in the order of the
+     *         objective, the moved appointments, and the sum of the starts
+     */
+    long[] cost(int[] arrBay, int[] arrStart) {
+        boolean[][] arrGrid = copyGrid();
+        long lngLate = 0;
+        long lngHorizon = 0;
+        long lngMoved = 0;
+        long lngStarts = 0;
+        for (int i = 0; i < arrMovable.length; i++) {
+            Arrays.fill(arrGrid[arrBay[i]], arrStart[i], arrStart[i] + arrLength[i], true);
+            if (arrStart[i] > arrOriginalStart[i])
+                lngLate++;
+            if (arrStart[i] != arrOriginalStart[i] || arrBay[i] != arrOriginalBay[i])
+                lngMoved++;
+            lngHorizon = Math.max(lngHorizon, arrStart[i] + arrLength[i]);
+            lngStarts += arrStart[i];
+        }
+        // the idle timeslots of the days up to the horizon
+        long lngIdle = 0;
+        for (boolean[] arrBayGrid : arrGrid) {
+            for (int intDayStart = 0; intDayStart < lngHorizon; intDayStart += SLOTS_PER_DAY) {
+                int intLast = -1;
+                int intBusy = 0;
+                for (int t = intDayStart; t < intDayStart + SLOTS_PER_DAY; t++) {
+                    if (!arrBayGrid[t])
+                        continue;
+                    intLast = t;
+                    intBusy++;
+                }
+                if (intLast >= 0)
+                    lngIdle += intLast - intDayStart + 1 - intBusy;
+            }
+        }
+        return blnGaps ? new long[] { lngLate, lngIdle, lngHorizon, lngMoved, lngStarts }
+                : new long[] { lngLate, lngHorizon, lngIdle, lngMoved, lngStarts };
+    }
+
+    /**
+     * Compares two objectives in order
+     *
+     * @param arrFirst  the first objective
+     * @param arrSecond the second objective
+     * @return negative if the first is better, 0 if they are equal, positive if
+     *         the second is better
+     */
+    static int compare(long[] arrFirst, long[] arrSecond) {
+        for (int i = 0; i < arrFirst.length; i++) {
+            if (arrFirst[i] != arrSecond[i])
+                return Long.compare(arrFirst[i], arrSecond[i]);
+        }
+        return 0;
+    }
+
+    /**
+     * Gets the appointments a schedule moves
+     *
+     * @param placement the schedule
+     * @return the moved appointments where they are now and where the schedule
+     *         puts them, in the same order
+     * @throws SQLException throws if a moved appointment cannot be created
+     */
+    Schedule[][] getDiff(Placement placement) throws SQLException {
+        final Timestamp NEXT_MONDAY = DateUtil.getNextMondaysDate();
+        List<Schedule> lstBefore = new ArrayList<Schedule>();
+        List<Schedule> lstAfter = new ArrayList<Schedule>();
+        for (int i = 0; i < arrMovable.length; i++) {
+            if (placement.arrBay[i] == arrOriginalBay[i] && placement.arrStart[i] == arrOriginalStart[i])
+                continue;
+            final int DAY = placement.arrStart[i] / SLOTS_PER_DAY;
+            Timestamp[] arrTimes = DateUtil.appointmentTimes(NEXT_MONDAY, DAY / MechanicSchedule.NUM_WORK_DAYS,
+                    DAY % MechanicSchedule.NUM_WORK_DAYS, placement.arrStart[i] % SLOTS_PER_DAY, arrLength[i] * GCF,
+                    GCF);
+            lstBefore.add(arrMovable[i]);
+            lstAfter.add(new Schedule(arrMovable[i].getTUID(), arrMovable[i].Vehicles_TUID,
+                    arrBayTUIDs[placement.arrBay[i]], arrMovable[i].Service_TUID, arrTimes[0], arrTimes[1]));
+        }
+        return new Schedule[][] { lstBefore.toArray(new Schedule[0]), lstAfter.toArray(new Schedule[0]) };
+    }
+
+    /**
+     * Describes the horizon and idle gaps of a schedule
+     *
+     * @param placement the schedule
+     * @return the description
+     */
+    String describe(Placement placement) {
+        final long HORIZON = placement.arrCost[blnGaps ? 2 : 1];
+        final long IDLE = placement.arrCost[blnGaps ? 1 : 2];
+        return String.format("horizon %.2f work days, %.1f idle hours, %d moved", (double) HORIZON / SLOTS_PER_DAY,
+                IDLE * GCF / 60.0, placement.arrCost[3]);
+    }
+
+    /**
+     * Writes a diff file, a header then one tab delimited line per moved
+     * appointment
+     *
+     * @param strFileName the path of the diff file
+     * @param arrBefore   the moved appointments where they are now
+     * @param arrAfter    the moved appointments where they go
+     * @throws IOException throws if the file cannot be written
+     */
+    static void writeDiff(String strFileName, Schedule[] arrBefore, Schedule[] arrAfter) throws IOException {
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(new File(strFileName).toPath()))) {
+            writer.println(DIFF_HEADER);
+            for (int i = 0; i < arrBefore.length; i++)
+                writer.println(arrBefore[i].getTUID() + "\t" + arrBefore[i].Vehicles_TUID + "\t"
+                        + arrBefore[i].Service_TUID + "\t" + arrBefore[i].Bays_TUID + "\t"
+                        + arrBefore[i].Appointment_Start_Time + "\t" + arrBefore[i].Appointment_End_Time + "\t"
+                        + arrAfter[i].Bays_TUID + "\t" + arrAfter[i].Appointment_Start_Time + "\t"
+                        + arrAfter[i].Appointment_End_Time);
+        }
+    }
+
+    /**
+     * Applies a diff file to Schedule_Table in one transaction, nothing is moved
+     * if any appointment in it was cancelled or moved since it was written or the
+     * moves conflict with appointments booked since
+     *
+     * @param strFileName the path of the diff file
+     * @return the exit code, failed if nothing was moved
+     * @throws SQLException throws if the database cannot be changed
+     * @throws IOException  throws if the file cannot be read or is not a diff
+     */
+    static int applyDiff(String strFileName) throws SQLException, IOException {
+        String[] arrFileLines = Files.readAllLines(new File(strFileName).toPath()).toArray(new String[0]);
+        if (arrFileLines.length == 0 || !arrFileLines[0].equals(DIFF_HEADER))
+            throw new IOException(strFileName + " is not a schedule diff");
+        Schedule[] arrBefore = new Schedule[arrFileLines.length - 1];
+        Schedule[] arrAfter = new Schedule[arrFileLines.length - 1];
+        try {
+            for (int i = 1; i < arrFileLines.length; i++) {
+                final String[] FIELDS = arrFileLines[i].split("\t");
+                final int TUID = Integer.parseInt(FIELDS[0]);
+                final int VEHICLE = Integer.parseInt(FIELDS[1]);
+                final int SERVICE = Integer.parseInt(FIELDS[2]);
+                arrBefore[i - 1] = new Schedule(TUID, VEHICLE, Integer.parseInt(FIELDS[3]), SERVICE,
+                        Timestamp.valueOf(FIELDS[4]), Timestamp.valueOf(FIELDS[5]));
+                arrAfter[i - 1] = new Schedule(TUID, VEHICLE, Integer.parseInt(FIELDS[6]), SERVICE,
+                        Timestamp.valueOf(FIELDS[7]), Timestamp.valueOf(FIELDS[8]));
+            }
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException ex) {
+            throw new IOException(strFileName + " is not a schedule diff", ex);
+        }
+        Entity.initializeDatabase();
+        if (!Entity.Database.applyScheduleDiff(arrBefore, arrAfter)) {
+            System.err.println("The book changed since " + strFileName + " was written, nothing was moved");
+            return BatchImport.EXIT_FAILED;
+        }
+        System.out.println("Moved " + arrAfter.length + " appointments");
+        return BatchImport.EXIT_OK;
+    }
+
+    /**
+     * Copies the timeslots taken by the appointments that stay put
+     *
+     * @return a grid to place the movable appointments in
+     */
+    private boolean[][] copyGrid() {
+        boolean[][] arrGrid = new boolean[arrFixedGrid.length][];
+        for (int b = 0; b < arrGrid.length; b++)
+            arrGrid[b] = arrFixedGrid[b].clone();
+        return arrGrid;
+    }
+
+    /**
+     * Copies the timeslots each vehicle is taken by the appointments that stay
+     * put
+     *
+     * @return the lists to add the movable appointments to
+     */
+    private List<List<int[]>> copyVehicles() {
+        List<List<int[]>> lstCopy = new ArrayList<List<int[]>>(lstFixedVehicles.size());
+        for (List<int[]> lstBooked : lstFixedVehicles)
+            lstCopy.add(new ArrayList<int[]>(lstBooked));
+        return lstCopy;
+    }
+
+    /**
+     * Checks whether timeslots overlap any in a list
+     *
+     * @param lstBooked the timeslots a vehicle is taken, start inclusive and end
+     *                  exclusive
+     * @param intStart  the first timeslot
+     * @param intEnd    the timeslot after the last
+     * @return true if any overlap
+     */
+    private static boolean overlaps(List<int[]> lstBooked, int intStart, int intEnd) {
+        for (int[] arrBooked : lstBooked) {
+            if (intStart < arrBooked[1] && arrBooked[0] < intEnd)
+                return true;
+        }
+        return false;
+    }
+}
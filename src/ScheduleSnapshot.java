@@ -0,0 +1,265 @@
+
+/**
+ * Filename: ScheduleSnapshot.java
+ *
+ * Project: Homework3
+ *
+ * Author: Kevin Gyorick
+ *
+ * Date: 10/19/2026
+ *
+ * File Purpose:    This file is a read only, point in time view of the booking engine. It holds a copy
+ *                  of each mechanic's schedule that shares the unchanged week pages with the live
+ *                  schedule and the list of booked appointments, which is shared with later snapshots
+ *                  since appointments are only ever added to the front. The engine publishes a new
+ *                  snapshot after each booking finishes, so reports read a consistent schedule without
+ *                  locking and never see a booking that is half done. A snapshot nobody holds is
+ *                  reclaimed by the garbage collector along with any pages no newer snapshot shares.
+ *
+ * Program Purpose: The program schedules appointments for a mechanic shop.
+ *                  Appointments are scheduled first come, first served as
+ *                  long as the job can be completed the same day it is started
+ *                  given the current schedule. Mechanics with lower bay numbers
+ *                  assigned have higher priority when multiple mechanics are available
+ */
+import java.util.Arrays;
+import java.util.Comparator;
+
+public class ScheduleSnapshot {
+    private final long lngVersion; // the number of snapshots the engine published before this one
+    private final Mechanic[] arrMechanics; // the mechanics sorted by bay number
+    private final int GCFServiceTime; // the length of a timeslot in minutes
+    private final MechanicSchedule[] arrMechanicSchedules; // the schedule of each mechanic, never changed
+    private final AppointmentNode appointmentHead; // the most recently booked appointment
+    private final int intAppointmentCount; // the number of booked appointments
+
+    /**
+     * A booked appointment in a list shared by every snapshot, the newest
+     * appointment is first
+     */
+    static final class AppointmentNode {
+        final Schedule appointment; // the booked appointment
+        final AppointmentNode next; // the appointment booked before it, null if it is the first
+
+        /**
+         * construct a node in front of the appointments booked before it
+         *
+         * @param appointment the booked appointment
+         * @param next        the appointment booked before it
+         */
+        AppointmentNode(Schedule appointment, AppointmentNode next) {
+            this.appointment = appointment;
+            this.next = next;
+        }
+    }
+
+    /**
+     * construct a snapshot, the schedules must not be changed afterwards
+     *
+     * @param lngVersion           the version of the snapshot
+     * @param arrMechanics         the mechanics sorted by bay number
+     * @param GCFServiceTime       the length of a timeslot in minutes
+     * @param arrMechanicSchedules a copy of each mechanic's schedule
+     * @param appointmentHead      the most recently booked appointment
+     * @param intAppointmentCount  the number of booked appointments
+     */
+    ScheduleSnapshot(long lngVersion, Mechanic[] arrMechanics, int GCFServiceTime,
+            MechanicSchedule[] arrMechanicSchedules, AppointmentNode appointmentHead, int intAppointmentCount) {
+        this.lngVersion = lngVersion;
+        this.arrMechanics = arrMechanics;
+        this.GCFServiceTime = GCFServiceTime;
+        this.arrMechanicSchedules = arrMechanicSchedules;
+        this.appointmentHead = appointmentHead;
+        this.intAppointmentCount = intAppointmentCount;
+    }
+
+    /**
+     * Gets the version of the snapshot, a later snapshot has a larger version
+     *
+     * @return the version of the snapshot
+     */
+    public long getVersion() {
+        return lngVersion;
+    }
+
+    /**
+     * Gets the number of booked appointments
+     *
+     * @return the number of appointments in the snapshot
+     */
+    public int getAppointmentCount() {
+        return intAppointmentCount;
+    }
+
+    /**
+     * Gets the booked appointments sorted by start time, appointments starting at
+     * the same time are sorted by id
+     *
+     * @return a new array of the appointments in the snapshot
+     */
+    public Schedule[] getAppointments() {
+        Schedule[] arrAppointments = new Schedule[intAppointmentCount];
+        // the list is newest first so fill the array from the end
+        int i = arrAppointments.length;
+        for (AppointmentNode currNode = appointmentHead; currNode != null; currNode = currNode.next)
+            arrAppointments[--i] = currNode.appointment;
+        Arrays.sort(arrAppointments, Comparator
+                .comparingLong((Schedule s) -> s.Appointment_Start_Time.getTime()).thenComparingInt(Schedule::getTUID));
+        return arrAppointments;
+    }
+
+    /**
+     * Gets the booked appointments in a bay sorted by start time
+     *
+     * @param intBayTUID the id of the bay
+     * @return the appointments in the bay
+     */
+    public Schedule[] getBayAppointments(int intBayTUID) {
+        return Arrays.stream(getAppointments()).filter((s) -> s.Bays_TUID == intBayTUID).toArray(Schedule[]::new);
+    }
+
+    /**
+     * Gets the paychecks of each mechanic for each week on the schedule
+     *
+     * @param arrMechanics the mechanics to get the paychecks of
+     * @return a 2D array of paycheck amounts where the index is (the mechanic's
+     *         index in the provided array, week number: where 0 is next week)
+     * @throws IllegalArgumentException throws if a mechanic is not in the snapshot
+     */
+    public double[][] getPaychecks(Mechanic[] arrMechanics) throws IllegalArgumentException {
+        // the max number of weeks being worked on the schedule
+        int maxWeekLength = 0;
+        // foreach mechanic schedule
+        for (MechanicSchedule currMechanicSchedule : arrMechanicSchedules) {
+            // if new longest week length set it to max
+            if (currMechanicSchedule.weekLength() > maxWeekLength)
+                maxWeekLength = currMechanicSchedule.weekLength();
+        }
+        // 2D double array for storing the amount a mechanic is getting paid for the
+        // week
+        double[][] paychecks = new double[arrMechanics.length][maxWeekLength];
+
+        // foreach mechanic
+        for (int i = 0; i < arrMechanics.length; i++) {
+            // the mechanic's schedule in the snapshot
+            MechanicSchedule currMechanicSchedule = arrMechanicSchedules[getMechanicIndex(arrMechanics[i].getTUID())];
+            // foreach week
+            for (int j = 0; j < maxWeekLength; j++) {
+                // compute the paycheck for that mechanic on that week
+                paychecks[i][j] = currMechanicSchedule.computePaycheckForWeek(j, arrMechanics[i].intHourly_payrate,
+                        GCFServiceTime);
+            }
+        }
+
+        // return the paychecks' amounts
+        return paychecks;
+    }
+
+    /**
+     * Gets the number of timeslots reserved on each mechanic's schedule
+     *
+     * @return the reserved timeslots of each mechanic sorted by bay
+     */
+    public int[] getReservedSlots() {
+        int[] arrReserved = new int[arrMechanicSchedules.length];
+        for (int i = 0; i < arrMechanicSchedules.length; i++)
+            arrReserved[i] = arrMechanicSchedules[i].getReservedSlots();
+        return arrReserved;
+    }
+
+    /**
+     * Gets the number of weeks from next week through the last week with a
+     * reserved timeslot
+     *
+     * @return the number of weeks the schedule spans
+     */
+    public int getWeeksUsed() {
+        // the number of weeks through the last one with a reservation
+        int intWeeks = 0;
+        for (MechanicSchedule currMechanicSchedule : arrMechanicSchedules) {
+            for (int weekNum = currMechanicSchedule.weekLength() - 1; weekNum >= intWeeks; weekNum--) {
+                if (currMechanicSchedule.totalReservedSlotsForWeek(weekNum) > 0) {
+                    intWeeks = weekNum + 1;
+                    break;
+                }
+            }
+        }
+        return intWeeks;
+    }
+
+    /**
+     * Counts the openings shorter than a service on the days a mechanic works,
+     * the gaps left between and around appointments that a service of that
+     * length cannot use. Days without an appointment are not counted
+     *
+     * @param intMinutes the length of the service in minutes
+     * @return the number of openings shorter than the service
+     */
+    public int countGaps(int intMinutes) {
+        // the number of timeslots the service takes
+        final int SLOTS_NEEDED = (intMinutes + GCFServiceTime - 1) / GCFServiceTime;
+        // the number of openings that are too short
+        int intGaps = 0;
+        for (MechanicSchedule currMechanicSchedule : arrMechanicSchedules) {
+            final int SLOTS_PER_DAY = currMechanicSchedule.getSlotsPerDay();
+            for (int weekNum = 0; weekNum < currMechanicSchedule.weekLength(); weekNum++) {
+                for (int dayNum = 0; dayNum < MechanicSchedule.NUM_WORK_DAYS; dayNum++) {
+                    // the length of the current opening
+                    int intRun = 0;
+                    // whether or not the day has an appointment
+                    boolean blnWorked = false;
+                    // the openings on the day that are too short
+                    int intDayGaps = 0;
+                    for (int t = 0; t <= SLOTS_PER_DAY; t++) {
+                        if (t < SLOTS_PER_DAY && !currMechanicSchedule.getSlot(weekNum, dayNum, t)) {
+                            intRun++;
+                            continue;
+                        }
+                        blnWorked |= t < SLOTS_PER_DAY;
+                        if (intRun > 0 && intRun < SLOTS_NEEDED)
+                            intDayGaps++;
+                        intRun = 0;
+                    }
+                    if (blnWorked)
+                        intGaps += intDayGaps;
+                }
+            }
+        }
+        return intGaps;
+    }
+
+    /**
+     * Gets the length of a timeslot
+     *
+     * @return the length of a timeslot in minutes
+     */
+    public int getSlotMinutes() {
+        return GCFServiceTime;
+    }
+
+    /**
+     * Gets the index of a mechanic in the snapshot
+     *
+     * @param intMechanicTUID the id of the mechanic
+     * @return the index of the mechanic
+     * @throws IllegalArgumentException throws if the mechanic is not in the
+     *                                  snapshot
+     */
+    int getMechanicIndex(int intMechanicTUID) throws IllegalArgumentException {
+        for (int i = 0; i < arrMechanics.length; i++) {
+            if (arrMechanics[i].getTUID() == intMechanicTUID)
+                return i;
+        }
+        throw new IllegalArgumentException("No mechanic in the schedule with the TUID " + intMechanicTUID);
+    }
+
+    /**
+     * Prints the schedule data structure of each mechanic, useful for debugging
+     */
+    public void printScheduleDataStructure() {
+        for (MechanicSchedule currMechanicSchedule : arrMechanicSchedules) {
+            System.out.println(currMechanicSchedule);
+            System.out.println();
+        }
+    }
+}
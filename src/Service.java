@@ -123,7 +123,7 @@ public class Service extends Entity {
      * @param num2 the second number
      * @return the GCF between the two provided numbers
      */
-    private static int GCF(int num1, int num2) {
+    static int GCF(int num1, int num2) {
         // get the greatest common factor between two numbers
         // if the first number is zero then the GCF is the other number
         if (num1 == 0)
@@ -0,0 +1,271 @@
+
+/**
+ * Filename: ShardManager.java
+ *
+ * Project: Homework3
+ *
+ * Author: Kevin Gyorick
+ *
+ * Date: 10/19/2026
+ *
+ * File Purpose:    This file hosts every location of a chain of shops in one program. Each shop is
+ *                  kept in its own database file in a shared directory and has its own booking engine
+ *                  and executor. Questions about every location, such as the earliest oil change at any
+ *                  shop, are asked of all of the shops in parallel and the answers are merged.
+ *
+ * Program Purpose: The program schedules appointments for a mechanic shop.
+ *                  Appointments are scheduled first come, first served as
+ *                  long as the job can be completed the same day it is started
+ *                  given the current schedule. Mechanics with lower bay numbers
+ *                  assigned have higher priority when multiple mechanics are available
+ */
+import java.io.File;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+//run with 'java -classpath ".;sqlite-jdbc-3.36.0.3.jar" App --shops shops "Oil Change" Downtown Airport Northside'
+
+public class ShardManager {
+    static final String USAGE = "Usage: java App --shops <directory> <service> [shop names...]";
+    static final String SHOP_FILE_EXTENSION = ".db"; // the extension of a shop's database file
+
+    private final File directory; // the directory holding the shops' database files
+    private final Map<String, Shop> mapShops = new ConcurrentHashMap<String, Shop>(); // the open shops by name
+
+    /**
+     * An appointment found at one of the shops
+     */
+    static class Placement {
+        final Shop shop; // the shop with the appointment
+        final Schedule appointment; // the appointment
+
+        /**
+         * construct a placement
+         *
+         * @param shop        the shop with the appointment
+         * @param appointment the appointment
+         */
+        Placement(Shop shop, Schedule appointment) {
+            this.shop = shop;
+            this.appointment = appointment;
+        }
+    }
+
+    /**
+     * construct a manager for the shops kept in a directory, no shops are open
+     * until they are opened
+     *
+     * @param directory the directory holding the shops' database files, created if
+     *                  it does not exist
+     */
+    public ShardManager(File directory) {
+        this.directory = directory;
+        directory.mkdirs();
+    }
+
+    /**
+     * Opens a shop, creating its database file if it does not exist
+     *
+     * @param strName the name of the shop, also the name of its database file
+     * @return the open shop
+     * @throws SQLException             throws if the shop's database cannot be
+     *                                  read
+     * @throws IllegalArgumentException throws if the name cannot be a file name
+     */
+    public Shop openShop(String strName) throws SQLException, IllegalArgumentException {
+        if (strName.isEmpty() || strName.contains(File.separator) || strName.contains("/"))
+            throw new IllegalArgumentException("Invalid shop name " + strName);
+        try {
+            // only opened once even if several threads ask for it, other shops open at
+            // the same time
+            return mapShops.computeIfAbsent(strName, (k) -> {
+                try {
+                    return new Shop(strName, new File(directory, strName + SHOP_FILE_EXTENSION).getPath());
+                } catch (SQLException ex) {
+                    throw new CompletionException(ex);
+                }
+            });
+        } catch (CompletionException ex) {
+            throw (SQLException) ex.getCause();
+        }
+    }
+
+    /**
+     * Opens every shop with a database file in the directory, in parallel
+     *
+     * @return the number of shops open
+     * @throws SQLException throws if a shop's database cannot be read
+     */
+    public int openAll() throws SQLException {
+        // the names of the shops in the directory
+        String[] arrNames = directory.list((dir, strFile) -> strFile.endsWith(SHOP_FILE_EXTENSION));
+        if (arrNames == null)
+            return mapShops.size();
+        List<CompletableFuture<Shop>> lstOpening = new ArrayList<CompletableFuture<Shop>>();
+        for (String strFile : arrNames) {
+            String strName = strFile.substring(0, strFile.length() - SHOP_FILE_EXTENSION.length());
+            lstOpening.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return openShop(strName);
+                } catch (SQLException ex) {
+                    throw new CompletionException(ex);
+                }
+            }));
+        }
+        for (CompletableFuture<Shop> currOpening : lstOpening)
+            join(currOpening);
+        return mapShops.size();
+    }
+
+    /**
+     * Gets an open shop by name
+     *
+     * @param strName the name of the shop
+     * @return the shop
+     * @throws NoSuchElementException throws if no shop with the name is open
+     */
+    public Shop getShop(String strName) throws NoSuchElementException {
+        Shop currShop = mapShops.get(strName);
+        if (currShop == null)
+            throw new NoSuchElementException("No shop named " + strName);
+        return currShop;
+    }
+
+    /**
+     * Gets the open shops sorted by name
+     *
+     * @return the open shops
+     */
+    public Shop[] getShops() {
+        Shop[] arrShops = mapShops.values().toArray(new Shop[0]);
+        Arrays.sort(arrShops, Comparator.comparing(Shop::getName));
+        return arrShops;
+    }
+
+    /**
+     * Finds the earliest open appointment for a service at each shop offering it,
+     * asking every shop in parallel
+     *
+     * @param strService_Name the service requested
+     * @return the earliest appointment at each shop that offers the service,
+     *         sorted by start time then shop name
+     * @throws SQLException throws if a shop's schedule cannot be read
+     */
+    public Placement[] findEarliestAtEach(String strService_Name) throws SQLException {
+        Shop[] arrShops = getShops();
+        // ask every shop at once on its own executor
+        List<CompletableFuture<Schedule>> lstSearches = new ArrayList<CompletableFuture<Schedule>>();
+        for (Shop currShop : arrShops)
+            lstSearches.add(currShop.findEarliest(strService_Name));
+
+        // merge the answers, shops that do not offer the service are skipped
+        List<Placement> lstPlacements = new ArrayList<Placement>();
+        for (int i = 0; i < arrShops.length; i++) {
+            try {
+                lstPlacements.add(new Placement(arrShops[i], join(lstSearches.get(i))));
+            } catch (NoSuchElementException ex) {
+                // the shop does not offer the service
+            }
+        }
+        Placement[] arrPlacements = lstPlacements.toArray(new Placement[0]);
+        // the shops are already sorted by name and the sort keeps ties in order
+        Arrays.sort(arrPlacements, (p1, p2) -> p1.appointment.Appointment_Start_Time
+                .compareTo(p2.appointment.Appointment_Start_Time));
+        return arrPlacements;
+    }
+
+    /**
+     * Finds the earliest open appointment for a service at any shop, ties go to
+     * the shop whose name sorts first
+     *
+     * @param strService_Name the service requested
+     * @return the earliest appointment and its shop
+     * @throws SQLException           throws if a shop's schedule cannot be read
+     * @throws NoSuchElementException throws if no open shop offers the service
+     */
+    public Placement findEarliestAnywhere(String strService_Name) throws SQLException, NoSuchElementException {
+        Placement[] arrPlacements = findEarliestAtEach(strService_Name);
+        if (arrPlacements.length == 0)
+            throw new NoSuchElementException("No shop offers " + strService_Name);
+        return arrPlacements[0];
+    }
+
+    /**
+     * Closes every shop
+     */
+    public void close() {
+        for (Shop currShop : mapShops.values()) {
+            try {
+                currShop.close();
+            } catch (SQLException ex) {
+                ex.printStackTrace();
+            }
+        }
+        mapShops.clear();
+    }
+
+    /**
+     * Waits for a shop's answer, unwrapping the reason it failed
+     *
+     * @param future the shop's answer
+     * @return the answer
+     * @throws SQLException throws if the shop's database could not be used
+     */
+    private static <T> T join(CompletableFuture<T> future) throws SQLException {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof SQLException)
+                throw (SQLException) ex.getCause();
+            if (ex.getCause() instanceof RuntimeException)
+                throw (RuntimeException) ex.getCause();
+            throw ex;
+        }
+    }
+
+    /**
+     * Opens the shops in a directory and prints the earliest appointment for a
+     * service at each of them and at any of them
+     *
+     * @param args the command line arguments, --shops, the directory, the service,
+     *             and the names of shops to create if they do not exist
+     * @return the exit code
+     */
+    public static int run(String[] args) {
+        if (args.length < 3) {
+            System.err.println(USAGE);
+            return BatchImport.EXIT_USAGE;
+        }
+        ShardManager manager = new ShardManager(new File(args[1]));
+        try {
+            for (int i = 3; i < args.length; i++)
+                manager.openShop(args[i]);
+            manager.openAll();
+            System.out.println(manager.getShops().length + " shop(s) open");
+            for (Placement currPlacement : manager.findEarliestAtEach(args[2]))
+                System.out.println(String.format("%-20s%30s%30s", currPlacement.shop.getName(),
+                        currPlacement.appointment.Appointment_Start_Time,
+                        currPlacement.appointment.Appointment_End_Time));
+            Placement earliest = manager.findEarliestAnywhere(args[2]);
+            System.out.println("Earliest " + args[2] + " at any shop: " + earliest.shop.getName() + " bay "
+                    + earliest.appointment.Bays_TUID + " at " + earliest.appointment.Appointment_Start_Time);
+            return BatchImport.EXIT_OK;
+        } catch (IllegalArgumentException | NoSuchElementException ex) {
+            System.err.println(ex.getMessage());
+            return BatchImport.EXIT_USAGE;
+        } catch (SQLException ex) {
+            ex.printStackTrace();
+            return BatchImport.EXIT_FAILED;
+        } finally {
+            manager.close();
+        }
+    }
+}
@@ -0,0 +1,221 @@
+
+/**
+ * Filename: Shop.java
+ *
+ * Project: Homework3
+ *
+ * Author: Kevin Gyorick
+ *
+ * Date: 10/19/2026
+ *
+ * File Purpose:    This file is one location of a chain of shops hosted in the same program. Each shop
+ *                  has its own database file, entity arrays, booking engine, and executor for its
+ *                  bookings, so the shops share nothing but the JVM and one busy shop does not hold up
+ *                  the others.
+ *
+ * Program Purpose: The program schedules appointments for a mechanic shop.
+ *                  Appointments are scheduled first come, first served as
+ *                  long as the job can be completed the same day it is started
+ *                  given the current schedule. Mechanics with lower bay numbers
+ *                  assigned have higher priority when multiple mechanics are available
+ */
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+
+public class Shop {
+    private final String strName; // the name of the location
+    private final DB database; // the shop's database
+    private final Mechanic[] arrMechanics; // the shop's mechanics
+    private final Service[] arrServices; // the services the shop offers
+    private final Bay[] arrBays; // the shop's bays
+    private volatile Customer[] arrCustomers; // the shop's customers
+    private volatile Vehicle[] arrVehicles; // the shop's vehicles
+    private final BookingEngine engine; // the schedule data structure of the shop's mechanics
+    private final ExecutorService executor; // runs the shop's bookings and searches
+
+    /**
+     * construct a shop from its database file, building and prepopulating the
+     * database if it does not exist and reading the existing schedule
+     *
+     * @param strName     the name of the location
+     * @param strFileName the path of the shop's database file
+     * @throws SQLException throws if the database cannot be read or a mechanic
+     *                      does not have a bay
+     */
+    public Shop(String strName, String strFileName) throws SQLException {
+        this.strName = strName;
+        this.database = new DB(strFileName);
+        try {
+            database.buildDatabase(false);
+            this.arrMechanics = database.getMechanics();
+            this.arrServices = database.getServices();
+            this.arrBays = database.getBays();
+            this.arrCustomers = database.getCustomers();
+            this.arrVehicles = database.getVehicles();
+            this.engine = new BookingEngine(database, arrMechanics, arrBays, arrServices);
+            engine.resync();
+        } catch (SQLException | RuntimeException ex) {
+            database.close();
+            throw ex;
+        }
+        this.executor = BookingServer.newRequestExecutor();
+    }
+
+    /**
+     * Gets the name of the location
+     *
+     * @return the name of the shop
+     */
+    public String getName() {
+        return strName;
+    }
+
+    /**
+     * Gets the shop's booking engine
+     *
+     * @return the booking engine
+     */
+    public BookingEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * Gets the services the shop offers
+     *
+     * @return the array of services from the shop's database
+     */
+    public Service[] getServices() {
+        return arrServices;
+    }
+
+    /**
+     * Creates a customer at the shop
+     *
+     * @param strCustomerName the name of the new customer
+     * @throws SQLException throws if the shop already has a customer with the name
+     */
+    public synchronized void createCustomer(String strCustomerName) throws SQLException {
+        for (Customer currCustomer : arrCustomers) {
+            if (currCustomer.strName.equals(strCustomerName))
+                throw new SQLIntegrityConstraintViolationException("Cannot insert customer (" + strCustomerName
+                        + ") with the same name since vehicles are inserted based on customer name");
+        }
+        database.addCustomer(new Customer(strCustomerName));
+        arrCustomers = database.getCustomers();
+    }
+
+    /**
+     * Creates a vehicle for one of the shop's customers
+     *
+     * @param strCustomerName        the name of the vehicle's owner
+     * @param strVehicle_Description the description of the vehicle
+     * @throws SQLException           throws if the owner already has the vehicle
+     * @throws NoSuchElementException throws if the owner is not a customer of the
+     *                                shop
+     */
+    public synchronized void createVehicle(String strCustomerName, String strVehicle_Description)
+            throws SQLException, NoSuchElementException {
+        // the owner of the vehicle
+        Customer owner = null;
+        for (Customer currCustomer : arrCustomers) {
+            if (currCustomer.strName.equals(strCustomerName))
+                owner = currCustomer;
+        }
+        if (owner == null)
+            throw new NoSuchElementException("Customer " + strCustomerName + " not in the database");
+        for (Vehicle currVehicle : arrVehicles) {
+            if (currVehicle.getCustomerTUID() == owner.getTUID()
+                    && currVehicle.strVehicle_Description.equals(strVehicle_Description))
+                throw new SQLIntegrityConstraintViolationException(
+                        "Cannot insert new vehicle with the same owner and description, no way to tell them apart Customer_TUID="
+                                + owner.getTUID() + ", Vehicle_Description=" + strVehicle_Description);
+        }
+        database.addVehicle(new Vehicle(owner.getTUID(), strVehicle_Description));
+        arrVehicles = database.getVehicles();
+    }
+
+    /**
+     * Books the earliest appointment at the shop on the shop's executor
+     *
+     * @param strCustomerName        the name of the customer
+     * @param strVehicle_Description the description of the customer's vehicle
+     * @param strService_Name        the service requested
+     * @return a future completed with the booked appointment, or exceptionally
+     *         with a NoSuchElementException if the customer, vehicle, or service
+     *         is not found or a SQLException if it cannot be saved
+     */
+    public CompletableFuture<Schedule> book(String strCustomerName, String strVehicle_Description,
+            String strService_Name) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                Vehicle customerVehicle = Vehicle.getVehicle(strCustomerName, strVehicle_Description, arrCustomers,
+                        arrVehicles);
+                return engine.book(-1, customerVehicle, Service.getService(strService_Name, arrServices));
+            } catch (SQLException ex) {
+                throw new CompletionException(ex);
+            }
+        }, executor);
+    }
+
+    /**
+     * Books several services for one vehicle back to back on the same day at the
+     * shop on the shop's executor
+     *
+     * @param strCustomerName        the name of the customer
+     * @param strVehicle_Description the description of the customer's vehicle
+     * @param arrService_Names       the services requested in the order they are
+     *                               done
+     * @return a future completed with the booked appointments, or exceptionally
+     *         with a NoSuchElementException if the customer, vehicle, or a
+     *         service is not found or a SQLException if they cannot be saved
+     */
+    public CompletableFuture<Schedule[]> bookVisit(String strCustomerName, String strVehicle_Description,
+            String[] arrService_Names) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                Vehicle customerVehicle = Vehicle.getVehicle(strCustomerName, strVehicle_Description, arrCustomers,
+                        arrVehicles);
+                // the services of the visit
+                Service[] arrVisitServices = new Service[arrService_Names.length];
+                for (int i = 0; i < arrService_Names.length; i++)
+                    arrVisitServices[i] = Service.getService(arrService_Names[i], arrServices);
+                return engine.bookVisit(customerVehicle, arrVisitServices);
+            } catch (SQLException ex) {
+                throw new CompletionException(ex);
+            }
+        }, executor);
+    }
+
+    /**
+     * Finds the earliest open appointment for a service at the shop on the shop's
+     * executor, without booking it
+     *
+     * @param strService_Name the service requested
+     * @return a future completed with the appointment that would be booked now, or
+     *         exceptionally with a NoSuchElementException if the shop does not
+     *         offer the service
+     */
+    public CompletableFuture<Schedule> findEarliest(String strService_Name) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return engine.findEarliest(null, Service.getService(strService_Name, arrServices));
+            } catch (SQLException ex) {
+                throw new CompletionException(ex);
+            }
+        }, executor);
+    }
+
+    /**
+     * Stops the shop's executor and closes its database
+     *
+     * @throws SQLException throws if the database cannot be closed
+     */
+    public void close() throws SQLException {
+        executor.shutdown();
+        database.close();
+    }
+}
@@ -0,0 +1,208 @@
+
+/**
+ * Filename: TimingWheel.java
+ *
+ * Project: Homework3
+ *
+ * Author: Kevin Gyorick
+ *
+ * Date: 10/19/2026
+ *
+ * File Purpose:    This file is a hierarchical timing wheel that tracks when items expire. Each level
+ *                  is a ring of buckets, one tick per bucket on the lowest level and a whole ring of
+ *                  the level below per bucket on the levels above. An item goes in the bucket of the
+ *                  lowest level that reaches its deadline and moves down a level each time the wheel
+ *                  turns past the start of its bucket, so adding or cancelling an item is a few
+ *                  pointer changes no matter how many items are waiting, and each tick only looks at
+ *                  the items that are due or moving down.
+ *
+ * Program Purpose: The program schedules appointments for a mechanic shop.
+ *                  Appointments are scheduled first come, first served as
+ *                  long as the job can be completed the same day it is started
+ *                  given the current schedule. Mechanics with lower bay numbers
+ *                  assigned have higher priority when multiple mechanics are available
+ */
+import java.util.ArrayList;
+import java.util.List;
+
+public class TimingWheel<T> {
+    static final int LEVEL_BITS = 6; // log 2 of the buckets on each level
+    static final int SLOTS_PER_LEVEL = 1 << LEVEL_BITS; // the buckets on each level
+    static final int NUM_LEVELS = 4; // the levels of the wheel
+    // the most ticks ahead an item can be placed, later items wait on the top
+    // level and are placed again when it turns
+    static final long MAX_TICKS = 1L << (LEVEL_BITS * NUM_LEVELS);
+
+    private final long lngTickMillis; // the length of a tick in milliseconds
+    // the first entry of each bucket by level then slot, each bucket is a doubly
+    // linked list
+    private final Entry<T>[][] arrBuckets;
+    private long lngCurrentTick; // the last tick the wheel turned to
+    private int intSize = 0; // the number of items waiting
+
+    /**
+     * An item waiting in the wheel, kept so it can be cancelled
+     */
+    static final class Entry<T> {
+        final T item; // the item that expires
+        final long lngDeadlineTick; // the tick the item expires on
+        private Entry<T> prev; // the entry before it in its bucket
+        private Entry<T> next; // the entry after it in its bucket
+        private int intLevel = -1; // the level of its bucket, -1 if it is not in the wheel
+        private int intSlot; // the slot of its bucket
+
+        /**
+         * construct an entry
+         *
+         * @param item            the item that expires
+         * @param lngDeadlineTick the tick the item expires on
+         */
+        private Entry(T item, long lngDeadlineTick) {
+            this.item = item;
+            this.lngDeadlineTick = lngDeadlineTick;
+        }
+    }
+
+    /**
+     * construct an empty wheel
+     *
+     * @param lngTickMillis  the length of a tick in milliseconds, items expire on
+     *                       the first tick at or after their deadline
+     * @param lngStartMillis the time the wheel starts turning from
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public TimingWheel(long lngTickMillis, long lngStartMillis) {
+        if (lngTickMillis <= 0)
+            throw new IllegalArgumentException("The tick must be positive");
+        this.lngTickMillis = lngTickMillis;
+        this.lngCurrentTick = lngStartMillis / lngTickMillis;
+        this.arrBuckets = (Entry<T>[][]) new Entry[NUM_LEVELS][SLOTS_PER_LEVEL];
+    }
+
+    /**
+     * Adds an item that expires at a time
+     *
+     * @param item              the item
+     * @param lngDeadlineMillis when the item expires, an item already past its
+     *                          deadline expires on the next tick
+     * @return the entry of the item, used to cancel it
+     */
+    public synchronized Entry<T> schedule(T item, long lngDeadlineMillis) {
+        // round up so the item never expires before its deadline
+        long lngDeadlineTick = Math.max(Math.floorDiv(lngDeadlineMillis + lngTickMillis - 1, lngTickMillis),
+                lngCurrentTick + 1);
+        Entry<T> entry = new Entry<T>(item, lngDeadlineTick);
+        place(entry);
+        intSize++;
+        return entry;
+    }
+
+    /**
+     * Removes an item before it expires
+     *
+     * @param entry the entry returned when the item was added
+     * @return whether or not the item was still waiting
+     */
+    public synchronized boolean cancel(Entry<T> entry) {
+        if (entry.intLevel < 0)
+            return false;
+        unlink(entry);
+        intSize--;
+        return true;
+    }
+
+    /**
+     * Turns the wheel to a time, one tick at a time
+     *
+     * @param lngNowMillis the current time
+     * @return the items that expired, in the order of their deadlines
+     */
+    public synchronized List<T> advance(long lngNowMillis) {
+        List<T> lstExpired = new ArrayList<T>();
+        // the tick to turn to
+        final long TARGET_TICK = Math.floorDiv(lngNowMillis, lngTickMillis);
+        while (lngCurrentTick < TARGET_TICK) {
+            lngCurrentTick++;
+            // move the items of each level whose bucket starts at this tick down a level,
+            // a level only turns when the one below it wraps around
+            for (int intLevel = 1; intLevel < NUM_LEVELS
+                    && (lngCurrentTick & ((1L << (LEVEL_BITS * intLevel)) - 1)) == 0; intLevel++)
+                cascade(intLevel, (int) ((lngCurrentTick >>> (LEVEL_BITS * intLevel)) & (SLOTS_PER_LEVEL - 1)));
+            // every item in the bottom bucket of this tick is due
+            int intSlot = (int) (lngCurrentTick & (SLOTS_PER_LEVEL - 1));
+            while (arrBuckets[0][intSlot] != null) {
+                Entry<T> entry = arrBuckets[0][intSlot];
+                unlink(entry);
+                intSize--;
+                lstExpired.add(entry.item);
+            }
+        }
+        return lstExpired;
+    }
+
+    /**
+     * Gets the number of items waiting
+     *
+     * @return the number of items that have not expired or been cancelled
+     */
+    public synchronized int size() {
+        return intSize;
+    }
+
+    /**
+     * Places the items of a bucket again relative to the current tick, which
+     * puts them on a lower level
+     *
+     * @param intLevel the level of the bucket
+     * @param intSlot  the slot of the bucket
+     */
+    private void cascade(int intLevel, int intSlot) {
+        Entry<T> entry = arrBuckets[intLevel][intSlot];
+        arrBuckets[intLevel][intSlot] = null;
+        while (entry != null) {
+            Entry<T> next = entry.next;
+            entry.prev = null;
+            entry.next = null;
+            place(entry);
+            entry = next;
+        }
+    }
+
+    /**
+     * Puts an entry in the bucket of the lowest level that reaches its deadline
+     *
+     * @param entry the entry, not in any bucket
+     */
+    private void place(Entry<T> entry) {
+        // ticks until the deadline, a deadline too far out waits on the top level
+        long lngDelta = Math.max(entry.lngDeadlineTick - lngCurrentTick, 0);
+        long lngTick = lngDelta < MAX_TICKS ? entry.lngDeadlineTick : lngCurrentTick + MAX_TICKS - 1;
+        int intLevel = 0;
+        while (intLevel < NUM_LEVELS - 1 && lngDelta >= (1L << (LEVEL_BITS * (intLevel + 1))))
+            intLevel++;
+        entry.intLevel = intLevel;
+        entry.intSlot = (int) ((lngTick >>> (LEVEL_BITS * intLevel)) & (SLOTS_PER_LEVEL - 1));
+        // push it on the front of the bucket
+        entry.next = arrBuckets[intLevel][entry.intSlot];
+        if (entry.next != null)
+            entry.next.prev = entry;
+        arrBuckets[intLevel][entry.intSlot] = entry;
+    }
+
+    /**
+     * Takes an entry out of its bucket
+     *
+     * @param entry the entry, in a bucket
+     */
+    private void unlink(Entry<T> entry) {
+        if (entry.prev != null)
+            entry.prev.next = entry.next;
+        else
+            arrBuckets[entry.intLevel][entry.intSlot] = entry.next;
+        if (entry.next != null)
+            entry.next.prev = entry.prev;
+        entry.prev = null;
+        entry.next = null;
+        entry.intLevel = -1;
+    }
+}
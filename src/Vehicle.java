@@ -18,6 +18,7 @@
  *                  assigned have higher priority when multiple mechanics are available
  */
 import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
 import java.util.NoSuchElementException;
 
 public class Vehicle extends Entity {
@@ -130,7 +131,7 @@ public class Vehicle extends Entity {
                     && currVehicle.strVehicle_Description.equals(strVehicle_Description))
                 // throw error, there is no way to tell this new entry appart from an existing
                 // entry
-                throw new SQLException(
+                throw new SQLIntegrityConstraintViolationException(
                         "Cannot insert new vehicle with the same owner and description, no way to tell them apart Customer_TUID="
                                 + intCustomerTUID + ", Vehicle_Description=" + strVehicle_Description);
         }
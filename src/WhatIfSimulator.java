@@ -0,0 +1,633 @@
+
+/**
+ * Filename: WhatIfSimulator.java
+ *
+ * Project: Homework3
+ *
+ * Author: Kevin Gyorick
+ *
+ * Date: 10/19/2026
+ *
+ * File Purpose:    This file answers what if questions about staffing and the service catalog. It
+ *                  clones the mechanics, bays, services, vehicles, and appointments from the database
+ *                  once, opening it read only, then replays an input file or synthetic demand against
+ *                  each variant in memory. A variant can add mechanics, change the length of services,
+ *                  or change the hours worked per day. The variants run in parallel, each with its own
+ *                  mechanic schedules, and the horizon, utilization, and paychecks of each are printed.
+ *
+ * Program Purpose: The program schedules appointments for a mechanic shop.
+ *                  Appointments are scheduled first come, first served as
+ *                  long as the job can be completed the same day it is started
+ *                  given the current schedule. Mechanics with lower bay numbers
+ *                  assigned have higher priority when multiple mechanics are available
+ */
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+public class WhatIfSimulator {
+    static final String USAGE = "Usage: java App --simulate [--input <file>] [--demand <n>] [--seed <n>]"
+            + " [--placement first-fit|best-fit|least-loaded] [--variant \"<name>:<setting>;<setting>...\"]...";
+    static final String SETTINGS = "Settings are mechanics=<n> to add mechanics, rate=<dollars> for their pay,"
+            + " hours=<n> for the hours worked per day, and <service name>=<minutes> for a service's length";
+    static final String CURRENT_NAME = "Current"; // the name of the variant that changes nothing
+    static final long DEFAULT_SEED = 42; // the seed of the synthetic demand when none is given
+    static final int MAX_WORK_HOURS = 24; // the most hours that can be worked per day
+
+    private final Mechanic[] arrMechanics; // the mechanics sorted by bay number
+    private final int[] arrBayTUIDs; // the bay of each mechanic
+    private final Service[] arrServices; // the services offered
+    private final Schedule[] arrAppointments; // the appointments already booked, in the order they were booked
+    private final Map<String, Integer> mapVehicles; // the id of each vehicle by owner name and description
+    private final List<Request> lstDemand = new ArrayList<Request>(); // the requests replayed in every variant
+
+    /**
+     * A request for one or more services for a vehicle, replayed the same way in
+     * every variant
+     */
+    static final class Request {
+        final String strVehicleKey; // the owner name and description of the vehicle
+        final String[] arrServiceNames; // the services requested in the order they are done
+
+        /**
+         * construct a request
+         *
+         * @param strVehicleKey   the owner name and description of the vehicle
+         * @param arrServiceNames the services requested
+         */
+        Request(String strVehicleKey, String[] arrServiceNames) {
+            this.strVehicleKey = strVehicleKey;
+            this.arrServiceNames = arrServiceNames;
+        }
+    }
+
+    /**
+     * A change to the shop's configuration that is simulated
+     */
+    static final class Variant {
+        final String strName; // the name printed with the results
+        int intExtraMechanics = 0; // the number of mechanics hired, each in a new bay
+        double dblExtraRate = -1; // the hourly pay of the new mechanics, the average pay if negative
+        int intWorkHours = MechanicSchedule.NUM_WORK_HOURS; // the hours worked per day
+        final Map<String, Integer> mapServiceTimes = new LinkedHashMap<String, Integer>(); // new service lengths
+
+        /**
+         * construct a variant that changes nothing
+         *
+         * @param strName the name printed with the results
+         */
+        Variant(String strName) {
+            this.strName = strName;
+        }
+
+        /**
+         * Parses a variant from the command line, a name then settings separated by
+         * semicolons
+         *
+         * @param strVariant the variant, such as "third mechanic:mechanics=1"
+         * @param arrServices the services offered, changed services must be one of
+         *                    them
+         * @return the variant
+         * @throws IllegalArgumentException throws if a setting is not valid
+         */
+        static Variant parse(String strVariant, Service[] arrServices) throws IllegalArgumentException {
+            int intColon = strVariant.indexOf(':');
+            Variant variant = new Variant(intColon < 0 ? strVariant : strVariant.substring(0, intColon).trim());
+            if (variant.strName.isEmpty())
+                throw new IllegalArgumentException("Variant " + strVariant + " has no name");
+            if (intColon < 0)
+                return variant;
+            for (String strSetting : strVariant.substring(intColon + 1).split(";")) {
+                if (strSetting.isBlank())
+                    continue;
+                // settings are split on the last equals sign so service names are kept whole
+                int intEquals = strSetting.lastIndexOf('=');
+                if (intEquals < 0)
+                    throw new IllegalArgumentException("Setting " + strSetting + " has no value. " + SETTINGS);
+                String strKey = strSetting.substring(0, intEquals).trim();
+                String strValue = strSetting.substring(intEquals + 1).trim();
+                switch (strKey) {
+                    case "mechanics":
+                        variant.intExtraMechanics = Integer.parseInt(strValue);
+                        if (variant.intExtraMechanics < 0)
+                            throw new IllegalArgumentException("Mechanics cannot be removed, only added");
+                        break;
+                    case "rate":
+                        variant.dblExtraRate = Double.parseDouble(strValue);
+                        if (variant.dblExtraRate < 0)
+                            throw new IllegalArgumentException("The rate cannot be negative");
+                        break;
+                    case "hours":
+                        variant.intWorkHours = Integer.parseInt(strValue);
+                        if (variant.intWorkHours < 1 || variant.intWorkHours > MAX_WORK_HOURS)
+                            throw new IllegalArgumentException("Hours must be from 1 to " + MAX_WORK_HOURS);
+                        break;
+                    default:
+                        // the service must exist
+                        try {
+                            Service.getService(strKey, arrServices);
+                        } catch (NoSuchElementException ex) {
+                            throw new IllegalArgumentException("Unknown setting or service " + strKey + ". " + SETTINGS);
+                        }
+                        int intMinutes = Integer.parseInt(strValue);
+                        if (intMinutes < 1)
+                            throw new IllegalArgumentException("The length of " + strKey + " must be positive");
+                        variant.mapServiceTimes.put(strKey, intMinutes);
+                }
+            }
+            return variant;
+        }
+    }
+
+    /**
+     * The schedule a variant ended with
+     */
+    static final class Result {
+        final Variant variant; // the variant simulated
+        final Mechanic[] arrMechanics; // the mechanics of the variant sorted by bay
+        final int[] arrBayTUIDs; // the bay of each mechanic
+        ScheduleSnapshot snapshot = null; // the variant's schedule once it is simulated
+        int intBooked = 0; // the number of appointments booked from the demand
+        int intRejected = 0; // the number of requests that could not be booked
+        int intKept = 0; // the number of existing appointments kept at their time
+        int intRebooked = 0; // the number of existing appointments that no longer fit and were booked again
+        long lngNanos = 0; // the time the variant took to simulate
+
+        /**
+         * construct the result of a variant
+         *
+         * @param variant      the variant simulated
+         * @param arrMechanics the mechanics of the variant sorted by bay
+         * @param arrBayTUIDs  the bay of each mechanic
+         */
+        Result(Variant variant, Mechanic[] arrMechanics, int[] arrBayTUIDs) {
+            this.variant = variant;
+            this.arrMechanics = arrMechanics;
+            this.arrBayTUIDs = arrBayTUIDs;
+        }
+    }
+
+    /**
+     * construct a simulator from a copy of the entities in a database, the
+     * database is opened read only so the simulation never changes it. A database
+     * that does not exist yet is simulated with the prepopulated mechanics, bays,
+     * and services
+     *
+     * @param strFileName the path of the database file
+     * @throws SQLException throws if the database cannot be read
+     */
+    WhatIfSimulator(String strFileName) throws SQLException {
+        // a new database is only built in memory
+        DB database = new File(strFileName).exists() ? new DB("file:" + strFileName + "?mode=ro") : new DB(":memory:");
+        try {
+            if (database.getFileName().equals(":memory:"))
+                database.buildDatabase(false);
+            Mechanic[] arrAllMechanics = database.getMechanics();
+            // retired bays are not booked again, so they are left out of every variant
+            final Set<Integer> SET_RETIRED = database.getRetiredBays();
+            Bay[] arrBays = Arrays.stream(database.getBays()).filter((b) -> !SET_RETIRED.contains(b.getTUID()))
+                    .toArray(Bay[]::new);
+            this.arrServices = database.getServices();
+            Customer[] arrCustomers = database.getCustomers();
+            Vehicle[] arrVehicles = database.getVehicles();
+            this.arrAppointments = database.getSchedule();
+
+            // the mechanics in bay order, the order the booking engine searches them
+            Arrays.sort(arrBays, Comparator.comparingInt(Bay::getTUID));
+            this.arrMechanics = new Mechanic[arrBays.length];
+            this.arrBayTUIDs = new int[arrBays.length];
+            for (int i = 0; i < arrBays.length; i++) {
+                for (Mechanic currMechanic : arrAllMechanics) {
+                    if (currMechanic.getTUID() == arrBays[i].Mechanic_TUID)
+                        arrMechanics[i] = currMechanic;
+                }
+                if (arrMechanics[i] == null)
+                    throw new SQLException("Bay " + arrBays[i].getTUID() + " does not have a mechanic");
+                arrBayTUIDs[i] = arrBays[i].getTUID();
+            }
+
+            // the vehicles by owner name and description, the way input lines name them
+            Map<Integer, String> mapOwners = new HashMap<Integer, String>();
+            for (Customer currCustomer : arrCustomers)
+                mapOwners.put(currCustomer.getTUID(), currCustomer.strName);
+            this.mapVehicles = new HashMap<String, Integer>();
+            for (Vehicle currVehicle : arrVehicles)
+                mapVehicles.put(vehicleKey(mapOwners.get(currVehicle.getCustomerTUID()),
+                        currVehicle.strVehicle_Description), currVehicle.getTUID());
+        } finally {
+            database.close();
+        }
+    }
+
+    /**
+     * Runs the simulation from the command line arguments
+     *
+     * @param args the command line arguments, --simulate and its options
+     * @return the exit code of the simulation
+     */
+    public static int run(String[] args) {
+        // the input file to replay
+        String strInputFile = null;
+        // the number of synthetic requests to replay
+        int intDemand = 0;
+        // the seed of the synthetic requests
+        long lngSeed = DEFAULT_SEED;
+        // the name of the placement strategy
+        String strPlacement = "first-fit";
+        // the variants as given on the command line
+        List<String> lstVariants = new ArrayList<String>();
+        try {
+            for (int i = 1; i < args.length; i++) {
+                if (i + 1 >= args.length)
+                    throw new IllegalArgumentException("Missing value for " + args[i]);
+                switch (args[i]) {
+                    case "--input":
+                        strInputFile = args[++i];
+                        break;
+                    case "--demand":
+                        intDemand = Integer.parseInt(args[++i]);
+                        if (intDemand < 0)
+                            throw new IllegalArgumentException("--demand cannot be negative");
+                        break;
+                    case "--seed":
+                        lngSeed = Long.parseLong(args[++i]);
+                        break;
+                    case "--placement":
+                        strPlacement = args[++i];
+                        PlacementStrategy.forName(strPlacement);
+                        break;
+                    case "--variant":
+                        lstVariants.add(args[++i]);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown argument " + args[i]);
+                }
+            }
+            if (strInputFile == null && intDemand == 0)
+                throw new IllegalArgumentException("Give an --input file, --demand, or both");
+        } catch (IllegalArgumentException ex) {
+            System.err.println(ex.getMessage());
+            System.err.println(USAGE);
+            return BatchImport.EXIT_USAGE;
+        }
+
+        WhatIfSimulator simulator;
+        // the variants to simulate, the current configuration first
+        List<Variant> lstParsed = new ArrayList<Variant>();
+        try {
+            simulator = new WhatIfSimulator(DB.DATABASE_NAME);
+            if (strInputFile != null)
+                simulator.addInput(Files.readAllLines(new File(strInputFile).toPath()).toArray(new String[0]));
+            simulator.addSyntheticDemand(intDemand, lngSeed);
+        } catch (SQLException | IOException ex) {
+            ex.printStackTrace();
+            return BatchImport.EXIT_FAILED;
+        }
+        try {
+            lstParsed.add(new Variant(CURRENT_NAME));
+            for (String strVariant : lstVariants)
+                lstParsed.add(Variant.parse(strVariant, simulator.arrServices));
+        } catch (IllegalArgumentException ex) {
+            System.err.println(ex.getMessage());
+            System.err.println(USAGE);
+            return BatchImport.EXIT_USAGE;
+        }
+
+        try {
+            System.out.println("Simulating " + simulator.lstDemand.size() + " requests against "
+                    + simulator.arrAppointments.length + " existing appointments");
+            for (Result currResult : simulator.simulateAll(lstParsed, strPlacement))
+                print(currResult);
+            return BatchImport.EXIT_OK;
+        } catch (RuntimeException ex) {
+            ex.printStackTrace();
+            return BatchImport.EXIT_FAILED;
+        }
+    }
+
+    /**
+     * Adds the service lines of an input file to the demand, customer and vehicle
+     * lines are not needed since a vehicle is known by its owner and description
+     *
+     * @param arrFileLines the lines of the input file
+     */
+    void addInput(String[] arrFileLines) {
+        for (int i = 0; i < arrFileLines.length; i++) {
+            ImportPipeline.ImportLine currLine = new ImportPipeline.ImportLine(i + 1, arrFileLines[i]);
+            if (currLine.getAction().equals("S") && currLine.arrFields.length >= 4)
+                lstDemand.add(new Request(vehicleKey(currLine.arrFields[1], currLine.arrFields[2]),
+                        ImportPipeline.getServiceNames(currLine)));
+        }
+    }
+
+    /**
+     * Adds requests for services chosen at random to the demand, each for a new
+     * vehicle
+     *
+     * @param intCount the number of requests
+     * @param lngSeed  the seed of the random choices, the same seed gives the
+     *                 same requests
+     */
+    void addSyntheticDemand(int intCount, long lngSeed) {
+        Random random = new Random(lngSeed);
+        for (int i = 0; i < intCount; i++)
+            lstDemand.add(new Request(vehicleKey("Synthetic " + i, "Vehicle " + i),
+                    new String[] { arrServices[random.nextInt(arrServices.length)].strService_Name }));
+    }
+
+    /**
+     * Simulates every variant in parallel, each on its own schedules
+     *
+     * @param lstVariants  the variants to simulate
+     * @param strPlacement the name of the placement strategy to book with
+     * @return the result of each variant in the order given
+     */
+    List<Result> simulateAll(List<Variant> lstVariants, String strPlacement) {
+        List<CompletableFuture<Result>> lstRunning = new ArrayList<CompletableFuture<Result>>();
+        for (Variant currVariant : lstVariants)
+            lstRunning.add(CompletableFuture
+                    .supplyAsync(() -> simulate(currVariant, PlacementStrategy.forName(strPlacement))));
+        List<Result> lstResults = new ArrayList<Result>();
+        for (CompletableFuture<Result> currRunning : lstRunning)
+            lstResults.add(currRunning.join());
+        return lstResults;
+    }
+
+    /**
+     * Simulates one variant. The existing appointments are kept at their times
+     * with the length they were booked for, those outside the variant's hours are
+     * booked again first, then the demand is booked in order like the import
+     * books it
+     *
+     * @param variant  the variant to simulate
+     * @param strategy how to place each appointment
+     * @return the schedule the variant ended with
+     */
+    Result simulate(Variant variant, PlacementStrategy strategy) {
+        long lngStart = System.nanoTime();
+        final int WORK_MINUTES = variant.intWorkHours * 60;
+        // the length of each service in the variant by id and by name
+        Map<Integer, Integer> mapMinutesById = new HashMap<Integer, Integer>();
+        Map<String, Integer> mapMinutesByName = new HashMap<String, Integer>();
+        // the timeslot length divides every booked and simulated length and the day
+        final int BASE_GCF = Service.GCF(arrServices);
+        int intGCF = Service.GCF(BASE_GCF, WORK_MINUTES);
+        for (Service currService : arrServices) {
+            int intMinutes = variant.mapServiceTimes.getOrDefault(currService.strService_Name,
+                    currService.intService_Time);
+            mapMinutesById.put(currService.getTUID(), intMinutes);
+            mapMinutesByName.put(currService.strService_Name, intMinutes);
+            intGCF = Service.GCF(intGCF, intMinutes);
+        }
+        final int GCF = intGCF;
+
+        // the mechanics of the variant, new mechanics go in new bays after the others
+        Mechanic[] arrVariantMechanics = Arrays.copyOf(arrMechanics, arrMechanics.length + variant.intExtraMechanics);
+        int[] arrVariantBays = Arrays.copyOf(arrBayTUIDs, arrBayTUIDs.length + variant.intExtraMechanics);
+        int intMaxMechanicTUID = 0;
+        int intMaxBayTUID = 0;
+        double dblTotalRate = 0;
+        for (int i = 0; i < arrMechanics.length; i++) {
+            intMaxMechanicTUID = Math.max(intMaxMechanicTUID, arrMechanics[i].getTUID());
+            intMaxBayTUID = Math.max(intMaxBayTUID, arrBayTUIDs[i]);
+            dblTotalRate += arrMechanics[i].intHourly_payrate;
+        }
+        final double NEW_RATE = variant.dblExtraRate >= 0 ? variant.dblExtraRate
+                : arrMechanics.length == 0 ? 0 : dblTotalRate / arrMechanics.length;
+        for (int i = 0; i < variant.intExtraMechanics; i++) {
+            try {
+                arrVariantMechanics[arrMechanics.length + i] = new Mechanic(intMaxMechanicTUID + i + 1,
+                        "New Mechanic " + (i + 1), NEW_RATE);
+            } catch (SQLException ex) {
+                // a mechanic that is not saved does not use the database
+                throw new IllegalStateException(ex);
+            }
+            arrVariantBays[arrMechanics.length + i] = intMaxBayTUID + i + 1;
+        }
+
+        // the schedule of each mechanic, every mechanic may take every appointment
+        MechanicSchedule[] arrSchedules = new MechanicSchedule[arrVariantMechanics.length];
+        for (int i = 0; i < arrSchedules.length; i++)
+            arrSchedules[i] = new MechanicSchedule(GCF, WORK_MINUTES);
+        boolean[] arrEligible = new boolean[arrSchedules.length];
+        Arrays.fill(arrEligible, true);
+        // the minutes from next monday's opening each vehicle is booked for, counting
+        // only work time
+        Map<Integer, List<long[]>> mapBooked = new HashMap<Integer, List<long[]>>();
+        // the requests booked before the demand, the appointments that no longer fit
+        List<Request> lstRebook = new ArrayList<Request>();
+        // the vehicle of each rebooked appointment, they are not known by name
+        List<Integer> lstRebookVehicles = new ArrayList<Integer>();
+        Result result = new Result(variant, arrVariantMechanics, arrVariantBays);
+
+        // keep the existing appointments at their times
+        final Timestamp NEXT_MONDAY = DateUtil.getNextMondaysDate();
+        for (Schedule currAppointment : arrAppointments) {
+            int intMechanicNum = -1;
+            for (int i = 0; i < arrBayTUIDs.length; i++) {
+                if (arrBayTUIDs[i] == currAppointment.Bays_TUID)
+                    intMechanicNum = i;
+            }
+            Service currService;
+            try {
+                currService = Service.getService(currAppointment.Service_TUID, arrServices);
+            } catch (NoSuchElementException ex) {
+                continue;
+            }
+            int[] arrSlot = DateUtil.timestampToWeekDayTimeslot(currAppointment.Appointment_Start_Time, NEXT_MONDAY,
+                    BASE_GCF);
+            // appointments before next monday are not on the schedule
+            if (intMechanicNum < 0 || arrSlot[0] < 0)
+                continue;
+            // the appointment keeps the length it was booked for
+            final int START_MINUTE = arrSlot[2] * BASE_GCF;
+            final int SLOTS = currService.intService_Time / GCF;
+            if (START_MINUTE + currService.intService_Time <= WORK_MINUTES
+                    && arrSchedules[intMechanicNum].areSlotsOpen(arrSlot[0], arrSlot[1], START_MINUTE / GCF, SLOTS)) {
+                arrSchedules[intMechanicNum].reserveSlots(arrSlot[0], arrSlot[1], START_MINUTE / GCF, SLOTS);
+                long lngStartMinute = ((long) arrSlot[0] * MechanicSchedule.NUM_WORK_DAYS + arrSlot[1])
+                        * WORK_MINUTES + START_MINUTE;
+                mapBooked.computeIfAbsent(currAppointment.Vehicles_TUID, (key) -> new ArrayList<long[]>())
+                        .add(new long[] { lngStartMinute, lngStartMinute + currService.intService_Time });
+                result.intKept++;
+            } else {
+                lstRebook.add(new Request(null, new String[] { currService.strService_Name }));
+                lstRebookVehicles.add(currAppointment.Vehicles_TUID);
+            }
+        }
+
+        // the ids given to vehicles that are not in the database
+        Map<String, Integer> mapNewVehicles = new HashMap<String, Integer>();
+        for (int r = 0; r < lstRebook.size() + lstDemand.size(); r++) {
+            final boolean REBOOK = r < lstRebook.size();
+            Request currRequest = REBOOK ? lstRebook.get(r) : lstDemand.get(r - lstRebook.size());
+            int intVehicleTUID;
+            if (REBOOK)
+                intVehicleTUID = lstRebookVehicles.get(r);
+            else if (mapVehicles.containsKey(currRequest.strVehicleKey))
+                intVehicleTUID = mapVehicles.get(currRequest.strVehicleKey);
+            else
+                intVehicleTUID = mapNewVehicles.computeIfAbsent(currRequest.strVehicleKey,
+                        (key) -> -(mapNewVehicles.size() + 1));
+
+            // every service must exist and fit in a day before any is booked
+            boolean blnValid = true;
+            for (String strService_Name : currRequest.arrServiceNames) {
+                Integer intMinutes = mapMinutesByName.get(strService_Name);
+                blnValid &= intMinutes != null && intMinutes <= WORK_MINUTES;
+            }
+            if (!blnValid || arrSchedules.length == 0) {
+                result.intRejected++;
+                continue;
+            }
+            for (String strService_Name : currRequest.arrServiceNames)
+                bookRequest(arrSchedules, arrEligible, strategy, mapBooked, intVehicleTUID,
+                        mapMinutesByName.get(strService_Name), GCF, WORK_MINUTES);
+            if (REBOOK)
+                result.intRebooked++;
+            else
+                result.intBooked += currRequest.arrServiceNames.length;
+        }
+
+        // the paychecks and reports read the schedules the way they read the engine's
+        result.snapshot = new ScheduleSnapshot(0, arrVariantMechanics, GCF, arrSchedules, null,
+                result.intKept + result.intRebooked + result.intBooked);
+        result.lngNanos = System.nanoTime() - lngStart;
+        return result;
+    }
+
+    /**
+     * Books one service for a vehicle where the strategy places it, skipping
+     * starts that overlap another appointment of the vehicle the way the booking
+     * engine does
+     *
+     * @param arrSchedules   the schedule of each mechanic
+     * @param arrEligible    whether or not each mechanic may take the appointment
+     * @param strategy       how to place the appointment
+     * @param mapBooked      the work minutes each vehicle is booked for
+     * @param intVehicleTUID the vehicle being worked on
+     * @param intMinutes     the length of the service
+     * @param GCF            the length of a timeslot in minutes
+     * @param WORK_MINUTES   the minutes worked per day
+     */
+    private static void bookRequest(MechanicSchedule[] arrSchedules, boolean[] arrEligible,
+            PlacementStrategy strategy, Map<Integer, List<long[]>> mapBooked, int intVehicleTUID, int intMinutes,
+            final int GCF, final int WORK_MINUTES) {
+        final int SLOTS = intMinutes / GCF;
+        List<long[]> lstBooked = mapBooked.computeIfAbsent(intVehicleTUID, (key) -> new ArrayList<long[]>());
+        // the schedules searched, copied the first time a start overlaps the vehicle
+        MechanicSchedule[] arrSearch = arrSchedules;
+        int[] arrChosen;
+        long lngStartMinute;
+        while (true) {
+            arrChosen = strategy.place(arrSearch, arrEligible, SLOTS);
+            lngStartMinute = ((long) arrChosen[1] * MechanicSchedule.NUM_WORK_DAYS + arrChosen[2]) * WORK_MINUTES
+                    + (long) arrChosen[3] * GCF;
+            if (!overlaps(lstBooked, lngStartMinute, lngStartMinute + intMinutes))
+                break;
+            if (arrSearch == arrSchedules) {
+                arrSearch = new MechanicSchedule[arrSchedules.length];
+                for (int i = 0; i < arrSchedules.length; i++)
+                    arrSearch[i] = arrSchedules[i].snapshot();
+            }
+            // reserve the start as if it were another vehicle's and search again
+            arrSearch[arrChosen[0]].reserveSlot(arrChosen[1], arrChosen[2], arrChosen[3]);
+        }
+        arrSchedules[arrChosen[0]].reserveSlots(arrChosen[1], arrChosen[2], arrChosen[3], SLOTS);
+        lstBooked.add(new long[] { lngStartMinute, lngStartMinute + intMinutes });
+    }
+
+    /**
+     * Checks whether a time overlaps any of a vehicle's appointments
+     *
+     * @param lstBooked      the work minutes the vehicle is booked for
+     * @param lngStartMinute the first work minute of the new appointment
+     * @param lngEndMinute   the work minute the new appointment ends
+     * @return true if the vehicle is already booked during the time
+     */
+    private static boolean overlaps(List<long[]> lstBooked, long lngStartMinute, long lngEndMinute) {
+        for (long[] arrBooked : lstBooked) {
+            if (lngStartMinute < arrBooked[1] && arrBooked[0] < lngEndMinute)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Prints the horizon, utilization, and paychecks of a variant
+     *
+     * @param result the schedule the variant ended with
+     */
+    static void print(Result result) {
+        final Variant VARIANT = result.variant;
+        ScheduleSnapshot snapshot = result.snapshot;
+        final int WEEKS = snapshot.getWeeksUsed();
+        int[] arrReserved = snapshot.getReservedSlots();
+        double[][] paychecks = snapshot.getPaychecks(result.arrMechanics);
+        // the timeslots each mechanic works in the horizon
+        final long SLOTS_WORKED = (long) WEEKS * MechanicSchedule.NUM_WORK_DAYS
+                * (VARIANT.intWorkHours * 60 / snapshot.getSlotMinutes());
+
+        System.out.println();
+        System.out.println("Variant: " + VARIANT.strName + describe(VARIANT));
+        System.out.println(String.format("  Booked: %d, rejected: %d, existing kept: %d, rebooked: %d, %.1f ms",
+                result.intBooked, result.intRejected, result.intKept, result.intRebooked, result.lngNanos / 1e6));
+        System.out.println("  Horizon: " + WEEKS + (WEEKS == 1 ? " week" : " weeks"));
+        System.out.println(String.format("  %-4s %-20s %-11s %s", "Bay", "Mechanic", "Utilization", "Paychecks"));
+        for (int i = 0; i < result.arrMechanics.length; i++) {
+            StringBuilder sbPaychecks = new StringBuilder();
+            double dblTotal = 0;
+            for (int j = 0; j < WEEKS && j < paychecks[i].length; j++) {
+                sbPaychecks.append(String.format("$%.2f ", paychecks[i][j]));
+                dblTotal += paychecks[i][j];
+            }
+            sbPaychecks.append(String.format("(total $%.2f)", dblTotal));
+            System.out.println(String.format("  %-4d %-20s %-11s %s", result.arrBayTUIDs[i],
+                    result.arrMechanics[i].strName,
+                    String.format("%.1f%%", SLOTS_WORKED == 0 ? 0.0 : 100.0 * arrReserved[i] / SLOTS_WORKED),
+                    sbPaychecks));
+        }
+    }
+
+    /**
+     * Describes the settings of a variant
+     *
+     * @param variant the variant
+     * @return the settings in parentheses, empty if it changes nothing
+     */
+    static String describe(Variant variant) {
+        List<String> lstSettings = new ArrayList<String>();
+        if (variant.intExtraMechanics > 0)
+            lstSettings.add("mechanics=+" + variant.intExtraMechanics
+                    + (variant.dblExtraRate >= 0 ? ", rate=" + variant.dblExtraRate : ""));
+        if (variant.intWorkHours != MechanicSchedule.NUM_WORK_HOURS)
+            lstSettings.add("hours=" + variant.intWorkHours);
+        for (Map.Entry<String, Integer> currEntry : variant.mapServiceTimes.entrySet())
+            lstSettings.add(currEntry.getKey() + "=" + currEntry.getValue());
+        return lstSettings.isEmpty() ? "" : " (" + String.join(", ", lstSettings) + ")";
+    }
+
+    /**
+     * Gets the key a vehicle is known by in the input file
+     *
+     * @param strCustomerName        the name of the owner
+     * @param strVehicle_Description the description of the vehicle
+     * @return the key of the vehicle
+     */
+    private static String vehicleKey(String strCustomerName, String strVehicle_Description) {
+        return strCustomerName + "\t" + strVehicle_Description;
+    }
+}
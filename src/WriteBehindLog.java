@@ -0,0 +1,328 @@
+
+/**
+ * Filename: WriteBehindLog.java
+ *
+ * Project: Homework3
+ *
+ * Author: Kevin Gyorick
+ *
+ * Date: 10/19/2026
+ *
+ * File Purpose:    This file saves bookings behind the booking path. A booking is confirmed as soon as
+ *                  it is placed in memory and appended to a redo buffer, and a writer thread saves the
+ *                  buffer to the schedule table in batches. The buffer can also be appended to a redo
+ *                  file, optionally fsynced before the booking is confirmed, which is replayed on the
+ *                  next start if the program stopped before the buffer was saved. The buffer holds a
+ *                  bounded number of bookings, so at most that many can be lost without a redo file.
+ *
+ * Program Purpose: The program schedules appointments for a mechanic shop.
+ *                  Appointments are scheduled first come, first served as
+ *                  long as the job can be completed the same day it is started
+ *                  given the current schedule. Mechanics with lower bay numbers
+ *                  assigned have higher priority when multiple mechanics are available
+ */
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+public class WriteBehindLog {
+    static final int DEFAULT_MAX_PENDING = 1024; // the most bookings waiting to be saved
+    static final int DEFAULT_BATCH_SIZE = 256; // the most bookings saved in one transaction
+    static final long DEFAULT_FLUSH_MILLIS = 50; // how often the writer saves the buffer
+    static final long FLUSH_TIMEOUT_MILLIS = 5000; // the longest flush waits for the buffer to be saved
+
+    /**
+     * How durable a confirmed booking is before it is saved to the database
+     */
+    enum Durability {
+        MEMORY, // only in the buffer, lost if the program stops before it is saved
+        FILE, // appended to the redo file, lost only if the operating system stops
+        FSYNC // appended to the redo file and fsynced before the booking is confirmed
+    }
+
+    private final DB database; // the database the buffer is saved to
+    private final Durability durability; // how durable a confirmed booking is
+    private final FileChannel redoChannel; // the open redo file, null in memory mode
+    private final int intMaxPending; // the most bookings waiting to be saved
+    private final int intBatchSize; // the most bookings saved in one transaction
+    private final long lngFlushMillis; // how often the writer saves the buffer
+    private final ArrayDeque<Schedule> quePending = new ArrayDeque<Schedule>(); // bookings not saved yet
+    private final Thread writerThread; // saves the buffer to the database
+    private boolean blnRunning = true; // whether or not the log accepts bookings, guarded by this
+
+    /**
+     * construct a log with the default buffer size, batch size, and flush
+     * interval
+     *
+     * @param database   the database the buffer is saved to
+     * @param durability how durable a confirmed booking is
+     * @throws IOException throws if the redo file cannot be opened
+     */
+    public WriteBehindLog(DB database, Durability durability) throws IOException {
+        this(database, durability, DEFAULT_MAX_PENDING, DEFAULT_BATCH_SIZE, DEFAULT_FLUSH_MILLIS);
+    }
+
+    /**
+     * construct a log
+     *
+     * @param database       the database the buffer is saved to
+     * @param durability     how durable a confirmed booking is
+     * @param intMaxPending  the most bookings waiting to be saved, bookings wait
+     *                       for the writer once the buffer is full
+     * @param intBatchSize   the most bookings saved in one transaction
+     * @param lngFlushMillis how often the writer saves the buffer
+     * @throws IOException throws if the redo file cannot be opened
+     */
+    public WriteBehindLog(DB database, Durability durability, int intMaxPending, int intBatchSize,
+            long lngFlushMillis) throws IOException {
+        this.database = database;
+        this.durability = durability;
+        this.intMaxPending = intMaxPending;
+        this.intBatchSize = intBatchSize;
+        this.lngFlushMillis = lngFlushMillis;
+        this.redoChannel = durability == Durability.MEMORY ? null
+                : FileChannel.open(new File(getRedoFileName(database)).toPath(), StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.writerThread = new Thread(this::write, "write-behind");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Appends a booking to the buffer and the redo file, waiting for room if the
+     * buffer is full. Called in booking order, so the ids are increasing
+     *
+     * @param newAppointment the booking with the id it was given
+     * @throws IOException throws if the redo file cannot be written, in which case
+     *                     the booking is not in the buffer
+     */
+    public synchronized void append(Schedule newAppointment) throws IOException {
+        // wait for the writer to make room
+        boolean blnInterrupted = false;
+        while (blnRunning && quePending.size() >= intMaxPending) {
+            try {
+                wait();
+            } catch (InterruptedException ex) {
+                blnInterrupted = true;
+            }
+        }
+        if (blnInterrupted)
+            Thread.currentThread().interrupt();
+        if (!blnRunning)
+            throw new IOException("The write-behind log is closed");
+
+        if (redoChannel != null) {
+            ByteBuffer buffer = ByteBuffer.wrap(toLine(newAppointment).getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining())
+                redoChannel.write(buffer);
+            if (durability == Durability.FSYNC)
+                redoChannel.force(false);
+        }
+        quePending.add(newAppointment);
+        // wake the writer once a batch is ready
+        if (quePending.size() >= intBatchSize)
+            notifyAll();
+    }
+
+    /**
+     * Saves the buffer to the database in batches until the log is closed and
+     * the buffer is empty
+     */
+    private void write() {
+        while (true) {
+            // the next batch, left in the buffer until it is saved
+            Schedule[] arrBatch;
+            synchronized (this) {
+                if (blnRunning && quePending.size() < intBatchSize) {
+                    try {
+                        wait(lngFlushMillis);
+                    } catch (InterruptedException ex) {
+                        // closing, save what is left
+                    }
+                }
+                if (quePending.isEmpty()) {
+                    if (!blnRunning)
+                        return;
+                    continue;
+                }
+                arrBatch = new Schedule[Math.min(intBatchSize, quePending.size())];
+                int i = 0;
+                for (Schedule currAppointment : quePending) {
+                    if (i == arrBatch.length)
+                        break;
+                    arrBatch[i++] = currAppointment;
+                }
+            }
+
+            try {
+                database.addSchedulesWithIds(arrBatch);
+            } catch (SQLException ex) {
+                // leave the batch in the buffer and try again on the next flush
+                ex.printStackTrace();
+                synchronized (this) {
+                    if (!blnRunning)
+                        return;
+                    try {
+                        wait(lngFlushMillis);
+                    } catch (InterruptedException ex2) {
+                        return;
+                    }
+                }
+                continue;
+            }
+
+            synchronized (this) {
+                for (int i = 0; i < arrBatch.length; i++)
+                    quePending.poll();
+                // everything in the redo file is saved so it can be emptied
+                if (quePending.isEmpty() && redoChannel != null) {
+                    try {
+                        redoChannel.truncate(0);
+                    } catch (IOException ex) {
+                        ex.printStackTrace();
+                    }
+                }
+                // wake bookings waiting for room
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Gets the number of bookings that have not been saved to the database
+     *
+     * @return the number of bookings in the buffer
+     */
+    public synchronized int getPendingCount() {
+        return quePending.size();
+    }
+
+    /**
+     * Saves the buffer to the database now and waits until it is saved, used
+     * before an appointment in the buffer is changed in the database. Waits at
+     * most FLUSH_TIMEOUT_MILLIS, so a database the writer keeps failing to save
+     * to does not hold up the caller for good
+     *
+     * @throws IOException throws if the log was closed or the wait timed out
+     *                     before the buffer was saved
+     */
+    public synchronized void flush() throws IOException {
+        // wake the writer without waiting for a full batch
+        notifyAll();
+        final long DEADLINE = System.nanoTime() + FLUSH_TIMEOUT_MILLIS * 1000000L;
+        boolean blnInterrupted = false;
+        while (blnRunning && !quePending.isEmpty()) {
+            long lngRemaining = DEADLINE - System.nanoTime();
+            if (lngRemaining <= 0)
+                break;
+            try {
+                wait(Math.max(1, lngRemaining / 1000000L));
+            } catch (InterruptedException ex) {
+                blnInterrupted = true;
+            }
+        }
+        if (blnInterrupted)
+            Thread.currentThread().interrupt();
+        if (!quePending.isEmpty())
+            throw new IOException(blnRunning ? "The write-behind log was not saved in time"
+                    : "The write-behind log is closed");
+    }
+
+    /**
+     * Stops accepting bookings and saves the buffer to the database
+     *
+     * @throws IOException throws if the redo file cannot be closed
+     */
+    public void close() throws IOException {
+        synchronized (this) {
+            blnRunning = false;
+            notifyAll();
+        }
+        try {
+            writerThread.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        if (redoChannel != null)
+            redoChannel.close();
+    }
+
+    /**
+     * Gets the path of a database's redo file, beside the database file
+     *
+     * @param database the database the redo file belongs to
+     * @return the path of the redo file
+     */
+    static String getRedoFileName(DB database) {
+        return database.getFileName() + ".redo";
+    }
+
+    /**
+     * Saves the bookings in a redo file that are not in the database, left by a
+     * program that stopped before its buffer was saved, then empties the file
+     *
+     * @param database the database to save the bookings to
+     * @return the number of bookings replayed
+     * @throws IOException  throws if the redo file cannot be read
+     * @throws SQLException throws if the bookings cannot be saved
+     */
+    public static int recover(DB database) throws IOException, SQLException {
+        File redoFile = new File(getRedoFileName(database));
+        if (!redoFile.exists())
+            return 0;
+        // the bookings in the file, a line cut off by a crash is skipped
+        List<Schedule> lstBookings = new ArrayList<Schedule>();
+        for (String strLine : Files.readAllLines(redoFile.toPath(), StandardCharsets.UTF_8)) {
+            Schedule currAppointment = fromLine(strLine);
+            if (currAppointment != null)
+                lstBookings.add(currAppointment);
+        }
+        // ids already in the database are ignored, so a partly saved buffer is replayed
+        // safely
+        int intReplayed = database.addSchedulesWithIds(lstBookings.toArray(new Schedule[0]));
+        Files.delete(redoFile.toPath());
+        return intReplayed;
+    }
+
+    /**
+     * Gets the redo file line of a booking
+     *
+     * @param currAppointment the booking
+     * @return the tab delimited line
+     */
+    private static String toLine(Schedule currAppointment) {
+        return currAppointment.getTUID() + App.FILE_DELIMITER + currAppointment.Vehicles_TUID + App.FILE_DELIMITER
+                + currAppointment.Bays_TUID + App.FILE_DELIMITER + currAppointment.Service_TUID
+                + App.FILE_DELIMITER + currAppointment.Appointment_Start_Time.getTime() + App.FILE_DELIMITER
+                + currAppointment.Appointment_End_Time.getTime() + "\n";
+    }
+
+    /**
+     * Parses a redo file line
+     *
+     * @param strLine the tab delimited line
+     * @return the booking, null if the line is incomplete
+     * @throws SQLException throws if the database cannot be initialized
+     */
+    private static Schedule fromLine(String strLine) throws SQLException {
+        String[] arrFields = strLine.split(App.FILE_DELIMITER);
+        if (arrFields.length != 6)
+            return null;
+        try {
+            return new Schedule(Integer.parseInt(arrFields[0]), Integer.parseInt(arrFields[1]),
+                    Integer.parseInt(arrFields[2]), Integer.parseInt(arrFields[3]),
+                    new Timestamp(Long.parseLong(arrFields[4])), new Timestamp(Long.parseLong(arrFields[5])));
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+}